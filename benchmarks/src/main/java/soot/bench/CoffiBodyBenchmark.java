@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.coffi.ClassFile;
+import soot.coffi.CoffiMethodSource;
+import soot.coffi.method_info;
+
+/**
+ * Added in RoboVM. Measures how coffi builds naive Jimple bodies from the
+ * class files in the {@link Corpus}, without running the jb pack.
+ * {@link #parseClassFiles(Blackhole)} only parses the class files.
+ * {@link #getBody(Blackhole)} also runs
+ * {@link CoffiMethodSource#getBody(SootMethod, String)}, which parses the
+ * bytecode, builds the CFG and jimplifies every concrete method. Each
+ * operation covers the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoffiBodyBenchmark {
+    private static class Entry {
+        String className;
+        byte[] data;
+        List<SootMethod> methods = new ArrayList<SootMethod>();
+        List<Integer> methodIndices = new ArrayList<Integer>();
+    }
+
+    private List<Entry> entries;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Corpus corpus = Corpus.load();
+        entries = new ArrayList<Entry>();
+        ZipFile zip = new ZipFile(corpus.getJarFile());
+        try {
+            for (String name : corpus.getClassNames()) {
+                Entry e = new Entry();
+                e.className = name;
+                e.data = read(zip, name.replace('.', '/') + ".class");
+                SootClass sc = Scene.v().getSootClass(name);
+                for (SootMethod m : sc.getMethods()) {
+                    if (m.isConcrete() && m.getSource() instanceof CoffiMethodSource) {
+                        CoffiMethodSource src = (CoffiMethodSource) m.getSource();
+                        for (int i = 0; i < src.coffiClass.methods_count; i++) {
+                            if (src.coffiClass.methods[i] == src.coffiMethod) {
+                                e.methods.add(m);
+                                e.methodIndices.add(i);
+                                break;
+                            }
+                        }
+                    }
+                }
+                entries.add(e);
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String entryName) throws IOException {
+        InputStream in = zip.getInputStream(zip.getEntry(entryName));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static ClassFile parse(Entry e) {
+        ClassFile cf = new ClassFile(e.className);
+        if (!cf.loadClassFile(e.data)) {
+            throw new RuntimeException("Could not load classfile: " + e.className);
+        }
+        return cf;
+    }
+
+    @Benchmark
+    public void parseClassFiles(Blackhole bh) {
+        for (Entry e : entries) {
+            bh.consume(parse(e));
+        }
+    }
+
+    @Benchmark
+    public void getBody(Blackhole bh) {
+        for (Entry e : entries) {
+            ClassFile cf = parse(e);
+            for (int i = 0; i < e.methods.size(); i++) {
+                SootMethod m = e.methods.get(i);
+                method_info mi = cf.methods[e.methodIndices.get(i)];
+                mi.jmethod = m;
+                bh.consume(new CoffiMethodSource(cf, mi).getBody(m, "jb"));
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import soot.Body;
+import soot.G;
+import soot.PackManager;
+import soot.PhaseOptions;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.SourceLocator;
+import soot.options.Options;
+
+/**
+ * Added in RoboVM. The fixed set of class files the benchmarks run on. The
+ * classes are read from the <code>corpus.jar</code> resource bundled with
+ * the benchmarks so that results stay comparable across Soot versions.
+ * Classes referenced by the corpus but not part of it are either loaded
+ * from the running JDK or become phantom classes.
+ */
+public class Corpus {
+    public static final String RESOURCE = "/corpus.jar";
+
+    /**
+     * The jb transforms in the order they are applied by
+     * {@link soot.JimpleBodyPack}. <code>jb.ulp</code> is only applied when
+     * the <code>use-original-names</code> option of jb is set.
+     */
+    public static final List<String> JB_TRANSFORMS = Collections.unmodifiableList(Arrays.asList(
+            "jb.tt", "jb.ls", "jb.a", "jb.ule", "jb.tr", "jb.robovm.lp", "jb.ulp",
+            "jb.lns", "jb.cp", "jb.dae", "jb.cp-ule", "jb.lp", "jb.ne", "jb.uce"));
+
+    private final File jarFile;
+    private final List<String> classNames;
+    private final List<SootMethod> methods;
+
+    private Corpus(File jarFile, List<String> classNames, List<SootMethod> methods) {
+        this.jarFile = jarFile;
+        this.classNames = classNames;
+        this.methods = methods;
+    }
+
+    /**
+     * Resets Soot and resolves all classes in the corpus. The jb pack is
+     * disabled so that bodies built from the corpus are plain jimplified
+     * bytecode which the benchmarks can then run the jb transforms on.
+     */
+    public static Corpus load() throws IOException {
+        File jarFile = extract();
+        List<String> classNames = new ArrayList<String>();
+        ZipFile zip = new ZipFile(jarFile);
+        try {
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements();) {
+                String name = en.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+                }
+            }
+        } finally {
+            zip.close();
+        }
+        Collections.sort(classNames);
+
+        G.reset();
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_soot_classpath(jarFile.getAbsolutePath() + File.pathSeparator
+                + SourceLocator.DUMMY_CLASSPATH_JDK9_FS);
+        PhaseOptions.v().setPhaseOption("jb", "enabled:false");
+
+        List<SootClass> classes = new ArrayList<SootClass>();
+        for (String name : classNames) {
+            SootClass c = Scene.v().loadClassAndSupport(name);
+            c.setApplicationClass();
+            classes.add(c);
+        }
+        Scene.v().loadNecessaryClasses();
+
+        List<SootMethod> methods = new ArrayList<SootMethod>();
+        for (SootClass c : classes) {
+            for (SootMethod m : c.getMethods()) {
+                if (m.isConcrete()) {
+                    methods.add(m);
+                }
+            }
+        }
+        return new Corpus(jarFile, classNames, methods);
+    }
+
+    private static File extract() throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IOException("Resource " + RESOURCE + " not found");
+        }
+        File f = File.createTempFile("soot-corpus", ".jar");
+        f.deleteOnExit();
+        try {
+            OutputStream out = new FileOutputStream(f);
+            try {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        return f;
+    }
+
+    /**
+     * Returns the jar file containing the corpus.
+     */
+    public File getJarFile() {
+        return jarFile;
+    }
+
+    /**
+     * Returns the names of all classes in the corpus.
+     */
+    public List<String> getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * Returns the concrete methods of all classes in the corpus.
+     */
+    public List<SootMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Applies the jb transforms preceding <code>phaseName</code> to the
+     * specified body, in the same order and with the same options as
+     * {@link soot.JimpleBodyPack}.
+     */
+    public static void applyTransformsBefore(String phaseName, Body b) {
+        boolean useOriginalNames = PhaseOptions.getBoolean(
+                PhaseOptions.v().getPhaseOptions("jb"), "use-original-names");
+        for (String name : JB_TRANSFORMS) {
+            if (name.equals(phaseName)) {
+                return;
+            }
+            if (name.equals("jb.ulp") && !useOriginalNames) {
+                continue;
+            }
+            PackManager.v().getTransform(name).apply(b);
+        }
+        throw new IllegalArgumentException("Unknown jb transform " + phaseName);
+    }
+}
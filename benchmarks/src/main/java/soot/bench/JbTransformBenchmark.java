@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soot.Body;
+import soot.PackManager;
+import soot.SootMethod;
+import soot.Transform;
+
+/**
+ * Added in RoboVM. Measures each jb transform separately. Every operation
+ * applies the selected transform to the bodies of all methods in the
+ * {@link Corpus}. Before each operation the bodies are copied from
+ * templates which have already been run through the transforms preceding
+ * the selected one, so that each transform sees the same input as it would
+ * in the jb pack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JbTransformBenchmark {
+    @Param({ "jb.tt", "jb.ls", "jb.a", "jb.ule", "jb.tr", "jb.robovm.lp", "jb.ulp",
+            "jb.lns", "jb.cp", "jb.dae", "jb.cp-ule", "jb.lp", "jb.ne", "jb.uce" })
+    public String phase;
+
+    private Transform transform;
+    private List<Body> templates;
+    private List<Body> bodies;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Corpus corpus = Corpus.load();
+        templates = new ArrayList<Body>();
+        for (SootMethod m : corpus.getMethods()) {
+            // The jb pack is disabled so this is the naive Jimple from coffi
+            Body b = m.retrieveActiveBody();
+            Corpus.applyTransformsBefore(phase, b);
+            templates.add(b);
+        }
+        transform = PackManager.v().getTransform(phase);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyBodies() {
+        bodies = new ArrayList<Body>(templates.size());
+        for (Body b : templates) {
+            bodies.add((Body) b.clone());
+        }
+    }
+
+    @Benchmark
+    public List<Body> transform() {
+        for (Body b : bodies) {
+            transform.apply(b);
+        }
+        return bodies;
+    }
+}
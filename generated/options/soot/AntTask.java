@@ -160,6 +160,23 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-debug-resolver");
         }
   
+        public void setparallel_resolver(boolean arg) {
+            if(arg) addArg("-parallel-resolver");
+        }
+  
+        public void setparallel_bodies(boolean arg) {
+            if(arg) addArg("-parallel-bodies");
+        }
+  
+        public void setlean_class_files(boolean arg) {
+            if(arg) addArg("-lean-class-files");
+        }
+  
+        public void setbody_cache_dir(String arg) {
+            addArg("-body-cache-dir");
+            addArg(arg);
+        }
+  
         public void setsoot_classpath(String arg) {
             addArg("-soot-classpath");
             addArg(arg);
@@ -1032,6 +1049,24 @@ public class AntTask extends MatchingTask {
             addArg("trim-clinit:"+(arg?"true":"false"));
           }
       
+          public void setprecompute_dispatch(boolean arg) {
+            addArg("-p");
+            addArg("cg");
+            addArg("precompute-dispatch:"+(arg?"true":"false"));
+          }
+      
+          public void setcompact_edges(boolean arg) {
+            addArg("-p");
+            addArg("cg");
+            addArg("compact-edges:"+(arg?"true":"false"));
+          }
+      
+          public void setparallel_worklist(boolean arg) {
+            addArg("-p");
+            addArg("cg");
+            addArg("parallel-worklist:"+(arg?"true":"false"));
+          }
+      
           public void setjdkver(String arg) {
             addArg("-p");
             addArg("cg");
@@ -142,6 +142,52 @@ public class CGOptions
         return soot.PhaseOptions.getBoolean( options, "trim-clinit" );
     }
     
+    /** Precompute Dispatch Tables --
+    
+     * Build immutable virtual dispatch tables before constructing the 
+     * call graph.
+    
+     * When this option is true, the dispatch tables used to resolve 
+     * virtual calls are built for all classes in the Scene in one pass 
+     * over the class hierarchy before the call graph is constructed, 
+     * instead of lazily per type and subsignature. The tables are 
+     * immutable, so virtual calls can then be resolved from several 
+     * threads without locking. 
+     */
+    public boolean precompute_dispatch() {
+        return soot.PhaseOptions.getBoolean( options, "precompute-dispatch" );
+    }
+    
+    /** Compact Edges --
+    
+     * Store call graph edges in int columns.
+    
+     * When this option is true, the call graph stores its edges in int 
+     * arrays of method, unit and kind numbers rather than as linked 
+     * Edge objects in hash maps. This reduces the memory used by large 
+     * call graphs. Edge objects are then created when the edges are 
+     * iterated. 
+     */
+    public boolean compact_edges() {
+        return soot.PhaseOptions.getBoolean( options, "compact-edges" );
+    }
+    
+    /** Parallel Worklist --
+    
+     * Build and scan the bodies of reachable methods on worker threads.
+    
+     * When this option is true, the methods which become reachable 
+     * while the call graph is constructed are processed in batches. 
+     * The bodies of the methods in a batch are built and scanned for 
+     * call sites using -num-threads worker threads. The resulting 
+     * edges are added to the call graph by a single thread in worklist 
+     * order, so the call graph does not depend on the number of threads 
+     * or on how they are scheduled. 
+     */
+    public boolean parallel_worklist() {
+        return soot.PhaseOptions.getBoolean( options, "parallel-worklist" );
+    }
+    
     /** JDK version --
     
      * JDK version for native methods.
@@ -167,6 +167,77 @@ public class Options extends OptionsBase {
             )
                 debug_resolver = true;
   
+            else if( false
+            || option.equals( "num-threads" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                try {
+                    num_threads = Integer.parseInt( value );
+                } catch( NumberFormatException e ) {
+                    G.v().out.println( "Invalid value "+value+" given for option -"+option );
+                    return false;
+                }
+            }
+  
+            else if( false 
+            || option.equals( "parallel-resolver" )
+            )
+                parallel_resolver = true;
+  
+            else if( false 
+            || option.equals( "parallel-bodies" )
+            )
+                parallel_bodies = true;
+  
+            else if( false 
+            || option.equals( "lean-class-files" )
+            )
+                lean_class_files = true;
+  
+            else if( false
+            || option.equals( "body-cache-dir" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                if( body_cache_dir.length() == 0 )
+                    body_cache_dir = value;
+                else {
+                    G.v().out.println( "Duplicate values "+body_cache_dir+" and "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
+            else if( false 
+            || option.equals( "binary-jimple" )
+            )
+                binary_jimple = true;
+  
+            else if( false
+            || option.equals( "binary-jimple-output-dir" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                if( binary_jimple_output_dir.length() == 0 )
+                    binary_jimple_output_dir = value;
+                else {
+                    G.v().out.println( "Duplicate values "+binary_jimple_output_dir+" and "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
             else if( false
             || option.equals( "cp" )
             || option.equals( "soot-class-path" )
@@ -961,6 +1032,33 @@ public class Options extends OptionsBase {
     private boolean debug_resolver = false;
     public void set_debug_resolver( boolean setting ) { debug_resolver = setting; }
   
+    public int num_threads() { return num_threads; }
+    public void set_num_threads( int setting ) { num_threads = setting; }
+    private int num_threads = -1;
+    public boolean parallel_resolver() { return parallel_resolver; }
+    private boolean parallel_resolver = false;
+    public void set_parallel_resolver( boolean setting ) { parallel_resolver = setting; }
+  
+    public boolean parallel_bodies() { return parallel_bodies; }
+    private boolean parallel_bodies = false;
+    public void set_parallel_bodies( boolean setting ) { parallel_bodies = setting; }
+  
+    public boolean lean_class_files() { return lean_class_files; }
+    private boolean lean_class_files = false;
+    public void set_lean_class_files( boolean setting ) { lean_class_files = setting; }
+  
+    public String body_cache_dir() { return body_cache_dir; }
+    public void set_body_cache_dir( String setting ) { body_cache_dir = setting; }
+    private String body_cache_dir = "";
+  
+    public boolean binary_jimple() { return binary_jimple; }
+    private boolean binary_jimple = false;
+    public void set_binary_jimple( boolean setting ) { binary_jimple = setting; }
+  
+    public String binary_jimple_output_dir() { return binary_jimple_output_dir; }
+    public void set_binary_jimple_output_dir( String setting ) { binary_jimple_output_dir = setting; }
+    private String binary_jimple_output_dir = "";
+  
     public String soot_classpath() { return soot_classpath; }
     public void set_soot_classpath( String setting ) { soot_classpath = setting; }
     private String soot_classpath = "";
@@ -1159,6 +1257,13 @@ public class Options extends OptionsBase {
 +padOpt(" -validate", "Run internal validation on bodies" )
 +padOpt(" -debug", "Print various Soot debugging info" )
 +padOpt(" -debug-resolver", "Print debugging info from SootResolver" )
++padOpt(" -num-threads NUM", "Use NUM worker threads for parallel phases" )
++padOpt(" -parallel-resolver", "Read and parse class files on worker threads" )
++padOpt(" -parallel-bodies", "Build and transform method bodies on worker threads" )
++padOpt(" -lean-class-files", "Drop parsed class files after resolution and re-parse them on demand" )
++padOpt(" -body-cache-dir DIR", "Cache Jimple bodies built from class files in DIR" )
++padOpt(" -binary-jimple", "Read binary Jimple files found on the soot-class-path" )
++padOpt(" -binary-jimple-output-dir DIR", "Write binary Jimple files of application classes to DIR" )
 +"\nInput Options:\n"
       
 +padOpt(" -cp PATH -soot-class-path PATH -soot-classpath PATH", "Use PATH as the classpath for finding classes." )
@@ -1561,6 +1666,9 @@ public class Options extends OptionsBase {
                 +padOpt( "all-reachable (false)", "Assume all methods of application classes are reachable." )
                 +padOpt( "implicit-entry (true)", "Include methods called implicitly by the VM as entry points" )
                 +padOpt( "trim-clinit (true)", "Removes redundant static initializer calls" )
+                +padOpt( "precompute-dispatch (false)", "Build immutable virtual dispatch tables before constructing the call graph" )
+                +padOpt( "compact-edges (false)", "Store call graph edges in int columns" )
+                +padOpt( "parallel-worklist (false)", "Build and scan the bodies of reachable methods on worker threads" )
                 +padOpt( "reflection-log", "Uses a reflection log to resolve reflective calls." )
                 +padOpt( "guards (ignore)", "Describes how to guard the program from unsound assumptions." );
     
@@ -2505,6 +2613,9 @@ public class Options extends OptionsBase {
                 +"all-reachable "
                 +"implicit-entry "
                 +"trim-clinit "
+                +"precompute-dispatch "
+                +"compact-edges "
+                +"parallel-worklist "
                 +"reflection-log "
                 +"guards ";
     
@@ -3109,6 +3220,9 @@ public class Options extends OptionsBase {
               +"all-reachable:false "
               +"implicit-entry:true "
               +"trim-clinit:true "
+              +"precompute-dispatch:false "
+              +"compact-edges:false "
+              +"parallel-worklist:false "
               +"guards:ignore ";
     
         if( phaseName.equals( "cg.cha" ) )
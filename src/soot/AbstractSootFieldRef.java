@@ -48,6 +48,20 @@ class AbstractSootFieldRef implements SootFieldRef {
     private final Type type;
     private final boolean isStatic;
 
+    /** RoboVM note: The field this ref last resolved to, valid as long as
+     * {@link Scene#getMemberState()} hasn't changed. */
+    private volatile Resolution resolution;
+
+    private static final class Resolution {
+        final SootField field;
+        final int memberState;
+
+        Resolution( SootField field, int memberState ) {
+            this.field = field;
+            this.memberState = memberState;
+        }
+    }
+
     public SootClass declaringClass() { return declaringClass; }
     public String name() { return name; }
     public Type type() { return type; }
@@ -72,7 +86,15 @@ class AbstractSootFieldRef implements SootFieldRef {
     }
 
     public SootField resolve() {
-        return resolve(null);
+        // RoboVM note: Reuse the last result unless a class has changed since.
+        int memberState = Scene.v().getMemberState();
+        Resolution r = resolution;
+        if( r != null && r.memberState == memberState ) {
+            return checkStatic(r.field);
+        }
+        SootField ret = resolve(null);
+        resolution = new Resolution(ret, memberState);
+        return ret;
     }
     private SootField checkStatic(SootField ret) {
         if( ret.isStatic() != isStatic() && !ret.isPhantom()) {
@@ -141,6 +141,9 @@ public class AbstractTrap implements Trap, Serializable
 
     public void setException(SootClass exception)
     {
+        // RoboVM note: Invalidate cached analyses
+        if(this.exception != exception)
+            BodyAnalysisCache.modified();
         this.exception = exception;
     }
 
@@ -58,6 +58,18 @@ public abstract class AbstractUnit extends AbstractHost implements Unit
         return emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        for (Iterator it = getUseBoxes().iterator(); it.hasNext();)
+            consumer.accept((ValueBox) it.next());
+    }
+
+    public void forEachDefBox(ValueBoxConsumer consumer)
+    {
+        for (Iterator it = getDefBoxes().iterator(); it.hasNext();)
+            consumer.accept((ValueBox) it.next());
+    }
+
 
     /** Returns a list of Boxes containing Units defined in this Unit; typically
      * branch targets.
@@ -47,6 +47,11 @@ public abstract class AbstractUnitBox implements UnitBox
         if(!canContainUnit(unit))
             throw new RuntimeException("attempting to put invalid unit in UnitBox");
             
+        // RoboVM note: Invalidate cached analyses. Boxes being filled
+        // in by their constructors don't modify any body.
+            if(this.unit != null && this.unit != unit)
+                BodyAnalysisCache.modified();
+
         // Remove this from set of back pointers.
             if(this.unit != null)
             {
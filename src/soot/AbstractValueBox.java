@@ -37,7 +37,13 @@ public abstract class AbstractValueBox extends AbstractHost implements ValueBox
     public void setValue(Value value)
     {
         if(canContainValue(value))
+        {
+            // RoboVM note: Invalidate cached analyses. Boxes being filled
+            // in by their constructors don't modify any body.
+            if(this.value != null && this.value != value)
+                BodyAnalysisCache.modified();
             this.value = value;
+        }
         else
             throw new RuntimeException("Box " + this + " cannot contain value: " + value + "(" + value.getClass() + ")" );
     }
@@ -80,8 +80,15 @@ public class ArrayType extends RefLikeType
         }
         ret = elementType.getArrayType();
         if( ret == null ) {
-            ret = new ArrayType(baseType, numDimensions);
-            elementType.setArrayType( ret );
+            // RoboVM note: ArrayTypes are compared by identity. Synchronize
+            // creation since bodies may be built concurrently.
+            synchronized (Scene.v()) {
+                ret = elementType.getArrayType();
+                if( ret == null ) {
+                    ret = new ArrayType(baseType, numDimensions);
+                    elementType.setArrayType( ret );
+                }
+            }
         }
         return ret;
     }
@@ -91,6 +91,31 @@ public abstract class Body extends AbstractHost implements Serializable
     /** The chain of units for this Body. */
     protected PatchingChain<Unit> unitChain = new PatchingChain<Unit>(new HashChain<Unit>());
 
+    // RoboVM note: Added
+    private transient BodyAnalysisCache analysisCache;
+    // RoboVM note: Incremented by BodyAnalysisCache.modified()
+    transient long modificationCount;
+
+    /**
+     * Returns the cache of analysis results of this Body.
+     * RoboVM note: Added in RoboVM.
+     */
+    public BodyAnalysisCache getAnalysisCache()
+    {
+        if (analysisCache == null)
+            analysisCache = new BodyAnalysisCache(this);
+        return analysisCache;
+    }
+
+    /**
+     * Drops the cached analysis results of this Body, if any.
+     * RoboVM note: Added in RoboVM.
+     */
+    public void clearAnalysisCache()
+    {
+        analysisCache = null;
+    }
+
     /** Creates a deep copy of this Body. */
     abstract public Object clone();
 
@@ -263,13 +288,18 @@ public abstract class Body extends AbstractHost implements Serializable
     /** Verifies that each Local of getUseAndDefBoxes() is in this body's locals Chain. */
     public void validateLocals()
     {
-        Iterator<ValueBox> it = getUseBoxes().iterator();
-        while(it.hasNext()){
-            validateLocal( it.next() );
-        }
-        it = getDefBoxes().iterator();
+        // RoboVM note: Visit the boxes of each unit instead of building
+        // lists of all boxes in the body.
+        ValueBoxConsumer validator = new ValueBoxConsumer() {
+            public void accept(ValueBox vb) {
+                validateLocal( vb );
+            }
+        };
+        Iterator<Unit> it = unitChain.iterator();
         while(it.hasNext()){
-            validateLocal( it.next() );
+            Unit u = it.next();
+            u.forEachUseBox( validator );
+            u.forEachDefBox( validator );
         }
     }
     private void validateLocal( ValueBox vb ) {
@@ -537,11 +567,14 @@ public abstract class Body extends AbstractHost implements Serializable
     public List<ValueBox> getUseBoxes()
     {
         ArrayList<ValueBox> useBoxList = new ArrayList<ValueBox>();
+        // RoboVM note: Add the boxes directly instead of building a list
+        // per unit.
+        ValueBoxConsumer collector = new BoxCollector(useBoxList);
 
         Iterator<Unit> it = unitChain.iterator();
         while(it.hasNext()) {
             Unit item = it.next();
-            useBoxList.addAll(item.getUseBoxes());
+            item.forEachUseBox(collector);
         }
         return useBoxList;
     }
@@ -585,16 +618,33 @@ public abstract class Body extends AbstractHost implements Serializable
     public List<ValueBox> getUseAndDefBoxes()
     {
         ArrayList<ValueBox> useAndDefBoxList = new ArrayList<ValueBox>();
+        ValueBoxConsumer collector = new BoxCollector(useAndDefBoxList);
 
         Iterator<Unit> it = unitChain.iterator();
         while(it.hasNext()) {
             Unit item = it.next();
-            useAndDefBoxList.addAll(item.getUseBoxes());
-            useAndDefBoxList.addAll(item.getDefBoxes());
+            item.forEachUseBox(collector);
+            item.forEachDefBox(collector);
         }
         return useAndDefBoxList;
     }
 
+    /** Adds the boxes it is passed to a list. Added in RoboVM. */
+    private static class BoxCollector implements ValueBoxConsumer
+    {
+        private final List<ValueBox> boxes;
+
+        BoxCollector(List<ValueBox> boxes)
+        {
+            this.boxes = boxes;
+        }
+
+        public void accept(ValueBox box)
+        {
+            boxes.add(box);
+        }
+    }
+
     private void checkLocals() {
 	Chain<Local> locals=getLocals();
 
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import soot.options.Options;
+import soot.toolkits.exceptions.ThrowAnalysis;
+import soot.toolkits.graph.CompactUnitGraph;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.scalar.SimpleLiveLocals;
+import soot.toolkits.scalar.SimpleLocalUses;
+import soot.toolkits.scalar.SmartLocalDefs;
+import soot.util.Chain;
+import soot.util.HashChain;
+
+/**
+ * Added in RoboVM. Caches the {@link ExceptionalUnitGraph}, live locals,
+ * local defs and local uses of a {@link Body} so that consecutive
+ * transforms which don't modify the body share the same results instead of
+ * recomputing them. Use {@link Body#getAnalysisCache()} to get the cache of
+ * a body.
+ * <p>
+ * Cached results are dropped automatically when the body has been modified
+ * since they were computed. Modifications are detected using the
+ * modification counts of the unit, local and trap chains and a counter of
+ * the body which is incremented whenever the value of a {@link ValueBox},
+ * the target of a {@link UnitBox}, the exception of a {@link Trap} or the
+ * type of a {@link Local} is changed by the current thread while a
+ * {@link Pack} is applied to the body. Results are only reused while such
+ * a pack runs on the current thread. Otherwise they are computed again on
+ * every call. The results returned must not be modified by callers.
+ */
+public class BodyAnalysisCache {
+    private static final ThreadLocal<Body> currentBody = new ThreadLocal<Body>();
+
+    private final Body body;
+
+    private Chain<Unit> units;
+    private Chain<Local> locals;
+    private Chain<Trap> traps;
+    private long unitsCount;
+    private long localsCount;
+    private long trapsCount;
+    private long modificationsCount;
+    private ThrowAnalysis throwAnalysis;
+    private boolean omitExceptingUnitEdges;
+
+    private ExceptionalUnitGraph graph;
+    private SimpleLiveLocals liveLocals;
+    private SmartLocalDefs localDefs;
+    private SimpleLocalUses localUses;
+
+    BodyAnalysisCache(Body body) {
+        this.body = body;
+    }
+
+    /**
+     * Makes <code>b</code> the body modified by the current thread and
+     * returns the previous one, which must be passed to {@link #exit(Body)}.
+     */
+    static Body enter(Body b) {
+        Body previous = currentBody.get();
+        currentBody.set(b);
+        return previous;
+    }
+
+    /**
+     * Restores the body returned by {@link #enter(Body)}.
+     */
+    static void exit(Body previous) {
+        if (previous == null) {
+            currentBody.remove();
+        } else {
+            currentBody.set(previous);
+        }
+    }
+
+    /**
+     * Called when the contents of a {@link Unit} or {@link Trap} or the
+     * type of a {@link Local} have changed. Invalidates the cached results
+     * of the body modified by the current thread, if any.
+     */
+    public static void modified() {
+        Body b = currentBody.get();
+        if (b != null) {
+            b.modificationCount++;
+        }
+    }
+
+    /**
+     * Returns the {@link ExceptionalUnitGraph} of the body created using
+     * the default {@link ThrowAnalysis}. The graph has the same edges as
+     * <code>new ExceptionalUnitGraph(body)</code> but is a
+     * {@link CompactUnitGraph}.
+     */
+    public ExceptionalUnitGraph getExceptionalUnitGraph() {
+        validate();
+        return graph();
+    }
+
+    /**
+     * Returns the {@link SimpleLiveLocals} computed over
+     * {@link #getExceptionalUnitGraph()}.
+     */
+    public SimpleLiveLocals getLiveLocals() {
+        validate();
+        return liveLocals();
+    }
+
+    /**
+     * Returns the {@link SmartLocalDefs} computed over
+     * {@link #getExceptionalUnitGraph()} and {@link #getLiveLocals()}.
+     */
+    public SmartLocalDefs getLocalDefs() {
+        validate();
+        return localDefs();
+    }
+
+    /**
+     * Returns the {@link SimpleLocalUses} computed over
+     * {@link #getExceptionalUnitGraph()} and {@link #getLocalDefs()}.
+     */
+    public SimpleLocalUses getLocalUses() {
+        validate();
+        if (localUses == null) {
+            localUses = new SimpleLocalUses(graph(), localDefs());
+        }
+        return localUses;
+    }
+
+    private ExceptionalUnitGraph graph() {
+        if (graph == null) {
+            graph = new CompactUnitGraph(body, throwAnalysis, omitExceptingUnitEdges);
+        }
+        return graph;
+    }
+
+    private SimpleLiveLocals liveLocals() {
+        if (liveLocals == null) {
+            liveLocals = new SimpleLiveLocals(graph());
+        }
+        return liveLocals;
+    }
+
+    private SmartLocalDefs localDefs() {
+        if (localDefs == null) {
+            localDefs = new SmartLocalDefs(graph(), liveLocals());
+        }
+        return localDefs;
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void clear() {
+        graph = null;
+        liveLocals = null;
+        localDefs = null;
+        localUses = null;
+        units = null;
+        locals = null;
+        traps = null;
+        throwAnalysis = null;
+    }
+
+    private void validate() {
+        Chain<Unit> u = body.getUnits();
+        Chain<Local> l = body.getLocals();
+        Chain<Trap> t = body.getTraps();
+        long uc = modificationCount(u);
+        long lc = modificationCount(l);
+        long tc = modificationCount(t);
+        long mc = body.modificationCount;
+        ThrowAnalysis ta = Scene.v().getDefaultThrowAnalysis();
+        boolean omit = Options.v().omit_excepting_unit_edges();
+        // Modifications of the body are only counted while it is the
+        // current body of this thread
+        boolean tracked = currentBody.get() == body;
+        if (!tracked || u != units || l != locals || t != traps || uc != unitsCount || lc != localsCount
+                || tc != trapsCount || mc != modificationsCount || ta != throwAnalysis
+                || omit != omitExceptingUnitEdges || uc == -1 || lc == -1 || tc == -1) {
+
+            clear();
+            units = u;
+            locals = l;
+            traps = t;
+            unitsCount = uc;
+            localsCount = lc;
+            trapsCount = tc;
+            modificationsCount = mc;
+            throwAnalysis = ta;
+            omitExceptingUnitEdges = omit;
+        }
+    }
+
+    /**
+     * Returns the modification count of the specified chain or -1 if the
+     * chain doesn't track modifications.
+     */
+    private static long modificationCount(Chain<?> c) {
+        if (c instanceof PatchingChain) {
+            c = ((PatchingChain<?>) c).getNonPatchingChain();
+        }
+        if (c instanceof HashChain) {
+            return ((HashChain<?>) c).getModificationCount();
+        }
+        return -1;
+    }
+}
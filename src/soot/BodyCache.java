@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.binary.JimpleBodyReader;
+import soot.jimple.binary.JimpleBodyWriter;
+import soot.options.Options;
+
+/**
+ * Added in RoboVM. Persistent cache of the {@link JimpleBody} instances
+ * produced from class files by coffi and the jb pack. Enabled by the
+ * <code>-body-cache-dir</code> option. Bodies are stored one per file using
+ * the binary Jimple format, keyed by a digest of the class file contents, the
+ * jb phase options and the method's sub-signature, so a changed class file or
+ * changed options never hit stale entries.
+ */
+public class BodyCache {
+    private static final int MAGIC = 0x4A424459; // 'JBDY'
+    private static final int VERSION = 1;
+
+    private volatile String optionsKey;
+
+    public BodyCache(Singletons.Global g) {
+    }
+
+    public static BodyCache v() {
+        return G.v().soot_BodyCache();
+    }
+
+    public boolean isEnabled() {
+        return Options.v().body_cache_dir().length() > 0;
+    }
+
+    /**
+     * Returns the digest of the specified class file contents used as part
+     * of the cache keys of the bodies of its methods.
+     */
+    public String digest(byte[] classFile) {
+        return toHex(sha1().digest(classFile));
+    }
+
+    /**
+     * Returns the cached body of the specified method or <code>null</code>
+     * if there is none. Entries which can't be read are deleted so that the
+     * body is rebuilt by coffi and stored again.
+     */
+    public JimpleBody load(SootMethod m, String classDigest) {
+        File f = getFile(m, classDigest);
+        if (!f.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION
+                        || in.readInt() != JimpleBodyWriter.FORMAT_VERSION
+                        || !in.readUTF().equals(m.getSubSignature())) {
+                    return null;
+                }
+                JimpleBody body = Jimple.v().newBody(m);
+                new JimpleBodyReader(in).read(body);
+                return body;
+            } finally {
+                in.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or truncated entry
+            f.delete();
+            if (Options.v().verbose()) {
+                G.v().out.println("Failed to read cached body of " + m + ": " + e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the specified body of the specified method in the cache. Bodies
+     * which can't be stored in the binary Jimple format are skipped.
+     */
+    public void store(SootMethod m, String classDigest, Body body) {
+        File f = getFile(m, classDigest);
+        File dir = f.getParentFile();
+        dir.mkdirs();
+        File tmp = null;
+        try {
+            // Write to a temporary file first so that concurrent readers
+            // never see a partially written entry
+            tmp = File.createTempFile(f.getName(), ".tmp", dir);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(JimpleBodyWriter.FORMAT_VERSION);
+                out.writeUTF(m.getSubSignature());
+                new JimpleBodyWriter(out).write(body);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(f)) {
+                tmp.delete();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+            if (Options.v().verbose()) {
+                G.v().out.println("Failed to cache body of " + m + ": " + e);
+            }
+        }
+    }
+
+    private File getFile(SootMethod m, String classDigest) {
+        MessageDigest md = sha1();
+        md.update(utf8(classDigest));
+        md.update(utf8(getOptionsKey()));
+        md.update(utf8(m.getSubSignature()));
+        String key = toHex(md.digest());
+        return new File(new File(Options.v().body_cache_dir(), key.substring(0, 2)), key.substring(2));
+    }
+
+    /**
+     * Returns a string describing all options which affect the bodies built
+     * by the jb pack.
+     */
+    private String getOptionsKey() {
+        String key = optionsKey;
+        if (key == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(VERSION).append('.').append(JimpleBodyWriter.FORMAT_VERSION);
+            sb.append(";keep-line-number=").append(Options.v().keep_line_number());
+            sb.append(";keep-offset=").append(Options.v().keep_offset());
+            Pack jb = PackManager.v().getPack("jb");
+            appendPhaseOptions(sb, jb.getPhaseName());
+            for (Iterator<?> it = jb.iterator(); it.hasNext();) {
+                appendPhaseOptions(sb, ((HasPhaseOptions) it.next()).getPhaseName());
+            }
+            key = sb.toString();
+            optionsKey = key;
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendPhaseOptions(StringBuilder sb, String phaseName) {
+        Map<String, String> opts = new TreeMap<String, String>(PhaseOptions.v().getPhaseOptions(phaseName));
+        sb.append(';').append(phaseName).append(opts);
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
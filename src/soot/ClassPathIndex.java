@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Added in RoboVM. Index of the files in the archives on the soot-class-path.
+ * Every archive is scanned exactly once, the first time a file is looked up,
+ * and the resulting file name to archive map makes subsequent lookups in
+ * archives a single hash lookup. Directories are not indexed. They are
+ * probed on every lookup so that files written to them later on are found.
+ * Open {@link ZipFile} handles are kept in a bounded LRU pool instead of
+ * being reopened for every class.
+ */
+public class ClassPathIndex {
+    public static final int DEFAULT_MAX_OPEN_ARCHIVES = 16;
+
+    private final List<String> classPath;
+    private final int maxOpenArchives;
+    // Maps file names to the position of the first archive containing them
+    private Map<String, Integer> index;
+    private Set<String> archives;
+    private final LinkedHashMap<String, ZipFile> openArchives;
+
+    public ClassPathIndex(List<String> classPath) {
+        this(classPath, DEFAULT_MAX_OPEN_ARCHIVES);
+    }
+
+    public ClassPathIndex(List<String> classPath, int maxOpenArchives) {
+        if (maxOpenArchives < 1) {
+            throw new IllegalArgumentException("maxOpenArchives < 1");
+        }
+        this.classPath = classPath;
+        this.maxOpenArchives = maxOpenArchives;
+        this.openArchives = new LinkedHashMap<String, ZipFile>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the classpath entry (jar file or directory) which the file with
+     * the specified name will be loaded from or <code>null</code> if no
+     * classpath entry contains the file.
+     */
+    public synchronized String lookupEntry(String fileName) {
+        if (index == null) {
+            buildIndex();
+        }
+        Integer archive = index.get(fileName);
+        // Directories before the archive shadow it
+        int end = archive == null ? classPath.size() : archive.intValue();
+        for (int i = 0; i < end; i++) {
+            String entry = classPath.get(i);
+            if (!archives.contains(entry) && new File(entry, fileName).isFile()) {
+                return entry;
+            }
+        }
+        return archive == null ? null : classPath.get(archive.intValue());
+    }
+
+    /**
+     * Searches for a file with the given name. Returns <code>null</code> if
+     * not found.
+     */
+    public synchronized SourceLocator.FoundFile lookup(String fileName) {
+        String entry = lookupEntry(fileName);
+        if (entry == null) {
+            return null;
+        }
+        if (archives.contains(entry)) {
+            return new SourceLocator.FoundFile(this, entry, fileName);
+        }
+        return new SourceLocator.FoundFile(new File(entry, fileName));
+    }
+
+    /**
+     * Reads the contents of the specified entry in the specified archive
+     * using a pooled {@link ZipFile} handle. The entry is read fully so the
+     * returned stream stays valid even if the handle is evicted later on.
+     * Reading happens outside the pool lock so that entries can be inflated
+     * concurrently by the parallel resolver.
+     */
+    public InputStream openEntry(String archive, String fileName) throws IOException {
+        ZipFile zipFile;
+        ZipEntry entry;
+        synchronized (this) {
+            zipFile = openArchive(archive);
+            entry = zipFile.getEntry(fileName);
+        }
+        if (entry == null) {
+            throw new IOException("No entry " + fileName + " in " + archive);
+        }
+        try {
+            return new ByteArrayInputStream(read(zipFile, entry));
+        } catch (IllegalStateException | IOException e) {
+            // The handle may have been evicted and closed while we were
+            // reading from it. Retry once while holding the lock.
+            synchronized (this) {
+                return new ByteArrayInputStream(read(openArchive(archive), entry));
+            }
+        }
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry entry) throws IOException {
+        InputStream in = zipFile.getInputStream(entry);
+        try {
+            return readFully(in, entry.getSize());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Closes all pooled {@link ZipFile} handles and drops the index.
+     */
+    public synchronized void close() {
+        for (ZipFile zipFile : openArchives.values()) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+            }
+        }
+        openArchives.clear();
+        index = null;
+        archives = null;
+    }
+
+    private ZipFile openArchive(String archive) throws IOException {
+        ZipFile zipFile = openArchives.get(archive);
+        if (zipFile == null) {
+            zipFile = new ZipFile(archive);
+            openArchives.put(archive, zipFile);
+            if (openArchives.size() > maxOpenArchives) {
+                Iterator<ZipFile> it = openArchives.values().iterator();
+                ZipFile eldest = it.next();
+                it.remove();
+                eldest.close();
+            }
+        }
+        return zipFile;
+    }
+
+    private void buildIndex() {
+        index = new HashMap<String, Integer>();
+        archives = new HashSet<String>();
+        for (int i = 0; i < classPath.size(); i++) {
+            String entry = classPath.get(i);
+            if (isArchive(entry)) {
+                archives.add(entry);
+                indexArchive(entry, i);
+            } else if (new File(entry).isFile()) {
+                G.v().out.println("Warning: the following soot-classpath entry is not a supported archive file (must be .zip or .jar): " + entry);
+            }
+        }
+    }
+
+    private void indexArchive(String archive, int position) {
+        try {
+            ZipFile zipFile = openArchive(archive);
+            for (Enumeration<? extends ZipEntry> en = zipFile.entries(); en.hasMoreElements();) {
+                ZipEntry entry = en.nextElement();
+                // Earlier classpath entries shadow later ones
+                if (!entry.isDirectory() && !index.containsKey(entry.getName())) {
+                    index.put(entry.getName(), position);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Caught IOException " + e + " indexing jar file " + archive);
+        }
+    }
+
+    static boolean isArchive(String path) {
+        return (path.endsWith("zip") || path.endsWith("jar")) && new File(path).isFile();
+    }
+
+    public static byte[] readFully(InputStream is, long size) throws IOException {
+        if (size < 0) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+        int sz = (int) size;
+        byte[] buf = new byte[sz];
+        int count = 0;
+        int n;
+        while (count < sz) {
+            n = is.read(buf, count, sz - count);
+            if (n == -1) {
+                throw new EOFException("Expected " + sz + " bytes but got " + count);
+            }
+            count += n;
+        }
+        return buf;
+    }
+}
@@ -31,7 +31,9 @@ public class CoffiClassProvider implements ClassProvider
         SourceLocator.FoundFile file = 
             SourceLocator.v().lookupInClassPath(fileName);
         if( file == null ) return null;
-        return new CoffiClassSource(className, file.inputStream());
+        // RoboVM note: The file is opened lazily so that it can be read on a
+        // parallel resolver worker thread
+        return new CoffiClassSource(className, file);
     }
 }
 
@@ -20,6 +20,9 @@
 package soot;
 import soot.javaToJimple.IInitialResolver;
 import soot.javaToJimple.IInitialResolver.Dependencies;
+import soot.coffi.ClassFile;
+import soot.coffi.CoffiClassData;
+import soot.coffi.CoffiMethodSource;
 import soot.options.*;
 import java.io.*;
 import java.util.*;
@@ -32,20 +35,98 @@ public class CoffiClassSource extends ClassSource
         super( className );
         this.classFile = classFile;
     }
+    // RoboVM note: Added. The file is opened lazily by preload().
+    public CoffiClassSource( String className, SourceLocator.FoundFile foundFile ) {
+        super( className );
+        this.foundFile = foundFile;
+    }
+
+    /**
+     * RoboVM note: Added. Reads and parses the class file without modifying
+     * the Scene. Called by the parallel resolver on a worker thread ahead of
+     * {@link #resolve(SootClass)}. Calling it more than once has no effect.
+     */
+    public synchronized void preload() {
+        if( preloaded ) return;
+        if( data == null ) {
+            try {
+                if( classFile == null ) classFile = foundFile.inputStream();
+                try {
+                    data = ClassPathIndex.readFully(classFile, -1);
+                } finally {
+                    classFile.close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Caught IOException " + e + " reading class file for " + className);
+            }
+        }
+        if( BodyCache.v().isEnabled() ) digest = BodyCache.v().digest(data);
+        ClassFile cf = new ClassFile(className);
+        coffiClass = cf.loadClassFile(data) ? cf : null;
+        if( !Options.v().lean_class_files() ) data = null;
+        preloaded = true;
+    }
+
     public Dependencies resolve( SootClass sc ) {
         if(Options.v().verbose())
             G.v().out.println("resolving [from .class]: " + className );
         List references = new ArrayList();
-        soot.coffi.Util.v().resolveFromClassFile(sc, classFile, references);
+        // RoboVM note: The body cache and -lean-class-files need the class
+        // file bytes
+        if( preloaded || foundFile != null || BodyCache.v().isEnabled()
+                || Options.v().lean_class_files() ) {
+            preload();
+            soot.coffi.Util.v().resolveFromClassFile(sc, coffiClass, references);
+            coffiClass = null;
+            if( digest != null ) {
+                for( SootMethod m : sc.getMethods() ) {
+                    if( m.getSource() instanceof CoffiMethodSource ) {
+                        ((CoffiMethodSource) m.getSource()).setClassDigest(digest);
+                    }
+                }
+            }
+            if( data != null ) {
+                makeLean(sc);
+            }
+        } else {
+            soot.coffi.Util.v().resolveFromClassFile(sc, classFile, references);
 
-        try {
-            classFile.close();
-        } catch (IOException e) { throw new RuntimeException("!?"); }
+            try {
+                classFile.close();
+            } catch (IOException e) { throw new RuntimeException("!?"); }
+        }
         
         IInitialResolver.Dependencies deps = new IInitialResolver.Dependencies();
         deps.typesToSignature.addAll(references);
         return deps;
     }
+    /**
+     * RoboVM note: Added. Replaces the parsed class file referenced by the
+     * method sources of <code>sc</code> with a compact copy of the class
+     * file bytes.
+     */
+    private void makeLean(SootClass sc) {
+        List<CoffiMethodSource> sources = new ArrayList<CoffiMethodSource>();
+        int concrete = 0;
+        for( SootMethod m : sc.getMethods() ) {
+            if( m.getSource() instanceof CoffiMethodSource ) {
+                sources.add((CoffiMethodSource) m.getSource());
+                if( m.isConcrete() ) concrete++;
+            }
+        }
+        CoffiClassData classData = concrete > 0 ? new CoffiClassData(className, data, concrete) : null;
+        for( SootMethod m : sc.getMethods() ) {
+            if( m.getSource() instanceof CoffiMethodSource ) {
+                ((CoffiMethodSource) m.getSource()).makeLean(m.isConcrete() ? classData : null);
+            }
+        }
+        data = null;
+    }
+
     protected InputStream classFile;
+    protected SourceLocator.FoundFile foundFile;
+    private boolean preloaded;
+    private byte[] data;
+    private ClassFile coffiClass;
+    private String digest;
 }
-
@@ -24,10 +24,13 @@ package soot;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
 import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Objectweb ASM class provider.
@@ -36,26 +39,53 @@ import java.nio.file.Paths;
  */
 public class CoffiJava9ClassProvider implements ClassProvider {
 
+    /**
+     * Maps package names (e.g. <code>java.lang</code>) to the root directory of
+     * the module containing the package (e.g. <code>/modules/java.base</code>).
+     * Built once from the <code>/packages</code> directory of the jrt
+     * filesystem. <code>null</code> until first use.
+     */
+    private Map<String, Path> packageToModule;
+
     public ClassSource find(String cls) {
-        String clsFile = cls.replace('.', '/') + ".class";
-        SourceLocator.FoundFile file = null;
-        // here we go through all modules, since we are in classpath mode
+        Map<String, Path> index = packageToModule();
+        int lastDot = cls.lastIndexOf('.');
+        String pkg = lastDot == -1 ? "" : cls.substring(0, lastDot);
+        Path moduleRoot = index.get(pkg);
+        if (moduleRoot == null) {
+            return null;
+        }
+        Path file = moduleRoot.resolve(cls.replace('.', '/') + ".class");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return new CoffiClassSource(cls, new SourceLocator.FoundFile(file));
+    }
 
-        Path p = Paths.get(URI.create("jrt:/modules"));
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(p)) {
-            for (Path entry : stream) {
-                // check each module folder for the class
-                file = SourceLocator.v().lookUpInVirtualFileSystem(entry.toUri().toString(), clsFile);
-                if (file != null) {
-                    break;
+    private synchronized Map<String, Path> packageToModule() {
+        if (packageToModule == null) {
+            Map<String, Path> index = new HashMap<String, Path>();
+            try {
+                FileSystem fs = FileSystems.getFileSystem(URI.create("jrt:/"));
+                // /packages/<package>/<module> is a link to /modules/<module>
+                try (DirectoryStream<Path> packages = Files.newDirectoryStream(fs.getPath("/packages"))) {
+                    for (Path pkgDir : packages) {
+                        String pkg = pkgDir.getFileName().toString();
+                        try (DirectoryStream<Path> modules = Files.newDirectoryStream(pkgDir)) {
+                            for (Path module : modules) {
+                                index.put(pkg, fs.getPath("/modules", module.getFileName().toString()));
+                                break;
+                            }
+                        }
+                    }
                 }
+            } catch (FileSystemNotFoundException ex) {
+                G.v().out.println("Could not read my modules (perhaps not Java 9?).");
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        } catch (FileSystemNotFoundException ex) {
-            System.out.println("Could not read my modules (perhaps not Java 9?).");
-        } catch (IOException e) {
-            e.printStackTrace();
+            packageToModule = index;
         }
-        return file == null ? null : new CoffiClassSource(cls, file.inputStream());
-
+        return packageToModule;
     }
 }
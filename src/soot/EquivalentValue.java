@@ -81,6 +81,10 @@ public class EquivalentValue implements Value {
       return e.getUseBoxes();
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer) {
+      e.forEachUseBox(consumer);
+    }
+
     public Type getType() {
       return e.getType();
     }
@@ -22,6 +22,8 @@ package soot;
 import soot.jimple.*;
 import soot.util.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** Represents the class hierarchy.  It is closely linked to a Scene,
  * and must be recreated if the Scene changes. 
@@ -76,17 +78,129 @@ public class FastHierarchy
 
     protected Scene sc;
 
+    /** RoboVM note: The Interval bounds of the classes in classToInterval,
+     * indexed by class number, and -1 for all other classes. Together with
+     * the lazily built InterfaceIndex of each interface these answer
+     * canStoreClass() queries without map lookups or set traversals. */
+    protected int[] classLower;
+    protected int[] classUpper;
+
+    /** RoboVM note: The InterfaceIndex of each interface which has been
+     * queried so far, indexed by class number. */
+    protected InterfaceIndex[] interfaceIndices;
+
+    protected SootClass objectClass;
+
+    private boolean visitingPhantomTree;
+
+    /** RoboVM note: Bounded caches of resolveConcreteDispatch() and 
+     * resolveAbstractDispatch() results. Entries are ignored once methods
+     * or classes in the Scene have changed (see Scene.getMemberState()). */
+    protected static final int MAX_DISPATCH_CACHE_SIZE = 1 << 16;
+    private final ConcurrentMap<DispatchKey, DispatchEntry> concreteDispatchCache = 
+        new ConcurrentHashMap<DispatchKey, DispatchEntry>();
+    private final ConcurrentMap<DispatchKey, DispatchEntry> abstractDispatchCache = 
+        new ConcurrentHashMap<DispatchKey, DispatchEntry>();
+
     protected class Interval {
         int lower;
         int upper;
+        /** RoboVM note: True if this Interval belongs to a tree rooted at
+         * a phantom class rather than at java.lang.Object. */
+        boolean phantomTree;
         boolean isSubrange( Interval potentialSubrange ) {
             if( lower > potentialSubrange.lower ) return false;
             if( upper < potentialSubrange.upper ) return false;
             return true;
         }
     }
+
+    /** RoboVM note: The subtypes of an interface. subinterfaces holds the
+     * numbers of the interface itself and all its subinterfaces; ranges
+     * holds the sorted, disjoint [lower, upper] Interval bounds covering 
+     * all classes in the java.lang.Object tree implementing the interface,
+     * including their subclasses. phantomRanges holds the unmerged
+     * Interval bounds of the implementing classes in trees rooted at
+     * phantom classes, which may overlap any other Interval. Instances
+     * are immutable. */
+    protected static class InterfaceIndex {
+        final BitSet subinterfaces;
+        final int[] ranges;
+        final int[] phantomRanges;
+
+        InterfaceIndex( BitSet subinterfaces, int[] ranges, int[] phantomRanges ) {
+            this.subinterfaces = subinterfaces;
+            this.ranges = ranges;
+            this.phantomRanges = phantomRanges;
+        }
+
+        /** Returns true if the class with Interval bounds lower and upper
+         * implements the interface. */
+        boolean isImplementedBy( int lower, int upper ) {
+            int lo = 0;
+            int hi = ranges.length / 2 - 1;
+            while( lo <= hi ) {
+                int mid = ( lo + hi ) >>> 1;
+                if( ranges[2 * mid + 1] < lower ) lo = mid + 1;
+                else if( ranges[2 * mid] > lower ) hi = mid - 1;
+                else if( upper <= ranges[2 * mid + 1] ) return true;
+                else break;
+            }
+            for( int i = 0; i < phantomRanges.length; i += 2 ) {
+                if( phantomRanges[i] <= lower && upper <= phantomRanges[i + 1] ) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class DispatchKey {
+        final SootClass type;
+        final SootMethod method;
+
+        DispatchKey( SootClass type, SootMethod method ) {
+            this.type = type;
+            this.method = method;
+        }
+
+        public int hashCode() {
+            return type.hashCode() * 31 + method.hashCode();
+        }
+
+        public boolean equals( Object o ) {
+            if( !( o instanceof DispatchKey ) ) return false;
+            DispatchKey k = (DispatchKey) o;
+            return type == k.type && method == k.method;
+        }
+    }
+
+    private static final class DispatchEntry {
+        final int memberState;
+        final Object result;
+
+        DispatchEntry( int memberState, Object result ) {
+            this.memberState = memberState;
+            this.result = result;
+        }
+    }
+
+    /** Returns the result cached for key in cache, or NO_RESULT if there is
+     * none or it was computed before the last change to the Scene. */
+    private static Object getCached( ConcurrentMap<DispatchKey, DispatchEntry> cache, DispatchKey key ) {
+        DispatchEntry e = cache.get( key );
+        if( e == null || e.memberState != Scene.v().getMemberState() ) return NO_RESULT;
+        return e.result;
+    }
+
+    private static void putCached( ConcurrentMap<DispatchKey, DispatchEntry> cache, DispatchKey key, int memberState, Object result ) {
+        if( cache.size() >= MAX_DISPATCH_CACHE_SIZE ) cache.clear();
+        cache.put( key, new DispatchEntry( memberState, result ) );
+    }
+
+    private static final Object NO_RESULT = new Object();
+
     protected int dfsVisit( int start, SootClass c ) {
         Interval r = new Interval();
+        r.phantomTree = visitingPhantomTree;
         r.lower = start++;
         Collection col = classToSubclasses.get(c);
         if( col != null ) {
@@ -131,14 +245,100 @@ public class FastHierarchy
         }
 
         /* Now do a dfs traversal to get the Interval numbers. */
-        dfsVisit( 0, Scene.v().getSootClass( "java.lang.Object" ) );
+        objectClass = Scene.v().getSootClass( "java.lang.Object" );
+        dfsVisit( 0, objectClass );
         /* also have to traverse for all phantom classes because they also
          * can be roots of the type hierarchy
          */
+        // RoboVM note: The Intervals of trees rooted at phantom classes
+        // overlap the ones in the java.lang.Object tree. They are marked
+        // so that InterfaceIndex can keep them apart.
+        visitingPhantomTree = true;
         for(SootClass phantomClass: Scene.v().getPhantomClasses()) {
         	if(!phantomClass.isInterface())
         		dfsVisit( 0, phantomClass );
         }
+        visitingPhantomTree = false;
+
+        int size = sc.getClassNumberer().size() + 1;
+        classLower = new int[size];
+        classUpper = new int[size];
+        Arrays.fill( classLower, -1 );
+        Arrays.fill( classUpper, -1 );
+        for( Map.Entry<SootClass, Interval> e : classToInterval.entrySet() ) {
+            int n = e.getKey().getNumber();
+            if( n < size ) {
+                classLower[n] = e.getValue().lower;
+                classUpper[n] = e.getValue().upper;
+            }
+        }
+        interfaceIndices = new InterfaceIndex[size];
+    }
+
+    /** Returns the Interval lower bound of c, or -1 if c has no Interval. */
+    private int lowerOf( SootClass c ) {
+        int n = c.getNumber();
+        return n < classLower.length ? classLower[n] : -1;
+    }
+
+    /** Returns the InterfaceIndex of parent, which should be an interface,
+     * building it on first use. Only the inverse maps filled by the 
+     * constructor are read, so concurrent queries are safe. */
+    protected InterfaceIndex getInterfaceIndex( SootClass parent ) {
+        int n = parent.getNumber();
+        InterfaceIndex index = n < interfaceIndices.length ? interfaceIndices[n] : null;
+        if( index != null ) return index;
+
+        BitSet subinterfaces = new BitSet();
+        List<SootClass> interfaces = new ArrayList<SootClass>();
+        LinkedList<SootClass> worklist = new LinkedList<SootClass>();
+        worklist.add( parent );
+        while( !worklist.isEmpty() ) {
+            SootClass i = worklist.removeFirst();
+            if( subinterfaces.get( i.getNumber() ) ) continue;
+            subinterfaces.set( i.getNumber() );
+            interfaces.add( i );
+            for( Iterator it = interfaceToSubinterfaces.get( i ).iterator(); it.hasNext(); ) {
+                worklist.add( (SootClass) it.next() );
+            }
+        }
+
+        List<Interval> intervals = new ArrayList<Interval>();
+        List<Interval> phantomIntervals = new ArrayList<Interval>();
+        for( SootClass i : interfaces ) {
+            for( Iterator it = interfaceToImplementers.get( i ).iterator(); it.hasNext(); ) {
+                Interval interval = classToInterval.get( it.next() );
+                if( interval == null ) continue;
+                if( interval.phantomTree ) phantomIntervals.add( interval );
+                else intervals.add( interval );
+            }
+        }
+        Collections.sort( intervals, new Comparator<Interval>() {
+            public int compare( Interval a, Interval b ) {
+                return a.lower < b.lower ? -1 : ( a.lower == b.lower ? 0 : 1 );
+            }
+        } );
+        // Intervals in the java.lang.Object tree are either nested or
+        // disjoint, so merging only has to drop the ones inside the
+        // previous range.
+        int[] ranges = new int[intervals.size() * 2];
+        int count = 0;
+        for( Interval interval : intervals ) {
+            if( count > 0 && interval.lower <= ranges[count - 1] ) {
+                if( interval.upper > ranges[count - 1] ) ranges[count - 1] = interval.upper;
+                continue;
+            }
+            ranges[count++] = interval.lower;
+            ranges[count++] = interval.upper;
+        }
+        int[] phantomRanges = new int[phantomIntervals.size() * 2];
+        for( int k = 0; k < phantomIntervals.size(); k++ ) {
+            phantomRanges[2 * k] = phantomIntervals.get( k ).lower;
+            phantomRanges[2 * k + 1] = phantomIntervals.get( k ).upper;
+        }
+        index = new InterfaceIndex( subinterfaces, Arrays.copyOf( ranges, count ), phantomRanges );
+        if( n < interfaceIndices.length ) interfaceIndices[n] = index;
+        return index;
     }
 
     /** Return true if class child is a subclass of class parent, neither of
@@ -153,7 +353,9 @@ public class FastHierarchy
 
     /** For an interface parent (MUST be an interface), returns set of all
      * implementers of it but NOT their subclasses. */
-    public Set getAllImplementersOfInterface( SootClass parent ) {
+    // RoboVM note: Synchronized since the sets are computed lazily and
+    // VirtualCalls may query them from several threads.
+    public synchronized Set getAllImplementersOfInterface( SootClass parent ) {
         parent.checkLevel(SootClass.HIERARCHY);
         if( !interfaceToAllImplementers.containsKey( parent ) ) {
             for( Iterator subinterfaceIt = getAllSubinterfaces( parent ).iterator(); subinterfaceIt.hasNext(); ) {
@@ -170,7 +372,7 @@ public class FastHierarchy
 
     /** For an interface parent (MUST be an interface), returns set of all
      * subinterfaces. */
-    protected Set getAllSubinterfaces( SootClass parent ) {
+    protected synchronized Set getAllSubinterfaces( SootClass parent ) {
         parent.checkLevel(SootClass.HIERARCHY);
         if( !interfaceToAllSubinterfaces.containsKey( parent ) ) {
             interfaceToAllSubinterfaces.put( parent, parent );
@@ -221,11 +423,7 @@ public class FastHierarchy
             if( !(parent instanceof RefLikeType ) ) {
                 throw new RuntimeException( "Unhandled type "+parent );
             } else if(parent instanceof ArrayType) {
-                Type base = ((AnySubType)child).getBase();
-                // From Java Language Spec 2nd ed., Chapter 10, Arrays
-                return base.equals( RefType.v( "java.lang.Object" ) )
-                || base.equals( RefType.v( "java.io.Serializable" ) )
-                || base.equals( RefType.v( "java.lang.Cloneable" ) );
+                return isArraySupertype( ((AnySubType)child).getBase() );
             } else {
                 SootClass base = ((AnySubType)child).getBase().getSootClass();
                 SootClass parentClass = ((RefType) parent).getSootClass();
@@ -245,10 +443,7 @@ public class FastHierarchy
         } else {
             ArrayType achild = (ArrayType) child;
             if( parent instanceof RefType ) {
-                // From Java Language Spec 2nd ed., Chapter 10, Arrays
-                return parent.equals( RefType.v( "java.lang.Object" ) )
-                || parent.equals( RefType.v( "java.io.Serializable" ) )
-                || parent.equals( RefType.v( "java.lang.Cloneable" ) );
+                return isArraySupertype( parent );
             }
             ArrayType aparent = (ArrayType) parent;
                                                 
@@ -260,13 +455,7 @@ public class FastHierarchy
                 if( !(aparent.baseType instanceof RefType ) ) return false;
                 return canStoreType( achild.baseType, aparent.baseType );
             } else if( achild.numDimensions > aparent.numDimensions ) {
-                if( aparent.baseType.equals( RefType.v( "java.lang.Object" ) ) )
-                    return true;
-                if( aparent.baseType.equals( RefType.v( "java.io.Serializable" ) ) )
-                    return true;
-                if( aparent.baseType.equals( RefType.v( "java.lang.Cloneable" ) ) )
-                    return true;
-                return false;
+                return isArraySupertype( aparent.baseType );
             } else return false;
         }
     }
@@ -279,29 +468,39 @@ public class FastHierarchy
     protected boolean canStoreClass( SootClass child, SootClass parent ) {
         parent.checkLevel(SootClass.HIERARCHY);
         child.checkLevel(SootClass.HIERARCHY);
-        Interval parentInterval = classToInterval.get( parent );
-        Interval childInterval = classToInterval.get( child );
-        if( parentInterval != null && childInterval != null ) {
-            return parentInterval.isSubrange( childInterval );
+        // RoboVM note: Everything can be stored in java.lang.Object,
+        // including classes in trees rooted at phantom classes, whose
+        // Intervals need not lie inside the one of java.lang.Object.
+        if( parent == objectClass ) return true;
+        // RoboVM note: Answered from the class number indexed Interval
+        // arrays and the InterfaceIndex of parent.
+        int parentLower = lowerOf( parent );
+        int childLower = lowerOf( child );
+        if( parentLower >= 0 && childLower >= 0 ) {
+            return parentLower <= childLower 
+                && classUpper[child.getNumber()] <= classUpper[parent.getNumber()];
         }
-        if( childInterval == null ) { // child is interface
-            if( parentInterval != null ) { // parent is not interface
-                return parent.equals( RefType.v("java.lang.Object").getSootClass() );
+        if( childLower < 0 ) { // child is interface
+            if( parentLower >= 0 ) { // parent is not interface
+                return parent == objectClass;
             } else {
-                return getAllSubinterfaces( parent ).contains( child );
+                return getInterfaceIndex( parent ).subinterfaces.get( child.getNumber() );
             }
         } else {
-            Set impl = getAllImplementersOfInterface( parent );
-            for( Iterator it = impl.iterator(); it.hasNext(); ) {
-                parentInterval = classToInterval.get( it.next() );
-                if( parentInterval != null && parentInterval.isSubrange( childInterval ) ) {
-                    return true;
-                }
-            }
-            return false;
+            return getInterfaceIndex( parent ).isImplementedBy( childLower, classUpper[child.getNumber()] );
         }
     }
 
+    /** Returns true if t is a supertype of all array types. */
+    private static boolean isArraySupertype( Type t ) {
+        if( !( t instanceof RefType ) ) return false;
+        String name = ((RefType) t).getClassName();
+        // From Java Language Spec 2nd ed., Chapter 10, Arrays
+        return name.equals( "java.lang.Object" )
+            || name.equals( "java.io.Serializable" )
+            || name.equals( "java.lang.Cloneable" );
+    }
+
     public Collection<SootMethod> resolveConcreteDispatchWithoutFailing(Collection concreteTypes, SootMethod m, RefType declaredTypeOfBase ) {
 
         Set<SootMethod> ret = new HashSet<SootMethod>();
@@ -429,6 +628,20 @@ public class FastHierarchy
     /** Given an object of declared type C, returns the methods which could
      * be called on an o.f() invocation. */
     public Set<SootMethod> resolveAbstractDispatch(SootClass abstractType, SootMethod m )
+    {
+        // RoboVM note: Results are cached. Callers get their own copy
+        // since they may modify the returned set.
+        DispatchKey key = new DispatchKey( abstractType, m );
+        Object cached = getCached( abstractDispatchCache, key );
+        if( cached == NO_RESULT ) {
+            int memberState = Scene.v().getMemberState();
+            cached = resolveAbstractDispatchUncached( abstractType, m );
+            putCached( abstractDispatchCache, key, memberState, cached );
+        }
+        return new HashSet<SootMethod>( (Set<SootMethod>) cached );
+    }
+
+    private Set<SootMethod> resolveAbstractDispatchUncached(SootClass abstractType, SootMethod m )
     {
         String methodSig = m.getSubSignature();
         HashSet<SootClass> resolved = new HashSet<SootClass>();
@@ -477,6 +690,20 @@ public class FastHierarchy
                 "A concrete type cannot be an interface: "+concreteType );
         }
 
+        // RoboVM note: Results are cached.
+        DispatchKey key = new DispatchKey( concreteType, m );
+        Object cached = getCached( concreteDispatchCache, key );
+        if( cached == NO_RESULT ) {
+            int memberState = Scene.v().getMemberState();
+            cached = resolveConcreteDispatchUncached( concreteType, m );
+            putCached( concreteDispatchCache, key, memberState, cached );
+        }
+        return (SootMethod) cached;
+    }
+
+    private SootMethod resolveConcreteDispatchUncached(SootClass concreteType, SootMethod m)
+    {
+
         String methodSig = m.getSubSignature();
         while( true ) {
             if( concreteType.declaresMethod( methodSig ) ) {
@@ -45,7 +45,8 @@ public class G extends Singletons
     public class Global {
     }
 
-    public long coffi_BasicBlock_ids = 0;
+    // RoboVM note: Made atomic since bodies may be built concurrently
+    public final java.util.concurrent.atomic.AtomicLong coffi_BasicBlock_ids = new java.util.concurrent.atomic.AtomicLong();
     public Utf8_Enumeration coffi_CONSTANT_Utf8_info_e1 = new Utf8_Enumeration();
     public Utf8_Enumeration coffi_CONSTANT_Utf8_info_e2 = new Utf8_Enumeration();
     public int SETNodeLabel_uniqueId = 0;
@@ -61,10 +62,21 @@ public class G extends Singletons
     public UnionFactory Union_factory = null;
     public HashMap<Object, Array2ndDimensionSymbol> Array2ndDimensionSymbol_pool = new HashMap<Object, Array2ndDimensionSymbol>();
     public Map AbstractUnit_allMapToUnnamed = Collections.unmodifiableMap(new AbstractUnitAllMapTo("<unnamed>"));
-    public List<Timer> Timer_outstandingTimers = new ArrayList<Timer>();
-    public boolean Timer_isGarbageCollecting;
+    // RoboVM note: Timers may run on several threads at once, so the
+    // outstanding timers and the garbage collection flag are per thread
+    // and the shared counter is atomic.
+    public final ThreadLocal<List<Timer>> Timer_outstandingTimers = new ThreadLocal<List<Timer>>() {
+        protected List<Timer> initialValue() {
+            return new ArrayList<Timer>();
+        }
+    };
+    public final ThreadLocal<Boolean> Timer_isGarbageCollecting = new ThreadLocal<Boolean>() {
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
     public Timer Timer_forcedGarbageCollectionTimer = new Timer("gc");
-    public int Timer_count;
+    public final java.util.concurrent.atomic.AtomicInteger Timer_count = new java.util.concurrent.atomic.AtomicInteger();
     public final Map<Scene, ClassHierarchy> ClassHierarchy_classHierarchyMap = new HashMap<Scene, ClassHierarchy>();
     public final Map<MethodContext, MethodContext> MethodContext_map = new HashMap<MethodContext, MethodContext>();
 
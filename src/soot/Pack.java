@@ -114,7 +114,16 @@ public abstract class Pack implements HasPhaseOptions
     public final void apply(Body b) {
         Map options = PhaseOptions.v().getPhaseOptions( this );
         if( !PhaseOptions.getBoolean( options, "enabled" ) ) return;
-        internalApply(b);
+        // RoboVM note: Attribute modifications made by the transforms to b
+        // so that its cached analyses can be used while the pack runs.
+        Body previous = BodyAnalysisCache.enter(b);
+        try {
+            internalApply(b);
+        } finally {
+            // RoboVM note: Don't keep cached analyses alive between packs
+            b.clearAnalysisCache();
+            BodyAnalysisCache.exit(previous);
+        }
     }
 
     public String getDeclaredOptions() { return soot.options.Options.getDeclaredOptionsForPhase( getPhaseName() ); }
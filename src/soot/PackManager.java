@@ -21,6 +21,11 @@ package soot;
 import java.util.*;
 import java.io.*;
 import java.util.zip.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ExecutionException;
 import soot.util.*;
 import soot.util.queue.*;
 import soot.jimple.*;
@@ -193,6 +198,11 @@ public class PackManager {
         
         retrieveAllBodies();
         
+        // RoboVM note: Write the bodies built by jb as binary Jimple if requested
+        if (Options.v().binary_jimple_output_dir().length() > 0) {
+            writeBinaryJimple( reachableClasses() );
+        }
+        
         if (Options.v().interactive_mode()){
             if (InteractionHandler.v().getInteractionListener() == null){
                 G.v().out.println("Cannot run in interactive mode. No listeners available. Continuing in regular mode.");
@@ -210,7 +220,7 @@ public class PackManager {
     public void coffiMetrics() {
       int tV = 0, tE = 0, hM = 0;
       double aM = 0;
-      HashMap<SootMethod, int[]> hashVem = soot.coffi.CFG.methodsToVEM;
+      Map<SootMethod, int[]> hashVem = soot.coffi.CFG.methodsToVEM;
       Iterator<SootMethod> it = hashVem.keySet().iterator();
       while (it.hasNext()) {
         int vem[] = hashVem.get(it.next());
@@ -231,12 +241,55 @@ public class PackManager {
 
 
     private void runBodyPacks( Iterator classes ) {
+        // RoboVM note: Run the body packs on worker threads if requested
+        if( Options.v().parallel_bodies() ) {
+            List<SootMethod> methods = new ArrayList<SootMethod>();
+            while( classes.hasNext() ) {
+                SootClass cl = (SootClass) classes.next();
+                for( SootMethod m : cl.getMethods() ) {
+                    if( m.isConcrete() ) methods.add( m );
+                }
+            }
+            runInParallel( methods, new MethodTask() {
+                public void run( SootMethod m ) {
+                    runBodyPacks( m );
+                }
+            } );
+            return;
+        }
         while( classes.hasNext() ) {
             SootClass cl = (SootClass) classes.next();
             runBodyPacks( cl );
         }
     }
 
+    /**
+     * Added in RoboVM. Writes the specified classes and the bodies of their
+     * methods to binary Jimple files in the
+     * <code>-binary-jimple-output-dir</code> directory.
+     */
+    private void writeBinaryJimple( Iterator classes ) {
+        File dir = new File( Options.v().binary_jimple_output_dir() );
+        soot.jimple.binary.BinaryClassWriter writer = new soot.jimple.binary.BinaryClassWriter();
+        while( classes.hasNext() ) {
+            SootClass cl = (SootClass) classes.next();
+            if( cl.isPhantom() ) continue;
+            File f = new File( dir, cl.getName().replace( '.', File.separatorChar )
+                    + soot.jimple.binary.BinaryClassProvider.EXTENSION );
+            f.getParentFile().mkdirs();
+            try {
+                OutputStream out = new BufferedOutputStream( new FileOutputStream( f ) );
+                try {
+                    writer.write( cl, out );
+                } finally {
+                    out.close();
+                }
+            } catch( IOException e ) {
+                throw new RuntimeException( "Caught IOException " + e + " writing " + f );
+            }
+        }
+    }
+
     private void handleInnerClasses(){
        InnerClassTagAggregator agg = InnerClassTagAggregator.v();
        agg.internalTransform("", null);
@@ -277,13 +330,7 @@ public class PackManager {
 
 
             if (produceJimple) {
-                JimpleBody body =(JimpleBody) m.retrieveActiveBody();
-                PackManager.v().getPack("jtp").apply(body);
-                if( Options.v().validate() ) {
-                    body.validate();
-                }
-                PackManager.v().getPack("jop").apply(body);
-                PackManager.v().getPack("jap").apply(body);
+                runBodyPacks(m);
             }
             
             //PackManager.v().getPack("cfg").apply(m.retrieveActiveBody());
@@ -293,6 +340,16 @@ public class PackManager {
 
     }
 
+    private void runBodyPacks(SootMethod m) {
+        JimpleBody body =(JimpleBody) m.retrieveActiveBody();
+        PackManager.v().getPack("jtp").apply(body);
+        if( Options.v().validate() ) {
+            body.validate();
+        }
+        PackManager.v().getPack("jop").apply(body);
+        PackManager.v().getPack("jap").apply(body);
+    }
+
 
     private void releaseBodies( SootClass cl ) {
         Iterator methodIt = cl.methodIterator();
@@ -305,6 +362,17 @@ public class PackManager {
     }
 
     private void retrieveAllBodies() {
+        // RoboVM note: Build the bodies on worker threads if requested
+        if( Options.v().parallel_bodies() ) {
+            List<SootMethod> methods = new ArrayList<SootMethod>();
+            Iterator clIt = reachableClasses();
+            while( clIt.hasNext() ) {
+                SootClass cl = (SootClass) clIt.next();
+                methods.addAll( cl.getMethods() );
+            }
+            retrieveBodies( methods );
+            return;
+        }
         Iterator clIt = reachableClasses();
         while( clIt.hasNext() ) {
             SootClass cl = (SootClass) clIt.next();
@@ -324,4 +392,113 @@ public class PackManager {
             }
         }
     }
+
+    /**
+     * Added in RoboVM. Retrieves the active bodies of all concrete methods in
+     * the specified collection. If parallel body construction has been
+     * enabled the bodies are built on a pool of worker threads.
+     */
+    public void retrieveBodies( Collection<SootMethod> methods ) {
+        List<SootMethod> concrete = new ArrayList<SootMethod>();
+        for( SootMethod m : methods ) {
+            if( m.isConcrete() ) concrete.add( m );
+        }
+        MethodTask task = new MethodTask() {
+            public void run( SootMethod m ) {
+                m.retrieveActiveBody();
+            }
+        };
+        if( Options.v().parallel_bodies() ) {
+            runInParallel( concrete, task );
+        } else {
+            for( SootMethod m : concrete ) task.run( m );
+        }
+    }
+
+    /**
+     * Added in RoboVM. A unit of work run on a single method by
+     * {@link #runInParallel(List, MethodTask)}.
+     */
+    public interface MethodTask {
+        void run( SootMethod m );
+    }
+
+    /**
+     * Added in RoboVM. Runs the specified task on each of the methods using
+     * a pool of <code>-num-threads</code> worker threads and waits for all
+     * of them to finish. The first exception thrown by a task is rethrown.
+     */
+    public void runInParallel( List<SootMethod> methods, final MethodTask task ) {
+        int threads = Math.min( numThreads(), methods.size() );
+        if( threads <= 1 ) {
+            for( SootMethod m : methods ) task.run( m );
+            return;
+        }
+        ExecutorService executor = newWorkerPool( "soot-bodies", threads );
+        try {
+            runInParallel( executor, methods, task );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Added in RoboVM. Same as {@link #runInParallel(List, MethodTask)} but
+     * uses the specified pool created by {@link #newWorkerPool(String, int)}.
+     * Lets callers which run many small batches reuse a single pool.
+     */
+    public void runInParallel( ExecutorService executor, List<SootMethod> methods, final MethodTask task ) {
+        List<Future<?>> futures = new ArrayList<Future<?>>( methods.size() );
+        for( final SootMethod m : methods ) {
+            futures.add( executor.submit( new Runnable() {
+                public void run() {
+                    task.run( m );
+                }
+            } ) );
+        }
+        for( Future<?> f : futures ) {
+            try {
+                f.get();
+            } catch( ExecutionException e ) {
+                Throwable cause = e.getCause();
+                if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+                if( cause instanceof Error ) throw (Error) cause;
+                throw new RuntimeException( cause );
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            }
+        }
+    }
+
+    /**
+     * Added in RoboVM. Returns the number of worker threads to use, taken
+     * from <code>-num-threads</code> or the number of processors.
+     */
+    public int numThreads() {
+        int threads = Options.v().num_threads();
+        if( threads <= 0 ) threads = Runtime.getRuntime().availableProcessors();
+        return threads;
+    }
+
+    /**
+     * Added in RoboVM. Creates a pool of daemon worker threads for
+     * {@link #runInParallel(ExecutorService, List, MethodTask)}. The caller
+     * must shut it down.
+     */
+    public ExecutorService newWorkerPool( final String name, int threads ) {
+        // Make sure the singletons used by the body builders and the
+        // standard packs exist before the workers start
+        Scene.v().getOrMakeFastHierarchy();
+        soot.toolkits.exceptions.ThrowableSet.Manager.v();
+        soot.coffi.Util.v();
+
+        return Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            public Thread newThread( Runnable r ) {
+                Thread t = new Thread( r, name );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+    }
 }
@@ -62,11 +62,18 @@ public class RefType extends RefLikeType implements Comparable
      */
     public static RefType v(String className)
     {
-        if(Scene.v().containsType(className)) {
-        	return Scene.v().getRefType( className );
-        } else {
+        Scene scene = Scene.v();
+        if(scene.containsType(className)) {
+        	return scene.getRefType( className );
+        }
+        // RoboVM note: Bodies may be built concurrently. Types are never
+        // removed from the Scene so only creation needs to be synchronized.
+        synchronized (scene) {
+            if(scene.containsType(className)) {
+                return scene.getRefType( className );
+            }
 	        RefType ret = new RefType(className);
-	        Scene.v().addRefType( ret );
+	        scene.addRefType( ret );
 	        return ret;
         }
     }
@@ -39,6 +39,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import soot.jimple.toolkits.callgraph.CallGraph;
 import soot.jimple.toolkits.callgraph.ContextSensitiveCallGraph;
@@ -54,6 +56,7 @@ import soot.util.ArrayNumberer;
 import soot.util.Chain;
 import soot.util.HashChain;
 import soot.util.MapNumberer;
+import soot.util.NumberedString;
 import soot.util.Numberer;
 import soot.util.SingletonList;
 import soot.util.StringNumberer;
@@ -111,7 +114,9 @@ public class Scene  //extends AbstractHost
     Chain<SootClass> libraryClasses = new HashChain<SootClass>();
     Chain<SootClass> phantomClasses = new HashChain<SootClass>();
     
-    private final Map<String,Type> nameToClass = new HashMap<String,Type>();
+    // RoboVM note: Made this a ConcurrentHashMap. Bodies may be built
+    // concurrently and RefType.v() looks up types without locking.
+    private final Map<String,Type> nameToClass = new ConcurrentHashMap<String,Type>();
 
     ArrayNumberer kindNumberer = new ArrayNumberer();
     ArrayNumberer typeNumberer = new ArrayNumberer();
@@ -121,7 +126,9 @@ public class Scene  //extends AbstractHost
     ArrayNumberer fieldNumberer = new ArrayNumberer();
     ArrayNumberer classNumberer = new ArrayNumberer();
     StringNumberer subSigNumberer = new StringNumberer();
-    ArrayNumberer localNumberer = new ArrayNumberer();
+    // RoboVM note: Locals are numbered by a reclaimable numberer so that the
+    // locals of released bodies can be garbage collected.
+    ArrayNumberer localNumberer = new ArrayNumberer( true );
 
     private Hierarchy activeHierarchy;
     private FastHierarchy activeFastHierarchy;
@@ -270,6 +277,14 @@ public class Scene  //extends AbstractHost
 	}
 
 
+    // RoboVM note: Interned method and field refs, see makeMethodRef() and
+    // makeFieldRef().
+    private final ConcurrentHashMap<MemberRefKey,SootMethodRef> methodRefs = 
+        new ConcurrentHashMap<MemberRefKey,SootMethodRef>();
+    private final ConcurrentHashMap<MemberRefKey,SootFieldRef> fieldRefs = 
+        new ConcurrentHashMap<MemberRefKey,SootFieldRef>();
+    private final AtomicInteger memberState = new AtomicInteger();
+
     private int stateCount;
     public int getState() { return this.stateCount; }
     private void modifyHierarchy() {
@@ -280,7 +295,7 @@ public class Scene  //extends AbstractHost
         activePointsToAnalysis = null;
     }
 
-    public void addClass(SootClass c) 
+    public synchronized void addClass(SootClass c) 
     {
         if(c.isInScene())
             throw new RuntimeException("already managed: "+c.getName());
@@ -481,7 +496,7 @@ public class Scene  //extends AbstractHost
     /**
      * Returns the RefType with the given className.  
      */
-    public void addRefType(RefType type) 
+    public synchronized void addRefType(RefType type) 
     {
         nameToClass.put(type.getClassName(), type);
     }
@@ -500,16 +515,26 @@ public class Scene  //extends AbstractHost
 			return toReturn;
 		} else if (allowsPhantomRefs() ||
 				   className.equals(SootClass.INVOKEDYNAMIC_DUMMY_CLASS_NAME)) {
-			SootClass c = new SootClass(className);
-			c.setPhantom(true);
-			addClass(c);
-			return c;
+			return getOrAddPhantomClass(className);
 		} else {
 			throw new RuntimeException(System.getProperty("line.separator")
 					+ "Aborting: can't find classfile " + className);
 		}
 	}
 
+	// RoboVM note: Bodies built on several threads may ask for the same
+	// missing class at once. Look it up again under the lock so that only
+	// one of them creates and adds the phantom class.
+	private synchronized SootClass getOrAddPhantomClass(String className) {
+		RefType type = (RefType) nameToClass.get(className);
+		if (type != null && type.getSootClass() != null)
+			return type.getSootClass();
+		SootClass c = new SootClass(className);
+		c.setPhantom(true);
+		addClass(c);
+		return c;
+	}
+
     /**
      * Returns an backed chain of the classes in this manager.
      */
@@ -631,7 +656,7 @@ public class Scene  //extends AbstractHost
     /****************************************************************************/
     /** Makes a new fast hierarchy is none is active, and returns the active
      * fast hierarchy. */
-    public FastHierarchy getOrMakeFastHierarchy() {
+    public synchronized FastHierarchy getOrMakeFastHierarchy() {
 	if(!hasFastHierarchy() ) {
 	    setFastHierarchy( new FastHierarchy() );
 	}
@@ -797,6 +822,20 @@ public class Scene  //extends AbstractHost
     public StringNumberer getSubSigNumberer() { return subSigNumberer; }
     public ArrayNumberer getLocalNumberer() { return localNumberer; }
 
+    /** RoboVM note: Removes the units of a body which is no longer used
+     * from the unit numberer so that it doesn't keep them reachable. The
+     * local numberer doesn't need this since it is reclaimable. */
+    public void releaseNumbers( Body b ) {
+        if( unitNumberer instanceof MapNumberer ) {
+            MapNumberer un = (MapNumberer) unitNumberer;
+            if( un.size() > 0 ) {
+                for( Unit u : b.getUnits() ) {
+                    un.remove( u );
+                }
+            }
+        }
+    }
+
     public void setContextNumberer( Numberer n ) {
         if( contextNumberer != null )
             throw new RuntimeException(
@@ -1148,8 +1187,23 @@ public class Scene  //extends AbstractHost
             List<Type> parameterTypes,
             Type returnType,
             boolean isStatic ) {
-        return new SootMethodRefImpl(declaringClass, name, parameterTypes,
-                returnType, isStatic);
+        // RoboVM note: Refs are interned so that their resolution results
+        // can be cached.
+        if( declaringClass == null || name == null || parameterTypes == null || returnType == null ) {
+            return new SootMethodRefImpl(declaringClass, name, parameterTypes,
+                    returnType, isStatic);
+        }
+        NumberedString subSig = getSubSigNumberer().findOrAdd(
+                SootMethod.getSubSignature(name, parameterTypes, returnType));
+        MemberRefKey key = new MemberRefKey(declaringClass, subSig, null, isStatic);
+        SootMethodRef ret = methodRefs.get(key);
+        if( ret == null ) {
+            ret = new SootMethodRefImpl(declaringClass, name, parameterTypes,
+                    returnType, isStatic, subSig);
+            SootMethodRef old = methodRefs.putIfAbsent(key, ret);
+            if( old != null ) ret = old;
+        }
+        return ret;
     }
 
     /** Create an unresolved reference to a constructor. */
@@ -1167,7 +1221,63 @@ public class Scene  //extends AbstractHost
             String name,
             Type type,
             boolean isStatic) {
-        return new AbstractSootFieldRef(declaringClass, name, type, isStatic);
+        // RoboVM note: Refs are interned so that their resolution results
+        // can be cached.
+        if( declaringClass == null || name == null || type == null ) {
+            return new AbstractSootFieldRef(declaringClass, name, type, isStatic);
+        }
+        MemberRefKey key = new MemberRefKey(declaringClass, name, type, isStatic);
+        SootFieldRef ret = fieldRefs.get(key);
+        if( ret == null ) {
+            ret = new AbstractSootFieldRef(declaringClass, name, type, isStatic);
+            SootFieldRef old = fieldRefs.putIfAbsent(key, ret);
+            if( old != null ) ret = old;
+        }
+        return ret;
+    }
+
+    /** RoboVM note: Returns a counter which is incremented whenever a class
+     * gains or loses a member or its superclass, interfaces or phantom-ness
+     * change. Method and field refs use it to validate their cached
+     * resolution results. */
+    public int getMemberState() {
+        return memberState.get();
+    }
+
+    /** RoboVM note: Called by {@link SootClass} and {@link SootField} when
+     * the outcome of resolving a method or field ref may have changed. */
+    void memberStateChanged() {
+        memberState.incrementAndGet();
+    }
+
+    /** Key of an interned method or field ref. For a method the name is
+     * its numbered subsignature and the type is null. */
+    private static final class MemberRefKey {
+        private final SootClass declaringClass;
+        private final Object name;
+        private final Type type;
+        private final boolean isStatic;
+
+        MemberRefKey( SootClass declaringClass, Object name, Type type, boolean isStatic ) {
+            this.declaringClass = declaringClass;
+            this.name = name;
+            this.type = type;
+            this.isStatic = isStatic;
+        }
+
+        public int hashCode() {
+            int h = System.identityHashCode( declaringClass ) * 31 + name.hashCode();
+            if( type != null ) h = h * 31 + type.hashCode();
+            return isStatic ? ~h : h;
+        }
+
+        public boolean equals( Object o ) {
+            if( !(o instanceof MemberRefKey) ) return false;
+            MemberRefKey k = (MemberRefKey) o;
+            return declaringClass == k.declaringClass && isStatic == k.isStatic 
+                && name.equals( k.name ) 
+                && (type == null ? k.type == null : type.equals( k.type ));
+        }
     }
     /** Returns the list of SootClasses that have been resolved at least to 
      * the level specified. */
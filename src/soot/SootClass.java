@@ -187,6 +187,8 @@ public class SootClass extends AbstractHost implements Numberable
         fields.add(f);
         f.isDeclared = true;
         f.declaringClass = this;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
         
     }
 
@@ -202,6 +204,8 @@ public class SootClass extends AbstractHost implements Numberable
 
         fields.remove(f);
         f.isDeclared = false;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     /**
@@ -587,6 +591,8 @@ public class SootClass extends AbstractHost implements Numberable
         methodList.add(m);
         m.isDeclared = true;
         m.declaringClass = this;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
         
     }
 
@@ -607,6 +613,8 @@ public class SootClass extends AbstractHost implements Numberable
         subSigToMethods.put(m.getNumberedSubSignature(),null);
         methodList.remove(m);
         m.isDeclared = false;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     /**
@@ -680,6 +688,8 @@ public class SootClass extends AbstractHost implements Numberable
         if(implementsInterface(interfaceClass.getName()))
             throw new RuntimeException("duplicate interface: "+interfaceClass.getName());
         interfaces.add(interfaceClass);
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     /**
@@ -693,6 +703,8 @@ public class SootClass extends AbstractHost implements Numberable
             throw new RuntimeException("no such interface: "+interfaceClass.getName());
 
         interfaces.remove(interfaceClass);
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     /**
@@ -730,6 +742,8 @@ public class SootClass extends AbstractHost implements Numberable
     {
         checkLevel(HIERARCHY);
         superClass = c;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     public boolean hasOuterClass(){
@@ -965,6 +979,8 @@ public class SootClass extends AbstractHost implements Numberable
             c.remove(this);
         Scene.v().getPhantomClasses().add(this);
         isPhantom = true;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
     
     /** Convenience method returning true if this class is phantom. */
@@ -133,6 +133,8 @@ public class SootField extends AbstractHost implements ClassMember, Numberable
     public void setName(String name)
     {
         this.name = name;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     public Type getType()
@@ -143,6 +145,8 @@ public class SootField extends AbstractHost implements ClassMember, Numberable
     public void setType(Type t)
     {
         this.type = t;
+        // RoboVM note: Invalidate cached method and field ref resolutions
+        Scene.v().memberStateChanged();
     }
 
     /**
@@ -307,7 +307,8 @@ public class SootMethod
      * Please call setApplicationClass() on the relevant class.
      */
 
-    public Body retrieveActiveBody() {
+    // RoboVM note: Synchronized since bodies may be built concurrently
+    public synchronized Body retrieveActiveBody() {
         declaringClass.checkLevel(SootClass.BODIES);
         if (declaringClass.isPhantomClass())
             throw new RuntimeException(
@@ -350,7 +351,10 @@ public class SootMethod
 
     /** Releases the active body associated with this method. */
     public void releaseActiveBody() {
+        // RoboVM note: Let the Scene's numberers forget the body's units
+        Body b = activeBody;
         activeBody = null;
+        if( b != null ) Scene.v().releaseNumbers( b );
     }
 
     /** Adds the given exception to the list of exceptions thrown by this method
@@ -61,6 +61,19 @@ class SootMethodRefImpl implements SootMethodRef {
     	}
     }
 
+    /** RoboVM note: Used by {@link Scene#makeMethodRef} which already knows
+     * the numbered subsignature. */
+    SootMethodRefImpl( 
+            SootClass declaringClass,
+            String name,
+            List parameterTypes,
+            Type returnType,
+            boolean isStatic,
+            NumberedString subsig) {
+        this(declaringClass, name, parameterTypes, returnType, isStatic);
+        this.subsig = subsig;
+    }
+
     private final SootClass declaringClass;
     private final String name;
     private final List parameterTypes;
@@ -69,6 +82,20 @@ class SootMethodRefImpl implements SootMethodRef {
 
     private NumberedString subsig;
 
+    /** RoboVM note: The method this ref last resolved to, valid as long as
+     * {@link Scene#getMemberState()} hasn't changed. */
+    private volatile Resolution resolution;
+
+    private static final class Resolution {
+        final SootMethod method;
+        final int memberState;
+
+        Resolution( SootMethod method, int memberState ) {
+            this.method = method;
+            this.memberState = memberState;
+        }
+    }
+
     public SootClass declaringClass() { return declaringClass; }
     public String name() { return name; }
     public List parameterTypes() { return parameterTypes; }
@@ -106,7 +133,15 @@ class SootMethodRefImpl implements SootMethodRef {
     }
 
     public SootMethod resolve() {
-        return resolve(null);
+        // RoboVM note: Reuse the last result unless a class has changed since.
+        int memberState = Scene.v().getMemberState();
+        Resolution r = resolution;
+        if( r != null && r.memberState == memberState ) {
+            return checkStatic(r.method);
+        }
+        SootMethod ret = resolve(null);
+        resolution = new Resolution(ret, memberState);
+        return ret;
     }
     
     private SootMethod checkStatic(SootMethod ret) {
@@ -32,6 +32,13 @@ import soot.options.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 
@@ -47,6 +54,16 @@ public class SootResolver
     /** SootClasses waiting to be resolved. */
     private final LinkedList/*SootClass*/[] worklist = new LinkedList[4];
 
+    /** RoboVM note: Added. ClassSources looked up ahead of time by the
+     * parallel resolver. A null value means that no source was found. */
+    private final Map<SootClass, ClassSource> preloads = new HashMap<SootClass, ClassSource>();
+
+    /** RoboVM note: Added. Pending reads of the preloaded ClassSources. */
+    private final Map<SootClass, Future<?>> preloadTasks = new HashMap<SootClass, Future<?>>();
+
+    /** RoboVM note: Added. Reads and parses class files for the parallel resolver. */
+    private ExecutorService preloadExecutor;
+
 
     public SootResolver (Singletons.Global g) {
         worklist[SootClass.HIERARCHY] = new LinkedList();
@@ -71,15 +88,19 @@ public class SootResolver
      * */
     public SootClass makeClassRef(String className)
     {
-        if(Scene.v().containsClass(className))
-            return Scene.v().getSootClass(className);
-
-        SootClass newClass;
-        newClass = new SootClass(className);
-        newClass.setResolvingLevel(SootClass.DANGLING);
-        Scene.v().addClass(newClass);
-
-        return newClass;
+        // RoboVM note: Synchronized on the Scene since bodies may be built
+        // concurrently
+        synchronized (Scene.v()) {
+            if(Scene.v().containsClass(className))
+                return Scene.v().getSootClass(className);
+
+            SootClass newClass;
+            newClass = new SootClass(className);
+            newClass.setResolvingLevel(SootClass.DANGLING);
+            Scene.v().addClass(newClass);
+
+            return newClass;
+        }
     }
 
 
@@ -97,6 +118,16 @@ public class SootResolver
 
     /** Resolve all classes on toResolveWorklist. */
     private void processResolveWorklist() {
+        // RoboVM note: Shut down the parallel resolver's workers once the
+        // worklist has been processed
+        try {
+            processResolveWorklist0();
+        } finally {
+            shutdownPreloadExecutor();
+        }
+    }
+
+    private void processResolveWorklist0() {
         for( int i = SootClass.BODIES; i >= SootClass.HIERARCHY; i-- ) {
             while( !worklist[i].isEmpty() ) {
                 SootClass sc = (SootClass) worklist[i].removeFirst();
@@ -141,6 +172,81 @@ public class SootResolver
     private void addToResolveWorklist(SootClass sc, int desiredLevel) {
         if( sc.resolvingLevel() >= desiredLevel ) return;
         worklist[desiredLevel].add(sc);
+        // RoboVM note: Added
+        if( Options.v().parallel_resolver() ) preload(sc);
+    }
+
+    /**
+     * RoboVM note: Added. Looks up the ClassSource for a class which has
+     * been queued for resolution and has its class file read and parsed on
+     * a worker thread. The ClassSource is picked up by bringToHierarchy()
+     * which then only has to perform the Scene modifications.
+     */
+    private void preload(SootClass sc) {
+        if( sc.resolvingLevel() >= SootClass.HIERARCHY || preloads.containsKey(sc) ) return;
+        ClassSource is = SourceLocator.v().getClassSource(sc.getName());
+        preloads.put(sc, is);
+        if( is instanceof CoffiClassSource ) {
+            final CoffiClassSource cs = (CoffiClassSource) is;
+            preloadTasks.put(sc, preloadExecutor().submit(new Runnable() {
+                public void run() {
+                    cs.preload();
+                }
+            }));
+        }
+    }
+
+    /**
+     * RoboVM note: Added. Waits for the preloading of the specified class
+     * to finish and rethrows any exception thrown while preloading it.
+     */
+    private void awaitPreload(SootClass sc) {
+        Future<?> f = preloadTasks.remove(sc);
+        if( f == null ) return;
+        try {
+            f.get();
+        } catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+            if( cause instanceof Error ) throw (Error) cause;
+            throw new RuntimeException( cause );
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        }
+    }
+
+    private void shutdownPreloadExecutor() {
+        if( preloadExecutor == null ) return;
+        // Classes still queued are read on the main thread instead
+        for( Future<?> f : preloadTasks.values() ) {
+            f.cancel(false);
+        }
+        preloadTasks.clear();
+        preloadExecutor.shutdown();
+        preloadExecutor = null;
+    }
+
+    private ExecutorService preloadExecutor() {
+        if( preloadExecutor == null ) {
+            // Make sure shared singletons used while parsing are created
+            // before any worker thread touches them
+            soot.coffi.CONSTANT_Utf8_collector.v();
+            int threads = Options.v().num_threads();
+            if( threads <= 0 ) threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 
+                    5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "soot-resolver");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            preloadExecutor = executor;
+        }
+        return preloadExecutor;
     }
 
     /** Hierarchy - we know the hierarchy of the class and that's it
@@ -154,7 +260,14 @@ public class SootResolver
         sc.setResolvingLevel(SootClass.HIERARCHY);
 
         String className = sc.getName();
-        ClassSource is = SourceLocator.v().getClassSource(className);
+        // RoboVM note: Pick up the ClassSource preloaded by the parallel resolver
+        ClassSource is;
+        if( preloads.containsKey(sc) ) {
+            is = preloads.remove(sc);
+            awaitPreload(sc);
+        } else {
+            is = SourceLocator.v().getClassSource(className);
+        }
         boolean modelAsPhantomRef = is == null;
 //        || (
 //        		Options.v().no_jrl() &&
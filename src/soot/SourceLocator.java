@@ -18,7 +18,6 @@
  */
 
 package soot;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -103,6 +102,10 @@ public class SourceLocator
 
     private void setupClassProviders() {
         classProviders = new LinkedList<ClassProvider>();
+        // RoboVM note: Binary Jimple files take precedence over class files
+        if (Options.v().binary_jimple()) {
+            classProviders.add(new soot.jimple.binary.BinaryClassProvider());
+        }
         classProviders.add(new CoffiClassProvider());
         if (this.java9Mode) {
             classProviders.add(new CoffiJava9ClassProvider());
@@ -116,8 +119,25 @@ public class SourceLocator
 
     private List<String> classPath;
     public List<String> classPath() { return classPath; }
-    public void invalidateClassPath() {
+    public synchronized void invalidateClassPath() {
         classPath = null;
+        // RoboVM note: Drop the index and close the pooled jar handles
+        if( classPathIndex != null ) {
+            classPathIndex.close();
+            classPathIndex = null;
+        }
+    }
+
+    // RoboVM note: Added. Index of all files on the class path.
+    private ClassPathIndex classPathIndex;
+    private synchronized ClassPathIndex classPathIndex() {
+        if( classPathIndex == null ) {
+            if( classPath == null ) {
+                classPath = explodeClassPath(Scene.v().getSootClassPath());
+            }
+            classPathIndex = new ClassPathIndex(classPath);
+        }
+        return classPathIndex;
     }
 
     private List<String> sourcePath;
@@ -383,9 +403,10 @@ public class SourceLocator
         return ret;
     }
     public static class FoundFile {
-        FoundFile( ZipFile zipFile, ZipEntry entry ) {
-            this.zipFile = zipFile;
-            this.entry = entry;
+        FoundFile( ClassPathIndex index, String archive, String entryName ) {
+            this.index = index;
+            this.archive = archive;
+            this.entryName = entryName;
         }
         FoundFile( File file ) {
             this.path = file.toPath();
@@ -394,66 +415,24 @@ public class SourceLocator
             this.path = path;
         }
         public Path path;
-        public ZipFile zipFile;
-        public ZipEntry entry;
+        private ClassPathIndex index;
+        private String archive;
+        private String entryName;
         public InputStream inputStream() {
             try {
                 if( path != null ) return Files.newInputStream(path);
-                return doJDKBugWorkaround(zipFile.getInputStream(entry),
-                        entry.getSize());
+                return index.openEntry(archive, entryName);
             } catch( IOException e ) {
                 throw new RuntimeException( "Caught IOException "+e );
             }
         }
     }
 
-    private static InputStream doJDKBugWorkaround(InputStream is, long size) throws IOException {
-	
-	int sz = (int) size;
-	byte[] buf = new byte[sz];					
-				
-				    
-	final int N = 1024;
-	int ln = 0;
-	int count = 0;
-	while (sz > 0 &&  
-	       (ln = is.read(buf, count, Math.min(N, sz))) != -1) {
-	    count += ln;
-	    sz -= ln;
-	}
-	return  new ByteArrayInputStream(buf);		
-    }
-
-
     /** Searches for a file with the given name in the exploded classPath. */
     public FoundFile lookupInClassPath( String fileName ) {
-        for (String dir : classPath) {
-            FoundFile ret;
-            if(isJar(dir)) {
-                ret = lookupInJar(dir, fileName);
-            } else {
-                ret = lookupInDir(dir, fileName);
-            }
-            if( ret != null ) return ret;
-        }
-        return null;
-    }
-    private FoundFile lookupInDir(String dir, String fileName) {
-        File f = new File( dir+File.separatorChar+fileName );
-        if( f.canRead() ) {
-            return new FoundFile(f);
-        }
-        return null;
-    }
-    private FoundFile lookupInJar(String jar, String fileName) {
-        try {
-            ZipFile jarFile = new ZipFile(jar);
-            ZipEntry entry = jarFile.getEntry(fileName);
-            if( entry == null ) return null;
-            return new FoundFile(jarFile, entry);
-        } catch( IOException e ) {
-            throw new RuntimeException( "Caught IOException "+e+" looking in jar file "+jar+" for file "+fileName );
-        }
+        // RoboVM note: Look up the file in the class path index instead of
+        // probing (and reopening) every class path entry in turn.
+        return classPathIndex().lookup(fileName);
     }
     /**
      * Looks up classes in Java 9's virtual filesystem jrt:/
@@ -28,14 +28,17 @@ package soot;
 import soot.options.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Utility class providing a timer.  Used for profiling various
  * phases of Sootification. */
 public class Timer
 {
-    private long duration;
-    private long startTime;
-    private boolean hasStarted;
+    // RoboVM note: Bodies may be built and transformed on several threads
+    // at once. Each thread times its own start()-end() intervals and the
+    // durations of all threads are added up.
+    private final AtomicLong duration = new AtomicLong();
+    private final ThreadLocal<Long> startTime = new ThreadLocal<Long>();
 		
     private String name;
 		
@@ -44,7 +47,6 @@ public class Timer
     public Timer(String name)
     {
         this.name = name;
-        duration = 0;
     }
     
     /** Creates a new timer. */
@@ -57,17 +59,17 @@ public class Timer
     public void start()
     {
         // Subtract garbage collection time
-				if(!G.v().Timer_isGarbageCollecting && Options.v() != null && Options.v().subtract_gc() && ((G.v().Timer_count++ % 4) == 0))
+				if(!G.v().Timer_isGarbageCollecting.get() && Options.v() != null && Options.v().subtract_gc() && ((G.v().Timer_count.getAndIncrement() % 4) == 0))
             {
                 // garbage collects only every 4 calls to avoid round off errors
                 
-                G.v().Timer_isGarbageCollecting = true;
+                G.v().Timer_isGarbageCollecting.set(Boolean.TRUE);
             
                 G.v().Timer_forcedGarbageCollectionTimer.start();
                 
                 // Stop all outstanding timers
                 {
-                    Iterator<Timer> timerIt = G.v().Timer_outstandingTimers.iterator();
+                    Iterator<Timer> timerIt = G.v().Timer_outstandingTimers.get().iterator();
                     
                     while(timerIt.hasNext())
                     {
@@ -81,7 +83,7 @@ public class Timer
         
                 // Start all outstanding timers
                 {
-                    Iterator<Timer> timerIt = G.v().Timer_outstandingTimers.iterator();
+                    Iterator<Timer> timerIt = G.v().Timer_outstandingTimers.get().iterator();
                     
                     while(timerIt.hasNext())
                     {
@@ -93,21 +95,19 @@ public class Timer
                 
                 G.v().Timer_forcedGarbageCollectionTimer.end();
                 
-                G.v().Timer_isGarbageCollecting = false;
+                G.v().Timer_isGarbageCollecting.set(Boolean.FALSE);
             }
                         
         
-        startTime = System.currentTimeMillis();
-        
-        if(hasStarted)
+        if(startTime.get() != null)
             throw new RuntimeException("timer " + name + " has already been started!");
         else
-            hasStarted = true;
+            startTime.set(System.currentTimeMillis());
         
         
-        if(!G.v().Timer_isGarbageCollecting) 
+        if(!G.v().Timer_isGarbageCollecting.get()) 
         {
-            G.v().Timer_outstandingTimers.add(this);
+            G.v().Timer_outstandingTimers.get().add(this);
         }
             
     }
@@ -121,24 +121,25 @@ public class Timer
     /** Stops the current timer. */
     public void end()
     {   
-        if(!hasStarted)
+        Long start = startTime.get();
+        if(start == null)
             throw new RuntimeException("timer " + name + " has not been started!");
         else
-            hasStarted = false;
+            startTime.remove();
         
-        duration += System.currentTimeMillis() - startTime;
+        duration.addAndGet(System.currentTimeMillis() - start);
         
         
-        if(!G.v().Timer_isGarbageCollecting)
+        if(!G.v().Timer_isGarbageCollecting.get())
         {
-            G.v().Timer_outstandingTimers.remove(this);
+            G.v().Timer_outstandingTimers.get().remove(this);
         }
     }
 
     /** Returns the sum of the intervals start()-end() of the current timer. */
     public long getTime()
     {
-        return duration;
+        return duration.get();
     }
 }
 
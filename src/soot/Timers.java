@@ -169,6 +169,10 @@ public class Timers
 	//                G.v().out.println("                 post: " + toTimeString(livePostTimer, totalTime));
                 
         G.v().out.println("Coading coffi structs: " + toTimeString(resolveTimer, totalTime));
+        // RoboVM note: Report how well constants are shared.
+        soot.jimple.ConstantInterner ci = soot.jimple.ConstantInterner.v();
+        G.v().out.println("   Interned constants: " + ci.getHits() + " hits, " + ci.getMisses() + " misses ("
+                + truncatedOf(ci.getHitRate() * 100, 1) + "% hit rate)");
 
                 
         G.v().out.println();
@@ -45,6 +45,16 @@ public interface Unit extends Switchable, Host, Serializable, Context
     /** Returns a list of Boxes containing Values defined in this Unit. */
     public List<ValueBox> getDefBoxes();
 
+    /** Passes the boxes returned by {@link #getUseBoxes()} to
+     * <code>consumer</code>, in the same order, without building a list.
+     * Added in RoboVM. */
+    public void forEachUseBox(ValueBoxConsumer consumer);
+
+    /** Passes the boxes returned by {@link #getDefBoxes()} to
+     * <code>consumer</code>, in the same order, without building a list.
+     * Added in RoboVM. */
+    public void forEachDefBox(ValueBoxConsumer consumer);
+
     /** Returns a list of Boxes containing Units defined in this Unit; typically
      * branch targets. */
     public List<UnitBox> getUnitBoxes();
@@ -41,6 +41,11 @@ public interface Value extends Switchable, EquivTo, Serializable
      * which are used by (ie contained within) this Value. */
     public List getUseBoxes();
 
+    /** Passes the boxes returned by {@link #getUseBoxes()} to
+     * <code>consumer</code>, in the same order, without building a list.
+     * Added in RoboVM. */
+    public void forEachUseBox(ValueBoxConsumer consumer);
+
     /** Returns the Soot type of this Value. */
     public Type getType();
 
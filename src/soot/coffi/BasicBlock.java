@@ -96,7 +96,7 @@ class BasicBlock {
    }
 
    public BasicBlock(Instruction insts) {
-      id = G.v().coffi_BasicBlock_ids++;
+      id = G.v().coffi_BasicBlock_ids.getAndIncrement();
       head = insts;
       tail = head;
       size = 0;
@@ -113,7 +113,7 @@ class BasicBlock {
 
     public BasicBlock(Instruction headinsn, Instruction tailinsn)
     {
-	id = G.v().coffi_BasicBlock_ids++;
+	id = G.v().coffi_BasicBlock_ids.getAndIncrement();
 	head = headinsn;
 	tail = tailinsn;
 	succ = new Vector<BasicBlock>(2,10);
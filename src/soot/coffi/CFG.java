@@ -55,8 +55,11 @@ public class CFG {
     Chain units;
     JimpleBody listBody;
 
-    Map<Instruction, Stmt> instructionToFirstStmt;
-    Map<Instruction, Stmt> instructionToLastStmt;
+    // RoboVM note: Was Map<Instruction, Stmt> instructionToFirstStmt and
+    // instructionToLastStmt. Now indexed by Instruction.index.
+    private Instruction[] indexedInstructions;
+    private Stmt[] firstStmts;
+    private Stmt[] lastStmts;
     SootMethod jmethod;
     Scene cm;
 
@@ -115,7 +118,8 @@ public class CFG {
 	*/
     }
 
-    public static HashMap<SootMethod, int[]> methodsToVEM = new HashMap<SootMethod, int[]>();
+    // RoboVM note: Made this a synchronized map since bodies may be built concurrently
+    public static Map<SootMethod, int[]> methodsToVEM = Collections.synchronizedMap(new HashMap<SootMethod, int[]>());
     private void complexity() 
     {
       // ignore all non-app classes
@@ -950,8 +954,6 @@ public class CFG {
 
         this.listBody = listBody;
         this.units = units;
-        instructionToFirstStmt = new HashMap<Instruction, Stmt>();
-        instructionToLastStmt = new HashMap<Instruction, Stmt>();
 
         jmethod = listBody.getMethod();
         cm = Scene.v();
@@ -1062,11 +1064,13 @@ public class CFG {
     void jimplify(cp_info constant_pool[],int this_class)
     {
         Code_attribute codeAttribute = method.locate_code_attribute();
-        Set<Instruction> handlerInstructions = new ArraySet();
 
-        Map<Instruction, SootClass> handlerInstructionToException = new HashMap<Instruction, SootClass>();
-        Map<Instruction, TypeStack> instructionToTypeStack;
-        Map<Instruction, TypeStack> instructionToPostTypeStack;
+        // RoboVM note: The per-instruction maps and sets used below have
+        // been replaced by arrays indexed by Instruction.index.
+        int count = indexInstructions();
+        SootClass[] handlerExceptions = new SootClass[count];
+        TypeStack[] typeStacks;
+        TypeStack[] postTypeStacks;
 
         {
             // build graph in 
@@ -1080,8 +1084,6 @@ public class CFG {
                     Instruction endIns = codeAttribute.exception_table[i].end_inst;
                     Instruction handlerIns = codeAttribute.exception_table[i].handler_inst;
 
-                    handlerInstructions.add(handlerIns);
-
                     // Determine exception to catch
                     {
                         int catchType = codeAttribute.exception_table[i].catch_type;
@@ -1102,7 +1104,7 @@ public class CFG {
                         else
                             exception = cm.getSootClass("java.lang.Throwable");
 
-                        handlerInstructionToException.put(handlerIns, exception);
+                        handlerExceptions[handlerIns.index] = exception;
                     }
 
 
@@ -1129,26 +1131,27 @@ public class CFG {
             }
         }
 
-        Set<Instruction> reachableInstructions = new HashSet<Instruction>();
+        boolean[] reachableInstructions = new boolean[count];
         
         // Mark all the reachable instructions
         {
-            LinkedList<Instruction> instructionsToVisit = new LinkedList<Instruction>();
+            int[] instructionsToVisit = new int[count];
+            int top = 0;
             
-            reachableInstructions.add(firstInstruction);
-            instructionsToVisit.addLast(firstInstruction);
+            reachableInstructions[firstInstruction.index] = true;
+            instructionsToVisit[top++] = firstInstruction.index;
             
-            while( !instructionsToVisit.isEmpty())
+            while(top > 0)
             {
-                Instruction ins = instructionsToVisit.removeFirst();
+                Instruction ins = indexedInstructions[instructionsToVisit[--top]];
 
 		Instruction[] succs = ins.succs;
 	       
 		for (Instruction succ : succs) {
-		    if(!reachableInstructions.contains(succ))
+		    if(!reachableInstructions[succ.index])
 		    {
-			reachableInstructions.add(succ);
-			instructionsToVisit.addLast(succ);
+			reachableInstructions[succ.index] = true;
+			instructionsToVisit[top++] = succ.index;
 		    }
                 }
             }
@@ -1178,11 +1181,14 @@ public class CFG {
         
         // Perform the flow analysis, and build up instructionToTypeStack and instructionToLocalArray
         {
-            instructionToTypeStack = new HashMap<Instruction, TypeStack>();
-            instructionToPostTypeStack = new HashMap<Instruction, TypeStack>();
+            typeStacks = new TypeStack[count];
+            postTypeStacks = new TypeStack[count];
 
-            Set<Instruction> visitedInstructions = new HashSet<Instruction>();
-            List<Instruction> changedInstructions = new ArrayList<Instruction>();
+            boolean[] visitedInstructions = new boolean[count];
+            // FIFO queue of instruction indices which may contain duplicates
+            int[] changedInstructions = new int[Math.max(count, 16)];
+            int head = 0;
+            int size = 0;
 
             TypeStack initialTypeStack;
 
@@ -1194,44 +1200,54 @@ public class CFG {
 
             // Get the loop cranked up.
             {
-                instructionToTypeStack.put(firstInstruction, initialTypeStack);
+                typeStacks[firstInstruction.index] = initialTypeStack;
 
-                visitedInstructions.add(firstInstruction);
-                changedInstructions.add(firstInstruction);
+                visitedInstructions[firstInstruction.index] = true;
+                changedInstructions[size++] = firstInstruction.index;
             }
 
             {
-                while(!changedInstructions.isEmpty())
+                while(size > 0)
                 {
-                    Instruction ins = changedInstructions.get(0);
+                    Instruction ins = indexedInstructions[changedInstructions[head]];
 
-                    changedInstructions.remove(0);
+                    head = (head + 1) % changedInstructions.length;
+                    size--;
 
-                    OutFlow ret = processFlow(ins, instructionToTypeStack.get(ins),
+                    OutFlow ret = processFlow(ins, typeStacks[ins.index],
                         constant_pool);
 
-                    instructionToPostTypeStack.put(ins, ret.typeStack);
+                    postTypeStacks[ins.index] = ret.typeStack;
 
                     Instruction[] successors = ins.succs;
 
                     for (Instruction s : successors) {
-                        if(!visitedInstructions.contains(s))
+                        if(size == changedInstructions.length)
+                        {
+                            int[] grown = new int[size * 2];
+                            for(int i = 0; i < size; i++)
+                                grown[i] = changedInstructions[(head + i) % size];
+                            changedInstructions = grown;
+                            head = 0;
+                        }
+
+                        if(!visitedInstructions[s.index])
                         {
                             // Special case for the first time visiting.
 
-                            if(handlerInstructions.contains(s))
+                            if(handlerExceptions[s.index] != null)
                             {
                                 TypeStack exceptionTypeStack = (TypeStack.v()).push(RefType.v(
-                                    handlerInstructionToException.get(s).getName()));
+                                    handlerExceptions[s.index].getName()));
 
-                                instructionToTypeStack.put(s, exceptionTypeStack);
+                                typeStacks[s.index] = exceptionTypeStack;
                             }
                             else {
-                                instructionToTypeStack.put(s, ret.typeStack);
+                                typeStacks[s.index] = ret.typeStack;
                             }
 
-                            visitedInstructions.add(s);
-                            changedInstructions.add(s);
+                            visitedInstructions[s.index] = true;
+                            changedInstructions[(head + size++) % changedInstructions.length] = s.index;
 
                             // G.v().out.println("adding successor: " + s);
                         }
@@ -1239,15 +1255,15 @@ public class CFG {
                             // G.v().out.println("considering successor: " + s);
                         
 							TypeStack newTypeStack,
-                                oldTypeStack = instructionToTypeStack.get(s);
+                                oldTypeStack = typeStacks[s.index];
 
-                            if(handlerInstructions.contains(s))
+                            if(handlerExceptions[s.index] != null)
                             {
                                 // The type stack for an instruction handler should always be that of
                                 // single object on the stack.
 
                                 TypeStack exceptionTypeStack = (TypeStack.v()).push(RefType.v(
-                                    handlerInstructionToException.get(s).getName()));
+                                    handlerExceptions[s.index].getName()));
 
                                 newTypeStack = exceptionTypeStack;
                             }
@@ -1263,55 +1279,23 @@ public class CFG {
 							}
                             if(!newTypeStack.equals(oldTypeStack))
                             {
-                                changedInstructions.add(s);
+                                changedInstructions[(head + size++) % changedInstructions.length] = s.index;
                                 // G.v().out.println("requires a revisit: " + s);
                             }
 
-                            instructionToTypeStack.put(s, newTypeStack);
+                            typeStacks[s.index] = newTypeStack;
                         }
                     }
                 }
             }
         }
 
-        // Print out instructions + their localArray + typeStack
-        {
-            Instruction ins = firstInstruction;
-
-     //       G.v().out.println();
-
-            while(ins != null)
-            {
-                TypeStack typeStack = instructionToTypeStack.get(ins);
-                // TypeArray typeArray = (TypeArray) instructionToLocalArray.get(ins);
-/*
-                G.v().out.println("[TypeArray]");
-                typeArray.print(G.v().out);
-                G.v().out.println();
-
-                G.v().out.println("[TypeStack]");
-                typeStack.print(G.v().out);
-                G.v().out.println();
-
-                G.v().out.println(ins.toString());
-*/
-
-                ins = ins.next;
-/*
-
-                G.v().out.println();
-                G.v().out.println();
-*/
-
-            }
-        }
-
-
         // G.v().out.println("Producing Jimple code...");
 
         // Jimplify each statement
         {
             BasicBlock b = cfg;
+            List<Stmt> statementsForIns = new ArrayList<Stmt>();
 
             while(b != null)
             {
@@ -1322,11 +1306,11 @@ public class CFG {
 
 		for (;;)
 		{
-                    List<Stmt> statementsForIns = new ArrayList<Stmt>();
+                    statementsForIns.clear();
 
-                    if(reachableInstructions.contains(ins))
-                        generateJimple(ins, instructionToTypeStack.get(ins),
-                            instructionToPostTypeStack.get(ins), constant_pool,
+                    if(reachableInstructions[ins.index])
+                        generateJimple(ins, typeStacks[ins.index],
+                            postTypeStacks[ins.index], constant_pool,
                             statementsForIns, b);
                     else
                         statementsForIns.add(Jimple.v().newNopStmt()); 
@@ -1339,8 +1323,8 @@ public class CFG {
                             blockStatements.add(statementsForIns.get(i));
                         }
 
-                        instructionToFirstStmt.put(ins, statementsForIns.get(0));
-                        instructionToLastStmt.put(ins, statementsForIns.get(statementsForIns.size() - 1));
+                        firstStmts[ins.index] = statementsForIns.get(0);
+                        lastStmts[ins.index] = statementsForIns.get(statementsForIns.size() - 1);
                     }
 
 		    if (ins == b.tail)
@@ -1392,13 +1376,13 @@ public class CFG {
 		Instruction targetIns = 
 		    codeAttribute.exception_table[i].handler_inst;
 
-		if(!instructionToFirstStmt.containsKey(startIns) ||
-		   (endIns != null && (!instructionToLastStmt.containsKey(endIns))))
+		if(firstStmtOf(startIns) == null ||
+		   (endIns != null && lastStmtOf(endIns) == null))
                 {
 		    throw new RuntimeException("Exception range does not coincide with jimple instructions");
 		}
 
-		if(!instructionToFirstStmt.containsKey(targetIns))
+		if(firstStmtOf(targetIns) == null)
                 {
 		    throw new RuntimeException
 			("Exception handler does not coincide with jimple instruction");
@@ -1429,7 +1413,7 @@ public class CFG {
 		// Insert assignment of exception
 		{
 		    Stmt firstTargetStmt = 
-			instructionToFirstStmt.get(targetIns);
+			firstStmtOf(targetIns);
                         
 		    if(targetToHandler.containsKey(firstTargetStmt))
 			newTarget = 
@@ -1456,7 +1440,7 @@ public class CFG {
 
 		// Insert trap
 		{
-		    Stmt firstStmt = instructionToFirstStmt.get(startIns);
+		    Stmt firstStmt = firstStmtOf(startIns);
 		    Stmt afterEndStmt;
 		    if (endIns == null) {
 			// A kludge which isn't really correct, but
@@ -1470,7 +1454,7 @@ public class CFG {
 			// the protected area.
 			afterEndStmt = (Stmt) units.getLast();
 		    } else {
-			afterEndStmt = instructionToLastStmt.get(endIns);
+			afterEndStmt = lastStmtOf(endIns);
 			IdentityStmt catchStart = 
 			    (IdentityStmt) targetToHandler.get(afterEndStmt); 
 			                    // (Cast to IdentityStmt as an assertion check.)
@@ -1508,12 +1492,12 @@ public class CFG {
 		    LineNumberTable_attribute lntattr =
 			(LineNumberTable_attribute)element;
 		    for (line_number_table_entry element0 : lntattr.line_number_table) {
-			Stmt start_stmt = instructionToFirstStmt.get(
-				 element0.start_inst);
+			Stmt start_stmt = firstStmtOf(element0.start_inst);
 
 			if (start_stmt != null)
 			{
-			    LineNumberTag lntag= new LineNumberTag(
+			    // RoboVM note: Use shared tags
+			    LineNumberTag lntag= LineNumberTag.v(
 		   		    element0.line_number);
 			    stmtstags.put(start_stmt, lntag);
 			    startstmts.add(start_stmt);
@@ -1572,9 +1556,9 @@ public class CFG {
                     // locals in the IdentityStmts inserted in jimplify(...).
                     startStmt = (Stmt) units.getFirst();
                 } else {
-                    startStmt = instructionToFirstStmt.get(entry.start_inst);
+                    startStmt = firstStmtOf(entry.start_inst);
                     if (entry.end_inst != null) {
-                        endStmt = instructionToFirstStmt.get(entry.end_inst);
+                        endStmt = firstStmtOf(entry.end_inst);
                     }
                 }
                 soot.LocalVariable lv = new LocalVariable(name, entry.index, startStmt, endStmt,
@@ -1585,6 +1569,65 @@ public class CFG {
 	// RoboVM note: End change.
     }
 
+    /**
+     * RoboVM note: Added. Assigns dense indices to the instructions of all
+     * basic blocks and allocates the arrays holding the first and last
+     * statements generated for each instruction.
+     * @return the number of instructions.
+     */
+    private int indexInstructions()
+    {
+        int count = 0;
+        for (BasicBlock b = cfg; b != null; b = b.next)
+        {
+            for (Instruction ins = b.head; ; ins = ins.next)
+            {
+                count++;
+                if (ins == b.tail)
+                    break;
+            }
+        }
+        indexedInstructions = new Instruction[count];
+        firstStmts = new Stmt[count];
+        lastStmts = new Stmt[count];
+        int i = 0;
+        for (BasicBlock b = cfg; b != null; b = b.next)
+        {
+            for (Instruction ins = b.head; ; ins = ins.next)
+            {
+                ins.index = i;
+                indexedInstructions[i++] = ins;
+                if (ins == b.tail)
+                    break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * RoboVM note: Added. Returns the first statement generated for the
+     * specified instruction or <code>null</code> if there is none.
+     */
+    private Stmt firstStmtOf(Instruction ins)
+    {
+        if (ins == null || ins.index < 0 || ins.index >= indexedInstructions.length
+                || indexedInstructions[ins.index] != ins)
+            return null;
+        return firstStmts[ins.index];
+    }
+
+    /**
+     * RoboVM note: Added. Returns the last statement generated for the
+     * specified instruction or <code>null</code> if there is none.
+     */
+    private Stmt lastStmtOf(Instruction ins)
+    {
+        if (ins == null || ins.index < 0 || ins.index >= indexedInstructions.length
+                || indexedInstructions[ins.index] != ins)
+            return null;
+        return lastStmts[ins.index];
+    }
+
     private Type byteCodeTypeOf(Type type)
     {
         if(type.equals(ShortType.v()) ||
@@ -4732,7 +4775,8 @@ public class CFG {
 
       if(stmt != null) {
 	if (Options.v().keep_offset()) {
-	  stmt.addTag(new BytecodeOffsetTag(ins.label));
+	  // RoboVM note: Use shared tags
+	  stmt.addTag(BytecodeOffsetTag.v(ins.label));
 	}
         statements.add(stmt);
       }
@@ -216,6 +216,24 @@ public class ClassFile {
       return true;
    }
 
+    /**
+     * RoboVM note: Added. Loads the class file from the specified bytes.
+     * Unlike {@link #loadClassFile(InputStream)} this doesn't touch the
+     * global read timer and can be called from resolver worker threads.
+     * @param data the contents of the class file.
+     * @return <i>true</i> on success.
+     */
+    public boolean loadClassFile(byte[] data)
+    {
+      timed = false;
+      DataInputStream d = new DataInputStream(new ByteArrayInputStream(data));
+      return readClass(d);
+    }
+
+    /** RoboVM note: Added. Whether the global Timers should be updated
+     * while reading the class file. Timers are not thread safe. */
+    private boolean timed = true;
+
 
 
 
@@ -397,20 +415,20 @@ public class ClassFile {
          }
          //G.v().out.println("Implements " + interfaces_count + " interface(s)");
 
-         Timers.v().fieldTimer.start();
+         if (timed) Timers.v().fieldTimer.start();
          
          fields_count = d.readUnsignedShort();
          //G.v().out.println("Has " + fields_count + " field(s)");
          readFields(d);
-         Timers.v().fieldTimer.end();
+         if (timed) Timers.v().fieldTimer.end();
         
-         Timers.v().methodTimer.start();
+         if (timed) Timers.v().methodTimer.start();
          methods_count = d.readUnsignedShort();
          //G.v().out.println("Has " + methods_count + " method(s)");
          readMethods(d);
-         Timers.v().methodTimer.end();
+         if (timed) Timers.v().methodTimer.end();
         
-         Timers.v().attributeTimer.start();
+         if (timed) Timers.v().attributeTimer.start();
          
          attributes_count = d.readUnsignedShort();
          //G.v().out.println("Has " + attributes_count + " attribute(s)");
@@ -418,7 +436,7 @@ public class ClassFile {
             attributes =  new attribute_info[attributes_count];
             readAttributes(d,attributes_count,attributes);
          }
-         Timers.v().attributeTimer.end();
+         if (timed) Timers.v().attributeTimer.end();
          
       } catch(IOException e) {
          throw new RuntimeException("IOException with " + fn + ": " + e.getMessage(), e);
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.coffi;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Added in RoboVM. Compact stand-in for a parsed {@link ClassFile} used by
+ * the <code>-lean-class-files</code> mode. Only the raw class file bytes are
+ * retained after the class has been resolved. The class file is re-parsed
+ * when a method body is built and the parsed form is kept softly reachable
+ * so that sibling methods built shortly after can reuse it. The bytes are
+ * dropped once the bodies of all concrete methods have been built.
+ */
+public class CoffiClassData {
+    private final String className;
+    private byte[] data;
+    private int remaining;
+    private SoftReference<ClassFile> parsed;
+
+    /**
+     * @param className the name of the class.
+     * @param data the raw class file bytes.
+     * @param methodCount the number of concrete methods which will call
+     *        {@link #release()} once their bodies have been built.
+     */
+    public CoffiClassData(String className, byte[] data, int methodCount) {
+        this.className = className;
+        this.data = data;
+        this.remaining = methodCount;
+    }
+
+    /**
+     * Returns the parsed class file, parsing it again if it has been
+     * collected since it was last used.
+     */
+    synchronized ClassFile acquire() {
+        ClassFile cf = parsed != null ? parsed.get() : null;
+        if (cf == null) {
+            if (data == null) {
+                throw new IllegalStateException("Class file data for " + className + " has already been released");
+            }
+            cf = new ClassFile(className);
+            if (!cf.loadClassFile(data)) {
+                throw new RuntimeException("Could not reload classfile: " + className);
+            }
+            parsed = new SoftReference<ClassFile>(cf);
+        }
+        return cf;
+    }
+
+    /**
+     * Called once the body of a method has been built. Drops everything
+     * once all methods are done.
+     */
+    synchronized void release() {
+        if (--remaining <= 0) {
+            data = null;
+            parsed = null;
+        }
+    }
+}
@@ -36,12 +36,52 @@ public class CoffiMethodSource implements MethodSource
     public ClassFile coffiClass;
     public method_info coffiMethod;
 
-    CoffiMethodSource(soot.coffi.ClassFile coffiClass, soot.coffi.method_info coffiMethod)
+    // RoboVM note: Public so that the benchmarks can build bodies from
+    // freshly parsed class files.
+    public CoffiMethodSource(soot.coffi.ClassFile coffiClass, soot.coffi.method_info coffiMethod)
     {
         this.coffiClass = coffiClass;
         this.coffiMethod = coffiMethod;
     }
 
+    // RoboVM note: Added. Digest of the class file used as key in the BodyCache.
+    private String classDigest;
+
+    public void setClassDigest(String classDigest) {
+        this.classDigest = classDigest;
+    }
+
+    // RoboVM note: Added. Used in -lean-class-files mode instead of
+    // coffiClass/coffiMethod which are only set while building the body.
+    private CoffiClassData classData;
+    private int methodIndex;
+
+    /**
+     * RoboVM note: Added. Drops the references to the parsed class file.
+     * If <code>classData</code> is not <code>null</code> the class file
+     * will be re-parsed from it when the body is built.
+     */
+    public void makeLean(CoffiClassData classData) {
+        if (classData != null) {
+            for (int i = 0; i < coffiClass.methods_count; i++) {
+                if (coffiClass.methods[i] == coffiMethod) {
+                    methodIndex = i;
+                    break;
+                }
+            }
+        }
+        this.classData = classData;
+        coffiClass = null;
+        coffiMethod = null;
+    }
+
+    private void releaseClassData() {
+        if (classData != null) {
+            classData.release();
+            classData = null;
+        }
+    }
+
     public Body getBody(SootMethod m, String phaseName)
     {
         JimpleBody jb = Jimple.v().newBody(m);
@@ -63,7 +103,29 @@ public class CoffiMethodSource implements MethodSource
 
         if(m.isAbstract() || m.isNative() || m.isPhantom())
             return jb;
+
+        // RoboVM note: Start changes. Use the cached body if there is one.
+        if(classDigest != null)
+        {
+            JimpleBody cached = BodyCache.v().load(m, classDigest);
+            if(cached != null)
+            {
+                coffiMethod = null;
+                coffiClass = null;
+                releaseClassData();
+                return cached;
+            }
+        }
+        // RoboVM note: End changes.
             
+        // RoboVM note: Re-parse the class file in -lean-class-files mode
+        if(classData != null)
+        {
+            coffiClass = classData.acquire();
+            coffiMethod = coffiClass.methods[methodIndex];
+            coffiMethod.jmethod = m;
+        }
+
         if(Options.v().time())
             Timers.v().conversionTimer.start();
 
@@ -111,8 +173,11 @@ public class CoffiMethodSource implements MethodSource
 
          coffiMethod = null;
          coffiClass = null;
+         releaseClassData();
          
          PackManager.v().getPack("jb").apply(jb);
+         if(classDigest != null)
+             BodyCache.v().store(m, classDigest, jb); // RoboVM note: Added
          return jb;
     }
 }
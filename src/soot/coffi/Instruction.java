@@ -95,6 +95,12 @@ package soot.coffi;
 
    int originalIndex;
 
+   /** RoboVM note: Added. Dense index of this instruction assigned by
+    * {@link CFG} while jimplifying. Used to key per-instruction state
+    * in arrays rather than hash maps.
+    */
+   int index = -1;
+
    /** Constructs a new Instruction for this bytecode.
     * @param c bytecode of the instruction.
     */
@@ -193,7 +199,8 @@ package soot.coffi;
     * @return unique hash code for this instruction, assuming labels are unique.
     */
    public int hashCode() {
-      return (new Integer(label)).hashCode();
+      // RoboVM note: Was (new Integer(label)).hashCode() which allocates
+      return label;
    }
 
    /** For storing in a Hashtable.
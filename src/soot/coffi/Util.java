@@ -32,6 +32,7 @@
 package soot.coffi;
 import soot.jimple.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
 import soot.tagkit.*;
 import soot.*;
@@ -39,9 +40,26 @@ import soot.*;
 
 public class Util
 {
-    public Util( Singletons.Global g ) {}
-    public static Util v() { return G.v().soot_coffi_Util(); }
+    public Util( Singletons.Global g ) {
+        this.cache = new ConcurrentHashMap<String, Type[]>();
+        this.perThread = new ThreadLocal<Util>() {
+            protected Util initialValue() {
+                return new Util(Util.this);
+            }
+        };
+    }
+    private Util( Util shared ) {
+        this.cache = shared.cache;
+        this.perThread = null;
+    }
 
+    // RoboVM note: Util keeps the state of the method currently being
+    // converted (constant pool, local variable tables, ...) in fields. Every
+    // thread gets its own instance so that bodies can be built concurrently.
+    // The descriptor cache is shared by all instances.
+    public static Util v() { return G.v().soot_coffi_Util().perThread.get(); }
+
+    private final ThreadLocal<Util> perThread;
 
     Map classNameToAbbreviation;
     Set markedClasses;
@@ -60,16 +78,26 @@ public class Util
     }    
 
     public void resolveFromClassFile(SootClass aClass, InputStream is, List references)
+    {
+        ClassFile coffiClass = new ClassFile(aClass.getName());
+        if(!coffiClass.loadClassFile(is))
+            coffiClass = null;
+        resolveFromClassFile(aClass, coffiClass, references);
+    }
+
+    /**
+     * RoboVM note: Added. Resolves <code>aClass</code> from an already
+     * loaded class file. A <code>null</code> class file means that loading
+     * the class file failed.
+     */
+    public void resolveFromClassFile(SootClass aClass, ClassFile coffiClass, List references)
     {
         SootClass bclass = aClass;                
         String className = bclass.getName();
-        ClassFile coffiClass = new ClassFile(className);
         
         // Load up class file, and retrieve bclass from class manager.
         {
-            boolean success = coffiClass.loadClassFile(is);
-
-            if(!success)
+            if(coffiClass == null)
                 {
                     if(!Scene.v().allowsPhantomRefs())
                         throw new RuntimeException("Could not load classfile: " + bclass.getName());
@@ -543,7 +571,7 @@ public class Util
 */
 
 
-    private final Map<String, Type[]> cache = new HashMap<String, Type[]>();
+    private final Map<String, Type[]> cache;
     public Type[] jimpleTypesOfFieldOrMethodDescriptor(String descriptor)
     {
         Type[] ret = cache.get(descriptor);
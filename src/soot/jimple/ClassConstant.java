@@ -36,7 +36,8 @@ public class ClassConstant extends Constant
 {
     public final String value;
 
-    private ClassConstant(String s)
+    // RoboVM note: Package private since ConstantInterner creates instances.
+    ClassConstant(String s)
     {
         this.value = s;
     }
@@ -44,7 +45,8 @@ public class ClassConstant extends Constant
     public static ClassConstant v(String value)
     {
     	if(value.contains(".")) throw new RuntimeException("ClassConstants must use class names separated by '/', not '.'!");
-        return new ClassConstant(value);
+        // RoboVM note: Constants are interned.
+        return ConstantInterner.v().classConstant(value);
     }
 
     // In this case, equals should be structural equality.
@@ -40,6 +40,10 @@ public abstract class Constant implements Value, Immediate
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     /** Adds a Baf instruction pushing this constant to the stack onto <code>out</code>. */
 
     /** Clones the current constant.  Not implemented here. */
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import soot.G;
+import soot.Singletons;
+import soot.util.WeakInternPool;
+
+/**
+ * Added in RoboVM. Interns the {@link IntConstant}, {@link LongConstant},
+ * {@link StringConstant} and {@link ClassConstant} instances returned by
+ * their <code>v()</code> methods so that equal constants share a single
+ * instance. Small ints come from a preallocated table in
+ * {@link IntConstant}; everything else is kept in bounded pools which only
+ * hold on to constants still referenced from somewhere else.
+ */
+public class ConstantInterner {
+    /**
+     * Maximum number of constants of each kind kept in the pools.
+     */
+    public static final int MAX_POOL_SIZE = 1 << 16;
+
+    private final WeakInternPool<Integer, IntConstant> ints =
+            new WeakInternPool<Integer, IntConstant>(MAX_POOL_SIZE);
+    private final WeakInternPool<Long, LongConstant> longs =
+            new WeakInternPool<Long, LongConstant>(MAX_POOL_SIZE);
+    private final WeakInternPool<String, StringConstant> strings =
+            new WeakInternPool<String, StringConstant>(MAX_POOL_SIZE);
+    private final WeakInternPool<String, ClassConstant> classes =
+            new WeakInternPool<String, ClassConstant>(MAX_POOL_SIZE);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ConstantInterner(Singletons.Global g) {
+    }
+
+    public static ConstantInterner v() {
+        return G.v().soot_jimple_ConstantInterner();
+    }
+
+    IntConstant intConstant(int value) {
+        Integer key = Integer.valueOf(value);
+        IntConstant c = ints.get(key);
+        if (c != null) {
+            hits.increment();
+            return c;
+        }
+        misses.increment();
+        return ints.intern(key, new IntConstant(value));
+    }
+
+    LongConstant longConstant(long value) {
+        Long key = Long.valueOf(value);
+        LongConstant c = longs.get(key);
+        if (c != null) {
+            hits.increment();
+            return c;
+        }
+        misses.increment();
+        return longs.intern(key, new LongConstant(value));
+    }
+
+    StringConstant stringConstant(String value) {
+        StringConstant c = strings.get(value);
+        if (c != null) {
+            hits.increment();
+            return c;
+        }
+        misses.increment();
+        return strings.intern(value, new StringConstant(value));
+    }
+
+    ClassConstant classConstant(String value) {
+        ClassConstant c = classes.get(value);
+        if (c != null) {
+            hits.increment();
+            return c;
+        }
+        misses.increment();
+        return classes.intern(value, new ClassConstant(value));
+    }
+
+    /**
+     * Returns the number of <code>v()</code> calls which returned an
+     * existing constant from the pools. Small ints served from the
+     * preallocated table in {@link IntConstant} are not counted.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of <code>v()</code> calls which created a new
+     * constant.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of the pooled <code>v()</code> calls which
+     * returned an existing constant.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Returns the number of entries currently held by the pools.
+     */
+    public int getPoolSize() {
+        return ints.size() + longs.size() + strings.size() + classes.size();
+    }
+}
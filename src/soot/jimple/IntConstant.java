@@ -36,6 +36,18 @@ public class IntConstant extends ArithmeticConstant
 {
     public final int value;
 
+    /*
+     * RoboVM note: Constants are interned. Ints in [SMALL_MIN, SMALL_MAX]
+     * are preallocated, other values are pooled by ConstantInterner.
+     */
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1023;
+    private static final IntConstant[] SMALL = new IntConstant[SMALL_MAX - SMALL_MIN + 1];
+    static {
+        for (int i = 0; i < SMALL.length; i++)
+            SMALL[i] = new IntConstant(i + SMALL_MIN);
+    }
+
     protected IntConstant(int value)
     {
         this.value = value;
@@ -43,7 +55,9 @@ public class IntConstant extends ArithmeticConstant
 
     public static IntConstant v(int value)
     {
-        return new IntConstant(value);
+        if (value >= SMALL_MIN && value <= SMALL_MAX)
+            return SMALL[value - SMALL_MIN];
+        return ConstantInterner.v().intConstant(value);
     }
 
     public boolean equals(Object c)
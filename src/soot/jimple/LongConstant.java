@@ -36,14 +36,16 @@ public class LongConstant extends ArithmeticConstant
 {
     public final long value;
 
-    private LongConstant(long value)
+    // RoboVM note: Package private since ConstantInterner creates instances.
+    LongConstant(long value)
     {
         this.value = value;
     }
 
     public static LongConstant v(long value)
     {
-        return new LongConstant(value);
+        // RoboVM note: Constants are interned.
+        return ConstantInterner.v().longConstant(value);
     }
 
     public boolean equals(Object c)
@@ -99,6 +99,10 @@ public class ParameterRef implements IdentityRef
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     /** Returns the type of this ParameterRef. */
     public Type getType()
     {
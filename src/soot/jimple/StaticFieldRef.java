@@ -79,6 +79,10 @@ public class StaticFieldRef implements FieldRef
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     public Type getType()
     {
         return fieldRef.type();
@@ -36,14 +36,16 @@ public class StringConstant extends Constant
 {
     public final String value;
 
-    private StringConstant(String s)
+    // RoboVM note: Package private since ConstantInterner creates instances.
+    StringConstant(String s)
     {
         this.value = s;
     }
 
     public static StringConstant v(String value)
     {
-        return new StringConstant(value);
+        // RoboVM note: Constants are interned.
+        return ConstantInterner.v().stringConstant(value);
     }
 
     // In this case, equals should be structural equality.
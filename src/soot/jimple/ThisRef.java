@@ -66,6 +66,10 @@ public class ThisRef implements IdentityRef
     {
         return AbstractUnit.emptyList;
     }
+
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
     
     public Type getType()
     {
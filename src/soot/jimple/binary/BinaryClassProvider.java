@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import soot.ClassProvider;
+import soot.ClassSource;
+import soot.SourceLocator;
+
+/**
+ * Added in RoboVM. Looks for binary Jimple files (<code>.jbin</code>)
+ * written by {@link BinaryClassWriter} on the soot-class-path.
+ */
+public class BinaryClassProvider implements ClassProvider {
+    public static final String EXTENSION = ".jbin";
+
+    public ClassSource find(String className) {
+        String fileName = className.replace('.', '/') + EXTENSION;
+        SourceLocator.FoundFile file = SourceLocator.v().lookupInClassPath(fileName);
+        if (file == null) {
+            return null;
+        }
+        return new BinaryClassSource(className, file);
+    }
+}
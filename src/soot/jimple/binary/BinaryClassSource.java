@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static soot.jimple.binary.BinaryJimpleConstants.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import soot.ClassPathIndex;
+import soot.ClassSource;
+import soot.G;
+import soot.RefType;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.SootResolver;
+import soot.SourceLocator;
+import soot.Type;
+import soot.javaToJimple.IInitialResolver.Dependencies;
+import soot.options.Options;
+
+/**
+ * Added in RoboVM. {@link ClassSource} for classes written by
+ * {@link BinaryClassWriter}. Files on the default file system are memory
+ * mapped. Only the class, field and method declarations are decoded when the
+ * class is resolved. Method bodies are decoded by {@link BinaryMethodSource}
+ * when they are first retrieved.
+ */
+public class BinaryClassSource extends ClassSource {
+    private final SourceLocator.FoundFile foundFile;
+
+    public BinaryClassSource(String className, SourceLocator.FoundFile foundFile) {
+        super(className);
+        this.foundFile = foundFile;
+    }
+
+    public Dependencies resolve(SootClass sc) {
+        if (Options.v().verbose()) {
+            G.v().out.println("resolving [from .jbin]: " + className);
+        }
+        try {
+            ByteBuffer buf = map();
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buf));
+            if (in.readInt() != CLASS_MAGIC || in.readInt() != VERSION) {
+                throw new RuntimeException("Unsupported binary Jimple file for " + className);
+            }
+            SymbolTable table = SymbolTable.read(in);
+            int headerLength = in.readInt();
+            ByteBuffer bodies = buf.duplicate();
+            bodies.position(buf.position() + headerLength);
+            bodies = bodies.slice();
+
+            JimpleBodyReader r = new JimpleBodyReader(in, table);
+            String name = ((RefType) r.readType()).getClassName();
+            if (!name.equals(className)) {
+                throw new RuntimeException("Binary Jimple file for " + className + " contains " + name);
+            }
+            sc.setModifiers(r.readVarInt());
+            if (r.readVarInt() != 0) {
+                sc.setSuperclass(makeClassRef(r));
+            }
+            int interfaceCount = r.readVarInt();
+            for (int i = 0; i < interfaceCount; i++) {
+                sc.addInterface(makeClassRef(r));
+            }
+            r.readHostTags(sc);
+
+            int fieldCount = r.readVarInt();
+            for (int i = 0; i < fieldCount; i++) {
+                String fieldName = r.readString();
+                Type type = r.readType();
+                SootField f = new SootField(fieldName, type, r.readVarInt());
+                sc.addField(f);
+                r.readHostTags(f);
+            }
+
+            int methodCount = r.readVarInt();
+            for (int i = 0; i < methodCount; i++) {
+                String methodName = r.readString();
+                List<Type> parameterTypes = r.readTypes();
+                Type returnType = r.readType();
+                SootMethod m = new SootMethod(methodName, parameterTypes, returnType, r.readVarInt());
+                sc.addMethod(m);
+                int exceptionCount = r.readVarInt();
+                for (int j = 0; j < exceptionCount; j++) {
+                    m.addExceptionIfAbsent(makeClassRef(r));
+                }
+                r.readHostTags(m);
+                int offset = r.readVarInt();
+                if (offset > 0) {
+                    m.setSource(new BinaryMethodSource(bodies, offset - 1, r.readVarInt(), table));
+                }
+            }
+
+            // Like coffi we report every class referenced by the file
+            Dependencies deps = new Dependencies();
+            for (Type t : table.getTypes()) {
+                if (t instanceof RefType) {
+                    deps.typesToSignature.add(t);
+                }
+            }
+            return deps;
+        } catch (IOException e) {
+            throw new RuntimeException("Caught IOException " + e + " reading binary Jimple file for " + className);
+        }
+    }
+
+    private static SootClass makeClassRef(JimpleBodyReader r) throws IOException {
+        return SootResolver.v().makeClassRef(((RefType) r.readType()).getClassName());
+    }
+
+    private ByteBuffer map() throws IOException {
+        if (foundFile.path != null && foundFile.path.getFileSystem() == FileSystems.getDefault()) {
+            FileChannel channel = FileChannel.open(foundFile.path, StandardOpenOption.READ);
+            try {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                channel.close();
+            }
+        }
+        InputStream in = foundFile.inputStream();
+        try {
+            return ByteBuffer.wrap(ClassPathIndex.readFully(in, -1));
+        } finally {
+            in.close();
+        }
+    }
+}
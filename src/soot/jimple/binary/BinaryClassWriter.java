@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static soot.jimple.binary.BinaryJimpleConstants.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+
+/**
+ * Added in RoboVM. Writes a {@link SootClass} and the Jimple bodies of its
+ * concrete methods in the binary Jimple format read by
+ * {@link BinaryClassSource}. The file starts with a {@link SymbolTable}
+ * followed by the class, field and method declarations and the method
+ * bodies. Each method declaration records the offset and length of its body
+ * so that bodies can be decoded individually and on demand.
+ */
+public class BinaryClassWriter {
+
+    /**
+     * Writes the specified class. The active bodies of all concrete methods
+     * are retrieved and written along with the class.
+     */
+    public void write(SootClass sc, OutputStream os) throws IOException {
+        SymbolTable table = new SymbolTable();
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ByteArrayOutputStream bodies = new ByteArrayOutputStream();
+        DataOutputStream bodiesOut = new DataOutputStream(bodies);
+        JimpleBodyWriter w = new JimpleBodyWriter(new DataOutputStream(header), table);
+
+        w.writeType(sc.getType());
+        w.writeVarInt(sc.getModifiers());
+        w.writeVarInt(sc.hasSuperclass() ? 1 : 0);
+        if (sc.hasSuperclass()) {
+            w.writeClass(sc.getSuperclass());
+        }
+        w.writeVarInt(sc.getInterfaceCount());
+        for (SootClass i : sc.getInterfaces()) {
+            w.writeClass(i);
+        }
+        w.writeHostTags(sc);
+
+        w.writeVarInt(sc.getFieldCount());
+        for (SootField f : sc.getFields()) {
+            w.writeString(f.getName());
+            w.writeType(f.getType());
+            w.writeVarInt(f.getModifiers());
+            w.writeHostTags(f);
+        }
+
+        List<SootMethod> methods = sc.getMethods();
+        w.writeVarInt(methods.size());
+        for (SootMethod m : methods) {
+            w.writeString(m.getName());
+            w.writeTypes(m.getParameterTypes());
+            w.writeType(m.getReturnType());
+            w.writeVarInt(m.getModifiers());
+            List<SootClass> exceptions = m.getExceptions();
+            w.writeVarInt(exceptions.size());
+            for (SootClass e : exceptions) {
+                w.writeClass(e);
+            }
+            w.writeHostTags(m);
+            if (m.isConcrete()) {
+                int start = bodies.size();
+                new JimpleBodyWriter(bodiesOut, table).write(m.retrieveActiveBody());
+                bodiesOut.flush();
+                w.writeVarInt(start + 1);
+                w.writeVarInt(bodies.size() - start);
+            } else {
+                w.writeVarInt(0);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(CLASS_MAGIC);
+        out.writeInt(VERSION);
+        table.write(out);
+        out.writeInt(header.size());
+        header.writeTo(out);
+        bodies.writeTo(out);
+        out.flush();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+/**
+ * Added in RoboVM. Tags used by the binary Jimple format written by
+ * {@link JimpleBodyWriter} and read by {@link JimpleBodyReader}. Bump
+ * {@link #VERSION} whenever the encoding changes.
+ */
+interface BinaryJimpleConstants {
+    int VERSION = 2;
+    int CLASS_MAGIC = 0x4A42494E; // 'JBIN'
+
+    // Types
+    int T_BOOLEAN = 1;
+    int T_BYTE = 2;
+    int T_CHAR = 3;
+    int T_SHORT = 4;
+    int T_INT = 5;
+    int T_LONG = 6;
+    int T_FLOAT = 7;
+    int T_DOUBLE = 8;
+    int T_VOID = 9;
+    int T_NULL = 10;
+    int T_REF = 11;
+    int T_ARRAY = 12;
+    int T_UNKNOWN = 13;
+    int T_STMT_ADDRESS = 14;
+
+    // Immediates and constants
+    int V_LOCAL = 1;
+    int V_INT = 2;
+    int V_LONG = 3;
+    int V_FLOAT = 4;
+    int V_DOUBLE = 5;
+    int V_STRING = 6;
+    int V_NULL = 7;
+    int V_CLASS = 8;
+    int V_METHOD_HANDLE = 9;
+    int V_METHOD_TYPE = 10;
+
+    // Binary expressions
+    int V_ADD = 20;
+    int V_AND = 21;
+    int V_CMP = 22;
+    int V_CMPG = 23;
+    int V_CMPL = 24;
+    int V_DIV = 25;
+    int V_EQ = 26;
+    int V_GE = 27;
+    int V_GT = 28;
+    int V_LE = 29;
+    int V_LT = 30;
+    int V_MUL = 31;
+    int V_NE = 32;
+    int V_OR = 33;
+    int V_REM = 34;
+    int V_SHL = 35;
+    int V_SHR = 36;
+    int V_SUB = 37;
+    int V_USHR = 38;
+    int V_XOR = 39;
+
+    // Other expressions
+    int V_NEG = 40;
+    int V_LENGTH = 41;
+    int V_CAST = 42;
+    int V_INSTANCEOF = 43;
+    int V_NEW = 44;
+    int V_NEW_ARRAY = 45;
+    int V_NEW_MULTI_ARRAY = 46;
+    int V_STATIC_INVOKE = 47;
+    int V_VIRTUAL_INVOKE = 48;
+    int V_INTERFACE_INVOKE = 49;
+    int V_SPECIAL_INVOKE = 50;
+    int V_DYNAMIC_INVOKE = 51;
+
+    // Refs
+    int V_ARRAY_REF = 60;
+    int V_INSTANCE_FIELD_REF = 61;
+    int V_STATIC_FIELD_REF = 62;
+    int V_THIS_REF = 63;
+    int V_PARAMETER_REF = 64;
+    int V_CAUGHT_EXCEPTION_REF = 65;
+
+    // Statements
+    int S_ASSIGN = 1;
+    int S_IDENTITY = 2;
+    int S_INVOKE = 3;
+    int S_RETURN = 4;
+    int S_RETURN_VOID = 5;
+    int S_THROW = 6;
+    int S_ENTER_MONITOR = 7;
+    int S_EXIT_MONITOR = 8;
+    int S_GOTO = 9;
+    int S_IF = 10;
+    int S_LOOKUP_SWITCH = 11;
+    int S_TABLE_SWITCH = 12;
+    int S_NOP = 13;
+    int S_BREAKPOINT = 14;
+    int S_RET = 15;
+
+    // Unit tags
+    int G_LINE_NUMBER = 1;
+    int G_BYTECODE_OFFSET = 2;
+
+    // Class, field and method tags
+    int H_SOURCE_FILE = 1;
+    int H_INNER_CLASS = 2;
+    int H_ENCLOSING_METHOD = 3;
+    int H_SIGNATURE = 4;
+    int H_SYNTHETIC = 5;
+    int H_DEPRECATED = 6;
+    int H_GENERIC_ATTRIBUTE = 7;
+    int H_VISIBILITY_ANNOTATION = 8;
+    int H_VISIBILITY_PARAMETER_ANNOTATION = 9;
+    int H_ANNOTATION_DEFAULT = 10;
+    int H_INTEGER_CONSTANT_VALUE = 11;
+    int H_LONG_CONSTANT_VALUE = 12;
+    int H_FLOAT_CONSTANT_VALUE = 13;
+    int H_DOUBLE_CONSTANT_VALUE = 14;
+    int H_STRING_CONSTANT_VALUE = 15;
+
+    // Annotation elements
+    int E_INT = 1;
+    int E_LONG = 2;
+    int E_FLOAT = 3;
+    int E_DOUBLE = 4;
+    int E_STRING = 5;
+    int E_BOOLEAN = 6;
+    int E_CLASS = 7;
+    int E_ENUM = 8;
+    int E_ARRAY = 9;
+    int E_ANNOTATION = 10;
+}
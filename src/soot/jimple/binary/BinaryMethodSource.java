@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import soot.Body;
+import soot.G;
+import soot.MethodSource;
+import soot.SootMethod;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.options.Options;
+
+/**
+ * Added in RoboVM. {@link MethodSource} which decodes a method body from a
+ * binary Jimple file read by {@link BinaryClassSource}. The body has already
+ * been through the jb pack when it was written so it is returned as is.
+ */
+public class BinaryMethodSource implements MethodSource {
+    private final ByteBuffer bodies;
+    private final int offset;
+    private final int length;
+    private final SymbolTable table;
+
+    BinaryMethodSource(ByteBuffer bodies, int offset, int length, SymbolTable table) {
+        this.bodies = bodies;
+        this.offset = offset;
+        this.length = length;
+        this.table = table;
+    }
+
+    public Body getBody(SootMethod m, String phaseName) {
+        if (Options.v().verbose()) {
+            G.v().out.println("[" + m.getName() + "] Decoding binary Jimple body...");
+        }
+        JimpleBody jb = Jimple.v().newBody(m);
+        // Each body gets its own view of the buffer so that bodies can be
+        // decoded concurrently
+        ByteBuffer buf = bodies.duplicate();
+        buf.limit(offset + length);
+        buf.position(offset);
+        try {
+            new JimpleBodyReader(new DataInputStream(new ByteBufferInputStream(buf)), table).read(jb);
+        } catch (IOException e) {
+            throw new RuntimeException("Caught IOException " + e + " decoding body of " + m);
+        }
+        return jb;
+    }
+}
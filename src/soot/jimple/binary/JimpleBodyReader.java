@@ -0,0 +1,568 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static soot.jimple.binary.BinaryJimpleConstants.*;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.Local;
+import soot.LocalVariable;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootFieldRef;
+import soot.SootMethodRef;
+import soot.Type;
+import soot.Unit;
+import soot.UnitBox;
+import soot.Value;
+import soot.jimple.*;
+import soot.tagkit.*;
+
+/**
+ * Added in RoboVM. Reads {@link Body} instances written by
+ * {@link JimpleBodyWriter}. Classes referenced by the body are looked up
+ * using {@link Scene#getSootClass(String)}, just like the coffi frontend does.
+ */
+public class JimpleBodyReader {
+    private final DataInput in;
+    private final SymbolTable table;
+    private final List<String> strings = new ArrayList<String>();
+    private final List<Type> types = new ArrayList<Type>();
+    private final Jimple j = Jimple.v();
+    private List<Local> locals;
+    private List<UnitBox> pendingBoxes;
+    private List<Integer> pendingTargets;
+
+    public JimpleBodyReader(DataInput in) {
+        this(in, null);
+    }
+
+    /**
+     * Creates a reader for bodies written by a {@link JimpleBodyWriter}
+     * using the specified {@link SymbolTable}.
+     */
+    JimpleBodyReader(DataInput in, SymbolTable table) {
+        this.in = in;
+        this.table = table;
+        strings.add(null);
+    }
+
+    /**
+     * Reads the next body from the input into the specified empty body.
+     */
+    public void read(Body body) throws IOException {
+        locals = new ArrayList<Local>();
+        pendingBoxes = new ArrayList<UnitBox>();
+        pendingTargets = new ArrayList<Integer>();
+        try {
+            int localCount = readVarInt();
+            for (int i = 0; i < localCount; i++) {
+                Local l = j.newLocal(readString(), readType());
+                l.setIndex(readVarInt() - 1);
+                locals.add(l);
+                body.getLocals().add(l);
+            }
+
+            int unitCount = readVarInt();
+            Unit[] units = new Unit[unitCount];
+            for (int i = 0; i < unitCount; i++) {
+                Unit u = readStmt();
+                int tagCount = readVarInt();
+                for (int k = 0; k < tagCount; k++) {
+                    int tag = in.readUnsignedByte();
+                    if (tag == G_LINE_NUMBER) {
+                        u.addTag(LineNumberTag.v(readVarInt()));
+                    } else if (tag == G_BYTECODE_OFFSET) {
+                        u.addTag(BytecodeOffsetTag.v(readVarInt()));
+                    } else {
+                        throw new IOException("Unknown unit tag " + tag);
+                    }
+                }
+                units[i] = u;
+                body.getUnits().add(u);
+            }
+            for (int i = 0; i < pendingBoxes.size(); i++) {
+                pendingBoxes.get(i).setUnit(units[pendingTargets.get(i)]);
+            }
+
+            int trapCount = readVarInt();
+            for (int i = 0; i < trapCount; i++) {
+                SootClass exception = readClass();
+                Unit begin = units[readVarInt()];
+                Unit end = units[readVarInt()];
+                Unit handler = units[readVarInt()];
+                body.getTraps().add(j.newTrap(exception, begin, end, handler));
+            }
+
+            int localVariableCount = readVarInt();
+            for (int i = 0; i < localVariableCount; i++) {
+                String name = readString();
+                int index = readVarInt();
+                Unit start = units[readVarInt()];
+                int endIdx = readVarInt();
+                Unit end = endIdx > 0 ? units[endIdx - 1] : null;
+                body.getLocalVariables().add(new LocalVariable(name, index, start, end, readString()));
+            }
+        } finally {
+            locals = null;
+            pendingBoxes = null;
+            pendingTargets = null;
+        }
+    }
+
+    /**
+     * Reads tags written by {@link JimpleBodyWriter#writeHostTags(Host)} and
+     * adds them to the specified class, field or method.
+     */
+    void readHostTags(Host h) throws IOException {
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case H_SOURCE_FILE: {
+                SourceFileTag sft = new SourceFileTag(readString());
+                sft.setAbsolutePath(readString());
+                h.addTag(sft);
+                break;
+            }
+            case H_INNER_CLASS: {
+                String innerClass = readString();
+                String outerClass = readString();
+                String name = readString();
+                h.addTag(new InnerClassTag(innerClass, outerClass, name, readVarInt()));
+                break;
+            }
+            case H_ENCLOSING_METHOD: {
+                String c = readString();
+                String m = readString();
+                h.addTag(new EnclosingMethodTag(c, m, readString()));
+                break;
+            }
+            case H_SIGNATURE:
+                h.addTag(new SignatureTag(readString()));
+                break;
+            case H_SYNTHETIC:
+                h.addTag(new SyntheticTag());
+                break;
+            case H_DEPRECATED:
+                h.addTag(new DeprecatedTag());
+                break;
+            case H_GENERIC_ATTRIBUTE: {
+                String name = readString();
+                h.addTag(new GenericAttribute(name, readBytes()));
+                break;
+            }
+            case H_VISIBILITY_ANNOTATION:
+                h.addTag(readVisibilityAnnotation());
+                break;
+            case H_VISIBILITY_PARAMETER_ANNOTATION: {
+                int kind = readVarInt();
+                int num = readVarInt();
+                VisibilityParameterAnnotationTag vpat = new VisibilityParameterAnnotationTag(num, kind);
+                for (int j = 0; j < num; j++) {
+                    vpat.addVisibilityAnnotation(readVisibilityAnnotation());
+                }
+                h.addTag(vpat);
+                break;
+            }
+            case H_ANNOTATION_DEFAULT:
+                h.addTag(new AnnotationDefaultTag(readAnnotationElem()));
+                break;
+            case H_INTEGER_CONSTANT_VALUE:
+                h.addTag(new IntegerConstantValueTag(in.readInt()));
+                break;
+            case H_LONG_CONSTANT_VALUE:
+                h.addTag(new LongConstantValueTag(in.readLong()));
+                break;
+            case H_FLOAT_CONSTANT_VALUE:
+                h.addTag(new FloatConstantValueTag(in.readFloat()));
+                break;
+            case H_DOUBLE_CONSTANT_VALUE:
+                h.addTag(new DoubleConstantValueTag(in.readDouble()));
+                break;
+            case H_STRING_CONSTANT_VALUE:
+                h.addTag(new StringConstantValueTag(readString()));
+                break;
+            default:
+                throw new IOException("Unknown tag " + tag);
+            }
+        }
+    }
+
+    private VisibilityAnnotationTag readVisibilityAnnotation() throws IOException {
+        VisibilityAnnotationTag vat = new VisibilityAnnotationTag(readVarInt());
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            vat.addAnnotation(readAnnotation());
+        }
+        return vat;
+    }
+
+    private AnnotationTag readAnnotation() throws IOException {
+        String type = readString();
+        int numElems = readVarInt();
+        AnnotationTag a = new AnnotationTag(type, numElems);
+        for (int i = 0; i < numElems; i++) {
+            a.addElem(readAnnotationElem());
+        }
+        return a;
+    }
+
+    private AnnotationElem readAnnotationElem() throws IOException {
+        int tag = in.readUnsignedByte();
+        char kind = (char) readVarInt();
+        String name = readString();
+        switch (tag) {
+        case E_INT:
+            return new AnnotationIntElem(in.readInt(), kind, name);
+        case E_LONG:
+            return new AnnotationLongElem(in.readLong(), kind, name);
+        case E_FLOAT:
+            return new AnnotationFloatElem(in.readFloat(), kind, name);
+        case E_DOUBLE:
+            return new AnnotationDoubleElem(in.readDouble(), kind, name);
+        case E_STRING:
+            return new AnnotationStringElem(readString(), kind, name);
+        case E_BOOLEAN:
+            return new AnnotationBooleanElem(in.readBoolean(), kind, name);
+        case E_CLASS:
+            return new AnnotationClassElem(readString(), kind, name);
+        case E_ENUM: {
+            String typeName = readString();
+            return new AnnotationEnumElem(typeName, readString(), kind, name);
+        }
+        case E_ARRAY: {
+            int count = readVarInt();
+            ArrayList<AnnotationElem> values = new ArrayList<AnnotationElem>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readAnnotationElem());
+            }
+            return new AnnotationArrayElem(values, kind, name);
+        }
+        case E_ANNOTATION:
+            return new AnnotationAnnotationElem(readAnnotation(), kind, name);
+        default:
+            throw new IOException("Unknown annotation element tag " + tag);
+        }
+    }
+
+    private byte[] readBytes() throws IOException {
+        byte[] b = new byte[readVarInt()];
+        in.readFully(b);
+        return b;
+    }
+
+    private void target(UnitBox box) throws IOException {
+        pendingBoxes.add(box);
+        pendingTargets.add(readVarInt());
+    }
+
+    private Unit readStmt() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case S_ASSIGN: {
+            Value lhs = readValue();
+            return j.newAssignStmt(lhs, readValue());
+        }
+        case S_IDENTITY: {
+            Value lhs = readValue();
+            return j.newIdentityStmt(lhs, readValue());
+        }
+        case S_INVOKE:
+            return j.newInvokeStmt(readValue());
+        case S_RETURN:
+            return j.newReturnStmt(readValue());
+        case S_RETURN_VOID:
+            return j.newReturnVoidStmt();
+        case S_THROW:
+            return j.newThrowStmt(readValue());
+        case S_ENTER_MONITOR:
+            return j.newEnterMonitorStmt(readValue());
+        case S_EXIT_MONITOR:
+            return j.newExitMonitorStmt(readValue());
+        case S_GOTO: {
+            GotoStmt s = j.newGotoStmt((Unit) null);
+            target(s.getTargetBox());
+            return s;
+        }
+        case S_IF: {
+            IfStmt s = j.newIfStmt(readValue(), (Unit) null);
+            target(s.getTargetBox());
+            return s;
+        }
+        case S_LOOKUP_SWITCH: {
+            Value key = readValue();
+            int count = readVarInt();
+            List<IntConstant> values = new ArrayList<IntConstant>(count);
+            List<Unit> targets = new ArrayList<Unit>(count);
+            int[] targetIndices = new int[count];
+            for (int i = 0; i < count; i++) {
+                values.add(IntConstant.v(in.readInt()));
+                targets.add(null);
+                targetIndices[i] = readVarInt();
+            }
+            LookupSwitchStmt s = j.newLookupSwitchStmt(key, values, targets, (Unit) null);
+            for (int i = 0; i < count; i++) {
+                pendingBoxes.add(s.getTargetBox(i));
+                pendingTargets.add(targetIndices[i]);
+            }
+            target(s.getDefaultTargetBox());
+            return s;
+        }
+        case S_TABLE_SWITCH: {
+            Value key = readValue();
+            int low = in.readInt();
+            int high = in.readInt();
+            int count = readVarInt();
+            List<Unit> targets = new ArrayList<Unit>(count);
+            for (int i = 0; i < count; i++) {
+                targets.add(null);
+            }
+            TableSwitchStmt s = j.newTableSwitchStmt(key, low, high, targets, (Unit) null);
+            for (int i = 0; i < count; i++) {
+                target(s.getTargetBox(i));
+            }
+            target(s.getDefaultTargetBox());
+            return s;
+        }
+        case S_NOP:
+            return j.newNopStmt();
+        case S_BREAKPOINT:
+            return j.newBreakpointStmt();
+        case S_RET:
+            return j.newRetStmt(readValue());
+        default:
+            throw new IOException("Unknown statement tag " + tag);
+        }
+    }
+
+    private Value readValue() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case V_LOCAL:
+            return locals.get(readVarInt());
+        case V_INT:
+            return IntConstant.v(in.readInt());
+        case V_LONG:
+            return LongConstant.v(in.readLong());
+        case V_FLOAT:
+            return FloatConstant.v(in.readFloat());
+        case V_DOUBLE:
+            return DoubleConstant.v(in.readDouble());
+        case V_STRING:
+            return StringConstant.v(readString());
+        case V_NULL:
+            return NullConstant.v();
+        case V_CLASS:
+            return ClassConstant.v(readString());
+        case V_METHOD_HANDLE: {
+            int kind = readVarInt();
+            return (Value) j.newMethodHandle(kind, readMethodRef());
+        }
+        case V_METHOD_TYPE: {
+            Type returnType = readType();
+            return (Value) j.newMethodType(returnType, readTypes());
+        }
+        case V_NEG:
+            return j.newNegExpr(readValue());
+        case V_LENGTH:
+            return j.newLengthExpr(readValue());
+        case V_CAST: {
+            Value op = readValue();
+            return j.newCastExpr(op, readType());
+        }
+        case V_INSTANCEOF: {
+            Value op = readValue();
+            return j.newInstanceOfExpr(op, readType());
+        }
+        case V_NEW:
+            return j.newNewExpr((RefType) readType());
+        case V_NEW_ARRAY: {
+            Type baseType = readType();
+            return j.newNewArrayExpr(baseType, readValue());
+        }
+        case V_NEW_MULTI_ARRAY: {
+            ArrayType baseType = (ArrayType) readType();
+            return j.newNewMultiArrayExpr(baseType, readValues());
+        }
+        case V_STATIC_INVOKE: {
+            SootMethodRef ref = readMethodRef();
+            return j.newStaticInvokeExpr(ref, readValues());
+        }
+        case V_VIRTUAL_INVOKE: {
+            Local base = (Local) readValue();
+            SootMethodRef ref = readMethodRef();
+            return j.newVirtualInvokeExpr(base, ref, readValues());
+        }
+        case V_INTERFACE_INVOKE: {
+            Local base = (Local) readValue();
+            SootMethodRef ref = readMethodRef();
+            return j.newInterfaceInvokeExpr(base, ref, readValues());
+        }
+        case V_SPECIAL_INVOKE: {
+            Local base = (Local) readValue();
+            SootMethodRef ref = readMethodRef();
+            return j.newSpecialInvokeExpr(base, ref, readValues());
+        }
+        case V_DYNAMIC_INVOKE: {
+            SootMethodRef bsmRef = readMethodRef();
+            List<Value> bsmArgs = readValues();
+            SootMethodRef ref = readMethodRef();
+            return j.newDynamicInvokeExpr(bsmRef, bsmArgs, ref, readValues());
+        }
+        case V_ARRAY_REF: {
+            Value base = readValue();
+            return j.newArrayRef(base, readValue());
+        }
+        case V_INSTANCE_FIELD_REF: {
+            Value base = readValue();
+            return j.newInstanceFieldRef(base, readFieldRef());
+        }
+        case V_STATIC_FIELD_REF:
+            return j.newStaticFieldRef(readFieldRef());
+        case V_THIS_REF:
+            return j.newThisRef((RefType) readType());
+        case V_PARAMETER_REF: {
+            Type type = readType();
+            return j.newParameterRef(type, readVarInt());
+        }
+        case V_CAUGHT_EXCEPTION_REF:
+            return j.newCaughtExceptionRef();
+        default:
+            Value op1 = readValue();
+            Value op2 = readValue();
+            return newBinopExpr(tag, op1, op2);
+        }
+    }
+
+    private Value newBinopExpr(int tag, Value op1, Value op2) throws IOException {
+        switch (tag) {
+        case V_ADD: return j.newAddExpr(op1, op2);
+        case V_AND: return j.newAndExpr(op1, op2);
+        case V_CMP: return j.newCmpExpr(op1, op2);
+        case V_CMPG: return j.newCmpgExpr(op1, op2);
+        case V_CMPL: return j.newCmplExpr(op1, op2);
+        case V_DIV: return j.newDivExpr(op1, op2);
+        case V_EQ: return j.newEqExpr(op1, op2);
+        case V_GE: return j.newGeExpr(op1, op2);
+        case V_GT: return j.newGtExpr(op1, op2);
+        case V_LE: return j.newLeExpr(op1, op2);
+        case V_LT: return j.newLtExpr(op1, op2);
+        case V_MUL: return j.newMulExpr(op1, op2);
+        case V_NE: return j.newNeExpr(op1, op2);
+        case V_OR: return j.newOrExpr(op1, op2);
+        case V_REM: return j.newRemExpr(op1, op2);
+        case V_SHL: return j.newShlExpr(op1, op2);
+        case V_SHR: return j.newShrExpr(op1, op2);
+        case V_SUB: return j.newSubExpr(op1, op2);
+        case V_USHR: return j.newUshrExpr(op1, op2);
+        case V_XOR: return j.newXorExpr(op1, op2);
+        default:
+            throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private List<Value> readValues() throws IOException {
+        int count = readVarInt();
+        List<Value> values = new ArrayList<Value>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readValue());
+        }
+        return values;
+    }
+
+    private SootMethodRef readMethodRef() throws IOException {
+        SootClass declaringClass = readClass();
+        String name = readString();
+        List<Type> parameterTypes = readTypes();
+        Type returnType = readType();
+        return Scene.v().makeMethodRef(declaringClass, name, parameterTypes, returnType, in.readBoolean());
+    }
+
+    private SootFieldRef readFieldRef() throws IOException {
+        SootClass declaringClass = readClass();
+        String name = readString();
+        Type type = readType();
+        return Scene.v().makeFieldRef(declaringClass, name, type, in.readBoolean());
+    }
+
+    SootClass readClass() throws IOException {
+        return Scene.v().getSootClass(((RefType) readType()).getClassName());
+    }
+
+    List<Type> readTypes() throws IOException {
+        int count = readVarInt();
+        List<Type> ts = new ArrayList<Type>(count);
+        for (int i = 0; i < count; i++) {
+            ts.add(readType());
+        }
+        return ts;
+    }
+
+    Type readType() throws IOException {
+        int idx = readVarInt();
+        if (table != null) {
+            return table.getType(idx);
+        }
+        if (idx < types.size()) {
+            return types.get(idx);
+        }
+        if (idx != types.size()) {
+            throw new IOException("Invalid type index " + idx);
+        }
+        types.add(null);
+        Type t;
+        int tag = in.readUnsignedByte();
+        if (tag == T_REF) {
+            t = RefType.v(readString());
+        } else if (tag == T_ARRAY) {
+            Type baseType = readType();
+            t = ArrayType.v(baseType, readVarInt());
+        } else {
+            t = SymbolTable.primType(tag);
+        }
+        types.set(idx, t);
+        return t;
+    }
+
+    String readString() throws IOException {
+        int idx = readVarInt();
+        if (table != null) {
+            return table.getString(idx);
+        }
+        if (idx < strings.size()) {
+            return strings.get(idx);
+        }
+        if (idx != strings.size()) {
+            throw new IOException("Invalid string index " + idx);
+        }
+        String s = SymbolTable.readChars(in);
+        strings.add(s);
+        return s;
+    }
+
+    int readVarInt() throws IOException {
+        return SymbolTable.readVarInt(in);
+    }
+}
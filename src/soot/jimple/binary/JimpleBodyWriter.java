@@ -0,0 +1,633 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static soot.jimple.binary.BinaryJimpleConstants.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.Local;
+import soot.LocalVariable;
+import soot.RefType;
+import soot.SootClass;
+import soot.SootFieldRef;
+import soot.SootMethodHandle;
+import soot.SootMethodRef;
+import soot.SootMethodType;
+import soot.Trap;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.*;
+import soot.tagkit.*;
+
+/**
+ * Added in RoboVM. Writes {@link Body} instances containing Jimple in a
+ * compact binary form which can be read back using {@link JimpleBodyReader}.
+ * Strings and types are written once per writer and referred to by index
+ * afterwards, locals are numbered and branch targets are written as unit
+ * indices.
+ * <p>
+ * Only unit tags of the kinds produced by the coffi frontend
+ * ({@link LineNumberTag} and {@link BytecodeOffsetTag}) are supported. An
+ * {@link IllegalArgumentException} is thrown for bodies containing anything
+ * else.
+ */
+public class JimpleBodyWriter {
+    /**
+     * Version of the binary Jimple encoding.
+     */
+    public static final int FORMAT_VERSION = VERSION;
+
+    private final DataOutput out;
+    private final SymbolTable table;
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final Map<Type, Integer> types = new HashMap<Type, Integer>();
+    private Map<Local, Integer> locals;
+    private Map<Unit, Integer> units;
+
+    public JimpleBodyWriter(DataOutput out) {
+        this(out, null);
+    }
+
+    /**
+     * Creates a writer which only writes indices into the specified table
+     * for strings and types. If <code>table</code> is <code>null</code>
+     * strings and types are written inline the first time they are used.
+     */
+    JimpleBodyWriter(DataOutput out, SymbolTable table) {
+        this.out = out;
+        this.table = table;
+    }
+
+    public void write(Body body) throws IOException {
+        locals = new IdentityHashMap<Local, Integer>();
+        units = new IdentityHashMap<Unit, Integer>();
+        try {
+            writeVarInt(body.getLocalCount());
+            for (Local l : body.getLocals()) {
+                locals.put(l, locals.size());
+                writeString(l.getName());
+                writeType(l.getType());
+                writeVarInt(l.getIndex() + 1);
+            }
+
+            for (Unit u : body.getUnits()) {
+                units.put(u, units.size());
+            }
+            writeVarInt(units.size());
+            for (Unit u : body.getUnits()) {
+                writeStmt((Stmt) u);
+                writeTags(u);
+            }
+
+            writeVarInt(body.getTraps().size());
+            for (Trap t : body.getTraps()) {
+                writeClass(t.getException());
+                writeUnit(t.getBeginUnit());
+                writeUnit(t.getEndUnit());
+                writeUnit(t.getHandlerUnit());
+            }
+
+            List<LocalVariable> localVariables = body.getLocalVariables();
+            writeVarInt(localVariables.size());
+            for (LocalVariable lv : localVariables) {
+                writeString(lv.getName());
+                writeVarInt(lv.getIndex());
+                writeUnit(lv.getStartUnit());
+                writeVarInt(lv.getEndUnit() != null ? units.get(lv.getEndUnit()) + 1 : 0);
+                writeString(lv.getDescriptor());
+            }
+        } finally {
+            locals = null;
+            units = null;
+        }
+    }
+
+    private void writeTags(Unit u) throws IOException {
+        List<Tag> tags = u.getTags();
+        writeVarInt(tags.size());
+        for (Tag t : tags) {
+            if (t instanceof LineNumberTag) {
+                out.writeByte(G_LINE_NUMBER);
+                writeVarInt(((LineNumberTag) t).getLineNumber());
+            } else if (t instanceof BytecodeOffsetTag) {
+                out.writeByte(G_BYTECODE_OFFSET);
+                writeVarInt(((BytecodeOffsetTag) t).getBytecodeOffset());
+            } else {
+                throw new IllegalArgumentException("Unsupported tag " + t.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the tags of a class, field or method. Only the tags created by
+     * the coffi frontend are supported.
+     */
+    void writeHostTags(Host h) throws IOException {
+        List<Tag> tags = h.getTags();
+        writeVarInt(tags.size());
+        for (Tag t : tags) {
+            if (t instanceof SourceFileTag) {
+                SourceFileTag sft = (SourceFileTag) t;
+                out.writeByte(H_SOURCE_FILE);
+                writeString(sft.getSourceFile());
+                writeString(sft.getAbsolutePath());
+            } else if (t instanceof InnerClassTag) {
+                InnerClassTag ict = (InnerClassTag) t;
+                out.writeByte(H_INNER_CLASS);
+                writeString(ict.getInnerClass());
+                writeString(ict.getOuterClass());
+                writeString(ict.getShortName());
+                writeVarInt(ict.getAccessFlags());
+            } else if (t instanceof EnclosingMethodTag) {
+                EnclosingMethodTag emt = (EnclosingMethodTag) t;
+                out.writeByte(H_ENCLOSING_METHOD);
+                writeString(emt.getEnclosingClass());
+                writeString(emt.getEnclosingMethod());
+                writeString(emt.getEnclosingMethodSig());
+            } else if (t instanceof SignatureTag) {
+                out.writeByte(H_SIGNATURE);
+                writeString(((SignatureTag) t).getSignature());
+            } else if (t instanceof SyntheticTag) {
+                out.writeByte(H_SYNTHETIC);
+            } else if (t instanceof DeprecatedTag) {
+                out.writeByte(H_DEPRECATED);
+            } else if (t instanceof GenericAttribute) {
+                GenericAttribute ga = (GenericAttribute) t;
+                out.writeByte(H_GENERIC_ATTRIBUTE);
+                writeString(ga.getName());
+                writeBytes(ga.getValue());
+            } else if (t instanceof VisibilityAnnotationTag) {
+                out.writeByte(H_VISIBILITY_ANNOTATION);
+                writeVisibilityAnnotation((VisibilityAnnotationTag) t);
+            } else if (t instanceof VisibilityParameterAnnotationTag) {
+                VisibilityParameterAnnotationTag vpat = (VisibilityParameterAnnotationTag) t;
+                List<VisibilityAnnotationTag> vats = vpat.getVisibilityAnnotations();
+                out.writeByte(H_VISIBILITY_PARAMETER_ANNOTATION);
+                writeVarInt(vpat.getKind());
+                writeVarInt(vats != null ? vats.size() : 0);
+                if (vats != null) {
+                    for (VisibilityAnnotationTag vat : vats) {
+                        writeVisibilityAnnotation(vat);
+                    }
+                }
+            } else if (t instanceof AnnotationDefaultTag) {
+                out.writeByte(H_ANNOTATION_DEFAULT);
+                writeAnnotationElem(((AnnotationDefaultTag) t).getDefaultVal());
+            } else if (t instanceof IntegerConstantValueTag) {
+                out.writeByte(H_INTEGER_CONSTANT_VALUE);
+                out.writeInt(((IntegerConstantValueTag) t).getIntValue());
+            } else if (t instanceof LongConstantValueTag) {
+                out.writeByte(H_LONG_CONSTANT_VALUE);
+                out.writeLong(((LongConstantValueTag) t).getLongValue());
+            } else if (t instanceof FloatConstantValueTag) {
+                out.writeByte(H_FLOAT_CONSTANT_VALUE);
+                out.writeFloat(((FloatConstantValueTag) t).getFloatValue());
+            } else if (t instanceof DoubleConstantValueTag) {
+                out.writeByte(H_DOUBLE_CONSTANT_VALUE);
+                out.writeDouble(((DoubleConstantValueTag) t).getDoubleValue());
+            } else if (t instanceof StringConstantValueTag) {
+                out.writeByte(H_STRING_CONSTANT_VALUE);
+                writeString(((StringConstantValueTag) t).getStringValue());
+            } else {
+                throw new IllegalArgumentException("Unsupported tag " + t.getName());
+            }
+        }
+    }
+
+    private void writeVisibilityAnnotation(VisibilityAnnotationTag vat) throws IOException {
+        List<AnnotationTag> annotations = vat.getAnnotations();
+        writeVarInt(vat.getVisibility());
+        writeVarInt(annotations != null ? annotations.size() : 0);
+        if (annotations != null) {
+            for (AnnotationTag a : annotations) {
+                writeAnnotation(a);
+            }
+        }
+    }
+
+    private void writeAnnotation(AnnotationTag a) throws IOException {
+        writeString(a.getType());
+        writeVarInt(a.getNumElems());
+        for (int i = 0; i < a.getNumElems(); i++) {
+            writeAnnotationElem(a.getElemAt(i));
+        }
+    }
+
+    private void writeAnnotationElem(AnnotationElem e) throws IOException {
+        if (e instanceof AnnotationIntElem) {
+            out.writeByte(E_INT);
+        } else if (e instanceof AnnotationLongElem) {
+            out.writeByte(E_LONG);
+        } else if (e instanceof AnnotationFloatElem) {
+            out.writeByte(E_FLOAT);
+        } else if (e instanceof AnnotationDoubleElem) {
+            out.writeByte(E_DOUBLE);
+        } else if (e instanceof AnnotationStringElem) {
+            out.writeByte(E_STRING);
+        } else if (e instanceof AnnotationBooleanElem) {
+            out.writeByte(E_BOOLEAN);
+        } else if (e instanceof AnnotationClassElem) {
+            out.writeByte(E_CLASS);
+        } else if (e instanceof AnnotationEnumElem) {
+            out.writeByte(E_ENUM);
+        } else if (e instanceof AnnotationArrayElem) {
+            out.writeByte(E_ARRAY);
+        } else if (e instanceof AnnotationAnnotationElem) {
+            out.writeByte(E_ANNOTATION);
+        } else {
+            throw new IllegalArgumentException("Unsupported annotation element " + e.getClass().getName());
+        }
+        writeVarInt(e.getKind());
+        writeString(e.getName());
+        if (e instanceof AnnotationIntElem) {
+            out.writeInt(((AnnotationIntElem) e).getValue());
+        } else if (e instanceof AnnotationLongElem) {
+            out.writeLong(((AnnotationLongElem) e).getValue());
+        } else if (e instanceof AnnotationFloatElem) {
+            out.writeFloat(((AnnotationFloatElem) e).getValue());
+        } else if (e instanceof AnnotationDoubleElem) {
+            out.writeDouble(((AnnotationDoubleElem) e).getValue());
+        } else if (e instanceof AnnotationStringElem) {
+            writeString(((AnnotationStringElem) e).getValue());
+        } else if (e instanceof AnnotationBooleanElem) {
+            out.writeBoolean(((AnnotationBooleanElem) e).getValue());
+        } else if (e instanceof AnnotationClassElem) {
+            writeString(((AnnotationClassElem) e).getDesc());
+        } else if (e instanceof AnnotationEnumElem) {
+            writeString(((AnnotationEnumElem) e).getTypeName());
+            writeString(((AnnotationEnumElem) e).getConstantName());
+        } else if (e instanceof AnnotationArrayElem) {
+            List<AnnotationElem> values = ((AnnotationArrayElem) e).getValues();
+            writeVarInt(values.size());
+            for (AnnotationElem v : values) {
+                writeAnnotationElem(v);
+            }
+        } else {
+            writeAnnotation(((AnnotationAnnotationElem) e).getValue());
+        }
+    }
+
+    private void writeBytes(byte[] b) throws IOException {
+        writeVarInt(b.length);
+        out.write(b);
+    }
+
+    private void writeStmt(Stmt s) throws IOException {
+        if (s instanceof AssignStmt) {
+            AssignStmt as = (AssignStmt) s;
+            out.writeByte(S_ASSIGN);
+            writeValue(as.getLeftOp());
+            writeValue(as.getRightOp());
+        } else if (s instanceof IdentityStmt) {
+            IdentityStmt is = (IdentityStmt) s;
+            out.writeByte(S_IDENTITY);
+            writeValue(is.getLeftOp());
+            writeValue(is.getRightOp());
+        } else if (s instanceof InvokeStmt) {
+            out.writeByte(S_INVOKE);
+            writeValue(((InvokeStmt) s).getInvokeExpr());
+        } else if (s instanceof ReturnStmt) {
+            out.writeByte(S_RETURN);
+            writeValue(((ReturnStmt) s).getOp());
+        } else if (s instanceof ReturnVoidStmt) {
+            out.writeByte(S_RETURN_VOID);
+        } else if (s instanceof ThrowStmt) {
+            out.writeByte(S_THROW);
+            writeValue(((ThrowStmt) s).getOp());
+        } else if (s instanceof EnterMonitorStmt) {
+            out.writeByte(S_ENTER_MONITOR);
+            writeValue(((EnterMonitorStmt) s).getOp());
+        } else if (s instanceof ExitMonitorStmt) {
+            out.writeByte(S_EXIT_MONITOR);
+            writeValue(((ExitMonitorStmt) s).getOp());
+        } else if (s instanceof GotoStmt) {
+            out.writeByte(S_GOTO);
+            writeUnit(((GotoStmt) s).getTarget());
+        } else if (s instanceof IfStmt) {
+            IfStmt is = (IfStmt) s;
+            out.writeByte(S_IF);
+            writeValue(is.getCondition());
+            writeUnit(is.getTarget());
+        } else if (s instanceof LookupSwitchStmt) {
+            LookupSwitchStmt ls = (LookupSwitchStmt) s;
+            out.writeByte(S_LOOKUP_SWITCH);
+            writeValue(ls.getKey());
+            writeVarInt(ls.getTargetCount());
+            for (int i = 0; i < ls.getTargetCount(); i++) {
+                out.writeInt(ls.getLookupValue(i));
+                writeUnit(ls.getTarget(i));
+            }
+            writeUnit(ls.getDefaultTarget());
+        } else if (s instanceof TableSwitchStmt) {
+            TableSwitchStmt ts = (TableSwitchStmt) s;
+            out.writeByte(S_TABLE_SWITCH);
+            writeValue(ts.getKey());
+            out.writeInt(ts.getLowIndex());
+            out.writeInt(ts.getHighIndex());
+            List<?> targets = ts.getTargets();
+            writeVarInt(targets.size());
+            for (Object target : targets) {
+                writeUnit((Unit) target);
+            }
+            writeUnit(ts.getDefaultTarget());
+        } else if (s instanceof NopStmt) {
+            out.writeByte(S_NOP);
+        } else if (s instanceof BreakpointStmt) {
+            out.writeByte(S_BREAKPOINT);
+        } else if (s instanceof RetStmt) {
+            out.writeByte(S_RET);
+            writeValue(((RetStmt) s).getStmtAddress());
+        } else {
+            throw new IllegalArgumentException("Unsupported statement " + s.getClass().getName());
+        }
+    }
+
+    private void writeValue(Value v) throws IOException {
+        if (v instanceof Local) {
+            Integer idx = locals.get(v);
+            if (idx == null) {
+                throw new IllegalArgumentException("Local " + v + " not in body");
+            }
+            out.writeByte(V_LOCAL);
+            writeVarInt(idx);
+        } else if (v instanceof Constant) {
+            writeConstant((Constant) v);
+        } else if (v instanceof BinopExpr) {
+            BinopExpr e = (BinopExpr) v;
+            out.writeByte(binopTag(e));
+            writeValue(e.getOp1());
+            writeValue(e.getOp2());
+        } else if (v instanceof NegExpr) {
+            out.writeByte(V_NEG);
+            writeValue(((NegExpr) v).getOp());
+        } else if (v instanceof LengthExpr) {
+            out.writeByte(V_LENGTH);
+            writeValue(((LengthExpr) v).getOp());
+        } else if (v instanceof CastExpr) {
+            CastExpr e = (CastExpr) v;
+            out.writeByte(V_CAST);
+            writeValue(e.getOp());
+            writeType(e.getCastType());
+        } else if (v instanceof InstanceOfExpr) {
+            InstanceOfExpr e = (InstanceOfExpr) v;
+            out.writeByte(V_INSTANCEOF);
+            writeValue(e.getOp());
+            writeType(e.getCheckType());
+        } else if (v instanceof NewExpr) {
+            out.writeByte(V_NEW);
+            writeType(((NewExpr) v).getBaseType());
+        } else if (v instanceof NewArrayExpr) {
+            NewArrayExpr e = (NewArrayExpr) v;
+            out.writeByte(V_NEW_ARRAY);
+            writeType(e.getBaseType());
+            writeValue(e.getSize());
+        } else if (v instanceof NewMultiArrayExpr) {
+            NewMultiArrayExpr e = (NewMultiArrayExpr) v;
+            out.writeByte(V_NEW_MULTI_ARRAY);
+            writeType(e.getBaseType());
+            writeVarInt(e.getSizeCount());
+            for (int i = 0; i < e.getSizeCount(); i++) {
+                writeValue(e.getSize(i));
+            }
+        } else if (v instanceof InvokeExpr) {
+            writeInvoke((InvokeExpr) v);
+        } else if (v instanceof ArrayRef) {
+            ArrayRef r = (ArrayRef) v;
+            out.writeByte(V_ARRAY_REF);
+            writeValue(r.getBase());
+            writeValue(r.getIndex());
+        } else if (v instanceof InstanceFieldRef) {
+            InstanceFieldRef r = (InstanceFieldRef) v;
+            out.writeByte(V_INSTANCE_FIELD_REF);
+            writeValue(r.getBase());
+            writeFieldRef(r.getFieldRef());
+        } else if (v instanceof StaticFieldRef) {
+            out.writeByte(V_STATIC_FIELD_REF);
+            writeFieldRef(((StaticFieldRef) v).getFieldRef());
+        } else if (v instanceof ThisRef) {
+            out.writeByte(V_THIS_REF);
+            writeType(v.getType());
+        } else if (v instanceof ParameterRef) {
+            ParameterRef r = (ParameterRef) v;
+            out.writeByte(V_PARAMETER_REF);
+            writeType(r.getType());
+            writeVarInt(r.getIndex());
+        } else if (v instanceof CaughtExceptionRef) {
+            out.writeByte(V_CAUGHT_EXCEPTION_REF);
+        } else {
+            throw new IllegalArgumentException("Unsupported value " + v.getClass().getName());
+        }
+    }
+
+    private void writeConstant(Constant c) throws IOException {
+        if (c instanceof IntConstant) {
+            out.writeByte(V_INT);
+            out.writeInt(((IntConstant) c).value);
+        } else if (c instanceof LongConstant) {
+            out.writeByte(V_LONG);
+            out.writeLong(((LongConstant) c).value);
+        } else if (c instanceof FloatConstant) {
+            out.writeByte(V_FLOAT);
+            out.writeFloat(((FloatConstant) c).value);
+        } else if (c instanceof DoubleConstant) {
+            out.writeByte(V_DOUBLE);
+            out.writeDouble(((DoubleConstant) c).value);
+        } else if (c instanceof StringConstant) {
+            out.writeByte(V_STRING);
+            writeString(((StringConstant) c).value);
+        } else if (c instanceof NullConstant) {
+            out.writeByte(V_NULL);
+        } else if (c instanceof ClassConstant) {
+            out.writeByte(V_CLASS);
+            writeString(((ClassConstant) c).value);
+        } else if (c instanceof SootMethodHandle) {
+            SootMethodHandle h = (SootMethodHandle) c;
+            out.writeByte(V_METHOD_HANDLE);
+            writeVarInt(h.getReferenceKind());
+            writeMethodRef(h.getMethodRef());
+        } else if (c instanceof SootMethodType) {
+            SootMethodType t = (SootMethodType) c;
+            out.writeByte(V_METHOD_TYPE);
+            writeType(t.getReturnType());
+            writeTypes(t.getParameterTypes());
+        } else {
+            throw new IllegalArgumentException("Unsupported constant " + c.getClass().getName());
+        }
+    }
+
+    private void writeInvoke(InvokeExpr e) throws IOException {
+        if (e instanceof StaticInvokeExpr) {
+            out.writeByte(V_STATIC_INVOKE);
+        } else if (e instanceof VirtualInvokeExpr) {
+            out.writeByte(V_VIRTUAL_INVOKE);
+        } else if (e instanceof InterfaceInvokeExpr) {
+            out.writeByte(V_INTERFACE_INVOKE);
+        } else if (e instanceof SpecialInvokeExpr) {
+            out.writeByte(V_SPECIAL_INVOKE);
+        } else if (e instanceof DynamicInvokeExpr) {
+            DynamicInvokeExpr d = (DynamicInvokeExpr) e;
+            out.writeByte(V_DYNAMIC_INVOKE);
+            writeMethodRef(d.getBootstrapMethodRef());
+            writeValues(d.getBootstrapArgs());
+        } else {
+            throw new IllegalArgumentException("Unsupported invoke " + e.getClass().getName());
+        }
+        if (e instanceof InstanceInvokeExpr) {
+            writeValue(((InstanceInvokeExpr) e).getBase());
+        }
+        writeMethodRef(e.getMethodRef());
+        writeValues(e.getArgs());
+    }
+
+    private void writeValues(List<? extends Value> values) throws IOException {
+        writeVarInt(values.size());
+        for (Value v : values) {
+            writeValue(v);
+        }
+    }
+
+    private static int binopTag(BinopExpr e) {
+        if (e instanceof AddExpr) return V_ADD;
+        if (e instanceof AndExpr) return V_AND;
+        if (e instanceof CmpExpr) return V_CMP;
+        if (e instanceof CmpgExpr) return V_CMPG;
+        if (e instanceof CmplExpr) return V_CMPL;
+        if (e instanceof DivExpr) return V_DIV;
+        if (e instanceof EqExpr) return V_EQ;
+        if (e instanceof GeExpr) return V_GE;
+        if (e instanceof GtExpr) return V_GT;
+        if (e instanceof LeExpr) return V_LE;
+        if (e instanceof LtExpr) return V_LT;
+        if (e instanceof MulExpr) return V_MUL;
+        if (e instanceof NeExpr) return V_NE;
+        if (e instanceof OrExpr) return V_OR;
+        if (e instanceof RemExpr) return V_REM;
+        if (e instanceof ShlExpr) return V_SHL;
+        if (e instanceof ShrExpr) return V_SHR;
+        if (e instanceof SubExpr) return V_SUB;
+        if (e instanceof UshrExpr) return V_USHR;
+        if (e instanceof XorExpr) return V_XOR;
+        throw new IllegalArgumentException("Unsupported expression " + e.getClass().getName());
+    }
+
+    private void writeMethodRef(SootMethodRef ref) throws IOException {
+        writeClass(ref.declaringClass());
+        writeString(ref.name());
+        writeTypes(ref.parameterTypes());
+        writeType(ref.returnType());
+        out.writeBoolean(ref.isStatic());
+    }
+
+    private void writeFieldRef(SootFieldRef ref) throws IOException {
+        writeClass(ref.declaringClass());
+        writeString(ref.name());
+        writeType(ref.type());
+        out.writeBoolean(ref.isStatic());
+    }
+
+    /**
+     * Writes a reference to a class as a {@link RefType} so that all classes
+     * referenced by a class file end up in its type table.
+     */
+    void writeClass(SootClass c) throws IOException {
+        writeType(c.getType());
+    }
+
+    private void writeUnit(Unit u) throws IOException {
+        Integer idx = units.get(u);
+        if (idx == null) {
+            throw new IllegalArgumentException("Unit " + u + " not in body");
+        }
+        writeVarInt(idx);
+    }
+
+    void writeTypes(List<?> ts) throws IOException {
+        writeVarInt(ts.size());
+        for (Object t : ts) {
+            writeType((Type) t);
+        }
+    }
+
+    /**
+     * Writes the index of the specified type. The first time a type is
+     * written its structure follows the index.
+     */
+    void writeType(Type t) throws IOException {
+        if (table != null) {
+            writeVarInt(table.typeIndex(t));
+            return;
+        }
+        Integer idx = types.get(t);
+        if (idx != null) {
+            writeVarInt(idx);
+            return;
+        }
+        // Register before writing the structure so that nested types get
+        // higher indices, in the same order the reader assigns them
+        idx = types.size();
+        types.put(t, idx);
+        writeVarInt(idx);
+        if (t instanceof RefType) {
+            out.writeByte(T_REF);
+            writeString(((RefType) t).getClassName());
+        } else if (t instanceof ArrayType) {
+            ArrayType at = (ArrayType) t;
+            out.writeByte(T_ARRAY);
+            writeType(at.baseType);
+            writeVarInt(at.numDimensions);
+        } else {
+            out.writeByte(SymbolTable.primTypeTag(t));
+        }
+    }
+
+    /**
+     * Writes the index of the specified string, 0 for <code>null</code>. The
+     * first time a string is written its characters follow the index.
+     */
+    void writeString(String s) throws IOException {
+        if (table != null) {
+            writeVarInt(table.stringIndex(s));
+            return;
+        }
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer idx = strings.get(s);
+        if (idx != null) {
+            writeVarInt(idx);
+            return;
+        }
+        idx = strings.size() + 1;
+        strings.put(s, idx);
+        writeVarInt(idx);
+        SymbolTable.writeChars(out, s);
+    }
+
+    void writeVarInt(int v) throws IOException {
+        SymbolTable.writeVarInt(out, v);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static soot.jimple.binary.BinaryJimpleConstants.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.ArrayType;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.LongType;
+import soot.NullType;
+import soot.RefType;
+import soot.ShortType;
+import soot.StmtAddressType;
+import soot.Type;
+import soot.UnknownType;
+import soot.VoidType;
+
+/**
+ * Added in RoboVM. Table of the strings and types referenced by a binary
+ * Jimple class file. The table is written ahead of the class and its bodies,
+ * which refer to strings and types by index only, so that any single body
+ * can be decoded without decoding the ones before it. String index 0 is
+ * always <code>null</code>.
+ */
+final class SymbolTable {
+    private final List<String> strings = new ArrayList<String>();
+    private final List<Type> types = new ArrayList<Type>();
+    private final Map<String, Integer> stringIndices;
+    private final Map<Type, Integer> typeIndices;
+
+    /**
+     * Creates a new empty table which symbols can be added to.
+     */
+    SymbolTable() {
+        this(true);
+    }
+
+    private SymbolTable(boolean writable) {
+        strings.add(null);
+        stringIndices = writable ? new HashMap<String, Integer>() : null;
+        typeIndices = writable ? new HashMap<Type, Integer>() : null;
+    }
+
+    String getString(int idx) {
+        return strings.get(idx);
+    }
+
+    Type getType(int idx) {
+        return types.get(idx);
+    }
+
+    List<Type> getTypes() {
+        return types;
+    }
+
+    int stringIndex(String s) {
+        if (s == null) {
+            return 0;
+        }
+        Integer idx = stringIndices.get(s);
+        if (idx == null) {
+            idx = strings.size();
+            strings.add(s);
+            stringIndices.put(s, idx);
+        }
+        return idx;
+    }
+
+    int typeIndex(Type t) {
+        Integer idx = typeIndices.get(t);
+        if (idx == null) {
+            // Referenced symbols get lower indices so that the table can be
+            // read sequentially
+            if (t instanceof RefType) {
+                stringIndex(((RefType) t).getClassName());
+            } else if (t instanceof ArrayType) {
+                typeIndex(((ArrayType) t).baseType);
+            }
+            idx = types.size();
+            types.add(t);
+            typeIndices.put(t, idx);
+        }
+        return idx;
+    }
+
+    void write(DataOutput out) throws IOException {
+        writeVarInt(out, strings.size() - 1);
+        for (int i = 1; i < strings.size(); i++) {
+            writeChars(out, strings.get(i));
+        }
+        writeVarInt(out, types.size());
+        for (Type t : types) {
+            if (t instanceof RefType) {
+                out.writeByte(T_REF);
+                writeVarInt(out, stringIndices.get(((RefType) t).getClassName()));
+            } else if (t instanceof ArrayType) {
+                ArrayType at = (ArrayType) t;
+                out.writeByte(T_ARRAY);
+                writeVarInt(out, typeIndices.get(at.baseType));
+                writeVarInt(out, at.numDimensions);
+            } else {
+                out.writeByte(primTypeTag(t));
+            }
+        }
+    }
+
+    static SymbolTable read(DataInput in) throws IOException {
+        SymbolTable table = new SymbolTable(false);
+        int stringCount = readVarInt(in);
+        for (int i = 0; i < stringCount; i++) {
+            table.strings.add(readChars(in));
+        }
+        int typeCount = readVarInt(in);
+        for (int i = 0; i < typeCount; i++) {
+            int tag = in.readUnsignedByte();
+            Type t;
+            if (tag == T_REF) {
+                t = RefType.v(table.strings.get(readVarInt(in)));
+            } else if (tag == T_ARRAY) {
+                Type baseType = table.types.get(readVarInt(in));
+                t = ArrayType.v(baseType, readVarInt(in));
+            } else {
+                t = primType(tag);
+            }
+            table.types.add(t);
+        }
+        return table;
+    }
+
+    static int primTypeTag(Type t) {
+        if (t instanceof BooleanType) return T_BOOLEAN;
+        if (t instanceof ByteType) return T_BYTE;
+        if (t instanceof CharType) return T_CHAR;
+        if (t instanceof ShortType) return T_SHORT;
+        if (t instanceof IntType) return T_INT;
+        if (t instanceof LongType) return T_LONG;
+        if (t instanceof FloatType) return T_FLOAT;
+        if (t instanceof DoubleType) return T_DOUBLE;
+        if (t instanceof VoidType) return T_VOID;
+        if (t instanceof NullType) return T_NULL;
+        if (t instanceof UnknownType) return T_UNKNOWN;
+        if (t instanceof StmtAddressType) return T_STMT_ADDRESS;
+        throw new IllegalArgumentException("Unsupported type " + t.getClass().getName());
+    }
+
+    static Type primType(int tag) throws IOException {
+        switch (tag) {
+        case T_BOOLEAN: return BooleanType.v();
+        case T_BYTE: return ByteType.v();
+        case T_CHAR: return CharType.v();
+        case T_SHORT: return ShortType.v();
+        case T_INT: return IntType.v();
+        case T_LONG: return LongType.v();
+        case T_FLOAT: return FloatType.v();
+        case T_DOUBLE: return DoubleType.v();
+        case T_VOID: return VoidType.v();
+        case T_NULL: return NullType.v();
+        case T_UNKNOWN: return UnknownType.v();
+        case T_STMT_ADDRESS: return StmtAddressType.v();
+        default:
+            throw new IOException("Unknown type tag " + tag);
+        }
+    }
+
+    /**
+     * Not {@link DataOutput#writeUTF(String)} since string constants may
+     * exceed 64k.
+     */
+    static void writeChars(DataOutput out, String s) throws IOException {
+        writeVarInt(out, s.length());
+        for (int i = 0; i < s.length(); i++) {
+            writeVarInt(out, s.charAt(i));
+        }
+    }
+
+    static String readChars(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) readVarInt(in);
+        }
+        return new String(chars);
+    }
+
+    static void writeVarInt(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+}
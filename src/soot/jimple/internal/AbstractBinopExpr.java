@@ -78,6 +78,14 @@ public abstract class AbstractBinopExpr implements Expr
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        op1Box.getValue().forEachUseBox(consumer);
+        consumer.accept(op1Box);
+        op2Box.getValue().forEachUseBox(consumer);
+        consumer.accept(op2Box);
+    }
+
     public boolean equivTo(Object o)
     {
         if (o instanceof AbstractBinopExpr)
@@ -106,6 +106,12 @@ abstract public class AbstractCastExpr implements CastExpr
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        opBox.getValue().forEachUseBox(consumer);
+        consumer.accept(opBox);
+    }
+
     public Type getCastType()
     {
         return type;
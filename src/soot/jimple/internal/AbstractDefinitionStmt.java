@@ -77,6 +77,18 @@ public abstract class AbstractDefinitionStmt extends AbstractStmt
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        leftBox.getValue().forEachUseBox(consumer);
+        rightBox.getValue().forEachUseBox(consumer);
+        consumer.accept(rightBox);
+    }
+
+    public void forEachDefBox(ValueBoxConsumer consumer)
+    {
+        consumer.accept(leftBox);
+    }
+
     public boolean fallsThrough() { return true;}        
     public boolean branches() { return false;}
 }
@@ -99,6 +99,12 @@ public abstract class AbstractInstanceFieldRef implements InstanceFieldRef
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        baseBox.getValue().forEachUseBox(consumer);
+        consumer.accept(baseBox);
+    }
+
     public Type getType()
     {
         return fieldRef.type();
@@ -65,4 +65,14 @@ public abstract class AbstractInstanceInvokeExpr extends AbstractInvokeExpr
         
         return list;
     }
+
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        baseBox.getValue().forEachUseBox(consumer);
+        consumer.accept(baseBox);
+        for (ValueBox element : argBoxes) {
+            element.getValue().forEachUseBox(consumer);
+            consumer.accept(element);
+        }
+    }
 }
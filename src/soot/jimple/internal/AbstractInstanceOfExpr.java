@@ -98,6 +98,12 @@ public abstract class AbstractInstanceOfExpr implements InstanceOfExpr
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        opBox.getValue().forEachUseBox(consumer);
+        consumer.accept(opBox);
+    }
+
     public Type getType()
     {
         return BooleanType.v();
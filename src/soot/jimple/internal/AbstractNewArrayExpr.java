@@ -122,6 +122,12 @@ public abstract class AbstractNewArrayExpr implements NewArrayExpr
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        sizeBox.getValue().forEachUseBox(consumer);
+        consumer.accept(sizeBox);
+    }
+
 
     public Type getType()
     {
@@ -86,6 +86,10 @@ public abstract class AbstractNewExpr implements NewExpr
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     public void apply(Switch sw)
     {
         ((ExprSwitch) sw).caseNewExpr(this);
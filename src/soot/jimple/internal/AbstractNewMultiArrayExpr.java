@@ -158,6 +158,14 @@ public abstract class AbstractNewMultiArrayExpr implements NewMultiArrayExpr
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        for (ValueBox element : sizeBoxes) {
+            element.getValue().forEachUseBox(consumer);
+            consumer.accept(element);
+        }
+    }
+
     public Type getType()
     {
         return baseType;
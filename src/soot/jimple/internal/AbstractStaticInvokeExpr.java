@@ -123,6 +123,14 @@ public abstract class AbstractStaticInvokeExpr extends AbstractInvokeExpr implem
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        for (ValueBox element : argBoxes) {
+            element.getValue().forEachUseBox(consumer);
+            consumer.accept(element);
+        }
+    }
+
     public void apply(Switch sw)
     {
         ((ExprSwitch) sw).caseStaticInvokeExpr(this);
@@ -67,4 +67,10 @@ abstract public class AbstractUnopExpr implements UnopExpr
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        opBox.getValue().forEachUseBox(consumer);
+        consumer.accept(opBox);
+    }
+
 }
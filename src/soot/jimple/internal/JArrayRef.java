@@ -129,6 +129,14 @@ public class JArrayRef implements ArrayRef
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        baseBox.getValue().forEachUseBox(consumer);
+        consumer.accept(baseBox);
+        indexBox.getValue().forEachUseBox(consumer);
+        consumer.accept(indexBox);
+    }
+
     public Type getType()
     {
         Value base = baseBox.getValue();
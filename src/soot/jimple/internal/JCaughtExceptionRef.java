@@ -68,6 +68,10 @@ public class JCaughtExceptionRef implements CaughtExceptionRef
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     public Type getType()
     {
         return RefType.v("java.lang.Throwable");
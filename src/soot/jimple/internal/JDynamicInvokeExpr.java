@@ -31,6 +31,8 @@
 
 package soot.jimple.internal;
 
+import soot.ValueBoxConsumer;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -234,6 +236,14 @@ public class JDynamicInvokeExpr extends AbstractInvokeExpr  implements DynamicIn
 
         return list;
     }
+
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        for (ValueBox element : argBoxes) {
+            element.getValue().forEachUseBox(consumer);
+            consumer.accept(element);
+        }
+    }
     
     
     public SootMethodRef getBootstrapMethodRef() {
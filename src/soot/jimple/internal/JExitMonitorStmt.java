@@ -93,6 +93,12 @@ public class JExitMonitorStmt extends AbstractStmt
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        opBox.getValue().forEachUseBox(consumer);
+        consumer.accept(opBox);
+    }
+
     public void apply(Switch sw)
     {
         ((StmtSwitch) sw).caseExitMonitorStmt(this);
@@ -128,6 +128,12 @@ public class JIfStmt extends AbstractStmt implements IfStmt
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        conditionBox.getValue().forEachUseBox(consumer);
+        consumer.accept(conditionBox);
+    }
+
     public List getUnitBoxes()
     {
         return targetBoxes;
@@ -95,6 +95,12 @@ public class JInvokeStmt extends AbstractStmt implements InvokeStmt
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        invokeExprBox.getValue().forEachUseBox(consumer);
+        consumer.accept(invokeExprBox);
+    }
+
     public void apply(Switch sw)
     {
         ((StmtSwitch) sw).caseInvokeStmt(this);
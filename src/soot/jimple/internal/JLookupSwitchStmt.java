@@ -275,6 +275,12 @@ public class JLookupSwitchStmt extends AbstractStmt
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        keyBox.getValue().forEachUseBox(consumer);
+        consumer.accept(keyBox);
+    }
+
     public List getUnitBoxes()
     {
         return stmtBoxes;
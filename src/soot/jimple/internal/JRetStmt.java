@@ -92,6 +92,12 @@ public class JRetStmt extends AbstractStmt implements RetStmt
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        stmtAddressBox.getValue().forEachUseBox(consumer);
+        consumer.accept(stmtAddressBox);
+    }
+
     public void apply(Switch sw)
     {
         ((StmtSwitch) sw).caseRetStmt(this);
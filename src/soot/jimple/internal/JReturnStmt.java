@@ -92,6 +92,12 @@ public class JReturnStmt extends AbstractStmt implements ReturnStmt
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        returnValueBox.getValue().forEachUseBox(consumer);
+        consumer.accept(returnValueBox);
+    }
+
     public void apply(Switch sw)
     {
         ((StmtSwitch) sw).caseReturnStmt(this);
@@ -268,6 +268,12 @@ public class JTableSwitchStmt extends AbstractStmt
         return list;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        keyBox.getValue().forEachUseBox(consumer);
+        consumer.accept(keyBox);
+    }
+
     public List getUnitBoxes()
     {
         return stmtBoxes;
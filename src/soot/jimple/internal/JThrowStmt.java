@@ -91,6 +91,12 @@ public class JThrowStmt extends AbstractStmt implements ThrowStmt
         return useBoxes;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+        opBox.getValue().forEachUseBox(consumer);
+        consumer.accept(opBox);
+    }
+
     public void apply(Switch sw)
     {
         ((StmtSwitch) sw).caseThrowStmt(this);
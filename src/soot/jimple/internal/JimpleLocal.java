@@ -124,6 +124,9 @@ public class JimpleLocal implements Local
     /** Sets the type of this local. */
     public void setType(Type t)
     {
+        // RoboVM note: Invalidate cached analyses
+        if(this.type != t)
+            soot.BodyAnalysisCache.modified();
         this.type = t;
     }
 
@@ -141,6 +144,10 @@ public class JimpleLocal implements Local
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     public void apply(Switch sw)
     {
         ((JimpleValueSwitch) sw).caseLocal(this);
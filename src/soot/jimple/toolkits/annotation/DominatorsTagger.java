@@ -29,7 +29,7 @@ import soot.Singletons;
 import soot.jimple.Stmt;
 import soot.tagkit.LinkTag;
 import soot.toolkits.graph.ExceptionalUnitGraph;
-import soot.toolkits.graph.MHGDominatorsFinder;
+import soot.toolkits.graph.CHKDominatorsFinder;
 
 /** A body transformer that records avail expression 
  * information in tags.  - both pessimistic and optimistic options*/
@@ -43,7 +43,8 @@ public class DominatorsTagger extends BodyTransformer
     {
 
        
-        MHGDominatorsFinder analysis = new MHGDominatorsFinder(new ExceptionalUnitGraph(b));
+        // RoboVM note: Use CHKDominatorsFinder instead of MHGDominatorsFinder.
+        CHKDominatorsFinder analysis = new CHKDominatorsFinder(new ExceptionalUnitGraph(b));
         Iterator it = b.getUnits().iterator();
         while (it.hasNext()){
             Stmt s = (Stmt)it.next();
@@ -33,7 +33,7 @@ import soot.BodyTransformer;
 import soot.Unit;
 import soot.jimple.Stmt;
 import soot.toolkits.graph.ExceptionalUnitGraph;
-import soot.toolkits.graph.MHGDominatorsFinder;
+import soot.toolkits.graph.CHKDominatorsFinder;
 import soot.toolkits.graph.UnitGraph;
 
 public class LoopFinder extends BodyTransformer {
@@ -53,7 +53,8 @@ public class LoopFinder extends BodyTransformer {
     protected void internalTransform (Body b, String phaseName, Map options){
     
         g = new ExceptionalUnitGraph(b);
-        MHGDominatorsFinder a = new MHGDominatorsFinder(g);
+        // RoboVM note: Use CHKDominatorsFinder instead of MHGDominatorsFinder.
+        CHKDominatorsFinder a = new CHKDominatorsFinder(g);
         
         loops = new HashMap<Stmt, List<Stmt>>();
         
@@ -27,10 +27,12 @@ import soot.EntryPoints;
 import soot.G;
 import soot.Local;
 import soot.MethodOrMethodContext;
+import soot.PhaseOptions;
 import soot.PointsToAnalysis;
 import soot.PointsToSet;
 import soot.Scene;
 import soot.Type;
+import soot.options.CGOptions;
 import soot.util.queue.QueueReader;
 
 /** Models the call graph.
@@ -50,11 +52,18 @@ public final class CallGraphBuilder
         return new ContextInsensitiveContextManager( cg );
     }
 
+    /** RoboVM note: Creates the call graph backend selected by the 
+     * compact-edges option of the cg phase. */
+    public static CallGraph makeCallGraph() {
+        CGOptions options = new CGOptions( PhaseOptions.v().getPhaseOptions( "cg" ) );
+        return options.compact_edges() ? new CompactCallGraph() : new CallGraph();
+    }
+
     /** This constructor builds a complete call graph using the given
      * PointsToAnalysis to resolve virtual calls. */
     public CallGraphBuilder( PointsToAnalysis pa ) {
         this.pa = pa;
-        cg = new CallGraph();
+        cg = makeCallGraph();
         Scene.v().setCallGraph( cg );
         reachables = Scene.v().getReachableMethods();
         ContextManager cm = makeContextManager(cg);
@@ -69,7 +78,7 @@ public final class CallGraphBuilder
         G.v().out.println( "Warning: using incomplete callgraph containing "+
                 "only application classes." );
         pa = soot.jimple.toolkits.pointer.DumbPointerAnalysis.v();
-        cg = new CallGraph();
+        cg = makeCallGraph();
         Scene.v().setCallGraph(cg);
         List<MethodOrMethodContext> entryPoints = new ArrayList<MethodOrMethodContext>();
         entryPoints.addAll( EntryPoints.v().methodsOfApplicationClasses() );
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.SootMethod;
+import soot.Unit;
+import soot.util.queue.QueueReader;
+
+/**
+ * Added in RoboVM. A {@link CallGraph} which stores its edges in int
+ * columns instead of {@link Edge} objects. Methods, units and kinds are
+ * numbered densely in the order they are first seen; each edge is a row
+ * of source method, source unit, target method and kind numbers. The
+ * edges out of a unit, out of a method and into a method are chained
+ * through int arrays in the same order as the intrusive lists of
+ * {@link CallGraph}, so iteration order is the same for both.
+ * <p>
+ * {@link Edge} objects are created when edges are returned by the
+ * iterators and listeners. They are equal, but not identical, to the
+ * edges which were added. As in {@link CallGraph}, methods and units are
+ * compared by identity.
+ */
+public class CompactCallGraph extends CallGraph
+{ 
+    private static final int NONE = -1;
+
+    private final Map<MethodOrMethodContext, Integer> methodNumbers = 
+        new IdentityHashMap<MethodOrMethodContext, Integer>();
+    private final List<MethodOrMethodContext> methods = new ArrayList<MethodOrMethodContext>();
+    private final Map<Unit, Integer> unitNumbers = new IdentityHashMap<Unit, Integer>();
+    private final List<Unit> units = new ArrayList<Unit>();
+    private Kind[] kinds = new Kind[16];
+    private int kindCount = 0;
+
+    /* The edge columns. The source method and unit are NONE when null. */
+    private int edgeCount = 0;
+    private int[] srcs = new int[64];
+    private int[] srcUnits = new int[64];
+    private int[] tgts = new int[64];
+    private byte[] edgeKinds = new byte[64];
+    private int[] nextByUnit = new int[64];
+    private int[] nextBySrc = new int[64];
+    private int[] nextByTgt = new int[64];
+    private final BitSet removed = new BitSet();
+    private int size = 0;
+
+    /* Per method and unit number, the first edge of each chain, or NONE.
+     * hasOut and hasIn record whether a method ever was a source or
+     * target, like the keys of the maps in CallGraph. */
+    private int[] unitHead = new int[64];
+    private int[] srcHead = new int[64];
+    private int[] tgtHead = new int[64];
+    private final BitSet hasOut = new BitSet();
+    private final BitSet hasIn = new BitSet();
+    /* Whether an edge without a source method was ever added. CallGraph
+     * then returns null from sourceMethods(). */
+    private boolean hasNullSrcOut = false;
+
+    /* Open addressing table of edge numbers + 1, for finding duplicates. 
+     * Slots of removed edges are skipped but not cleared. */
+    private int[] table = new int[128];
+    private int tableUsed = 0;
+
+    public CompactCallGraph() {
+        Arrays.fill( unitHead, NONE );
+        Arrays.fill( srcHead, NONE );
+        Arrays.fill( tgtHead, NONE );
+    }
+
+    private int methodNumber( MethodOrMethodContext m, boolean add ) {
+        if( m == null ) return NONE;
+        Integer n = methodNumbers.get( m );
+        if( n != null ) return n;
+        if( !add ) return NONE;
+        int num = methods.size();
+        methods.add( m );
+        methodNumbers.put( m, num );
+        if( num == srcHead.length ) {
+            srcHead = grow( srcHead, NONE );
+            tgtHead = grow( tgtHead, NONE );
+        }
+        return num;
+    }
+
+    private int unitNumber( Unit u, boolean add ) {
+        if( u == null ) return NONE;
+        Integer n = unitNumbers.get( u );
+        if( n != null ) return n;
+        if( !add ) return NONE;
+        int num = units.size();
+        units.add( u );
+        unitNumbers.put( u, num );
+        if( num == unitHead.length ) unitHead = grow( unitHead, NONE );
+        return num;
+    }
+
+    private int kindNumber( Kind k ) {
+        for( int i = 0; i < kindCount; i++ ) {
+            if( kinds[i] == k ) return i;
+        }
+        if( kindCount == kinds.length ) kinds = Arrays.copyOf( kinds, kindCount * 2 );
+        kinds[kindCount] = k;
+        return kindCount++;
+    }
+
+    private static int[] grow( int[] a, int fill ) {
+        int[] b = Arrays.copyOf( a, a.length * 2 );
+        Arrays.fill( b, a.length, b.length, fill );
+        return b;
+    }
+
+    private static int hash( int src, int unit, int tgt, int kind ) {
+        int h = src * 0x9E3779B1 + unit;
+        h = h * 0x9E3779B1 + tgt;
+        h = h * 0x9E3779B1 + kind;
+        return h ^ ( h >>> 16 );
+    }
+
+    /** Returns the number of the edge with the given columns which has
+     * not been removed, or NONE. */
+    private int find( int src, int unit, int tgt, int kind ) {
+        int mask = table.length - 1;
+        for( int i = hash( src, unit, tgt, kind ) & mask; table[i] != 0; i = ( i + 1 ) & mask ) {
+            int e = table[i] - 1;
+            if( srcs[e] == src && srcUnits[e] == unit && tgts[e] == tgt 
+                    && edgeKinds[e] == kind && !removed.get( e ) ) {
+                return e;
+            }
+        }
+        return NONE;
+    }
+
+    private void insert( int e ) {
+        if( ( tableUsed + 1 ) * 2 > table.length ) {
+            int[] old = table;
+            table = new int[old.length * 2];
+            tableUsed = 0;
+            for( int i = 0; i < old.length; i++ ) {
+                if( old[i] != 0 && !removed.get( old[i] - 1 ) ) insert( old[i] - 1 );
+            }
+        }
+        int mask = table.length - 1;
+        int i = hash( srcs[e], srcUnits[e], tgts[e], edgeKinds[e] ) & mask;
+        while( table[i] != 0 ) i = ( i + 1 ) & mask;
+        table[i] = e + 1;
+        tableUsed++;
+    }
+
+    private Edge edge( int e ) {
+        return new Edge( srcs[e] == NONE ? null : methods.get( srcs[e] ),
+                srcUnits[e] == NONE ? null : units.get( srcUnits[e] ),
+                methods.get( tgts[e] ), kinds[edgeKinds[e]] );
+    }
+
+    public boolean addEdge( Edge e ) {
+        int src = methodNumber( e.getSrc(), true );
+        int unit = unitNumber( e.srcUnit(), true );
+        int tgt = methodNumber( e.getTgt(), true );
+        int kind = kindNumber( e.kind() );
+        if( find( src, unit, tgt, kind ) != NONE ) return false;
+
+        int n = edgeCount++;
+        if( n == srcs.length ) {
+            srcs = Arrays.copyOf( srcs, n * 2 );
+            srcUnits = Arrays.copyOf( srcUnits, n * 2 );
+            tgts = Arrays.copyOf( tgts, n * 2 );
+            edgeKinds = Arrays.copyOf( edgeKinds, n * 2 );
+            nextByUnit = Arrays.copyOf( nextByUnit, n * 2 );
+            nextBySrc = Arrays.copyOf( nextBySrc, n * 2 );
+            nextByTgt = Arrays.copyOf( nextByTgt, n * 2 );
+        }
+        srcs[n] = src;
+        srcUnits[n] = unit;
+        tgts[n] = tgt;
+        edgeKinds[n] = (byte) kind;
+        insert( n );
+        size++;
+
+        // Like CallGraph, insert the edge after the first edge of each 
+        // chain, or make it the first edge.
+        nextByUnit[n] = NONE;
+        if( unit != NONE ) {
+            if( unitHead[unit] == NONE ) {
+                unitHead[unit] = n;
+            } else {
+                nextByUnit[n] = nextByUnit[unitHead[unit]];
+                nextByUnit[unitHead[unit]] = n;
+            }
+        }
+        nextBySrc[n] = NONE;
+        if( src == NONE ) {
+            hasNullSrcOut = true;
+        } else {
+            hasOut.set( src );
+            if( srcHead[src] == NONE ) {
+                srcHead[src] = n;
+            } else {
+                nextBySrc[n] = nextBySrc[srcHead[src]];
+                nextBySrc[srcHead[src]] = n;
+            }
+        }
+        hasIn.set( tgt );
+        if( tgtHead[tgt] == NONE ) {
+            tgtHead[tgt] = n;
+            nextByTgt[n] = NONE;
+        } else {
+            nextByTgt[n] = nextByTgt[tgtHead[tgt]];
+            nextByTgt[tgtHead[tgt]] = n;
+        }
+        return true;
+    }
+
+    public boolean removeEdge( Edge e ) {
+        int src = methodNumber( e.getSrc(), false );
+        int unit = unitNumber( e.srcUnit(), false );
+        int tgt = methodNumber( e.getTgt(), false );
+        if( tgt == NONE ) return false;
+        if( ( e.getSrc() != null && src == NONE ) || ( e.srcUnit() != null && unit == NONE ) ) {
+            return false;
+        }
+        int kind = NONE;
+        for( int i = 0; i < kindCount; i++ ) {
+            if( kinds[i] == e.kind() ) kind = i;
+        }
+        int n = find( src, unit, tgt, kind );
+        if( n == NONE ) return false;
+        removed.set( n );
+        size--;
+        if( unit != NONE ) unitHead[unit] = unlink( unitHead[unit], n, nextByUnit );
+        if( src != NONE ) srcHead[src] = unlink( srcHead[src], n, nextBySrc );
+        tgtHead[tgt] = unlink( tgtHead[tgt], n, nextByTgt );
+        return true;
+    }
+
+    /** Removes edge n from the chain starting at head and returns the new
+     * head of the chain. */
+    private static int unlink( int head, int n, int[] next ) {
+        if( head == n ) return next[n];
+        for( int e = head; e != NONE; e = next[e] ) {
+            if( next[e] == n ) {
+                next[e] = next[n];
+                break;
+            }
+        }
+        return head;
+    }
+
+    public boolean isEntryMethod( SootMethod method ) {
+        int m = methodNumber( method, false );
+        return m == NONE || !hasIn.get( m );
+    }
+
+    public Edge findEdge( Unit u, SootMethod callee ) {
+        int unit = unitNumber( u, false );
+        if( unit == NONE ) return null;
+        for( int e = unitHead[unit]; e != NONE; e = nextByUnit[e] ) {
+            if( methods.get( tgts[e] ).method() == callee ) return edge( e );
+        }
+        return null;
+    }
+
+    public Iterator<MethodOrMethodContext> sourceMethods() {
+        return new Iterator<MethodOrMethodContext>() {
+            private boolean nullPending = hasNullSrcOut;
+            private int next = hasOut.nextSetBit( 0 );
+            public boolean hasNext() {
+                return nullPending || next >= 0;
+            }
+            public MethodOrMethodContext next() {
+                if( nullPending ) {
+                    nullPending = false;
+                    return null;
+                }
+                if( next < 0 ) throw new NoSuchElementException();
+                MethodOrMethodContext ret = methods.get( next );
+                next = hasOut.nextSetBit( next + 1 );
+                return ret;
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public Iterator<Edge> edgesOutOf( Unit u ) {
+        if( u == null ) throw new RuntimeException();
+        int unit = unitNumber( u, false );
+        return new ChainIterator( unit == NONE ? NONE : unitHead[unit], nextByUnit );
+    }
+
+    public Iterator<Edge> edgesOutOf( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        int src = methodNumber( m, false );
+        return new ChainIterator( src == NONE ? NONE : srcHead[src], nextBySrc );
+    }
+
+    public Iterator<Edge> edgesInto( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        int tgt = methodNumber( m, false );
+        return new ChainIterator( tgt == NONE ? NONE : tgtHead[tgt], nextByTgt );
+    }
+
+    private class ChainIterator implements Iterator<Edge> {
+        private int position;
+        private final int[] next;
+        ChainIterator( int head, int[] next ) {
+            this.position = head;
+            this.next = next;
+        }
+        public boolean hasNext() {
+            return position != NONE;
+        }
+        public Edge next() {
+            if( position == NONE ) throw new NoSuchElementException();
+            Edge ret = edge( position );
+            position = next[position];
+            return ret;
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public QueueReader<Edge> listener() {
+        return new EdgeReader( 0 );
+    }
+
+    public QueueReader<Edge> newListener() {
+        return new EdgeReader( edgeCount );
+    }
+
+    /** Reads the edges in the order they were added, including edges
+     * which have been removed since, like the stream of CallGraph. */
+    private class EdgeReader extends QueueReader<Edge> {
+        private int index;
+        EdgeReader( int index ) {
+            this.index = index;
+        }
+        public Edge next() {
+            if( index >= edgeCount ) throw new NoSuchElementException();
+            return edge( index++ );
+        }
+        public boolean hasNext() {
+            return index < edgeCount;
+        }
+        public QueueReader<Edge> clone() {
+            return new EdgeReader( index );
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import soot.ArrayType;
 import soot.Body;
@@ -402,6 +403,10 @@ public final class OnFlyCallGraphBuilder
         if( !options.verbose() ) {
             G.v().out.println( "[Call Graph] For information on where the call graph may be incomplete, use the verbose option to the cg phase." );
         }
+        // RoboVM note: Optionally build all dispatch tables up front.
+        if( options.precompute_dispatch() ) {
+            VirtualCalls.v().precomputeDispatchTables();
+        }
         
 //        if(options.reflection_log()==null || options.reflection_log().length()==0) {
         	reflectionModel = new DefaultReflectionModel();
@@ -414,6 +419,11 @@ public final class OnFlyCallGraphBuilder
         this.appOnly = appOnly;
     }
     public void processReachables() {
+        // RoboVM note: Optionally scan the bodies of new methods on worker threads.
+        if( options.parallel_worklist() ) {
+            processReachablesInParallel();
+            return;
+        }
         while(true) {
             if( !worklist.hasNext() ) {
                 rm.update();
@@ -426,6 +436,85 @@ public final class OnFlyCallGraphBuilder
             processNewMethodContext( momc );
         }
     }
+    /** RoboVM note: Processes the worklist in batches. Each batch holds all
+     * methods found reachable by the last update of the reachable methods.
+     * The bodies of the methods new in a batch are built and scanned for
+     * relevant statements on worker threads. The statements are then
+     * turned into call sites and edges on the calling thread in worklist
+     * order, so the resulting call graph does not depend on the number of
+     * threads or their scheduling. */
+    private void processReachablesInParallel() {
+        int threads = PackManager.v().numThreads();
+        ExecutorService executor = threads > 1
+            ? PackManager.v().newWorkerPool( "soot-callgraph", threads ) : null;
+        try {
+            processReachablesInParallel( executor );
+        } finally {
+            if( executor != null ) executor.shutdownNow();
+        }
+    }
+    private void processReachablesInParallel( ExecutorService executor ) {
+        List<MethodOrMethodContext> batch = new ArrayList<MethodOrMethodContext>();
+        while(true) {
+            if( !worklist.hasNext() ) rm.update();
+            batch.clear();
+            while( worklist.hasNext() ) {
+                batch.add( (MethodOrMethodContext) worklist.next() );
+            }
+            if( batch.isEmpty() ) break;
+
+            List<SootMethod> newMethods = new ArrayList<SootMethod>();
+            Set<SootMethod> seen = new HashSet<SootMethod>();
+            for( MethodOrMethodContext momc : batch ) {
+                SootMethod m = momc.method();
+                if( appOnly && !m.getDeclaringClass().isApplicationClass() ) continue;
+                if( m.isNative() || m.isPhantom() ) continue;
+                if( !analyzedMethods.contains( m ) && seen.add( m ) ) newMethods.add( m );
+            }
+            final Map<SootMethod, List<Unit>> scanned = 
+                Collections.synchronizedMap( new HashMap<SootMethod, List<Unit>>() );
+            PackManager.MethodTask task = new PackManager.MethodTask() {
+                public void run( SootMethod m ) {
+                    scanned.put( m, scanBody( m.retrieveActiveBody() ) );
+                }
+            };
+            if( executor != null && newMethods.size() > 1 ) {
+                PackManager.v().runInParallel( executor, newMethods, task );
+            } else {
+                for( SootMethod m : newMethods ) task.run( m );
+            }
+
+            for( MethodOrMethodContext momc : batch ) {
+                SootMethod m = momc.method();
+                if( appOnly && !m.getDeclaringClass().isApplicationClass() ) continue;
+                if( analyzedMethods.add( m ) ) {
+                    List<Unit> units = scanned.get( m );
+                    if( units != null ) processNewMethod( m, units );
+                }
+                processNewMethodContext( momc );
+            }
+        }
+    }
+    /** RoboVM note: Returns the statements of the body which can give rise
+     * to call sites or edges in {@link #getImplicitTargets(SootMethod, Collection)}
+     * or {@link #findReceivers(SootMethod, Collection)}. Only reads the body. */
+    private static List<Unit> scanBody( Body b ) {
+        List<Unit> result = new ArrayList<Unit>();
+        for( Unit u : b.getUnits() ) {
+            Stmt s = (Stmt) u;
+            if( s.containsInvokeExpr() 
+                    || s.containsFieldRef() && s.getFieldRef() instanceof StaticFieldRef ) {
+                result.add( s );
+            } else if( s instanceof AssignStmt ) {
+                Value rhs = ((AssignStmt) s).getRightOp();
+                if( rhs instanceof NewExpr || rhs instanceof NewArrayExpr 
+                        || rhs instanceof NewMultiArrayExpr ) {
+                    result.add( s );
+                }
+            }
+        }
+        return result;
+    }
     public boolean wantTypes( Local receiver ) {
         return receiverToSites.get(receiver) != null;
     }
@@ -528,11 +617,14 @@ public final class OnFlyCallGraphBuilder
             return;
         }
         Body b = m.retrieveActiveBody();
-        getImplicitTargets( m );
-        findReceivers(m, b);
+        processNewMethod( m, b.getUnits() );
+    }
+    private void processNewMethod( SootMethod m, Collection<Unit> units ) {
+        getImplicitTargets( m, units );
+        findReceivers( m, units );
     }
-    private void findReceivers(SootMethod m, Body b) {
-        for( Iterator sIt = b.getUnits().iterator(); sIt.hasNext(); ) {
+    private void findReceivers(SootMethod m, Collection<Unit> units) {
+        for( Iterator sIt = units.iterator(); sIt.hasNext(); ) {
             final Stmt s = (Stmt) sIt.next();
             if (s.containsInvokeExpr()) {
                 InvokeExpr ie = s.getInvokeExpr();
@@ -567,14 +659,13 @@ public final class OnFlyCallGraphBuilder
     
     ReflectionModel reflectionModel;
     
-    private void getImplicitTargets( SootMethod source ) {
+    private void getImplicitTargets( SootMethod source, Collection<Unit> units ) {
         final SootClass scl = source.getDeclaringClass();
         if( source.isNative() || source.isPhantom() ) return;
         if( source.getSubSignature().indexOf( "<init>" ) >= 0 ) {
             handleInit(source, scl);
         }
-        Body b = source.retrieveActiveBody();
-        for( Iterator sIt = b.getUnits().iterator(); sIt.hasNext(); ) {
+        for( Iterator sIt = units.iterator(); sIt.hasNext(); ) {
             final Stmt s = (Stmt) sIt.next();
             if( s.containsInvokeExpr() ) {
                 InvokeExpr ie = s.getInvokeExpr();
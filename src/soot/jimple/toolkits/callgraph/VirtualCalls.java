@@ -21,6 +21,8 @@ package soot.jimple.toolkits.callgraph;
 import soot.*;
 import soot.jimple.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import soot.util.*;
 import soot.util.queue.*;
 
@@ -35,6 +37,121 @@ public final class VirtualCalls
     private final LargeNumberedMap typeToVtbl =
         new LargeNumberedMap( Scene.v().getTypeNumberer() );
 
+    /** RoboVM note: Immutable dispatch tables built by 
+     * precomputeDispatchTables(). Types without a table fall back to the
+     * lazily filled typeToVtbl. */
+    private volatile DispatchTables dispatchTables;
+
+    /** RoboVM note: Concrete subtypes of AnySubType bases, used instead
+     * of baseToSubTypes once dispatch tables have been built. */
+    private final ConcurrentMap<RefType,List<RefType>> baseToConcreteSubTypes =
+        new ConcurrentHashMap<RefType,List<RefType>>();
+
+    /** The dispatch tables indexed by RefType number, together with the
+     * Scene.getMemberState() they were built for. */
+    private static final class DispatchTables {
+        final int memberState;
+        final DispatchTable[] tables;
+
+        DispatchTables( int memberState, DispatchTable[] tables ) {
+            this.memberState = memberState;
+            this.tables = tables;
+        }
+    }
+
+    /** The methods a type dispatches to, sorted by subsignature number.
+     * A null target means that the subsignature resolves to an abstract
+     * method. */
+    private static final class DispatchTable {
+        final int[] subSigs;
+        final SootMethod[] targets;
+
+        DispatchTable( int[] subSigs, SootMethod[] targets ) {
+            this.subSigs = subSigs;
+            this.targets = targets;
+        }
+
+        SootMethod get( NumberedString subSig ) {
+            int i = Arrays.binarySearch( subSigs, subSig.getNumber() );
+            return i >= 0 ? targets[i] : null;
+        }
+    }
+
+    /** RoboVM note: Builds the dispatch tables of all classes in the Scene
+     * in one pass over the hierarchy. Afterwards resolveNonSpecial() and
+     * resolve() only read immutable data for these classes and may be
+     * called from several threads. The tables are ignored once a class
+     * gains or loses a member or its superclass or interfaces change (see
+     * Scene.getMemberState()); call again after modifying classes. */
+    public void precomputeDispatchTables() {
+        int memberState = Scene.v().getMemberState();
+        FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+        DispatchTable[] tables = 
+            new DispatchTable[Scene.v().getTypeNumberer().size() + 1];
+        for( Iterator clIt = Scene.v().getClasses().iterator(); clIt.hasNext(); ) {
+            final SootClass cl = (SootClass) clIt.next();
+            buildDispatchTable( cl, tables );
+            // Fill the FastHierarchy's lazily computed implementer sets
+            // now, so that later concurrent readers don't modify them.
+            if( cl.isInterface() && cl.resolvingLevel() >= SootClass.HIERARCHY ) {
+                fh.getAllImplementersOfInterface( cl );
+            }
+        }
+        baseToConcreteSubTypes.clear();
+        dispatchTables = new DispatchTables( memberState, tables );
+    }
+
+    /** Returns the precomputed dispatch tables or null if there are none
+     * or classes have been modified since they were built. */
+    private DispatchTable[] currentDispatchTables() {
+        DispatchTables d = dispatchTables;
+        if( d == null || d.memberState != Scene.v().getMemberState() ) return null;
+        return d.tables;
+    }
+
+    private DispatchTable buildDispatchTable( SootClass cl, DispatchTable[] tables ) {
+        int n = cl.getType().getNumber();
+        if( n >= tables.length ) return null;
+        if( tables[n] != null ) return tables[n];
+        if( cl.resolvingLevel() < SootClass.SIGNATURES ) return null;
+        DispatchTable parent = null;
+        if( cl.hasSuperclass() ) {
+            parent = buildDispatchTable( cl.getSuperclass(), tables );
+            if( parent == null ) return null;
+        }
+
+        List<SootMethod> methods = cl.getMethods();
+        int[] ownSubSigs = new int[methods.size()];
+        int count = 0;
+        Map<Integer,SootMethod> own = new HashMap<Integer,SootMethod>();
+        for( SootMethod m : methods ) {
+            int sig = m.getNumberedSubSignature().getNumber();
+            ownSubSigs[count++] = sig;
+            own.put( sig, m.isConcrete() || m.isNative() || m.isPhantom() ? m : null );
+        }
+        Arrays.sort( ownSubSigs, 0, count );
+
+        // Merge the sorted subsignatures of cl with those of its superclass.
+        int[] parentSubSigs = parent == null ? new int[0] : parent.subSigs;
+        int[] subSigs = new int[parentSubSigs.length + count];
+        SootMethod[] targets = new SootMethod[subSigs.length];
+        int i = 0, j = 0, k = 0;
+        while( i < parentSubSigs.length || j < count ) {
+            if( j == count || ( i < parentSubSigs.length && parentSubSigs[i] < ownSubSigs[j] ) ) {
+                subSigs[k] = parentSubSigs[i];
+                targets[k++] = parent.targets[i++];
+            } else {
+                if( i < parentSubSigs.length && parentSubSigs[i] == ownSubSigs[j] ) i++;
+                subSigs[k] = ownSubSigs[j];
+                targets[k++] = own.get( ownSubSigs[j++] );
+            }
+        }
+        DispatchTable table = new DispatchTable( 
+                Arrays.copyOf( subSigs, k ), Arrays.copyOf( targets, k ) );
+        tables[n] = table;
+        return table;
+    }
+
     public SootMethod resolveSpecial( SpecialInvokeExpr iie, NumberedString subSig, SootMethod container ) {
         SootMethod target = iie.getMethod();
         /* cf. JVM spec, invokespecial instruction */
@@ -55,6 +172,15 @@ public final class VirtualCalls
     }
 
     public SootMethod resolveNonSpecial( RefType t, NumberedString subSig ) {
+        DispatchTable[] tables = currentDispatchTables();
+        if( tables != null ) {
+            int n = t.getNumber();
+            if( n < tables.length && tables[n] != null ) return tables[n].get( subSig );
+        }
+        return resolveNonSpecialLazily( t, subSig );
+    }
+
+    private synchronized SootMethod resolveNonSpecialLazily( RefType t, NumberedString subSig ) {
         SmallNumberedMap vtbl = (SmallNumberedMap) typeToVtbl.get( t );
         if( vtbl == null ) {
             typeToVtbl.put( t, vtbl =
@@ -70,7 +196,7 @@ public final class VirtualCalls
             }
         } else {
             if( cls.hasSuperclass() ) {
-                ret = resolveNonSpecial( cls.getSuperclass().getType(), subSig );
+                ret = resolveNonSpecialLazily( cls.getSuperclass().getType(), subSig );
             }
         }
         vtbl.put( subSig, ret );
@@ -100,6 +226,13 @@ public final class VirtualCalls
         } else if( t instanceof AnySubType ) {
             RefType base = ((AnySubType)t).getBase();
 
+            if( currentDispatchTables() != null ) {
+                for( RefType st : getConcreteSubTypes( base ) ) {
+                    resolve( st, declaredType, sigType, subSig, container, targets );
+                }
+                return;
+            }
+
             List subTypes = baseToSubTypes.get(base);
             if( subTypes != null ) {
                 for( Iterator stIt = subTypes.iterator(); stIt.hasNext(); ) {
@@ -143,6 +276,39 @@ public final class VirtualCalls
         }
     }
     
+    /** Returns the concrete classes which are subtypes of base, in the
+     * order in which resolve() visits them. */
+    private List<RefType> getConcreteSubTypes( RefType base ) {
+        List<RefType> subTypes = baseToConcreteSubTypes.get( base );
+        if( subTypes != null ) return subTypes;
+
+        subTypes = new ArrayList<RefType>();
+        LinkedList<SootClass> worklist = new LinkedList<SootClass>();
+        HashSet<SootClass> workset = new HashSet<SootClass>();
+        FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+        SootClass cl = base.getSootClass();
+
+        if( workset.add( cl ) ) worklist.add( cl );
+        while( !worklist.isEmpty() ) {
+            cl = worklist.removeFirst();
+            if( cl.isInterface() ) {
+                for( Iterator cIt = fh.getAllImplementersOfInterface(cl).iterator(); cIt.hasNext(); ) {
+                    final SootClass c = (SootClass) cIt.next();
+                    if( workset.add( c ) ) worklist.add( c );
+                }
+            } else {
+                if( cl.isConcrete() ) subTypes.add( cl.getType() );
+                for( Iterator cIt = fh.getSubclassesOf( cl ).iterator(); cIt.hasNext(); ) {
+                    final SootClass c = (SootClass) cIt.next();
+                    if( workset.add( c ) ) worklist.add( c );
+                }
+            }
+        }
+        subTypes = Collections.unmodifiableList( subTypes );
+        List<RefType> existing = baseToConcreteSubTypes.putIfAbsent( base, subTypes );
+        return existing != null ? existing : subTypes;
+    }
+
     public final NumberedString sigClinit =
         Scene.v().getSubSigNumberer().findOrAdd("void <clinit>()");
     public final NumberedString sigStart =
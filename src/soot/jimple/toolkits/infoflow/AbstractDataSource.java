@@ -20,6 +20,10 @@ public class AbstractDataSource implements Value
         return AbstractUnit.emptyList;
     }
 
+    public void forEachUseBox(ValueBoxConsumer consumer)
+    {
+    }
+
     /** Clones the object.  Not implemented here. */
     public Object clone() 
     {
@@ -98,11 +98,12 @@ public class CopyPropagator extends BodyTransformer
         
 //            ((JimpleBody) stmtBody).printDebugTo(new java.io.PrintWriter(G.v().out, true));
             
-        ExceptionalUnitGraph graph = new ExceptionalUnitGraph(stmtBody);
+        // RoboVM note: Use the cached analyses of the body
+        ExceptionalUnitGraph graph = stmtBody.getAnalysisCache().getExceptionalUnitGraph();
 
         LocalDefs localDefs;
         
-        localDefs = new SmartLocalDefs(graph, new SimpleLiveLocals(graph));
+        localDefs = stmtBody.getAnalysisCache().getLocalDefs();
 
         // Perform a local propagation pass.
         {
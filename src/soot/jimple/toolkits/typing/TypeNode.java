@@ -28,7 +28,6 @@ package soot.jimple.toolkits.typing;
 
 import soot.*;
 import soot.options.Options;
-import soot.util.*;
 import java.util.*;
 
 /**
@@ -47,8 +46,21 @@ class TypeNode
   private TypeNode array;
 
   private List parents = Collections.EMPTY_LIST;
-  private final BitVector ancestors = new BitVector(0);
-  private final BitVector descendants = new BitVector(0);
+
+  /* RoboVM note: The ancestors and descendants of each node used to be kept
+     in BitVectors sized to the number of type nodes, so the hierarchy used
+     memory quadratic in the number of types. A node now keeps the chain of
+     its parent classes indexed by depth and a sorted array with the ids of
+     its remaining (interface) ancestors. The array is shared with the parent
+     class whenever the node adds no new ancestors. Descendants are found by
+     asking the other node for its ancestors. */
+  private static final TypeNode[] NO_NODES = new TypeNode[0];
+  private static final int[] NO_IDS = new int[0];
+
+  /** classAncestors[d] is the ancestor class at depth d of this node. **/
+  private TypeNode[] classAncestors = NO_NODES;
+  /** Sorted ids of the ancestors not in classAncestors. **/
+  private int[] otherAncestors = NO_IDS;
 	
   public TypeNode(int id, Type type, ClassHierarchy hierarchy)
   {
@@ -101,16 +113,7 @@ class TypeNode
       parents = Collections.unmodifiableList(plist);
     }
 	    
-    descendants.set(hierarchy.NULL.id);
-    hierarchy.NULL.ancestors.set(id);
-
-    for( Iterator parentIt = parents.iterator(); parentIt.hasNext(); ) {
-
-        final TypeNode parent = (TypeNode) parentIt.next();
-	ancestors.set(parent.id);
-	ancestors.or(parent.ancestors);
-	parent.fixDescendants(id);
-      }
+    initAncestors();
   }
 	
   public TypeNode(int id, ArrayType type, ClassHierarchy hierarchy)
@@ -211,33 +214,79 @@ class TypeNode
       parents = Collections.unmodifiableList(plist);
     }		    
 
-    descendants.set(hierarchy.NULL.id);
-    hierarchy.NULL.ancestors.set(id);
-
-    for( Iterator parentIt = parents.iterator(); parentIt.hasNext(); ) {
-
-        final TypeNode parent = (TypeNode) parentIt.next();
-	ancestors.set(parent.id);
-	ancestors.or(parent.ancestors);
-	parent.fixDescendants(id);
-      }
+    initAncestors();
   }
 
-  /** Adds the given node to the list of descendants of this node and its ancestors. **/
-  private void fixDescendants(int id)
+  /** Computes the ancestors of this node from its parents. **/
+  private void initAncestors()
   {
-    if(descendants.get(id))
+    if(parentClass != null)
       {
-	return;
+	int depth = parentClass.classAncestors.length;
+	classAncestors = new TypeNode[depth + 1];
+	System.arraycopy(parentClass.classAncestors, 0, classAncestors, 0, depth);
+	classAncestors[depth] = parentClass;
+      }
+
+    int count = 0;
+    for( Iterator parentIt = parents.iterator(); parentIt.hasNext(); ) {
+
+        final TypeNode parent = (TypeNode) parentIt.next();
+	if(parent != parentClass)
+	  {
+	    count += 1 + parent.classAncestors.length;
+	  }
+	count += parent.otherAncestors.length;
       }
 
+    int[] ids = new int[count];
+    count = 0;
     for( Iterator parentIt = parents.iterator(); parentIt.hasNext(); ) {
 
         final TypeNode parent = (TypeNode) parentIt.next();
-	parent.fixDescendants(id);
+	if(parent != parentClass)
+	  {
+	    ids[count++] = parent.id;
+	    for(int i = 0; i < parent.classAncestors.length; i++)
+	      {
+		ids[count++] = parent.classAncestors[i].id;
+	      }
+	  }
+	System.arraycopy(parent.otherAncestors, 0, ids, count, parent.otherAncestors.length);
+	count += parent.otherAncestors.length;
       }
+    Arrays.sort(ids);
 
-    descendants.set(id);
+    // Remove duplicates and the ancestors already in classAncestors
+    int n = 0;
+    for(int i = 0; i < ids.length; i++)
+      {
+	if((n == 0 || ids[n - 1] != ids[i]) && !isClassAncestor(ids[i]))
+	  {
+	    ids[n++] = ids[i];
+	  }
+      }
+
+    if(parentClass != null && n == parentClass.otherAncestors.length)
+      {
+	otherAncestors = parentClass.otherAncestors;
+      }
+    else if(n > 0)
+      {
+	otherAncestors = Arrays.copyOf(ids, n);
+      }
+  }
+
+  private boolean isClassAncestor(int id)
+  {
+    for(int i = 0; i < classAncestors.length; i++)
+      {
+	if(classAncestors[i].id == id)
+	  {
+	    return true;
+	  }
+      }
+    return false;
   }
 
   /** Returns the unique id of this type node. **/
@@ -254,7 +303,19 @@ class TypeNode
 
   public boolean hasAncestor(TypeNode typeNode)
   {
-    return ancestors.get(typeNode.id);
+    if(type instanceof NullType)
+      {
+	// null is a descendant of all reference and array types
+	return typeNode.type instanceof RefType || typeNode.type instanceof ArrayType;
+      }
+
+    int depth = typeNode.classAncestors.length;
+    if(depth < classAncestors.length && classAncestors[depth] == typeNode)
+      {
+	return true;
+      }
+
+    return Arrays.binarySearch(otherAncestors, typeNode.id) >= 0;
   }
 
   public boolean hasAncestorOrSelf(TypeNode typeNode)
@@ -262,12 +323,12 @@ class TypeNode
     if(typeNode == this)
       return true;
 
-    return ancestors.get(typeNode.id);
+    return hasAncestor(typeNode);
   }
 
   public boolean hasDescendant(TypeNode typeNode)
   {
-    return descendants.get(typeNode.id);
+    return typeNode.hasAncestor(this);
   }
 
   public boolean hasDescendantOrSelf(TypeNode typeNode)
@@ -275,7 +336,7 @@ class TypeNode
     if(typeNode == this)
       return true;
 
-    return descendants.get(typeNode.id);
+    return hasDescendant(typeNode);
   }
 
   public List parents()
@@ -108,8 +108,24 @@ public class BytecodeHierarchy implements IHierarchy
 			return new SingletonList<Type>(b);
 		else if ( b instanceof NullType )
 			return new SingletonList<Type>(a);
+		/* RoboVM note: The least common ancestors of reference and array
+		types are cached per Scene. */
+		else
+		{
+			LcaCache cache = LcaCache.v();
+			Collection<Type> r = cache.get(a, b);
+			if ( r == null )
+				r = cache.put(a, b, refLcas(a, b));
+			return r;
+		}
+	}
+	
+	/* Computes the least common ancestors of two reference or array types
+	without consulting the LcaCache. */
+	static Collection<Type> refLcas(Type a, Type b)
+	{
 		// a and b are both ArrayType or RefType
-		else if ( a instanceof ArrayType && b instanceof ArrayType )
+		if ( a instanceof ArrayType && b instanceof ArrayType )
 		{
 			Type eta = ((ArrayType)a).getElementType(),
 				etb = ((ArrayType)b).getElementType();
@@ -226,32 +242,34 @@ public class BytecodeHierarchy implements IHierarchy
 			child, ancestor);
 	}
 	
-	private static LinkedList<RefType> superclassPath(RefType t)
+	/* RoboVM note: Walks up the superclass chains instead of building a
+	LinkedList of each path from Object. */
+	private static int depth(SootClass sc)
 	{
-		LinkedList<RefType> r = new LinkedList<RefType>();
-		r.addFirst(t);
-		
-		SootClass sc = t.getSootClass();
+		int r = 0;
 		while ( sc.hasSuperclass() )
 		{
 			sc = sc.getSuperclass();
-			r.addFirst((RefType)sc.getType());
+			r++;
 		}
-		
 		return r;
 	}
 	
 	public static RefType lcsc(RefType a, RefType b)
 	{
-		LinkedList<RefType> pathA = superclassPath(a),
-			pathB = superclassPath(b);
-		RefType r = null;
-		while ( !(pathA.isEmpty() || pathB.isEmpty()) 
-			&& TypeResolver.typesEqual(pathA.getFirst(), pathB.getFirst()) )
+		SootClass sca = a.getSootClass(), scb = b.getSootClass();
+		int da = depth(sca), db = depth(scb);
+		for ( ; da > db; da-- )
+			sca = sca.getSuperclass();
+		for ( ; db > da; db-- )
+			scb = scb.getSuperclass();
+		while ( !TypeResolver.typesEqual(sca.getType(), scb.getType()) )
 		{
-			r = pathA.removeFirst();
-			pathB.removeFirst();
+			if ( !sca.hasSuperclass() )
+				return null;
+			sca = sca.getSuperclass();
+			scb = scb.getSuperclass();
 		}
-		return r;
+		return sca.getType();
 	}
 }
\ No newline at end of file
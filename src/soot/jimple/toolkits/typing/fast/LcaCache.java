@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.typing.fast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.G;
+import soot.Scene;
+import soot.Singletons;
+import soot.Type;
+
+/**
+ * Added in RoboVM. Caches the least common ancestors of pairs of reference
+ * and array types computed by {@link BytecodeHierarchy#lcas_(Type, Type)}.
+ * There is one cache per {@link Scene}. Entries are keyed by the type
+ * numbers of the two types and are ignored once classes, fields or methods
+ * in the {@link Scene} have changed (see {@link Scene#getMemberState()}).
+ * The cache is cleared when it reaches {@link #MAX_SIZE} entries.
+ */
+public class LcaCache {
+    /**
+     * Maximum number of pairs of types kept in the cache.
+     */
+    public static final int MAX_SIZE = 1 << 14;
+
+    private static final class Entry {
+        final int memberState;
+        final Collection<Type> lcas;
+
+        Entry(int memberState, Collection<Type> lcas) {
+            this.memberState = memberState;
+            this.lcas = lcas;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+
+    public LcaCache(Singletons.Global g) {
+    }
+
+    public static LcaCache v() {
+        return G.v().soot_jimple_toolkits_typing_fast_LcaCache();
+    }
+
+    private static Long key(Type a, Type b) {
+        return Long.valueOf(((long) a.getNumber() << 32) | (b.getNumber() & 0xffffffffL));
+    }
+
+    /**
+     * Returns the cached least common ancestors of <code>a</code> and
+     * <code>b</code> or <code>null</code> if they are not cached.
+     */
+    public Collection<Type> get(Type a, Type b) {
+        Entry e = entries.get(key(a, b));
+        if (e == null || e.memberState != Scene.v().getMemberState()) {
+            return null;
+        }
+        return e.lcas;
+    }
+
+    /**
+     * Caches the least common ancestors of <code>a</code> and <code>b</code>
+     * and returns an unmodifiable copy of them.
+     */
+    public Collection<Type> put(Type a, Type b, Collection<Type> lcas) {
+        Collection<Type> r = Collections.unmodifiableList(new ArrayList<Type>(lcas));
+        if (entries.size() >= MAX_SIZE) {
+            entries.clear();
+        }
+        entries.put(key(a, b), new Entry(Scene.v().getMemberState(), r));
+        return r;
+    }
+
+    /**
+     * Returns the number of entries currently held by the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -481,7 +481,8 @@ public class TypeResolver
 	version 2.2.5. */
 	private void split_new()
 	{
-		ExceptionalUnitGraph graph = new ExceptionalUnitGraph(this.jb);
+		// RoboVM note: Use the cached graph of the body
+		ExceptionalUnitGraph graph = this.jb.getAnalysisCache().getExceptionalUnitGraph();
 		SimpleLocalDefs defs = new SimpleLocalDefs(graph);
 		// SimpleLocalUses uses = new SimpleLocalUses(graph, defs);
 		PatchingChain<Unit> units = this.jb.getUnits();
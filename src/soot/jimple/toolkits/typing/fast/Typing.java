@@ -28,33 +28,93 @@ import soot.*;
  */
 public class Typing
 {
-	private HashMap<Local, Type> map;
+	/* RoboVM note: Typings used to be HashMap<Local, Type>s which were copied
+	wholesale every time TypeResolver branched. Locals now get dense indices
+	from a LocalIndex shared by all typings copied from the same initial
+	typing and the types are kept in an array which is only copied when a
+	typing sharing it is modified. */
+	private static class LocalIndex
+	{
+		private final HashMap<Local, Integer> indices
+			= new HashMap<Local, Integer>();
+		private final ArrayList<Local> locals = new ArrayList<Local>();
+		
+		int indexOf(Local v)
+		{
+			Integer i = this.indices.get(v);
+			return i == null ? -1 : i.intValue();
+		}
+		
+		int add(Local v)
+		{
+			Integer i = this.indices.get(v);
+			if ( i != null )
+				return i.intValue();
+			int r = this.locals.size();
+			this.indices.put(v, r);
+			this.locals.add(v);
+			return r;
+		}
+	}
+	
+	private final LocalIndex index;
+	private Type[] types;
+	// True if types may be referenced by another typing
+	private boolean shared;
 	
 	public Typing(Collection<Local> vs)
 	{
-		this.map = new HashMap<Local, Type>();
+		this.index = new LocalIndex();
+		this.types = new Type[vs.size()];
 		for ( Local v : vs )
-			this.map.put(v, BottomType.v());
+		{
+			int i = this.index.add(v);
+			if ( i >= this.types.length )
+				this.types = Arrays.copyOf(this.types, i + 1);
+			this.types[i] = BottomType.v();
+		}
 	}
 	
 	public Typing(Typing tg)
 	{
-		this.map = new HashMap<Local, Type>(tg.map);
+		this.index = tg.index;
+		this.types = tg.types;
+		this.shared = true;
+		tg.shared = true;
 	}
 	
-	public Type get(Local v) { return this.map.get(v); }
+	private Type typeAt(int i)
+	{
+		return i >= 0 && i < this.types.length ? this.types[i] : null;
+	}
 	
-	public Type set(Local v, Type t) { return this.map.put(v, t); }
+	public Type get(Local v) { return this.typeAt(this.index.indexOf(v)); }
+	
+	public Type set(Local v, Type t)
+	{
+		int i = this.index.add(v);
+		if ( this.shared || i >= this.types.length )
+		{
+			this.types = Arrays.copyOf(this.types,
+				Math.max(this.types.length, this.index.locals.size()));
+			this.shared = false;
+		}
+		Type r = this.types[i];
+		this.types[i] = t;
+		return r;
+	}
 	
 	public String toString()
 	{
 		StringBuffer sb = new StringBuffer();
 		sb.append('{');
-		for ( Local v : this.map.keySet() )
+		for ( int i = 0; i < this.types.length; i++ )
 		{
-			sb.append(v);
+			if ( this.types[i] == null )
+				continue;
+			sb.append(this.index.locals.get(i));
 			sb.append(':');
-			sb.append(this.get(v));
+			sb.append(this.types[i]);
 			sb.append(',');
 		}
 		sb.append('}');
@@ -81,9 +141,13 @@ public class Typing
 	public static int compare(Typing a, Typing b, IHierarchy h)
 	{
 		int r = 0;
-		for ( Local v : a.map.keySet() )
+		for ( int i = 0; i < a.types.length; i++ )
 		{
-			Type ta = a.get(v), tb = b.get(v);
+			Type ta = a.types[i];
+			if ( ta == null )
+				continue;
+			Type tb = a.index == b.index ? b.typeAt(i)
+				: b.get(a.index.locals.get(i));
 			
 			int cmp;
 			if ( TypeResolver.typesEqual(ta, tb) )
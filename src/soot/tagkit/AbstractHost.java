@@ -25,7 +25,7 @@
 
 package soot.tagkit;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -42,12 +42,19 @@ public  class AbstractHost implements Host
     // avoid creating an empty list for each element, when it is not used
     // use lazy instantiation (in addTag) instead
     private final static List<Tag> emptyList = Collections.emptyList();
-    private List<Tag> mTagList = emptyList;
+    // RoboVM note: Tags are stored as null, a single Tag or an exact-size
+    // Tag[] instead of an ArrayList. Most units carry one or two tags.
+    private Object mTags;
     
     /** get the list of tags. This list should not be modified! */
     public List<Tag> getTags()
     {
-        return mTagList;
+        Object tags = mTags;
+        if (tags == null)
+            return emptyList;
+        if (tags instanceof Tag)
+            return Collections.singletonList((Tag) tags);
+        return Arrays.asList((Tag[]) tags);
     }
 
     /** remove the tag named <code>aName</code> */
@@ -55,20 +62,42 @@ public  class AbstractHost implements Host
     {
         int tagIndex;
         if((tagIndex = searchForTag(aName)) != -1) {
-            mTagList.remove(tagIndex);
+            if (mTags instanceof Tag) {
+                mTags = null;
+            } else {
+                Tag[] tags = (Tag[]) mTags;
+                if (tags.length == 2) {
+                    mTags = tags[1 - tagIndex];
+                } else {
+                    Tag[] newTags = new Tag[tags.length - 1];
+                    System.arraycopy(tags, 0, newTags, 0, tagIndex);
+                    System.arraycopy(tags, tagIndex + 1, newTags, tagIndex, newTags.length - tagIndex);
+                    mTags = newTags;
+                }
+            }
         }
     }
 
     /** search for tag named <code>aName</code> */
     private int searchForTag(String aName) 
     {
-        int i = 0;
-        Iterator<Tag> it = mTagList.iterator();
-        while(it.hasNext()) {
-            Tag tag = it.next();
-            if(tag.getName().equals(aName))
+        // RoboVM note: No iterator. Tag names are usually literals so
+        // compare identities before falling back to equals().
+        Object tags = mTags;
+        if (tags == null)
+            return -1;
+        if (tags instanceof Tag) {
+            String name = ((Tag) tags).getName();
+            return name == aName || name.equals(aName) ? 0 : -1;
+        }
+        Tag[] a = (Tag[]) tags;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].getName() == aName)
+                return i;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].getName().equals(aName))
                 return i;
-            i++;
         }
         return -1;
     }
@@ -78,7 +107,8 @@ public  class AbstractHost implements Host
     {      
         int tagIndex;
         if((tagIndex = searchForTag(aName)) != -1) {
-            return mTagList.get(tagIndex);
+            Object tags = mTags;
+            return tags instanceof Tag ? (Tag) tags : ((Tag[]) tags)[tagIndex];
         }
         
 				return null;
@@ -93,14 +123,23 @@ public  class AbstractHost implements Host
     /** add tag <code>t</code> to this host */
     public void addTag(Tag t)
     {
-        if (mTagList == emptyList) 
-            mTagList = new ArrayList<Tag>(1);
-        mTagList.add(t);
+        Object tags = mTags;
+        if (tags == null) {
+            mTags = t;
+        } else if (tags instanceof Tag) {
+            mTags = new Tag[] { (Tag) tags, t };
+        } else {
+            Tag[] a = (Tag[]) tags;
+            Tag[] newTags = new Tag[a.length + 1];
+            System.arraycopy(a, 0, newTags, 0, a.length);
+            newTags[a.length] = t;
+            mTags = newTags;
+        }
     }
 
     /** Removes all the tags from this host. */
     public void removeAllTags() {
-        mTagList = emptyList;
+        mTags = null;
     }
 
     /** Adds all the tags from h to this host. */
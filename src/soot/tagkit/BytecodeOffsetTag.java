@@ -35,13 +35,39 @@ package soot.tagkit;
 public class BytecodeOffsetTag implements Tag {
   /** The index of the last byte-code instruction.
    */
-  private int offset;
+  private final int offset;
+
+  /* RoboVM note: Tags are immutable, so tags for offsets in the range of
+   * a method's code are shared. The pages of the cache are filled lazily;
+   * racing threads may at worst create the same tag twice. */
+  private static final int PAGE_BITS = 10;
+  private static final BytecodeOffsetTag[][] pages = new BytecodeOffsetTag[65536 >> PAGE_BITS][];
 
   /** Constructs a tag from the index offset.
    */
   public BytecodeOffsetTag(int offset) {
     this.offset = offset;
   }
+
+  /** RoboVM note: Returns a shared tag for the specified offset.
+   */
+  public static BytecodeOffsetTag v(int offset) {
+    if (offset < 0 || offset >= 65536) {
+      return new BytecodeOffsetTag(offset);
+    }
+    BytecodeOffsetTag[] page = pages[offset >> PAGE_BITS];
+    if (page == null) {
+      page = new BytecodeOffsetTag[1 << PAGE_BITS];
+      pages[offset >> PAGE_BITS] = page;
+    }
+    int i = offset & ((1 << PAGE_BITS) - 1);
+    BytecodeOffsetTag tag = page[i];
+    if (tag == null) {
+      tag = new BytecodeOffsetTag(offset);
+      page[i] = tag;
+    }
+    return tag;
+  }
 	
   /** Returns the name of this tag.
    */
@@ -29,12 +29,39 @@ package soot.tagkit;
 public class LineNumberTag implements Tag
 {
     /* it is a u2 value representing line number. */
-    int line_number;
+    final int line_number;
+
+    /* RoboVM note: Tags are immutable, so tags for u2 line numbers are
+     * shared. The pages of the cache are filled lazily; racing threads may
+     * at worst create the same tag twice. */
+    private static final int PAGE_BITS = 10;
+    private static final LineNumberTag[][] pages = new LineNumberTag[65536 >> PAGE_BITS][];
+
     public LineNumberTag(int ln)
     {
 	line_number = ln;
     }
 
+    /** RoboVM note: Returns a shared tag for the specified line number. */
+    public static LineNumberTag v(int ln)
+    {
+        if (ln < 0 || ln >= 65536) {
+            return new LineNumberTag(ln);
+        }
+        LineNumberTag[] page = pages[ln >> PAGE_BITS];
+        if (page == null) {
+            page = new LineNumberTag[1 << PAGE_BITS];
+            pages[ln >> PAGE_BITS] = page;
+        }
+        int i = ln & ((1 << PAGE_BITS) - 1);
+        LineNumberTag tag = page[i];
+        if (tag == null) {
+            tag = new LineNumberTag(ln);
+            page[i] = tag;
+        }
+        return tag;
+    }
+
     public String getName()
     {
 	return "LineNumberTag";
@@ -23,6 +23,8 @@ import soot.*;
 import soot.options.Options;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>A class for representing the set of exceptions that an
@@ -77,11 +79,22 @@ import java.util.*;
  * <code>RefLikeType</code> objects it contains, though, because we trust
  * {@link Scene} to enforce the existence of only one 
  * <code>RefLikeType</code> instance with a given name.</p>
+ *
+ * <p>RoboVM note: The exception types in a set are stored as bitsets
+ * indexed by numbers assigned to the types by the {@link Manager}. Sets
+ * are hash-consed in a concurrent table, so that there is only one
+ * <code>ThrowableSet</code> for each combination of included and excluded
+ * types, and the subtype relations needed by <code>add()</code>,
+ * {@link #catchableAs(RefType)} and {@link #whichCatchableAs(RefType)}
+ * are precomputed as bit masks per type. All operations are
+ * thread-safe.</p>
  */
 
 public final class ThrowableSet {
 
-    private static final boolean INSTRUMENTING = true;
+    // RoboVM note: Disabled since the counts are plain ints which aren't
+    // updated atomically when bodies are built on several threads.
+    private static final boolean INSTRUMENTING = false;
 
     /**
      * Singleton class for fields and initializers common to all
@@ -92,10 +105,26 @@ public final class ThrowableSet {
     public static class Manager {
 
 	/**
-	 * Map from {@link Integer}s representing set size to all
-	 * <code>ThrowableSet</code>s of that size.
+	 * RoboVM note: Map from the contents of the
+	 * <code>ThrowableSet</code>s to the sets, replacing the lists of
+	 * sets of each size which had to be searched linearly.
+	 */
+	private final ConcurrentMap<Key, ThrowableSet> sets = new ConcurrentHashMap<Key, ThrowableSet>();
+
+	/**
+	 * Exception types indexed by the numbers used as bit indices
+	 * in the sets. Only the first <code>typeCount</code> elements are
+	 * used.
+	 */
+	private volatile RefLikeType[] types = new RefLikeType[64];
+	private volatile int typeCount = 0;
+	private final ConcurrentMap<RefLikeType, Integer> typeNumbers = new ConcurrentHashMap<RefLikeType, Integer>();
+
+	/**
+	 * Subtype masks of the types used as bases of added
+	 * <code>AnySubType</code>s or as catchers.
 	 */
-	private final Map<Integer, List> sizeToSets = new HashMap<Integer, List>();
+	private final ConcurrentMap<RefType, Masks> masks = new ConcurrentHashMap<RefType, Masks>();
 
 	/**
 	 * <code>ThrowableSet</code> containing no exception classes.
@@ -158,7 +187,6 @@ public final class ThrowableSet {
 	final RefType INSTANTIATION_ERROR;
 
 	// counts for instrumenting:
-	private int registeredSets = 0;
 	private int addsOfRefType = 0;
 	private int addsOfAnySubType = 0;
 	private int addsOfSet = 0;
@@ -170,7 +198,7 @@ public final class ThrowableSet {
 	private int addsExclusionWithoutSearch = 0;
 	private int removesOfAnySubType = 0;
 	private final int removesFromMap = 0;
-	private final int removesFromMemo = 0;
+	private int removesFromMemo = 0;
 	private int removesFromSearch = 0;
 	private int registrationCalls = 0;
 	private int catchableAsQueries = 0;
@@ -210,7 +238,7 @@ public final class ThrowableSet {
 	    INSTANTIATION_ERROR =
 		Scene.v().getRefType("java.lang.InstantiationError");
 
-	    EMPTY = registerSetIfNew(null, null);
+	    EMPTY = registerSetIfNew(new BitSet(), new BitSet());
 
 	    Set allThrowablesSet = new HashSet();
 	    allThrowablesSet.add(AnySubType.v(Scene.v().getRefType("java.lang.Throwable")));
@@ -276,6 +304,7 @@ public final class ThrowableSet {
 	}
 
 
+
 	/**
 	 * <p>Returns a <code>ThrowableSet</code> representing the set of
 	 * exceptions included in <code>include</code> minus the set
@@ -297,35 +326,109 @@ public final class ThrowableSet {
 	 * <code>exclude</code>.
 	 */
 	private ThrowableSet registerSetIfNew(Set include, Set exclude) {
+	    return registerSetIfNew(toBits(include), toBits(exclude));
+	}
+
+
+	/**
+	 * Returns the <code>ThrowableSet</code> whose included and
+	 * excluded types are the types numbered by the bits set in
+	 * <code>include</code> and <code>exclude</code>, creating it if
+	 * there is none yet. The bitsets must not be modified by the
+	 * caller afterwards.
+	 */
+	private ThrowableSet registerSetIfNew(BitSet include, BitSet exclude) {
 	    if (INSTRUMENTING) {
 		registrationCalls++;
 	    }
-	    if (include == null) {
-		include = Collections.EMPTY_SET;
+	    Key key = new Key(include, exclude);
+	    ThrowableSet result = sets.get(key);
+	    if (result == null) {
+		ThrowableSet newSet = new ThrowableSet(include, exclude);
+		result = sets.putIfAbsent(key, newSet);
+		if (result == null) {
+		    result = newSet;
+		}
 	    }
-	    if (exclude == null) {
-		exclude = Collections.EMPTY_SET;
+	    return result;
+	}
+
+
+	private BitSet toBits(Set types) {
+	    BitSet bits = new BitSet();
+	    if (types != null) {
+		for (Iterator i = types.iterator(); i.hasNext(); ) {
+		    bits.set(number((RefLikeType) i.next()));
+		}
 	    }
-	    int size = include.size() + exclude.size();
-	    Integer sizeKey = new Integer(size);
+	    return bits;
+	}
+
 
-	    List<ThrowableSet> sizeList = sizeToSets.get(sizeKey);
-	    if (sizeList == null) {
-		sizeList = new LinkedList<ThrowableSet>();
-		sizeToSets.put(sizeKey, sizeList);
+	/**
+	 * Returns the number of <code>type</code>, numbering it if it
+	 * has not been seen before.
+	 */
+	private int number(RefLikeType type) {
+	    Integer n = typeNumbers.get(type);
+	    if (n != null) {
+		return n;
 	    }
-	    for (ThrowableSet set : sizeList) {
-		if (set.exceptionsIncluded.equals(include) 
-		    && set.exceptionsExcluded.equals(exclude)) {
-		    return set;
+	    synchronized (this) {
+		n = typeNumbers.get(type);
+		if (n != null) {
+		    return n;
+		}
+		int num = typeCount;
+		if (num == types.length) {
+		    RefLikeType[] newTypes = new RefLikeType[num * 2];
+		    System.arraycopy(types, 0, newTypes, 0, num);
+		    newTypes[num] = type;
+		    types = newTypes;
+		} else {
+		    types[num] = type;
 		}
+		// Publish the type before its number becomes visible.
+		typeCount = num + 1;
+		typeNumbers.put(type, num);
+		return num;
 	    }
-	    if (INSTRUMENTING) {
-		registeredSets++;
+	}
+
+
+	/**
+	 * Returns the type numbered <code>num</code>.
+	 */
+	private RefLikeType type(int num) {
+	    return types[num];
+	}
+
+
+	/**
+	 * Returns the {@link FastHierarchy} the masks and the memoized
+	 * results of the sets are computed with.
+	 */
+	private FastHierarchy hierarchy() {
+	    return Scene.v().hasFastHierarchy() 
+		? Scene.v().getFastHierarchy() 
+		: Scene.v().getOrMakeFastHierarchy();
+	}
+
+
+	/**
+	 * Returns the subtype masks of <code>base</code>, covering all
+	 * types numbered so far. Masks computed for an earlier
+	 * {@link FastHierarchy} are recomputed.
+	 */
+	private Masks masks(RefType base) {
+	    FastHierarchy h = hierarchy();
+	    int count = typeCount;
+	    Masks m = masks.get(base);
+	    if (m == null || m.hierarchy != h || m.size < count) {
+		m = new Masks(m != null && m.hierarchy == h ? m : null, base, h, types, count);
+		masks.put(base, m);
 	    }
-	    ThrowableSet result = new ThrowableSet(include, exclude);
-	    sizeList.add(result);
-	    return result;
+	    return m;
 	}
 
 
@@ -337,13 +440,7 @@ public final class ThrowableSet {
 	 * @return a string listing the counts.
 	 */
 	public String reportInstrumentation() {
-	    int setCount = 0;
-	    for (List sizeList : sizeToSets.values()) {
-		setCount += sizeList.size();
-	    }
-	    if (setCount != registeredSets) {
-		throw new IllegalStateException("ThrowableSet.reportInstrumentation() assertion failure: registeredSets != list count");
-	    }
+	    int setCount = sets.size();
 	    StringBuffer buf = new StringBuffer("registeredSets: ")
 		.append(setCount)
 		.append("\naddsOfRefType: ")
@@ -389,7 +486,93 @@ public final class ThrowableSet {
 	 * to the collection of ThrowableSets.   
 	 */
 	Map<Integer, List> getSizeToSets() {
-	    return Manager.v().sizeToSets;
+	    Map<Integer, List> sizeToSets = new HashMap<Integer, List>();
+	    for (ThrowableSet set : Manager.v().sets.values()) {
+		Integer size = set.included.cardinality() + set.excluded.cardinality();
+		List<ThrowableSet> sizeList = sizeToSets.get(size);
+		if (sizeList == null) {
+		    sizeList = new LinkedList<ThrowableSet>();
+		    sizeToSets.put(size, sizeList);
+		}
+		sizeList.add(set);
+	    }
+	    return sizeToSets;
+	}
+    }
+
+
+    /**
+     * The contents of a <code>ThrowableSet</code>, used as the key of
+     * the table of sets.
+     */
+    private static final class Key {
+	private final BitSet include;
+	private final BitSet exclude;
+	private final int hashCode;
+
+	Key(BitSet include, BitSet exclude) {
+	    this.include = include;
+	    this.exclude = exclude;
+	    this.hashCode = include.hashCode() * 31 + exclude.hashCode();
+	}
+
+	public int hashCode() {
+	    return hashCode;
+	}
+
+	public boolean equals(Object o) {
+	    if (!(o instanceof Key)) {
+		return false;
+	    }
+	    Key k = (Key) o;
+	    return hashCode == k.hashCode && include.equals(k.include) 
+		&& exclude.equals(k.exclude);
+	}
+    }
+
+
+    /**
+     * The subtype relations between a {@link RefType} <code>T</code>
+     * and the types numbered by the {@link Manager}, as bitsets. 
+     * <code>down</code> holds the <code>RefType</code>s which can be
+     * stored in <code>T</code> and the <code>AnySubType</code>s whose
+     * bases can be; <code>up</code> holds the
+     * <code>AnySubType</code>s whose bases <code>T</code> can be stored
+     * in. The masks are immutable and cover the first
+     * <code>size</code> types.
+     */
+    private static final class Masks {
+	final FastHierarchy hierarchy;
+	final int size;
+	final BitSet down;
+	final BitSet up;
+
+	Masks(Masks prev, RefType base, FastHierarchy h, RefLikeType[] types, int size) {
+	    this.hierarchy = h;
+	    this.size = size;
+	    int from = 0;
+	    if (prev != null) {
+		down = (BitSet) prev.down.clone();
+		up = (BitSet) prev.up.clone();
+		from = prev.size;
+	    } else {
+		down = new BitSet();
+		up = new BitSet();
+	    }
+	    for (int i = from; i < size; i++) {
+		RefLikeType t = types[i];
+		if (t instanceof AnySubType) {
+		    RefType b = ((AnySubType) t).getBase();
+		    if (h.canStoreType(b, base)) {
+			down.set(i);
+		    }
+		    if (h.canStoreType(base, b)) {
+			up.set(i);
+		    }
+		} else if (h.canStoreType(t, base)) {
+		    down.set(i);
+		}
+	    }
 	}
     }
 
@@ -402,67 +585,151 @@ public final class ThrowableSet {
 
 
     /**
-     * Set of exception types included within the set.
+     * Numbers of the exception types included within the set.
      */
-    private final Set exceptionsIncluded;
+    private final BitSet included;
 
     /**
-     * Set of exception types which, though members of
-     * exceptionsIncluded, are to be excluded from the types
+     * Numbers of the exception types which, though members of
+     * <code>included</code>, are to be excluded from the types
      * represented by this <code>ThrowableSet</code>.  To simplify
      * the implementation, once a <code>ThrowableSet</code> has
      * any excluded types, the various <code>add()</code> methods of
      * this class must bar additions of subtypes of those
      * excluded types.
      */
-    private final Set exceptionsExcluded;
+    private final BitSet excluded;
+
+    /**
+     * Views of the included and excluded types, created on demand.
+     */
+    private volatile Set<RefLikeType> exceptionsIncluded;
+    private volatile Set<RefLikeType> exceptionsExcluded;
 
     /**
-     * A map from 
-     * ({@link RefLikeType} \\union <code>ThrowableSet</code>) 
-     * to <code>ThrowableSet</code>.  If the mapping (k,v) is in
-     * <code>memoizedAdds</code> and k is a
-     * <code>ThrowableSet</code>, then v is the set that
-     * results from adding all elements in k to <code>this</code>.  If
-     * (k,v) is in <code>memoizedAdds</code> and k is a
-     * {@link RefLikeType}, then v is the set that results from adding
-     * k to <code>this</code>.
+     * RoboVM note: The memoized results of the <code>add()</code> and
+     * {@link #whichCatchableAs(RefType)} operations on this set, created
+     * on demand. Like the {@link Masks} they are computed from, they are
+     * dropped when the {@link FastHierarchy} changes.
      */
-    private Map<Object,ThrowableSet> memoizedAdds;
+    private volatile Memo memo;
+
+
+    /**
+     * Results of operations on a <code>ThrowableSet</code> computed
+     * with <code>hierarchy</code>.
+     */
+    private static final class Memo {
+	final FastHierarchy hierarchy;
+
+	/**
+	 * A map from 
+	 * ({@link RefLikeType} \\union <code>ThrowableSet</code>) 
+	 * to <code>ThrowableSet</code>.  If the mapping (k,v) is in
+	 * <code>adds</code> and k is a
+	 * <code>ThrowableSet</code>, then v is the set that
+	 * results from adding all elements in k to the set.  If
+	 * (k,v) is in <code>adds</code> and k is a
+	 * {@link RefLikeType}, then v is the set that results from adding
+	 * k to the set.
+	 */
+	final ConcurrentMap<Object,ThrowableSet> adds = new ConcurrentHashMap<Object,ThrowableSet>();
+
+	/**
+	 * Results of {@link ThrowableSet#whichCatchableAs(RefType)} by catcher.
+	 */
+	final ConcurrentMap<RefType,Pair> catches = new ConcurrentHashMap<RefType,Pair>();
+
+	Memo(FastHierarchy hierarchy) {
+	    this.hierarchy = hierarchy;
+	}
+    }
 
-    private ThrowableSet getMemoizedAdds(Object key) {
-	if (memoizedAdds == null) {
-	    memoizedAdds = new HashMap();
+
+    /**
+     * Returns the memoized results of this set for the current
+     * {@link FastHierarchy}.
+     */
+    private Memo memo(Manager mgr) {
+	FastHierarchy h = mgr.hierarchy();
+	Memo m = memo;
+	if (m == null || m.hierarchy != h) {
+	    memo = m = new Memo(h);
 	}
-	return memoizedAdds.get(key);
+	return m;
     }
 
 
     /**
      * Constructs a <code>ThrowableSet</code> which contains the
-     * exception types represented in <code>include</code>, except for
+     * exception types numbered in <code>include</code>, except for
      * those which are also in <code>exclude</code>. The constructor
      * is private to ensure that the only way to get a new
      * <code>ThrowableSet</code> is by adding elements to or removing
      * them from an existing set.
      *
-     * @param include The set of {@link RefType} and {@link AnySubType} 
+     * @param include The numbers of the {@link RefType} and {@link AnySubType} 
      *                objects representing the types to be included in the set.
-     * @param exclude The set of {@link AnySubType} 
+     * @param exclude The numbers of the {@link AnySubType} 
      *                objects representing the types to be excluded 
      *                from the set.  
      */
-    private ThrowableSet(Set include, Set exclude) {
-	exceptionsIncluded = Collections.unmodifiableSet(include);
-	exceptionsExcluded = Collections.unmodifiableSet(exclude);
+    private ThrowableSet(BitSet include, BitSet exclude) {
+	included = include;
+	excluded = exclude;
 	// We don't need to clone include and exclude to guarantee
-	// immutability since ThrowableSet(Set,Set) is private to this
+	// immutability since ThrowableSet(BitSet,BitSet) is private to this
 	// class, where it is only called (via
 	// Manager.v().registerSetIfNew()) with arguments which the
 	// callers do not subsequently modify.
     }
 
 
+    private Set<RefLikeType> includedTypes() {
+	Set<RefLikeType> s = exceptionsIncluded;
+	if (s == null) {
+	    exceptionsIncluded = s = toTypes(included);
+	}
+	return s;
+    }
+
+
+    private Set<RefLikeType> excludedTypes() {
+	Set<RefLikeType> s = exceptionsExcluded;
+	if (s == null) {
+	    exceptionsExcluded = s = toTypes(excluded);
+	}
+	return s;
+    }
+
+
+    private static Set<RefLikeType> toTypes(BitSet bits) {
+	if (bits.isEmpty()) {
+	    return Collections.emptySet();
+	}
+	Manager mgr = Manager.v();
+	Set<RefLikeType> s = new LinkedHashSet<RefLikeType>();
+	for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+	    s.add(mgr.type(i));
+	}
+	return Collections.unmodifiableSet(s);
+    }
+
+
+    /**
+     * Returns the base of the first type in <code>excluded</code> 
+     * which is also in <code>mask</code>, or <code>null</code>.
+     */
+    private RefType clashingExclusion(BitSet mask) {
+	for (int i = excluded.nextSetBit(0); i >= 0; i = excluded.nextSetBit(i + 1)) {
+	    if (mask.get(i)) {
+		return ((AnySubType) Manager.v().type(i)).getBase();
+	    }
+	}
+	return null;
+    }
+
+
     /**
      * Returns a <code>ThrowableSet</code> which contains
      * <code>e</code> in addition to the exceptions in
@@ -501,71 +768,53 @@ public final class ThrowableSet {
      */
     public ThrowableSet add(RefType e) 
       throws ThrowableSet.AlreadyHasExclusionsException {
+	Manager mgr = Manager.v();
 	if (INSTRUMENTING) {
-	    Manager.v().addsOfRefType++;
+	    mgr.addsOfRefType++;
 	}
-	if (this.exceptionsIncluded.contains(e)) {
+	if (this.included.get(mgr.number(e))) {
 	    if (INSTRUMENTING) {
-		Manager.v().addsInclusionFromMap++;
-		Manager.v().addsExclusionWithoutSearch++;
+		mgr.addsInclusionFromMap++;
+		mgr.addsExclusionWithoutSearch++;
 	    }
 	    return this; 
-	} else {
-	    ThrowableSet result = getMemoizedAdds(e);
-	    if (result != null) {
-		if (INSTRUMENTING) {
-		    Manager.v().addsInclusionFromMemo++;
-		    Manager.v().addsExclusionWithoutSearch++;
-		}
-		return result;
+	}
+	Memo memo = memo(mgr);
+	ThrowableSet result = memo.adds.get(e);
+	if (result != null) {
+	    if (INSTRUMENTING) {
+		mgr.addsInclusionFromMemo++;
+		mgr.addsExclusionWithoutSearch++;
+	    }
+	    return result;
+	}
+	if (INSTRUMENTING) {
+	    mgr.addsInclusionFromSearch++;
+	    if (!excluded.isEmpty()) {
+		mgr.addsExclusionWithSearch++;
 	    } else {
-		if (INSTRUMENTING) {
-		    Manager.v().addsInclusionFromSearch++;
-		    if (exceptionsExcluded.size() != 0) {
-			Manager.v().addsExclusionWithSearch++;
-		    } else {
-			Manager.v().addsExclusionWithoutSearch++;
-		    }
-		}
-		FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
-
-		for (Iterator i = exceptionsExcluded.iterator(); i.hasNext(); ) {
-		    RefType exclusionBase = ((AnySubType) i.next()).getBase();
-		    if (hierarchy.canStoreType(e, exclusionBase)) {
-			throw new AlreadyHasExclusionsException(
-			    "ThrowableSet.add(RefType): adding" + e.toString() 
-			    + " to the set [ " + this.toString()
-			    + "] where " + exclusionBase.toString() 
-			    + " is excluded.");
-		    }
-		}
-
-		for (Iterator i = exceptionsIncluded.iterator(); i.hasNext() ; ) {
-		    RefLikeType incumbent = (RefLikeType) i.next();
-		    if (incumbent instanceof AnySubType) {
-			// Need to use incumbent.getBase() because
-			// hierarchy.canStoreType() assumes that parent
-			// is not an AnySubType.
-			RefType incumbentBase = ((AnySubType) incumbent).getBase();
-			if (hierarchy.canStoreType(e, incumbentBase)) {
-			    memoizedAdds.put(e, this);
-			    return this;
-			}
-		    } else if (! (incumbent instanceof RefType)) {
-			// assertion failure.
-			throw new IllegalStateException("ThrowableSet.add(RefType): Set element " +
-							incumbent.toString() +
-							" is neither a RefType nor an AnySubType.");
-		    }
-		}
-		Set  resultSet = new HashSet(this.exceptionsIncluded);
-		resultSet.add(e);
-		result = Manager.v().registerSetIfNew(resultSet, 
-						      this.exceptionsExcluded);
-		memoizedAdds.put(e, result);
-		return result;
+		mgr.addsExclusionWithoutSearch++;
 	    }
 	}
+	Masks m = mgr.masks(e);
+	RefType exclusionBase = clashingExclusion(m.up);
+	if (exclusionBase != null) {
+	    throw new AlreadyHasExclusionsException(
+		"ThrowableSet.add(RefType): adding" + e.toString() 
+		+ " to the set [ " + this.toString()
+		+ "] where " + exclusionBase.toString() 
+		+ " is excluded.");
+	}
+	if (included.intersects(m.up)) {
+	    // e is a subtype of the base of some AnySubType in this set.
+	    result = this;
+	} else {
+	    BitSet resultSet = (BitSet) this.included.clone();
+	    resultSet.set(mgr.number(e));
+	    result = mgr.registerSetIfNew(resultSet, this.excluded);
+	}
+	memo.adds.put(e, result);
+	return result;
     }
 
 
@@ -612,103 +861,76 @@ public final class ThrowableSet {
      */
     public ThrowableSet add(AnySubType e) 
       throws ThrowableSet.AlreadyHasExclusionsException {
+	Manager mgr = Manager.v();
 	if (INSTRUMENTING) {
-	    Manager.v().addsOfAnySubType++;
+	    mgr.addsOfAnySubType++;
 	}
 
-	ThrowableSet result = getMemoizedAdds(e);
+	Memo memo = memo(mgr);
+	ThrowableSet result = memo.adds.get(e);
 	if (result != null) {
 	    if (INSTRUMENTING) {
-		Manager.v().addsInclusionFromMemo++;
-		Manager.v().addsExclusionWithoutSearch++;
+		mgr.addsInclusionFromMemo++;
+		mgr.addsExclusionWithoutSearch++;
 	    }
 	    return result;
-	} else {
-	    FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
-	    RefType newBase = e.getBase(); 
+	}
+	RefType newBase = e.getBase(); 
+	Masks m = mgr.masks(newBase);
 
-	    if (INSTRUMENTING) {
-		if (exceptionsExcluded.size() != 0) {
-		    Manager.v().addsExclusionWithSearch++;
-		} else {
-		    Manager.v().addsExclusionWithoutSearch++;
-		}
-	    }
-	    for (Iterator i = exceptionsExcluded.iterator(); i.hasNext(); ) {
-		RefType exclusionBase = ((AnySubType) i.next()).getBase();
-		if (hierarchy.canStoreType(newBase, exclusionBase)
-		    || hierarchy.canStoreType(exclusionBase, newBase)) {
-		    if (INSTRUMENTING) {
-			// To ensure that the subcategories total properly:
-			Manager.v().addsInclusionInterrupted++;
-		    }
-		    throw new AlreadyHasExclusionsException(
-			"ThrowableSet.add(" + e.toString() 
-			+ ") to the set [ " + this.toString()
-			+ "] where " + exclusionBase.toString() 
-			+ " is excluded.");
-		}
+	if (INSTRUMENTING) {
+	    if (!excluded.isEmpty()) {
+		mgr.addsExclusionWithSearch++;
+	    } else {
+		mgr.addsExclusionWithoutSearch++;
 	    }
-
-	    if (this.exceptionsIncluded.contains(e)) {
+	}
+	if (!excluded.isEmpty()) {
+	    BitSet related = (BitSet) m.down.clone();
+	    related.or(m.up);
+	    RefType exclusionBase = clashingExclusion(related);
+	    if (exclusionBase != null) {
 		if (INSTRUMENTING) {
-		    Manager.v().addsInclusionFromMap++;
+		    // To ensure that the subcategories total properly:
+		    mgr.addsInclusionInterrupted++;
 		}
-		return this; 
+		throw new AlreadyHasExclusionsException(
+		    "ThrowableSet.add(" + e.toString()
+		    + ") to the set [ " + this.toString()
+		    + "] where " + exclusionBase.toString() 
+		    + " is excluded.");
+	    }
+	}
 
-	    } else {
-		if (INSTRUMENTING) {
-		    Manager.v().addsInclusionFromSearch++;
-		}
+	int n = mgr.number(e);
+	if (this.included.get(n)) {
+	    if (INSTRUMENTING) {
+		mgr.addsInclusionFromMap++;
+	    }
+	    return this;
+	}
+	if (INSTRUMENTING) {
+	    mgr.addsInclusionFromSearch++;
+	}
 
-		int changes = 0;
-		boolean addNewException = true;
-		Set  resultSet = new HashSet();
-
-		for (Iterator i = this.exceptionsIncluded.iterator(); i.hasNext() ; ) {
-		    RefLikeType incumbent = (RefLikeType) i.next();
-		    if (incumbent instanceof RefType) {
-			if (hierarchy.canStoreType(incumbent, newBase)) {
-			    // Omit incumbent from result.
-			    changes++;
-			} else {
-			    resultSet.add(incumbent);
-			}
-		    } else if (incumbent instanceof AnySubType) {
-			RefType incumbentBase = ((AnySubType) incumbent).getBase();
-			// We have to use the base types in these hierarchy calls
-			// because we want to know if _all_ possible
-			// types represented by e can be represented by
-			// the incumbent, or vice versa.
-			if (hierarchy.canStoreType(newBase, incumbentBase)) {
-			    addNewException = false;
-			    resultSet.add(incumbent);
-			} else if (hierarchy.canStoreType(incumbentBase, newBase)) {
-			    // Omit incumbent from result;
-			    changes++;
-			} else {
-			    resultSet.add(incumbent);
-			}
-		    } else { // assertion failure.
-			throw new IllegalStateException("ThrowableSet.add(AnySubType): Set element " +
-							incumbent.toString() + 
-							" is neither a RefType nor an AnySubType.");
-		    }
-		}
-		if (addNewException) {
-		    resultSet.add(e);
-		    changes++;
-		}
-		if (changes > 0) {
-		    result = Manager.v().registerSetIfNew(resultSet, 
-							  this.exceptionsExcluded);
-		} else {
-		    result = this;
-		}
-		memoizedAdds.put(e, result);
-		return result;
+	// Types in this set which are covered by e are dropped, unless
+	// e itself is covered by an AnySubType already in the set.
+	boolean addNewException = !included.intersects(m.up);
+	BitSet omitted = (BitSet) included.clone();
+	omitted.and(m.down);
+	omitted.andNot(m.up);
+	if (addNewException || !omitted.isEmpty()) {
+	    BitSet resultSet = (BitSet) included.clone();
+	    resultSet.andNot(omitted);
+	    if (addNewException) {
+		resultSet.set(n);
 	    }
+	    result = mgr.registerSetIfNew(resultSet, this.excluded);
+	} else {
+	    result = this;
 	}
+	memo.adds.put(e, result);
+	return result;
     }
 
 
@@ -729,23 +951,25 @@ public final class ThrowableSet {
      */
     public ThrowableSet add(ThrowableSet s)
       throws ThrowableSet.AlreadyHasExclusionsException {
+	Manager mgr = Manager.v();
 	if (INSTRUMENTING) {
-	    Manager.v().addsOfSet++;
+	    mgr.addsOfSet++;
 	}
-	if (exceptionsExcluded.size() > 0 || s.exceptionsExcluded.size() > 0) {
+	if (!excluded.isEmpty() || !s.excluded.isEmpty()) {
 	    throw new AlreadyHasExclusionsException("ThrowableSet.Add(ThrowableSet): attempt to add to [" + this.toString() + "] after removals recorded.");
 	}
-	ThrowableSet result = getMemoizedAdds(s);
+	Memo memo = memo(mgr);
+	ThrowableSet result = memo.adds.get(s);
 	if (result == null) {
 	    if (INSTRUMENTING) {
-		Manager.v().addsInclusionFromSearch++;
-		Manager.v().addsExclusionWithoutSearch++;
+		mgr.addsInclusionFromSearch++;
+		mgr.addsExclusionWithoutSearch++;
 	    }
-	    result = this.add(s.exceptionsIncluded);
-	    memoizedAdds.put(s, result);
+	    result = this.add(s.included);
+	    memo.adds.put(s, result);
 	} else if (INSTRUMENTING) {
-	    Manager.v().addsInclusionFromMemo++;
-	    Manager.v().addsExclusionWithoutSearch++;
+	    mgr.addsInclusionFromMemo++;
+	    mgr.addsExclusionWithoutSearch++;
 	}
 	return result;
     }
@@ -753,94 +977,46 @@ public final class ThrowableSet {
 
     /**
      * Returns a <code>ThrowableSet</code> which contains all
-     * the exceptions in <code>addedExceptions</code> in addition to those
-     * in this <code>ThrowableSet</code>. 
+     * the exceptions numbered in <code>addedExceptions</code> in addition
+     * to those in this <code>ThrowableSet</code>. 
      *
-     * @param addedExceptions a set of {@link RefLikeType} and 
+     * @param addedExceptions the numbers of the {@link RefType} and 
      * {@link AnySubType} objects to be added to the types included in this
      * <code>ThrowableSet</code>.
      *
      * @return a set containing all the <code>addedExceptions</code> as well
      * as the exceptions in this set.
      */
-    private ThrowableSet add(Set addedExceptions) {
-	Set resultSet = new HashSet(this.exceptionsIncluded);
+    private ThrowableSet add(BitSet addedExceptions) {
+	Manager mgr = Manager.v();
+	BitSet resultSet = (BitSet) this.included.clone();
 	int changes = 0;
-	FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
-
-	// This algorithm is O(n m), where n and m are the sizes of the
-	// two sets, so hope that the sets are small.
-
-	for (Iterator i = addedExceptions.iterator(); i.hasNext(); ) {
-	    RefLikeType newType = (RefLikeType) i.next();
-	    if (! resultSet.contains(newType)) {
-		boolean addNewType = true;
-		if (newType instanceof RefType) {
-		    for (Iterator j = resultSet.iterator(); j.hasNext(); ) {
-			RefLikeType incumbentType = (RefLikeType) j.next();
-			if (incumbentType instanceof RefType) {
-			    if (newType == incumbentType) {
-				// assertion failure.
-				throw new IllegalStateException("ThrowableSet.add(Set): resultSet.contains() failed to screen duplicate RefType "
-								+ newType);
-			    }
-			} else if (incumbentType instanceof AnySubType) {
-			    RefType incumbentBase = ((AnySubType) incumbentType).getBase();
-			    if (hierarchy.canStoreType(newType, incumbentBase)) {
-				// No need to add this class.
-				addNewType = false;
-			    }
-			} else { // assertion failure.
-			    throw new IllegalStateException("ThrowableSet.add(Set): incumbent Set element " 
-							    + incumbentType 
-							    + " is neither a RefType nor an AnySubType.");
-			}
-		    }
-		} else if (newType instanceof AnySubType) {
-		    RefType newBase = ((AnySubType) newType).getBase();
-		    for (Iterator j = resultSet.iterator(); j.hasNext(); ) {
-			RefLikeType incumbentType = (RefLikeType) j.next();
-			if (incumbentType instanceof RefType) {
-			    RefType incumbentBase = (RefType) incumbentType;
-			    if (hierarchy.canStoreType(incumbentBase, newBase)) {
-				j.remove();
-				changes++;
-			    }
-			} else if (incumbentType instanceof AnySubType) {
-			    RefType incumbentBase = ((AnySubType) incumbentType).getBase();
-			    if (newBase == incumbentBase) {
-				// assertion failure.
-				throw new IllegalStateException("ThrowableSet.add(Set): resultSet.contains() failed to screen duplicate AnySubType "
-							   + newBase);
-			    } else if (hierarchy.canStoreType(incumbentBase, newBase)) {
-				j.remove();
-				changes++;
-			    } else if (hierarchy.canStoreType(newBase, incumbentBase)) {
-				// No need to add this class.
-				addNewType = false;
-			    }
-			} else { // assertion failure.
-			    throw new IllegalStateException("ThrowableSet.add(Set): old Set element "
-						       + incumbentType
-						       + " is neither a RefType nor an AnySubType.");
-			}
-		    }
-		} else { // assertion failure.
-		    throw new IllegalArgumentException("ThrowableSet.add(Set): new Set element " 
-						       + newType
-						       + " is neither a RefType nor an AnySubType.");
+
+	for (int i = addedExceptions.nextSetBit(0); i >= 0; 
+	     i = addedExceptions.nextSetBit(i + 1)) {
+	    if (! resultSet.get(i)) {
+		RefLikeType newType = mgr.type(i);
+		Masks m;
+		if (newType instanceof AnySubType) {
+		    m = mgr.masks(((AnySubType) newType).getBase());
+		    // Remove the incumbents covered by newType.
+		    BitSet omitted = (BitSet) resultSet.clone();
+		    omitted.and(m.down);
+		    changes += omitted.cardinality();
+		    resultSet.andNot(omitted);
+		} else {
+		    m = mgr.masks((RefType) newType);
 		}
-		if (addNewType) {
+		if (! resultSet.intersects(m.up)) {
 		    changes++;
-		    resultSet.add(newType);
+		    resultSet.set(i);
 		}
 	    }
 	}
 			    
 	ThrowableSet result = null;
 	if (changes > 0) {
-	    result = Manager.v().registerSetIfNew(resultSet, 
-						  this.exceptionsExcluded);
+	    result = mgr.registerSetIfNew(resultSet, this.excluded);
 	} else {
 	    result = this;
 	}
@@ -860,61 +1036,28 @@ public final class ThrowableSet {
      *                           false if it does not.
      */
     public boolean catchableAs(RefType catcher) {
+	Manager mgr = Manager.v();
 	if (INSTRUMENTING) {
-	    Manager.v().catchableAsQueries++;
+	    mgr.catchableAsQueries++;
 	}
 
-	FastHierarchy h = Scene.v().getOrMakeFastHierarchy();
+	Masks m = mgr.masks(catcher);
 
-	if (exceptionsExcluded.size() > 0) {
+	if (!excluded.isEmpty()) {
 	    if (INSTRUMENTING) {
-		Manager.v().catchableAsFromSearch++;
+		mgr.catchableAsFromSearch++;
 	    }
-	    for (Iterator i = exceptionsExcluded.iterator(); i.hasNext(); ) {
-		AnySubType exclusion = (AnySubType) i.next();
-		if (h.canStoreType(catcher, exclusion.getBase())) {
-		    return false;
-		}
+	    if (excluded.intersects(m.up)) {
+		return false;
 	    }
+	} else if (INSTRUMENTING) {
+	    mgr.catchableAsFromMap++;
 	}
 
-	if (exceptionsIncluded.contains(catcher)) {
-	    if (INSTRUMENTING) {
-		if (exceptionsExcluded.size() == 0) {
-		    Manager.v().catchableAsFromMap++;
-		} else {
-		    Manager.v().catchableAsFromSearch++;
-		}
-	    }
-	    return true;
-	} else {
-	    if (INSTRUMENTING) {
-		if (exceptionsExcluded.size() == 0) {
-		    Manager.v().catchableAsFromSearch++;
-		}
-	    }
-	    for (Iterator i = exceptionsIncluded.iterator(); i.hasNext(); ) {
-		RefLikeType thrownType = (RefLikeType) i.next();
-		if (thrownType instanceof RefType) {
-		    if (thrownType == catcher) {
-			// assertion failure.
-			throw new IllegalStateException("ThrowableSet.catchableAs(RefType): exceptions.contains() failed to match contained RefType "
-							   + catcher);
-		    } else if (h.canStoreType(thrownType, catcher)) {
-			return true;
-		    }
-		} else {
-		    RefType thrownBase = ((AnySubType) thrownType).getBase();
-		    // At runtime, thrownType might be instantiated by any
-		    // of thrownBase's subtypes, so:
-		    if (h.canStoreType(thrownBase, catcher)
-			|| h.canStoreType(catcher, thrownBase)) {
-			return true;
-		    }
-		}
-	    }
-	    return false;
-	}
+	// A RefType is caught if it can be stored in catcher, an
+	// AnySubType if its base can be stored in catcher or catcher 
+	// in its base.
+	return included.intersects(m.down) || included.intersects(m.up);
     }
 
 
@@ -932,82 +1075,55 @@ public final class ThrowableSet {
      *         not be caught as <code>catcher</code>.
      */
     public Pair whichCatchableAs(RefType catcher) {
+	Manager mgr = Manager.v();
 	if (INSTRUMENTING) {
-	    Manager.v().removesOfAnySubType++;
-	}
-
-	FastHierarchy h = Scene.v().getOrMakeFastHierarchy();
-	Set caughtIncluded = null;
-	Set caughtExcluded = null;
-	Set uncaughtIncluded = null;
-	Set uncaughtExcluded = null;
-
-	if (INSTRUMENTING) {
-	    Manager.v().removesFromSearch++;
+	    mgr.removesOfAnySubType++;
 	}
 
-	for (Iterator i = exceptionsExcluded.iterator(); i.hasNext(); ) {
-	    AnySubType exclusion = (AnySubType) i.next();
-	    RefType exclusionBase = exclusion.getBase();
-	    if (h.canStoreType(catcher, exclusionBase)) {
-		// Because the add() operations ban additions to sets
-		// with exclusions, we can be sure no types in this are
-		// caught by catcher.
-		return new Pair(ThrowableSet.Manager.v().EMPTY, this);
-	    } else if (h.canStoreType(exclusionBase, catcher)) {
-		// exclusion wouldn't be in exceptionsExcluded if one
-		// of its supertypes were not in exceptionsIncluded,
-		// so we know the next loop will add either that supertype 
-		// or catcher to caughtIncluded.  Thus:
-		caughtExcluded = addExceptionToSet(exclusion, caughtExcluded);
-	    } else {
-		uncaughtExcluded = addExceptionToSet(exclusion, uncaughtExcluded);
+	Memo memo = memo(mgr);
+	Pair result = memo.catches.get(catcher);
+	if (result != null) {
+	    if (INSTRUMENTING) {
+		mgr.removesFromMemo++;
 	    }
+	    return result;
+	}
+	if (INSTRUMENTING) {
+	    mgr.removesFromSearch++;
 	}
 
-	for (Iterator i = exceptionsIncluded.iterator(); i.hasNext(); ) {
-	    RefLikeType inclusion = (RefLikeType) i.next();
-	    if (inclusion instanceof RefType) {
-		if (h.canStoreType(inclusion, catcher)) {
-		    caughtIncluded = addExceptionToSet(inclusion, caughtIncluded);
-		} else {
-		    uncaughtIncluded = addExceptionToSet(inclusion, uncaughtIncluded);
-		}
-	    } else {
-		RefType base = ((AnySubType) inclusion).getBase();
-		if (h.canStoreType(base, catcher)) {
-		    // All subtypes of base will be caught.  Any exclusions
-		    // will already have been copied to caughtExcluded by
-		    // the preceding loop.
-		    caughtIncluded = 
-			addExceptionToSet(inclusion, caughtIncluded);
-		} else if (h.canStoreType(catcher, base)) {
-		    // Some subtypes of base will be caught, and
-		    // we know that not all of those catchable subtypes
-		    // are among exceptionsExcluded, since in that case we
-		    // would already have returned from within the 
-		    // preceding loop.  So, remove AnySubType(catcher)
-		    // from the uncaught types.
-		    uncaughtIncluded 
-			= addExceptionToSet(inclusion, uncaughtIncluded);
-		    uncaughtExcluded 
-			= addExceptionToSet(AnySubType.v(catcher), uncaughtExcluded);
-		    caughtIncluded 
-			= addExceptionToSet(AnySubType.v(catcher), caughtIncluded);
-		    // Any already excluded subtypes of inclusion
-		    // which are subtypes of catcher will have been
-		    // added to caughtExcluded by the previous loop.
-		} else {
-		    uncaughtIncluded 
-			= addExceptionToSet(inclusion, uncaughtIncluded);
-		}
+	Masks m = mgr.masks(catcher);
+	if (excluded.intersects(m.up)) {
+	    // Because the add() operations ban additions to sets
+	    // with exclusions, we can be sure no types in this are
+	    // caught by catcher.
+	    result = new Pair(mgr.EMPTY, this);
+	} else {
+	    BitSet caughtIncluded = (BitSet) included.clone();
+	    caughtIncluded.and(m.down);
+	    BitSet uncaughtIncluded = (BitSet) included.clone();
+	    uncaughtIncluded.andNot(m.down);
+	    BitSet caughtExcluded = (BitSet) excluded.clone();
+	    caughtExcluded.and(m.down);
+	    BitSet uncaughtExcluded = (BitSet) excluded.clone();
+	    uncaughtExcluded.andNot(m.down);
+
+	    // Some subtypes of the AnySubTypes whose bases are
+	    // supertypes of catcher will be caught, so remove
+	    // AnySubType(catcher) from the uncaught types.
+	    BitSet partlyCaught = (BitSet) included.clone();
+	    partlyCaught.and(m.up);
+	    partlyCaught.andNot(m.down);
+	    if (!partlyCaught.isEmpty()) {
+		int n = mgr.number(AnySubType.v(catcher));
+		uncaughtExcluded.set(n);
+		caughtIncluded.set(n);
 	    }
+	    result = new Pair(mgr.registerSetIfNew(caughtIncluded, caughtExcluded),
+			      mgr.registerSetIfNew(uncaughtIncluded, uncaughtExcluded));
 	}
-	ThrowableSet caughtSet 
-	    = Manager.v().registerSetIfNew(caughtIncluded, caughtExcluded);
-	ThrowableSet uncaughtSet 
-	    = Manager.v().registerSetIfNew(uncaughtIncluded, uncaughtExcluded);
-	return new Pair(caughtSet, uncaughtSet);
+	memo.catches.put(catcher, result);
+	return result;
     }
 
 
@@ -1086,41 +1202,19 @@ public final class ThrowableSet {
     }
 
 
-    /**
-     * Utility method for building sets of exceptional types for a
-     * {@link Pair}.
-     *
-     * @param e The exceptional type to add to the set.
-     *
-     * @param set The <code>Set</code> to which to add the types, or 
-     *            <code>null</code> if no <code>Set</code> has yet been
-     *            allocated.
-     *
-     * @return A <code>Set</code> containing the elements in <code>set</code>
-     *         plus <code>e</code>.
-     */
-    private Set addExceptionToSet(RefLikeType e, Set set) {
-	if (set == null) {
-	    set = new HashSet();
-	}
-	set.add(e);
-	return set;
-    }
-
-
     /**
      * Returns a string representation of this <code>ThrowableSet</code>.
      */
     public String toString() {
 	StringBuffer buffer = new StringBuffer(this.toBriefString());
 	buffer.append(":\n  ");
-	for (Iterator i = exceptionsIncluded.iterator(); i.hasNext(); ) {
+	for (Iterator i = includedTypes().iterator(); i.hasNext(); ) {
 	    buffer.append('+');
 	    Object o = i.next();
 	    buffer.append(o == null ? "null" : o.toString());
 	    // buffer.append(i.next().toString());
 	}
-	for (Iterator i = exceptionsExcluded.iterator(); i.hasNext(); ) {
+	for (Iterator i = excludedTypes().iterator(); i.hasNext(); ) {
 	    buffer.append('-');
 	    buffer.append(i.next().toString());
 	}
@@ -1228,8 +1322,8 @@ public final class ThrowableSet {
      * @return An abbreviated representation of the contents of this set.
      */
     public String toAbbreviatedString() {
-	return toAbbreviatedString(exceptionsIncluded, '+') 
-	    + toAbbreviatedString(exceptionsExcluded, '-');
+	return toAbbreviatedString(includedTypes(), '+') 
+	    + toAbbreviatedString(excludedTypes(), '-');
     }
 
 
@@ -1249,7 +1343,7 @@ public final class ThrowableSet {
 	final String EXCEPTION = "Exception";
 	final  int EXCEPTION_LENGTH = EXCEPTION.length();
 
-	Collection vmErrorThrowables = ThrowableSet.Manager.v().VM_ERRORS.exceptionsIncluded;
+	Collection vmErrorThrowables = ThrowableSet.Manager.v().VM_ERRORS.includedTypes();
 	boolean containsAllVmErrors = s.containsAll(vmErrorThrowables);
 	StringBuffer buf = new StringBuffer();
 
@@ -1303,7 +1397,7 @@ public final class ThrowableSet {
 
 	    public Iterator iterator() {
 		return new Iterator() {
-		    private final Iterator i = exceptionsIncluded.iterator();
+		    private final Iterator i = includedTypes().iterator();
 
 		    public boolean hasNext() {
 			return i.hasNext();
@@ -1320,7 +1414,7 @@ public final class ThrowableSet {
 	    }
 
 	    public int size() {
-		return exceptionsIncluded.size();
+		return includedTypes().size();
 	    }
 	};
     }
@@ -1339,7 +1433,7 @@ public final class ThrowableSet {
 
 	    public Iterator iterator() {
 		return new Iterator() {
-		    private final Iterator i = exceptionsExcluded.iterator();
+		    private final Iterator i = excludedTypes().iterator();
 
 		    public boolean hasNext() {
 			return i.hasNext();
@@ -1356,7 +1450,7 @@ public final class ThrowableSet {
 	    }
 
 	    public int size() {
-		return exceptionsExcluded.size();
+		return excludedTypes().size();
 	    }
 	};
     }
@@ -1367,10 +1461,6 @@ public final class ThrowableSet {
      * ThrowableSet's internals.
      */
     Map getMemoizedAdds() {
-	if (memoizedAdds == null) {
-	    return Collections.EMPTY_MAP;
-	} else {
-	    return Collections.unmodifiableMap(memoizedAdds);
-	}
+	return Collections.unmodifiableMap(memo(Manager.v()).adds);
     }
 }
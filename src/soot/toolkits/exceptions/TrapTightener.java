@@ -61,7 +61,8 @@ public final class TrapTightener extends BodyTransformer {
 	Chain trapChain = body.getTraps();
 	Chain unitChain = body.getUnits();
 	if (trapChain.size() > 0) {
-	    ExceptionalUnitGraph graph = new ExceptionalUnitGraph(body);
+	    // RoboVM note: Use the cached graph of the body
+	    ExceptionalUnitGraph graph = body.getAnalysisCache().getExceptionalUnitGraph();
 
 	    for (Iterator trapIt = trapChain.iterator(); trapIt.hasNext(); ) {
 		Trap trap = (Trap) trapIt.next();
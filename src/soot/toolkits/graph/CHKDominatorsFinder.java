@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.toolkits.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Added in RoboVM. Dominators finder for multi-headed graphs using the
+ * iterative algorithm by Cooper, Harvey and Kennedy (<i>A Simple, Fast
+ * Dominance Algorithm</i>). Only the immediate dominator of each node is
+ * computed. The analysis runs over arrays indexed by node number in near
+ * linear time, instead of the quadratic set intersections of
+ * {@link MHGDominatorsFinder}, and returns the same results:
+ * <ul>
+ * <li>Heads are dominated only by themselves.</li>
+ * <li>Nodes reachable from more than one head are dominated by the nodes
+ * common to all of their paths from the heads.</li>
+ * <li>Nodes which can't be reached from any head are dominated by all
+ * nodes.</li>
+ * </ul>
+ * Dominator lists are ordered like those returned by
+ * {@link MHGDominatorsFinder}.
+ */
+public class CHKDominatorsFinder<N> implements DominatorsFinder<N>
+{
+    private static final int UNREACHABLE = -1;
+
+    protected DirectedGraph<N> graph;
+    private final Map<N, Integer> nodeToIndex;
+    private final List<N> indexToNode;
+    /** Number of nodes. The virtual root above all heads has this index. */
+    private final int root;
+    private final boolean[] isHead;
+    /** Immediate dominator of each node, root for heads. */
+    private final int[] idom;
+    /** Pre- and post-order numbers in the dominator tree. */
+    private final int[] treePre;
+    private final int[] treePost;
+
+    public CHKDominatorsFinder(DirectedGraph<N> graph)
+    {
+        this.graph = graph;
+
+        // Number heads first, then the other nodes, both in iteration
+        // order, like MHGDominatorsFinder does
+        Set<N> heads = new HashSet<N>(graph.getHeads());
+        int size = graph.size();
+        nodeToIndex = new HashMap<N, Integer>(size * 2 + 1, 0.7f);
+        indexToNode = new ArrayList<N>(size);
+        for (N n : graph) {
+            if (heads.contains(n))
+                number(n);
+        }
+        int headCount = indexToNode.size();
+        for (N n : graph) {
+            if (!heads.contains(n))
+                number(n);
+        }
+        root = indexToNode.size();
+        isHead = new boolean[root];
+        Arrays.fill(isHead, 0, headCount, true);
+
+        int[][] preds = new int[root][];
+        int[][] succs = new int[root + 1][];
+        for (int i = 0; i < root; i++) {
+            N n = indexToNode.get(i);
+            preds[i] = toIndices(graph.getPredsOf(n));
+            succs[i] = toIndices(graph.getSuccsOf(n));
+        }
+        succs[root] = new int[headCount];
+        for (int i = 0; i < headCount; i++)
+            succs[root][i] = i;
+
+        int[] postOrder = new int[root + 1];
+        int[] rpo = postOrder(succs, postOrder);
+
+        idom = new int[root + 1];
+        Arrays.fill(idom, UNREACHABLE);
+        idom[root] = root;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // rpo[0] is the root
+            for (int k = 1; k < rpo.length; k++) {
+                int b = rpo[k];
+                int newIdom;
+                if (isHead[b]) {
+                    // Edges into heads are ignored
+                    newIdom = root;
+                } else {
+                    newIdom = UNREACHABLE;
+                    for (int p : preds[b]) {
+                        if (idom[p] == UNREACHABLE)
+                            continue;
+                        newIdom = newIdom == UNREACHABLE ? p : intersect(p, newIdom, postOrder);
+                    }
+                }
+                if (idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        treePre = new int[root + 1];
+        treePost = new int[root + 1];
+        numberTree();
+    }
+
+    private void number(N n)
+    {
+        if (!nodeToIndex.containsKey(n)) {
+            nodeToIndex.put(n, indexToNode.size());
+            indexToNode.add(n);
+        }
+    }
+
+    private int[] toIndices(List<N> nodes)
+    {
+        int[] result = new int[nodes.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = nodeToIndex.get(nodes.get(i));
+        return result;
+    }
+
+    /**
+     * Depth first search from the virtual root. Fills in the post-order
+     * number of each reachable node and returns the reachable nodes in
+     * reverse post-order.
+     */
+    private int[] postOrder(int[][] succs, int[] postOrder)
+    {
+        int count = root + 1;
+        Arrays.fill(postOrder, UNREACHABLE);
+        boolean[] visited = new boolean[count];
+        int[] stack = new int[count];
+        int[] next = new int[count];
+        int[] order = new int[count];
+        int po = 0;
+        int sp = 0;
+        stack[sp++] = root;
+        visited[root] = true;
+        while (sp > 0) {
+            int n = stack[sp - 1];
+            if (next[n] < succs[n].length) {
+                int s = succs[n][next[n]++];
+                if (!visited[s]) {
+                    visited[s] = true;
+                    stack[sp++] = s;
+                }
+            } else {
+                sp--;
+                postOrder[n] = po;
+                order[po++] = n;
+            }
+        }
+        int[] rpo = new int[po];
+        for (int i = 0; i < po; i++)
+            rpo[i] = order[po - 1 - i];
+        return rpo;
+    }
+
+    private int intersect(int a, int b, int[] postOrder)
+    {
+        while (a != b) {
+            while (postOrder[a] < postOrder[b])
+                a = idom[a];
+            while (postOrder[b] < postOrder[a])
+                b = idom[b];
+        }
+        return a;
+    }
+
+    /**
+     * Numbers the dominator tree in pre- and post-order so that dominance
+     * checks take constant time.
+     */
+    private void numberTree()
+    {
+        int count = root + 1;
+        int[] childCount = new int[count + 1];
+        for (int i = 0; i < root; i++) {
+            if (idom[i] != UNREACHABLE)
+                childCount[idom[i] + 1]++;
+        }
+        // childStart[n] .. childStart[n + 1] index into children
+        int[] childStart = childCount;
+        for (int i = 1; i <= count; i++)
+            childStart[i] += childStart[i - 1];
+        int[] children = new int[childStart[count]];
+        int[] fill = new int[count];
+        for (int i = 0; i < root; i++) {
+            if (idom[i] != UNREACHABLE) {
+                int p = idom[i];
+                children[childStart[p] + fill[p]++] = i;
+            }
+        }
+
+        Arrays.fill(treePre, UNREACHABLE);
+        Arrays.fill(treePost, UNREACHABLE);
+        int[] stack = new int[count];
+        int[] next = new int[count];
+        int pre = 0;
+        int post = 0;
+        int sp = 0;
+        stack[sp++] = root;
+        treePre[root] = pre++;
+        while (sp > 0) {
+            int n = stack[sp - 1];
+            if (childStart[n] + next[n] < childStart[n + 1]) {
+                int c = children[childStart[n] + next[n]++];
+                treePre[c] = pre++;
+                stack[sp++] = c;
+            } else {
+                sp--;
+                treePost[n] = post++;
+            }
+        }
+    }
+
+    private boolean isReachable(int i)
+    {
+        return idom[i] != UNREACHABLE;
+    }
+
+    public DirectedGraph<N> getGraph()
+    {
+        return graph;
+    }
+
+    public List<N> getDominators(N node)
+    {
+        int i = nodeToIndex.get(node);
+        if (!isReachable(i))
+            return new ArrayList<N>(indexToNode);
+
+        int depth = 0;
+        for (int d = i; d != root; d = idom[d])
+            depth++;
+        int[] doms = new int[depth];
+        depth = 0;
+        for (int d = i; d != root; d = idom[d])
+            doms[depth++] = d;
+        Arrays.sort(doms);
+        List<N> result = new ArrayList<N>(doms.length);
+        for (int d : doms)
+            result.add(indexToNode.get(d));
+        return result;
+    }
+
+    public N getImmediateDominator(N node)
+    {
+        int i = nodeToIndex.get(node);
+        if (isHead[i])
+            return null;
+        if (!isReachable(i)) {
+            // All nodes dominate unreachable nodes. Pick the first other
+            // unreachable node like MHGDominatorsFinder does.
+            for (int j = 0; j < root; j++) {
+                if (j != i && !isReachable(j))
+                    return indexToNode.get(j);
+            }
+            return null;
+        }
+        int d = idom[i];
+        return d == root ? null : indexToNode.get(d);
+    }
+
+    public boolean isDominatedBy(N node, N dominator)
+    {
+        int i = nodeToIndex.get(node);
+        Integer j = nodeToIndex.get(dominator);
+        if (j == null)
+            return false;
+        if (!isReachable(i))
+            return true;
+        if (!isReachable(j))
+            return false;
+        return treePre[j] <= treePre[i] && treePost[i] <= treePost[j];
+    }
+
+    public boolean isDominatedByAll(N node, Collection<N> dominators)
+    {
+        for (N d : dominators) {
+            if (!isDominatedBy(node, d))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.toolkits.graph;
+
+/**
+ * Added in RoboVM. Post-dominators finder for multi-tailed graphs based on
+ * {@link CHKDominatorsFinder}. The dominators returned by this finder are
+ * post-dominators, so e.g. {@link #getDominators(Object)} returns all
+ * post-dominators.
+ */
+public class CHKPostDominatorsFinder<N> extends CHKDominatorsFinder<N>
+{
+    public CHKPostDominatorsFinder(DirectedGraph<N> graph)
+    {
+        super(new InverseGraph<N>(graph));
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.toolkits.graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import soot.Body;
+import soot.Scene;
+import soot.Unit;
+import soot.options.Options;
+import soot.toolkits.exceptions.ThrowAnalysis;
+
+/**
+ * Added in RoboVM. {@link ExceptionalUnitGraph} which keeps its edges in
+ * compressed sparse row form instead of maps. Each unit is assigned a
+ * dense index in the order of the body's unit chain, and the edges of
+ * each kind are stored as one array of edge targets plus an array of
+ * offsets into it per node. The edges are built from the body by
+ * {@link ExceptionalUnitGraph#initialize(ThrowAnalysis, boolean)}, so
+ * building the graph needs as much memory as building an
+ * {@link ExceptionalUnitGraph}. The maps are dropped once the edges have
+ * been copied, so a graph which is kept around, e.g. in a
+ * {@link soot.BodyAnalysisCache}, retains a fraction of that memory.
+ * <p>
+ * The graph returns the same nodes and edges in the same order as an
+ * {@link ExceptionalUnitGraph} built with the same arguments and can be
+ * used wherever a {@link UnitGraph} is expected. It is immutable: the
+ * lists returned are unmodifiable views of the edge arrays. Clients which
+ * want to avoid looking up units in maps can use {@link #indexOf(Unit)},
+ * {@link #getUnit(int)} and the {@link Edges} returned by e.g.
+ * {@link #getSuccs()} to walk the graph by index.
+ * {@link PseudoTopologicalOrderer} and the flow analyses in
+ * <code>soot.toolkits.scalar</code> do so automatically.
+ */
+public class CompactUnitGraph extends ExceptionalUnitGraph {
+
+    /**
+     * Edges of one kind in compressed sparse row form. The targets of the
+     * edges leaving node <code>n</code> are
+     * <code>target(start(n))</code> up to but excluding
+     * <code>target(end(n))</code>.
+     */
+    public final class Edges {
+        private final int[] offsets;
+        private final int[] targets;
+
+        Edges(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        public int start(int node) {
+            return offsets[node];
+        }
+
+        public int end(int node) {
+            return offsets[node + 1];
+        }
+
+        public int target(int edge) {
+            return targets[edge];
+        }
+
+        /**
+         * Returns the number of edges leaving the specified node.
+         */
+        public int count(int node) {
+            return offsets[node + 1] - offsets[node];
+        }
+
+        /**
+         * Returns the target of the <code>k</code>th edge leaving the
+         * specified node.
+         */
+        public int get(int node, int k) {
+            return targets[offsets[node] + k];
+        }
+
+        /**
+         * Returns the total number of edges.
+         */
+        public int size() {
+            return targets.length;
+        }
+
+        /**
+         * Returns an unmodifiable list of the units the edges leaving the
+         * specified node lead to.
+         */
+        public List<Unit> asList(int node) {
+            if (offsets[node] == offsets[node + 1]) {
+                return Collections.emptyList();
+            }
+            return new UnitList(targets, offsets[node], offsets[node + 1]);
+        }
+    }
+
+    private final Unit[] units;
+    private final Map<Unit, Integer> unitToIndex;
+    private final Edges succs;
+    private final Edges preds;
+    private final Edges unexceptionalSuccs;
+    private final Edges unexceptionalPreds;
+    private final Edges exceptionalSuccs;
+    private final Edges exceptionalPreds;
+    /**
+     * Exception destinations of each unit. <code>null</code> entries are
+     * computed on each request using the {@link ThrowAnalysis}, like
+     * {@link ExceptionalUnitGraph} does.
+     */
+    private final Collection<ExceptionDest>[] exceptionDests;
+
+    /**
+     * Constructs the graph of the specified body using the
+     * {@link Scene}'s default {@link ThrowAnalysis} and the default value
+     * of the <code>omitExceptingUnitEdges</code> option.
+     */
+    public CompactUnitGraph(Body body) {
+        this(body, Scene.v().getDefaultThrowAnalysis(),
+                Options.v().omit_excepting_unit_edges());
+    }
+
+    /**
+     * Constructs the graph of the specified body. The arguments are the
+     * same as for
+     * {@link ExceptionalUnitGraph#ExceptionalUnitGraph(Body, ThrowAnalysis, boolean)}.
+     */
+    @SuppressWarnings("unchecked")
+    public CompactUnitGraph(Body body, ThrowAnalysis throwAnalysis,
+            boolean omitExceptingUnitEdges) {
+        super(body, true);
+        initialize(throwAnalysis, omitExceptingUnitEdges);
+
+        int n = unitChain.size();
+        units = new Unit[n];
+        unitToIndex = new HashMap<Unit, Integer>(n * 2 + 1, 0.7f);
+        int count = 0;
+        for (Unit u : unitChain) {
+            unitToIndex.put(u, count);
+            units[count++] = u;
+        }
+
+        succs = toEdges(unitToSuccs);
+        preds = toEdges(unitToPreds);
+        exceptionalSuccs = toEdges(unitToExceptionalSuccs);
+        exceptionalPreds = toEdges(unitToExceptionalPreds);
+        if (exceptionalSuccs.size() == 0 && exceptionalPreds.size() == 0) {
+            // Without exceptional edges all edges are unexceptional
+            unexceptionalSuccs = succs;
+            unexceptionalPreds = preds;
+        } else {
+            unexceptionalSuccs = toEdges(unitToUnexceptionalSuccs);
+            unexceptionalPreds = toEdges(unitToUnexceptionalPreds);
+        }
+
+        exceptionDests = new Collection[n];
+        for (int i = 0; i < n; i++) {
+            exceptionDests[i] = unitToExceptionDests.get(units[i]);
+        }
+
+        // Drop the maps now that the edges have been copied
+        unitToSuccs = null;
+        unitToPreds = null;
+        unitToUnexceptionalSuccs = null;
+        unitToUnexceptionalPreds = null;
+        unitToExceptionalSuccs = null;
+        unitToExceptionalPreds = null;
+        unitToExceptionDests = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Edges toEdges(Map<Unit, List<Unit>> map) {
+        int n = units.length;
+        List<Unit>[] lists = new List[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            List<Unit> l = map.get(units[i]);
+            lists[i] = l;
+            offsets[i + 1] = offsets[i] + (l == null ? 0 : l.size());
+        }
+        int[] targets = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            if (lists[i] != null) {
+                int k = offsets[i];
+                for (Unit u : lists[i]) {
+                    targets[k++] = indexOfChecked(u);
+                }
+            }
+        }
+        return new Edges(offsets, targets);
+    }
+    private int indexOfChecked(Unit u) {
+        Integer idx = unitToIndex.get(u);
+        if (idx == null) {
+            throw new RuntimeException("Invalid unit " + u);
+        }
+        return idx;
+    }
+
+    /**
+     * Returns the index of the specified unit or -1 if it isn't part of
+     * this graph.
+     */
+    public int indexOf(Unit u) {
+        Integer idx = unitToIndex.get(u);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Returns the unit with the specified index.
+     */
+    public Unit getUnit(int index) {
+        return units[index];
+    }
+
+    /**
+     * Returns all edges, exceptional and unexceptional.
+     */
+    public Edges getSuccs() {
+        return succs;
+    }
+
+    /**
+     * Returns all edges, exceptional and unexceptional, reversed.
+     */
+    public Edges getPreds() {
+        return preds;
+    }
+
+    public Edges getUnexceptionalSuccs() {
+        return unexceptionalSuccs;
+    }
+
+    public Edges getUnexceptionalPreds() {
+        return unexceptionalPreds;
+    }
+
+    public Edges getExceptionalSuccs() {
+        return exceptionalSuccs;
+    }
+
+    public Edges getExceptionalPreds() {
+        return exceptionalPreds;
+    }
+
+    public List<Unit> getPredsOf(Unit u) {
+        if (units == null) {
+            // Called by initialize() before the edges have been copied
+            return super.getPredsOf(u);
+        }
+        return preds.asList(indexOfChecked(u));
+    }
+
+    public List<Unit> getSuccsOf(Unit u) {
+        if (units == null) {
+            return super.getSuccsOf(u);
+        }
+        return succs.asList(indexOfChecked(u));
+    }
+
+    public List<Unit> getUnexceptionalPredsOf(Unit u) {
+        if (units == null) {
+            return super.getUnexceptionalPredsOf(u);
+        }
+        return unexceptionalPreds.asList(indexOfChecked(u));
+    }
+
+    public List<Unit> getUnexceptionalSuccsOf(Unit u) {
+        if (units == null) {
+            return super.getUnexceptionalSuccsOf(u);
+        }
+        return unexceptionalSuccs.asList(indexOfChecked(u));
+    }
+
+    public List<Unit> getExceptionalPredsOf(Unit u) {
+        if (units == null) {
+            return super.getExceptionalPredsOf(u);
+        }
+        int idx = indexOf(u);
+        if (idx == -1) {
+            return Collections.emptyList();
+        }
+        return exceptionalPreds.asList(idx);
+    }
+
+    public List<Unit> getExceptionalSuccsOf(Unit u) {
+        if (units == null) {
+            return super.getExceptionalSuccsOf(u);
+        }
+        int idx = indexOf(u);
+        if (idx == -1) {
+            return Collections.emptyList();
+        }
+        return exceptionalSuccs.asList(idx);
+    }
+
+    public Collection<ExceptionDest> getExceptionDests(Unit u) {
+        if (units == null) {
+            return super.getExceptionDests(u);
+        }
+        Collection<ExceptionDest> result = exceptionDests[indexOfChecked(u)];
+        if (result == null) {
+            // All exceptions escape the method
+            result = new LinkedList<ExceptionDest>();
+            result.add(new ExceptionDest(null, throwAnalysis.mightThrow(u)));
+        }
+        return result;
+    }
+
+    public int size() {
+        return units.length;
+    }
+
+    public Iterator<Unit> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(units)).iterator();
+    }
+
+    private final class UnitList extends AbstractList<Unit> implements RandomAccess {
+        private final int[] targets;
+        private final int start;
+        private final int end;
+
+        UnitList(int[] targets, int start, int end) {
+            this.targets = targets;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Unit get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+            }
+            return units[targets[start + index]];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import soot.Unit;
+
 /**
  * Orders in pseudo-topological order, the nodes of a DirectedGraph instance.
  */
@@ -75,6 +77,9 @@ public class PseudoTopologicalOrderer<N> implements Orderer<N> {
 	 */
 	@SuppressWarnings("unchecked")
 	protected List<N> computeOrder(DirectedGraph<N> g) {
+		// RoboVM note: Walk CompactUnitGraphs by index.
+		if (g instanceof CompactUnitGraph)
+			return (List<N>) computeOrder((CompactUnitGraph) g);
 		stmtToColor = new IdentityHashMap<Object, Object>((3 * g.size()) / 2);//new HashMap((3 * g.size()) / 2, 0.7f);
 		indexStack = new int[g.size()];
 		stmtStack = (N[]) new Object[g.size()];
@@ -136,6 +141,47 @@ public class PseudoTopologicalOrderer<N> implements Orderer<N> {
 		}
 	}
 
+	/**
+	 * Same as {@link #computeOrder(DirectedGraph)} but uses the unit
+	 * indices of the graph instead of maps. Added in RoboVM.
+	 */
+	private List<Unit> computeOrder(CompactUnitGraph g) {
+		int n = g.size();
+		CompactUnitGraph.Edges succs = g.getSuccs();
+		boolean[] visited = new boolean[n];
+		int[] nodeStack = new int[n];
+		int[] edgeStack = new int[n];
+		LinkedList<Unit> order = new LinkedList<Unit>();
+		for (int start = 0; start < n; start++) {
+			if (visited[start])
+				continue;
+			int last = 0;
+			visited[start] = true;
+			nodeStack[last] = start;
+			edgeStack[last++] = succs.start(start);
+			while (last > 0) {
+				int node = nodeStack[last - 1];
+				int edge = edgeStack[last - 1]++;
+				if (edge >= succs.end(node)) {
+					// Visit this node now that we ran out of children
+					if (mIsReversed)
+						order.addLast(g.getUnit(node));
+					else
+						order.addFirst(g.getUnit(node));
+					last--;
+				} else {
+					int child = succs.target(edge);
+					if (!visited[child]) {
+						visited[child] = true;
+						nodeStack[last] = child;
+						edgeStack[last++] = succs.start(child);
+					}
+				}
+			}
+		}
+		return order;
+	}
+
 	//deprecated methods and constructors follow
 	
 	/**
@@ -30,8 +30,8 @@ import soot.Unit;
 import soot.jimple.ThrowStmt;
 import soot.jimple.internal.JNopStmt;
 import soot.toolkits.graph.DominatorNode;
-import soot.toolkits.graph.MHGDominatorsFinder;
-import soot.toolkits.graph.MHGPostDominatorsFinder;
+import soot.toolkits.graph.CHKDominatorsFinder;
+import soot.toolkits.graph.CHKPostDominatorsFinder;
 import soot.toolkits.graph.UnitGraph;
 import soot.util.Chain;
 
@@ -185,8 +185,9 @@ public class EnhancedUnitGraph extends UnitGraph {
 	@SuppressWarnings("unchecked")
 	protected void handleExplicitThrowEdges()
 	{
-		MHGDominatorTree dom = new MHGDominatorTree(new MHGDominatorsFinder<Unit>(this));
-		MHGDominatorTree pdom = new MHGDominatorTree(new MHGPostDominatorsFinder(this));
+		// RoboVM note: Use the CHK dominators finders instead of the MHG ones.
+		MHGDominatorTree dom = new MHGDominatorTree(new CHKDominatorsFinder<Unit>(this));
+		MHGDominatorTree pdom = new MHGDominatorTree(new CHKPostDominatorsFinder(this));
 		
 		//this keeps a map from the entry of a try-catch-block to a selected merge point 
 		Hashtable<Unit, Unit> x2mergePoint = new Hashtable<Unit, Unit>();
@@ -40,8 +40,8 @@ import soot.toolkits.graph.DominatorNode;
 import soot.toolkits.graph.DominatorTree;
 import soot.toolkits.graph.ExceptionalBlockGraph;
 import soot.toolkits.graph.ExceptionalUnitGraph;
-import soot.toolkits.graph.MHGDominatorsFinder;
-import soot.toolkits.graph.MHGPostDominatorsFinder;
+import soot.toolkits.graph.CHKDominatorsFinder;
+import soot.toolkits.graph.CHKPostDominatorsFinder;
 import soot.toolkits.graph.UnitGraph;
 
 /**
@@ -111,7 +111,8 @@ public class RegionAnalysis{
 		
 	
 		
-		this.m_dom = new MHGDominatorTree(new MHGDominatorsFinder(this.m_blockCFG));
+		// RoboVM note: Use the CHK dominators finders instead of the MHG ones.
+		this.m_dom = new MHGDominatorTree(new CHKDominatorsFinder(this.m_blockCFG));
 					
 		
 		String s = dominatorTreeToString(this.m_dom, this.m_dom.getHead());
@@ -123,7 +124,7 @@ public class RegionAnalysis{
 		
 		try{
 		
-			this.m_pdom = new MHGDominatorTree(new MHGPostDominatorsFinder(m_blockCFG));
+			this.m_pdom = new MHGDominatorTree(new CHKPostDominatorsFinder(m_blockCFG));
 		
 			if(Options.v().verbose())
 				G.v().out.println("[RegionAnalysis] PostDominator tree: ");
@@ -26,10 +26,9 @@
 
 package soot.toolkits.scalar;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
@@ -60,93 +59,71 @@ public abstract class BackwardFlowAnalysis<N,A> extends FlowAnalysis<N,A>
         return false;
     }
 
+    /**
+     * RoboVM note: Rewritten. See {@link ForwardFlowAnalysis#doAnalysis()}.
+     */
+    @SuppressWarnings("unchecked")
     protected void doAnalysis()
     {
-        final Map<N, Integer> numbers = new HashMap<N, Integer>();
         List<N> orderedUnits = constructOrderer().newList(graph,true);
-        int i = 1;
-        for( Iterator<N> uIt = orderedUnits.iterator(); uIt.hasNext(); ) {
-            final N u = uIt.next();
-            numbers.put(u, new Integer(i));
-            i++;
-        }
-
-        Collection<N> changedUnits = constructWorklist(numbers);
+        NumberedFlowGraph<N> g = new NumberedFlowGraph<N>(graph, orderedUnits, graph.getTails());
+        List<N> nodes = g.nodes;
+        int numNodes = g.size();
 
+        Object[] beforeFlows = new Object[numNodes];
+        Object[] afterFlows = new Object[numNodes];
+        BitSet changedUnits = new BitSet(numNodes);
 
         // Set initial Flows and nodes to visit.
         {
-            Iterator<N> it = graph.iterator();
-
-            while(it.hasNext())
+            for(int i = 0; i < numNodes; i++)
             {
-                N s = it.next();
-
-                changedUnits.add(s);
-
-                unitToBeforeFlow.put(s, newInitialFlow());
-                unitToAfterFlow.put(s, newInitialFlow());
-            }
-        }
-
-        List<N> tails = graph.getTails();
-        
-        // Feng Qian: March 07, 2002
-        // init entry points
-        {
-            Iterator<N> it = tails.iterator();
-            
-            while (it.hasNext()) {
-                N s = it.next();
-                // this is a backward flow analysis
-                unitToAfterFlow.put(s, entryInitialFlow());
+                N s = nodes.get(i);
+                A beforeFlow = newInitialFlow();
+                // Feng Qian: March 07, 2002
+                // init entry points
+                A afterFlow = g.entries[i] ? entryInitialFlow() : newInitialFlow();
+                beforeFlows[i] = beforeFlow;
+                afterFlows[i] = afterFlow;
+                unitToBeforeFlow.put(s, beforeFlow);
+                unitToAfterFlow.put(s, afterFlow);
             }
+            changedUnits.set(0, numNodes);
         }
 
         // Perform fixed point flow analysis
         {
             A previousBeforeFlow = newInitialFlow();
 
-            while(!changedUnits.isEmpty())
+            for(int i = changedUnits.nextSetBit(0); i >= 0; i = changedUnits.nextSetBit(0))
             {
-                A beforeFlow;
-                A afterFlow;
-
-                //get the first object
-                N s = changedUnits.iterator().next();
-                changedUnits.remove(s);
-                boolean isTail = tails.contains(s);
+                changedUnits.clear(i);
+                N s = nodes.get(i);
+                A beforeFlow = (A) beforeFlows[i];
+                A afterFlow = (A) afterFlows[i];
 
-                copy(unitToBeforeFlow.get(s), previousBeforeFlow);
+                copy(beforeFlow, previousBeforeFlow);
 
                 // Compute and store afterFlow
                 {
-                    List<N> succs = graph.getSuccsOf(s);
+                    int[] succs = g.succs[i];
 
-                    afterFlow =  unitToAfterFlow.get(s);
-
-                    if(succs.size() == 1)
-                        copy(unitToBeforeFlow.get(succs.get(0)), afterFlow);
-                    else if(succs.size() != 0)
+                    if(succs.length == 1)
+                        copy((A) beforeFlows[succs[0]], afterFlow);
+                    else if(succs.length != 0)
                     {
-                        Iterator<N> succIt = succs.iterator();
-
-                        copy(unitToBeforeFlow.get(succIt.next()), afterFlow);
+                        copy((A) beforeFlows[succs[0]], afterFlow);
 
-                        while(succIt.hasNext())
-                        {
-                            A otherBranchFlow = unitToBeforeFlow.get(succIt.next());
-                            mergeInto(s, afterFlow, otherBranchFlow);
-                        }
+                        for(int j = 1; j < succs.length; j++)
+                            mergeInto(s, afterFlow, (A) beforeFlows[succs[j]]);
 
-                        if(isTail && succs.size() != 0)
+                        if(g.entries[i])
                             mergeInto(s, afterFlow, entryInitialFlow());
                     }
                 }
 
                 // Compute beforeFlow and store it.
                 {
-                    beforeFlow = unitToBeforeFlow.get(s);
                     if (Options.v().interactive_mode()){
                         A savedFlow = newInitialFlow();
                         if (filterUnitToAfterFlow != null){
@@ -177,22 +154,20 @@ public abstract class BackwardFlowAnalysis<N,A> extends FlowAnalysis<N,A>
                     }
                 }
 
-                // Update queue appropriately
-                    if(!beforeFlow.equals(previousBeforeFlow))
-                    {
-                        Iterator<N> predIt = graph.getPredsOf(s).iterator();
-
-                        while(predIt.hasNext())
-                        {
-                            N pred = predIt.next();
-                            
-                            changedUnits.add(pred);
-                        }
-                    }
+                // Update queue appropriately. Predecessors only need to be
+                // revisited if the in set has changed.
+                if(!beforeFlow.equals(previousBeforeFlow))
+                {
+                    for(int pred : g.preds[i])
+                        changedUnits.set(pred);
+                }
             }
         }
     }
     
+    /**
+     * RoboVM note: No longer used by {@link #doAnalysis()}.
+     */
 	protected Collection<N> constructWorklist(final Map<N, Integer> numbers) {
 		return new TreeSet<N>( new Comparator<N>() {
             public int compare(N o1, N o2) {
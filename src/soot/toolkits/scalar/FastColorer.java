@@ -44,10 +44,9 @@ public class FastColorer
                                                    Map<Local, Integer> localToColor, 
                                                    Map<Object, Integer> groupToColorCount)
     {
-        ExceptionalUnitGraph unitGraph = new ExceptionalUnitGraph(unitBody);
-
+        // RoboVM note: Use the cached analyses of the body
         LiveLocals liveLocals;        
-        liveLocals = new SimpleLiveLocals(unitGraph);
+        liveLocals = unitBody.getAnalysisCache().getLiveLocals();
         
         
         UnitInterferenceGraph intGraph = 
@@ -181,10 +180,10 @@ public class FastColorer
     public static void assignColorsToLocals(Body unitBody, Map<Local, Object> localToGroup, 
         Map<Local, Integer> localToColor, Map<Object, Integer> groupToColorCount)
     {
-        ExceptionalUnitGraph unitGraph = new ExceptionalUnitGraph(unitBody);
+        // RoboVM note: Use the cached analyses of the body
         LiveLocals liveLocals;
        
-        liveLocals = new SimpleLiveLocals(unitGraph);
+        liveLocals = unitBody.getAnalysisCache().getLiveLocals();
 
         UnitInterferenceGraph intGraph = 
             new UnitInterferenceGraph(unitBody, localToGroup, liveLocals);
@@ -52,97 +52,76 @@ public abstract class ForwardFlowAnalysis<N,A> extends FlowAnalysis<N,A>
         return true;
     }
 
+    /**
+     * RoboVM note: Rewritten. Nodes are numbered once in the order returned
+     * by {@link #constructOrderer()} and flow sets and edges are kept in
+     * arrays indexed by these numbers. The worklist is a {@link BitSet}
+     * which always yields the lowest numbered pending node, visiting nodes
+     * in the same order as the previous {@link TreeSet} based worklist.
+     * {@link #unitToBeforeFlow} and {@link #unitToAfterFlow} still hold
+     * the same flow objects as the arrays.
+     */
+    @SuppressWarnings("unchecked")
     protected void doAnalysis()
     {
-        final Map<N, Integer> numbers = new HashMap<N, Integer>();
-//        Timers.v().orderComputation = new soot.Timer();
-//        Timers.v().orderComputation.start();
         List<N> orderedUnits = constructOrderer().newList(graph,false);
-//        Timers.v().orderComputation.end();
-        int i = 1;
-        for( Iterator<N> uIt = orderedUnits.iterator(); uIt.hasNext(); ) {
-            final N u = uIt.next();
-            numbers.put(u, new Integer(i));
-            i++;
-        }
+        NumberedFlowGraph<N> g = new NumberedFlowGraph<N>(graph, orderedUnits, graph.getHeads());
+        List<N> nodes = g.nodes;
+        int numNodes = g.size();
+        int numComputations = 0;
 
-        Collection<N> changedUnits = constructWorklist(numbers);
+        Object[] beforeFlows = new Object[numNodes];
+        Object[] afterFlows = new Object[numNodes];
+        BitSet changedUnits = new BitSet(numNodes);
 
-        List<N> heads = graph.getHeads();
-        int numNodes = graph.size();
-        int numComputations = 0;
-        
         // Set initial values and nodes to visit.
         {
-            Iterator<N> it = graph.iterator();
-
-            while(it.hasNext())
+            for(int i = 0; i < numNodes; i++)
             {
-                N s = it.next();
-
-                changedUnits.add(s);
-
-                unitToBeforeFlow.put(s, newInitialFlow());
-                unitToAfterFlow.put(s, newInitialFlow());
+                N s = nodes.get(i);
+                // Feng Qian: March 07, 2002
+                // Set initial values for entry points
+                A beforeFlow = g.entries[i] ? entryInitialFlow() : newInitialFlow();
+                A afterFlow = newInitialFlow();
+                beforeFlows[i] = beforeFlow;
+                afterFlows[i] = afterFlow;
+                unitToBeforeFlow.put(s, beforeFlow);
+                unitToAfterFlow.put(s, afterFlow);
             }
+            changedUnits.set(0, numNodes);
         }
 
-        // Feng Qian: March 07, 2002
-        // Set initial values for entry points
-        {
-            Iterator<N> it = heads.iterator();
-            
-            while (it.hasNext()) {
-                N s = it.next();
-                // this is a forward flow analysis
-                unitToBeforeFlow.put(s, entryInitialFlow());
-            }
-        }
-        
         // Perform fixed point flow analysis
         {
             A previousAfterFlow = newInitialFlow();
 
-            while(!changedUnits.isEmpty())
+            for(int i = changedUnits.nextSetBit(0); i >= 0; i = changedUnits.nextSetBit(0))
             {
-                A beforeFlow;
-                A afterFlow;
-
-                //get the first object
-                N s = changedUnits.iterator().next();
-                changedUnits.remove(s);
-                boolean isHead = heads.contains(s);
+                changedUnits.clear(i);
+                N s = nodes.get(i);
+                A beforeFlow = (A) beforeFlows[i];
+                A afterFlow = (A) afterFlows[i];
 
-                copy(unitToAfterFlow.get(s), previousAfterFlow);
+                copy(afterFlow, previousAfterFlow);
 
                 // Compute and store beforeFlow
                 {
-                    List<N> preds = graph.getPredsOf(s);
+                    int[] preds = g.preds[i];
 
-                    beforeFlow = unitToBeforeFlow.get(s);
-                    
-                    if(preds.size() == 1)
-                        copy(unitToAfterFlow.get(preds.get(0)), beforeFlow);
-                    else if(preds.size() != 0)
+                    if(preds.length != 0)
                     {
-                        Iterator<N> predIt = preds.iterator();
+                        copy((A) afterFlows[preds[0]], beforeFlow);
 
-                        copy(unitToAfterFlow.get(predIt.next()), beforeFlow);
+                        for(int j = 1; j < preds.length; j++)
+                            mergeInto(s, beforeFlow, (A) afterFlows[preds[j]]);
 
-                        while(predIt.hasNext())
-                        {
-                            A otherBranchFlow = unitToAfterFlow.get(predIt.next());
-                            mergeInto(s, beforeFlow, otherBranchFlow);
-                        }
+                        if(g.entries[i])
+                            mergeInto(s, beforeFlow, entryInitialFlow());
                     }
+                }
 
-                    if(isHead && preds.size() != 0)
-                    		mergeInto(s, beforeFlow, entryInitialFlow());
-                    	}
-                
                 {
                     // Compute afterFlow and store it.
-                    afterFlow = unitToAfterFlow.get(s);
                     if (Options.v().interactive_mode()){
                         
                         A savedInfo = newInitialFlow();
@@ -175,20 +154,15 @@ public abstract class ForwardFlowAnalysis<N,A> extends FlowAnalysis<N,A>
                     numComputations++;
                 }
 
-                // Update queue appropriately
-                    if(!afterFlow.equals(previousAfterFlow))
-                    {
-                        Iterator<N> succIt = graph.getSuccsOf(s).iterator();
-
-                        while(succIt.hasNext())
-                        {
-                            N succ = succIt.next();
-                            
-                            changedUnits.add(succ);
-                        }
-                    }
+                // Update queue appropriately. Successors only need to be
+                // revisited if the out set has changed.
+                if(!afterFlow.equals(previousAfterFlow))
+                {
+                    for(int succ : g.succs[i])
+                        changedUnits.set(succ);
                 }
             }
+        }
         
         // G.v().out.println(graph.getBody().getMethod().getSignature() + " numNodes: " + numNodes + 
         //    " numComputations: " + numComputations + " avg: " + Main.truncatedOf((double) numComputations / numNodes, 2));
@@ -197,6 +171,9 @@ public abstract class ForwardFlowAnalysis<N,A> extends FlowAnalysis<N,A>
         Timers.v().totalFlowComputations += numComputations;
     }
     
+    /**
+     * RoboVM note: No longer used by {@link #doAnalysis()}.
+     */
 	protected Collection<N> constructWorklist(final Map<N, Integer> numbers) {
 		return new TreeSet<N>( new Comparator<N>() {
             public int compare(N o1, N o2) {
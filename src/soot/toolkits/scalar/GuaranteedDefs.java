@@ -79,7 +79,8 @@ class GuaranteedDefsAnalysis extends ForwardFlowAnalysis
     GuaranteedDefsAnalysis(UnitGraph graph)
     {
         super(graph);
-        DominatorsFinder df = new MHGDominatorsFinder(graph);
+        // RoboVM note: Use CHKDominatorsFinder instead of MHGDominatorsFinder.
+        DominatorsFinder df = new CHKDominatorsFinder(graph);
         unitToGenerateSet = new HashMap<Unit, FlowSet>(graph.size() * 2 + 1, 0.7f);
 
         // pre-compute generate sets
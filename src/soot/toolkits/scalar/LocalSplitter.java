@@ -77,13 +77,12 @@ public class LocalSplitter extends BodyTransformer
 
             // Go through the definitions, building the webs
         {
-            ExceptionalUnitGraph graph = new ExceptionalUnitGraph(body);
-
+            // RoboVM note: Use the cached analyses of the body
             LocalDefs localDefs;
             
-            localDefs = new SmartLocalDefs(graph, new SimpleLiveLocals(graph));
+            localDefs = body.getAnalysisCache().getLocalDefs();
 
-            LocalUses localUses = new SimpleLocalUses(graph, localDefs);
+            LocalUses localUses = body.getAnalysisCache().getLocalUses();
             
             if(Options.v().time())
                 Timers.v().splitPhase1Timer.end();
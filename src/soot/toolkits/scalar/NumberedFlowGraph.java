@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.toolkits.scalar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.Unit;
+import soot.toolkits.graph.CompactUnitGraph;
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * Added in RoboVM. Snapshot of a {@link DirectedGraph} used by the fixed
+ * point solvers in {@link ForwardFlowAnalysis} and
+ * {@link BackwardFlowAnalysis}. Nodes are numbered once in iteration order
+ * and edges are stored as arrays of node numbers so that the solvers never
+ * have to look up nodes in maps or lists while iterating.
+ */
+final class NumberedFlowGraph<N> {
+    /** Nodes in iteration order. */
+    final List<N> nodes;
+    /** Predecessor numbers of each node, in the graph's order. */
+    final int[][] preds;
+    /** Successor numbers of each node, in the graph's order. */
+    final int[][] succs;
+    /** Whether each node is an entry (a head or a tail depending on direction). */
+    final boolean[] entries;
+
+    /**
+     * @param graph the graph.
+     * @param order the nodes of <code>graph</code> in the order they should
+     *        be visited. Nodes missing from this list are visited last.
+     * @param entries the entry nodes of the analysis.
+     */
+    NumberedFlowGraph(DirectedGraph<N> graph, List<N> order, List<N> entries) {
+        Map<N, Integer> numbers = new HashMap<N, Integer>(graph.size() * 2 + 1, 0.7f);
+        nodes = new ArrayList<N>(graph.size());
+        for (N n : order) {
+            if (!numbers.containsKey(n)) {
+                numbers.put(n, nodes.size());
+                nodes.add(n);
+            }
+        }
+        for (N n : graph) {
+            if (!numbers.containsKey(n)) {
+                numbers.put(n, nodes.size());
+                nodes.add(n);
+            }
+        }
+        int count = nodes.size();
+        preds = new int[count][];
+        succs = new int[count][];
+        if (graph instanceof CompactUnitGraph) {
+            // Translate the graph's edges instead of looking up each target
+            CompactUnitGraph cug = (CompactUnitGraph) graph;
+            int[] toNumber = new int[count];
+            int[] fromNumber = new int[count];
+            for (int i = 0; i < count; i++) {
+                int idx = cug.indexOf((Unit) nodes.get(i));
+                toNumber[idx] = i;
+                fromNumber[i] = idx;
+            }
+            for (int i = 0; i < count; i++) {
+                preds[i] = toNumbers(toNumber, cug.getPreds(), fromNumber[i]);
+                succs[i] = toNumbers(toNumber, cug.getSuccs(), fromNumber[i]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                N n = nodes.get(i);
+                preds[i] = toNumbers(numbers, graph.getPredsOf(n));
+                succs[i] = toNumbers(numbers, graph.getSuccsOf(n));
+            }
+        }
+        this.entries = new boolean[count];
+        for (N n : entries) {
+            Integer idx = numbers.get(n);
+            if (idx != null) {
+                this.entries[idx] = true;
+            }
+        }
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    private static int[] toNumbers(int[] toNumber, CompactUnitGraph.Edges edges, int node) {
+        int start = edges.start(node);
+        int[] result = new int[edges.end(node) - start];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = toNumber[edges.target(start + i)];
+        }
+        return result;
+    }
+
+    private static <N> int[] toNumbers(Map<N, Integer> numbers, List<N> l) {
+        int[] result = new int[l.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = numbers.get(l.get(i));
+        }
+        return result;
+    }
+}
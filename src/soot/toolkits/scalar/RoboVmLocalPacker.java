@@ -104,7 +104,7 @@ public class RoboVmLocalPacker extends BodyTransformer
 
         // follow the chain flow and and build variable trace map. e.g. what variable stays in slot after previous
         // assignment
-        RoboVmLiveSlotLocals liveSlotLocals = new RoboVmLiveSlotLocals(new ExceptionalUnitGraph(body));
+        RoboVmLiveSlotLocals liveSlotLocals = new RoboVmLiveSlotLocals(body.getAnalysisCache().getExceptionalUnitGraph());
 
         // find all parameters
         Map<Integer, Unit> paramDefinitions = new HashMap<>();
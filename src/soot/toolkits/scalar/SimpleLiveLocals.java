@@ -124,6 +124,9 @@ class SimpleLiveLocalsAnalysis extends BackwardFlowAnalysis
 
         emptySet = new ArraySparseSet();
 
+        // RoboVM note: Collect locals without building box lists.
+        LocalCollector collector = new LocalCollector();
+
         // Create kill sets.
         {
             unitToKillSet = new HashMap<Unit, FlowSet>(g.size() * 2 + 1, 0.7f);
@@ -136,15 +139,8 @@ class SimpleLiveLocalsAnalysis extends BackwardFlowAnalysis
 
                 FlowSet killSet = emptySet.clone();
 
-                Iterator boxIt = s.getDefBoxes().iterator();
-
-                while(boxIt.hasNext())
-                {
-                    ValueBox box = (ValueBox) boxIt.next();
-
-                    if(box.getValue() instanceof Local)
-                        killSet.add(box.getValue(), killSet);
-                }
+                collector.set = killSet;
+                s.forEachDefBox(collector);
 
                     unitToKillSet.put(s, killSet);
             }
@@ -162,15 +158,8 @@ class SimpleLiveLocalsAnalysis extends BackwardFlowAnalysis
 
                 FlowSet genSet = emptySet.clone();
 
-                Iterator boxIt = s.getUseBoxes().iterator();
-
-                while(boxIt.hasNext())
-                {
-                    ValueBox box = (ValueBox) boxIt.next();
-
-                    if(box.getValue() instanceof Local)
-                        genSet.add(box.getValue(), genSet);
-                }
+                collector.set = genSet;
+                s.forEachUseBox(collector);
 
                 unitToGenerateSet.put(s, genSet);
             }
@@ -227,4 +216,16 @@ class SimpleLiveLocalsAnalysis extends BackwardFlowAnalysis
             
         sourceSet.copy(destSet);
     }
+
+    /** Adds the locals in the boxes it is passed to a set. */
+    private static class LocalCollector implements ValueBoxConsumer
+    {
+        FlowSet set;
+
+        public void accept(ValueBox box)
+        {
+            if(box.getValue() instanceof Local)
+                set.add(box.getValue(), set);
+        }
+    }
 }
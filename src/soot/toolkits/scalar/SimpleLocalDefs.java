@@ -77,33 +77,13 @@ public class SimpleLocalDefs implements LocalDefs
 
             localUnitPairToDefs = new HashMap<LocalUnitPair, List>(g.size() * 2 + 1, 0.7f);
 
+            // RoboVM note: Visit the use boxes without building box lists.
+            DefsCollector collector = new DefsCollector(analysis);
+
             while(unitIt.hasNext())
                 {
-                    Unit s = (Unit) unitIt.next();
-
-                    Iterator boxIt = s.getUseBoxes().iterator();
-
-                    while(boxIt.hasNext())
-                        {
-                            ValueBox box = (ValueBox) boxIt.next();
-
-                            if(box.getValue() instanceof Local)
-                                {
-                                    Local l = (Local) box.getValue();
-                                    LocalUnitPair pair = new LocalUnitPair(l, s);
-
-                                    if(!localUnitPairToDefs.containsKey(pair))
-                                        {
-                                            IntPair intPair = analysis.localToIntPair.get(l);
-					    
-                                            ArrayPackedSet value = (ArrayPackedSet) analysis.getFlowBefore(s);
-
-                                            List unitLocalDefs = value.toList(intPair.op1, intPair.op2);
-
-                                            localUnitPairToDefs.put(pair, Collections.unmodifiableList(unitLocalDefs));
-                                        }
-                                }
-                        }
+                    collector.unit = (Unit) unitIt.next();
+                    collector.unit.forEachUseBox(collector);
                 }
         }
 
@@ -118,6 +98,39 @@ public class SimpleLocalDefs implements LocalDefs
                                "]     SimpleLocalDefs finished.");
     }
 
+    /** Records the definitions reaching the unit it is visiting for the
+     *  locals in the boxes it is passed. */
+    private class DefsCollector implements ValueBoxConsumer
+    {
+        private final LocalDefsFlowAnalysis analysis;
+        Unit unit;
+
+        DefsCollector(LocalDefsFlowAnalysis analysis)
+        {
+            this.analysis = analysis;
+        }
+
+        public void accept(ValueBox box)
+        {
+            if(box.getValue() instanceof Local)
+                {
+                    Local l = (Local) box.getValue();
+                    LocalUnitPair pair = new LocalUnitPair(l, unit);
+
+                    if(!localUnitPairToDefs.containsKey(pair))
+                        {
+                            IntPair intPair = analysis.localToIntPair.get(l);
+
+                            ArrayPackedSet value = (ArrayPackedSet) analysis.getFlowBefore(unit);
+
+                            List unitLocalDefs = value.toList(intPair.op1, intPair.op2);
+
+                            localUnitPairToDefs.put(pair, Collections.unmodifiableList(unitLocalDefs));
+                        }
+                }
+        }
+    }
+
     public boolean hasDefsAt(Local l, Unit s)
     {
         return localUnitPairToDefs.containsKey( new LocalUnitPair(l,s) );
@@ -101,33 +101,13 @@ public class SimpleLocalUses implements LocalUses
         // Traverse units and associate uses with definitions
         {
             Iterator it = units.iterator();
+            // RoboVM note: Visit the use boxes without building box lists.
+            UseCollector collector = new UseCollector(localDefs);
 
             while(it.hasNext())
             {
-                Unit s = (Unit) it.next();
-
-                Iterator boxIt = s.getUseBoxes().iterator();
-
-                while(boxIt.hasNext())
-                {
-                    ValueBox useBox = (ValueBox) boxIt.next();
-
-                    if(useBox.getValue() instanceof Local)
-                    {
-                        // Add this statement to the uses of the definition of the local
-
-                        Local l = (Local) useBox.getValue();
-
-                        List<Unit> possibleDefs = localDefs.getDefsOfAt(l, s);
-                        Iterator<Unit> defIt = possibleDefs.iterator();
-
-                        while(defIt.hasNext())
-                        {
-                            List<UnitValueBoxPair> useList = unitToUses.get(defIt.next());
-                            useList.add(new UnitValueBoxPair(s, useBox));
-                        }
-                    }
-                }
+                collector.unit = (Unit) it.next();
+                collector.unit.forEachUseBox(collector);
             }
         }
 
@@ -174,4 +154,36 @@ public class SimpleLocalUses implements LocalUses
 
         return l;
     }
+
+    /** Adds the unit it is visiting to the uses of the definitions of
+     *  the locals in the boxes it is passed. */
+    private class UseCollector implements ValueBoxConsumer
+    {
+        private final LocalDefs localDefs;
+        Unit unit;
+
+        UseCollector(LocalDefs localDefs)
+        {
+            this.localDefs = localDefs;
+        }
+
+        public void accept(ValueBox useBox)
+        {
+            if(useBox.getValue() instanceof Local)
+            {
+                // Add this statement to the uses of the definition of the local
+
+                Local l = (Local) useBox.getValue();
+
+                List<Unit> possibleDefs = localDefs.getDefsOfAt(l, unit);
+                Iterator<Unit> defIt = possibleDefs.iterator();
+
+                while(defIt.hasNext())
+                {
+                    List<UnitValueBoxPair> useList = unitToUses.get(defIt.next());
+                    useList.add(new UnitValueBoxPair(unit, useBox));
+                }
+            }
+        }
+    }
 }
@@ -32,6 +32,7 @@ import soot.Timers;
 import soot.Unit;
 import soot.Value;
 import soot.ValueBox;
+import soot.ValueBoxConsumer;
 import soot.options.Options;
 import soot.toolkits.graph.UnitGraph;
 import soot.util.Cons;
@@ -85,19 +86,11 @@ public class SmartLocalDefs implements LocalDefs
         analysis = new LocalDefsAnalysis(graph);
 
         answer = new HashMap<Cons, ArrayList<Unit>>();
+        // RoboVM note: Visit the use boxes without building box lists.
+        AnswerCollector collector = new AnswerCollector();
         for( Iterator uIt = graph.iterator(); uIt.hasNext(); ) {
-            final Unit u = (Unit) uIt.next();
-            for( Iterator vbIt = u.getUseBoxes().iterator(); vbIt.hasNext(); ) {
-                final ValueBox vb = (ValueBox) vbIt.next();
-                Value v = vb.getValue();
-                if( !(v instanceof Local) ) continue;
-                HashSet analysisResult = (HashSet) analysis.getFlowBefore(u);
-                ArrayList<Unit> al = new ArrayList<Unit>();
-                for (Unit unit : defsOf((Local)v)) {
-                    if(analysisResult.contains(unit)) al.add(unit);
-                }
-                answer.put(new Cons(u, v), al);
-            }
+            collector.unit = (Unit) uIt.next();
+            collector.unit.forEachUseBox(collector);
         }
         if(Options.v().time())
             Timers.v().defsTimer.end();
@@ -106,6 +99,21 @@ public class SmartLocalDefs implements LocalDefs
 	    G.v().out.println("[" + g.getBody().getMethod().getName() +
                                "]     SmartLocalDefs finished.");
     }
+    /** Records the definitions reaching the unit it is visiting for the
+     *  locals in the boxes it is passed. */
+    private class AnswerCollector implements ValueBoxConsumer {
+        Unit unit;
+        public void accept(ValueBox vb) {
+            Value v = vb.getValue();
+            if( !(v instanceof Local) ) return;
+            HashSet analysisResult = (HashSet) analysis.getFlowBefore(unit);
+            ArrayList<Unit> al = new ArrayList<Unit>();
+            for (Unit u : defsOf((Local)v)) {
+                if(analysisResult.contains(u)) al.add(u);
+            }
+            answer.put(new Cons(unit, v), al);
+        }
+    }
     private Local localDef(Unit u) {
         List defBoxes = u.getDefBoxes();
 		int size = defBoxes.size();
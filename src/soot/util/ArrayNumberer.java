@@ -18,6 +18,8 @@
  */
 
 package soot.util;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 /** A class that numbers objects, so they can be placed in bitsets.
@@ -30,9 +32,53 @@ public class ArrayNumberer<E> implements IterableNumberer<E> {
     Numberable[] numberToObj = new Numberable[1024];
     int lastNumber = 0;
 
-    public void add( E oo ) {
+    // RoboVM note: If reclaimable, objects are only weakly referenced from
+    // slots and the numbers of collected objects are handed out again.
+    private Slot[] slots;
+    private ReferenceQueue<Numberable> collected;
+    private int[] freeNumbers;
+    private int freeCount = 0;
+
+    private static final class Slot extends WeakReference<Numberable> {
+        final int number;
+        Slot( Numberable o, int number, ReferenceQueue<Numberable> q ) {
+            super( o, q );
+            this.number = number;
+        }
+    }
+
+    public ArrayNumberer() {
+    }
+
+    /** RoboVM note: Creates a numberer which doesn't keep the numbered
+     * objects reachable if <code>reclaimable</code> is true. The number of
+     * an object which has been garbage collected is reused for an object
+     * added later, so maps and sets keyed by numbers of this numberer must
+     * keep their keys reachable, see {@link #isReclaimable()}. */
+    public ArrayNumberer( boolean reclaimable ) {
+        if( reclaimable ) {
+            numberToObj = null;
+            slots = new Slot[1024];
+            collected = new ReferenceQueue<Numberable>();
+            freeNumbers = new int[64];
+        }
+    }
+
+    /** RoboVM note: Returns true if numbers of this numberer may be reused
+     * once the object holding them has become unreachable. */
+    public boolean isReclaimable() {
+        return slots != null;
+    }
+
+    // RoboVM note: Synchronized since bodies may be built concurrently
+    public synchronized void add( E oo ) {
         Numberable o = (Numberable) oo;
         if( o.getNumber() != 0 ) return;
+
+        if( slots != null ) {
+            addWeak( o );
+            return;
+        }
         
         ++lastNumber;
         if( lastNumber >= numberToObj.length ) {
@@ -44,6 +90,41 @@ public class ArrayNumberer<E> implements IterableNumberer<E> {
         o.setNumber( lastNumber );
     }
 
+    private void addWeak( Numberable o ) {
+        Slot s;
+        while( (s = (Slot) collected.poll()) != null ) {
+            if( slots[s.number] == s ) {
+                slots[s.number] = null;
+                if( freeCount == freeNumbers.length ) {
+                    int[] newFree = new int[freeNumbers.length*2];
+                    System.arraycopy(freeNumbers, 0, newFree, 0, freeCount);
+                    freeNumbers = newFree;
+                }
+                freeNumbers[freeCount++] = s.number;
+            }
+        }
+        int number;
+        if( freeCount > 0 ) {
+            number = freeNumbers[--freeCount];
+        } else {
+            number = ++lastNumber;
+            if( lastNumber >= slots.length ) {
+                Slot[] newSlots = new Slot[slots.length*2];
+                System.arraycopy(slots, 0, newSlots, 0, slots.length);
+                slots = newSlots;
+            }
+        }
+        slots[number] = new Slot( o, number, collected );
+        o.setNumber( number );
+    }
+
+    private Numberable objectAt( int number ) {
+        if( slots == null ) return numberToObj[number];
+        if( number >= slots.length ) return null;
+        Slot s = slots[number];
+        return s == null ? null : s.get();
+    }
+
     public long get( E oo ) {
         if( oo == null ) return 0;
         Numberable o = (Numberable) oo;
@@ -52,14 +133,15 @@ public class ArrayNumberer<E> implements IterableNumberer<E> {
         return ret;
     }
 
-	public E get( long number ) {
+	public synchronized E get( long number ) {
         if( number == 0 ) return null;
-        E ret = (E) numberToObj[(int) number];
+        E ret = (E) objectAt( (int) number );
         if( ret == null ) throw new RuntimeException( "no object with number "+number );
         return ret;
     }
 
-    public int size() { return lastNumber; }
+    /** Returns the highest number handed out so far. */
+    public synchronized int size() { return lastNumber; }
 
     public Iterator<E> iterator() {
         return new NumbererIterator();
@@ -67,13 +149,24 @@ public class ArrayNumberer<E> implements IterableNumberer<E> {
 
     final class NumbererIterator implements Iterator<E> {
         int cur = 1;
+        Numberable next;
         public final boolean hasNext() {
-            return cur < numberToObj.length && numberToObj[cur] != null;
+            if( slots == null ) {
+                return cur < numberToObj.length && numberToObj[cur] != null;
+            }
+            // RoboVM note: Skip the slots of collected objects
+            while( next == null && cur <= lastNumber ) {
+                next = objectAt( cur++ );
+            }
+            return next != null;
         }
 
 		public final E next() { 
             if( !hasNext() ) throw new NoSuchElementException();
-            return (E) numberToObj[cur++];
+            if( slots == null ) return (E) numberToObj[cur++];
+            E ret = (E) next;
+            next = null;
+            return ret;
         }
         public final void remove() {
             throw new UnsupportedOperationException();
@@ -62,6 +62,14 @@ public class HashChain<E> extends AbstractCollection<E>
         return objectIndexes;
     }
 
+    /**
+     * Returns a count which is incremented whenever this chain is modified.
+     * RoboVM note: Added in RoboVM.
+     */
+    public long getModificationCount() {
+        return stateCount;
+    }
+
     /** Erases the contents of the current HashChain. */
     public void clear() 
     {
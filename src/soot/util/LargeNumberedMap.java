@@ -33,6 +33,7 @@ public final class LargeNumberedMap {
         int newsize = universe.size();
         if( newsize < 8 ) newsize = 8;
         values = new Object[newsize];
+        if( universe.isReclaimable() ) keys = new Numberable[newsize];
     }
     public boolean put( Numberable key, Object value ) {
         int number = key.getNumber();
@@ -41,7 +42,13 @@ public final class LargeNumberedMap {
             Object[] oldValues = values;
             values = new Object[ universe.size()*2+5 ];
             System.arraycopy(oldValues,0,values,0,oldValues.length);
+            if( keys != null ) {
+                Numberable[] oldKeys = keys;
+                keys = new Numberable[ values.length ];
+                System.arraycopy(oldKeys,0,keys,0,oldKeys.length);
+            }
         }
+        if( keys != null ) keys[number] = key;
         boolean ret = ( values[number] != value );
         values[number] = value;
         return ret;
@@ -63,6 +70,7 @@ public final class LargeNumberedMap {
             }
             public Object next() {
                 if(!hasNext()) throw new NoSuchElementException();
+                if( keys != null ) return keys[cur++];
                 return universe.get(cur++);
             }
             public void remove() { throw new UnsupportedOperationException(); }
@@ -72,5 +80,9 @@ public final class LargeNumberedMap {
     /* Private stuff. */
 
     private Object[] values;
+    /** RoboVM note: The key of each entry, kept only if the universe is
+     * reclaimable. Holding on to the keys keeps their numbers from being
+     * reused while they are in the map. */
+    private Numberable[] keys;
     private ArrayNumberer universe;
 }
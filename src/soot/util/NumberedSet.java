@@ -81,7 +81,9 @@ public final class NumberedSet {
     }
     private final void doubleSize() {
         int uniSize = universe.size();
-        if( array.length*128 > uniSize ) {
+        // RoboVM note: Bits don't keep the elements reachable, so a
+        // reclaimable numberer could give their numbers to other objects.
+        if( array.length*128 > uniSize && !universe.isReclaimable() ) {
             bits = new BitVector( uniSize );
             Numberable[] oldArray = array;
             array = null;
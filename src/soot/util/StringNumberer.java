@@ -28,7 +28,8 @@ import java.util.*;
 public class StringNumberer extends ArrayNumberer {
     HashMap<String, NumberedString> stringToNumbered = new HashMap<String, NumberedString>(1024);
 
-    public NumberedString find( String s ) {
+    // RoboVM note: Synchronized since bodies may be built concurrently
+    public synchronized NumberedString find( String s ) {
         NumberedString ret = stringToNumbered.get( s );
         if( ret == null ) {
             stringToNumbered.put( s, ret = new NumberedString(s) );
@@ -36,7 +37,7 @@ public class StringNumberer extends ArrayNumberer {
         }
         return ret;
     }
-    public NumberedString findOrAdd( String s ) {
+    public synchronized NumberedString findOrAdd( String s ) {
         NumberedString ret = stringToNumbered.get( s );
         if( ret == null ) {
             stringToNumbered.put( s, ret = new NumberedString(s) );
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Added in RoboVM. Thread-safe pool of canonical instances which holds on
+ * to its values through weak references. Entries are dropped once their
+ * value is no longer referenced from outside the pool. The number of
+ * entries is bounded; once the pool is full new values are handed back
+ * without being pooled until collected entries make room again.
+ */
+public class WeakInternPool<K, V> {
+    private final ConcurrentHashMap<K, Entry<K, V>> map;
+    private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+    private final int maxSize;
+
+    public WeakInternPool(int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new ConcurrentHashMap<K, Entry<K, V>>();
+    }
+
+    /**
+     * Returns the pooled value for the specified key or <code>null</code>
+     * if there is none.
+     */
+    public V get(K key) {
+        Entry<K, V> e = map.get(key);
+        return e == null ? null : e.get();
+    }
+
+    /**
+     * Returns the pooled value for the specified key. If there is none
+     * <code>value</code> is added to the pool, provided there is room for
+     * it, and returned.
+     */
+    public V intern(K key, V value) {
+        expunge();
+        if (map.size() >= maxSize) {
+            return value;
+        }
+        Entry<K, V> e = new Entry<K, V>(key, value, queue);
+        while (true) {
+            Entry<K, V> old = map.putIfAbsent(key, e);
+            if (old == null) {
+                return value;
+            }
+            V v = old.get();
+            if (v != null) {
+                return v;
+            }
+            if (map.replace(key, old, e)) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in this pool, including entries whose
+     * values have been collected but which haven't been removed yet.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    public void clear() {
+        map.clear();
+        expunge();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        Entry<K, V> e;
+        while ((e = (Entry<K, V>) queue.poll()) != null) {
+            map.remove(e.key, e);
+        }
+    }
+
+    private static class Entry<K, V> extends WeakReference<V> {
+        final K key;
+
+        Entry(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
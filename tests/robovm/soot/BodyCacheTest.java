@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.LongConstant;
+import soot.jimple.StringConstant;
+import soot.options.Options;
+import soot.tagkit.LineNumberTag;
+
+/**
+ * Tests {@link BodyCache}.
+ */
+public class BodyCacheTest {
+
+    private File cacheDir;
+    private SootMethod method;
+    private JimpleBody body;
+
+    @Before
+    public void setUp() throws IOException {
+        G.reset();
+        cacheDir = File.createTempFile(BodyCacheTest.class.getSimpleName(), ".tmp");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+        Options.v().set_body_cache_dir(cacheDir.getAbsolutePath());
+        SootClass object = makeClass("java.lang.Object", null);
+        makeClass("java.lang.String", object);
+        SootClass throwable = makeClass("java.lang.Throwable", object);
+        SootClass foo = makeClass("Foo", object);
+        SootField count = new SootField("count", IntType.v());
+        foo.addField(count);
+        SootMethod bar = new SootMethod("bar",
+                Collections.singletonList(RefType.v("java.lang.String")),
+                IntType.v(), Modifier.STATIC);
+        foo.addMethod(bar);
+        method = new SootMethod("foo", Arrays.asList(IntType.v(), object.getType()),
+                IntType.v(), Modifier.PUBLIC);
+        foo.addMethod(method);
+        body = makeBody(method, count, bar, throwable);
+    }
+
+    @After
+    public void tearDown() {
+        delete(cacheDir);
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static SootClass makeClass(String name, SootClass superclass) {
+        SootClass c = new SootClass(name, Modifier.PUBLIC);
+        if (superclass != null) {
+            c.setSuperclass(superclass);
+        }
+        c.setResolvingLevel(SootClass.BODIES);
+        Scene.v().addClass(c);
+        return c;
+    }
+
+    private static JimpleBody makeBody(SootMethod m, SootField count, SootMethod bar, SootClass throwable) {
+        Jimple j = Jimple.v();
+        JimpleBody b = j.newBody(m);
+        RefType string = RefType.v("java.lang.String");
+        Local self = j.newLocal("this", m.getDeclaringClass().getType());
+        Local i = j.newLocal("i", IntType.v());
+        Local o = j.newLocal("o", RefType.v("java.lang.Object"));
+        Local s = j.newLocal("s", string);
+        Local z = j.newLocal("z", BooleanType.v());
+        Local n = j.newLocal("n", IntType.v());
+        Local l = j.newLocal("l", LongType.v());
+        Local arr = j.newLocal("arr", ArrayType.v(IntType.v(), 1));
+        Local e = j.newLocal("e", throwable.getType());
+        b.getLocals().addAll(Arrays.asList(self, i, o, s, z, n, l, arr, e));
+
+        Unit ret = j.newReturnStmt(n);
+        Unit handler = j.newIdentityStmt(e, j.newCaughtExceptionRef());
+        Unit first = j.newAssignStmt(s, j.newCastExpr(o, string));
+        List<Unit> units = new ArrayList<Unit>();
+        units.add(j.newIdentityStmt(self, j.newThisRef(m.getDeclaringClass().getType())));
+        units.add(j.newIdentityStmt(i, j.newParameterRef(IntType.v(), 0)));
+        units.add(j.newIdentityStmt(o, j.newParameterRef(RefType.v("java.lang.Object"), 1)));
+        units.add(first);
+        units.add(j.newAssignStmt(z, j.newInstanceOfExpr(o, string)));
+        units.add(j.newAssignStmt(s, StringConstant.v("foo\nå")));
+        units.add(j.newAssignStmt(n, j.newInstanceFieldRef(self, count.makeRef())));
+        units.add(j.newAssignStmt(n, j.newAddExpr(n, i)));
+        units.add(j.newAssignStmt(l, LongConstant.v(Long.MIN_VALUE)));
+        units.add(j.newAssignStmt(n, j.newStaticInvokeExpr(bar.makeRef(), s)));
+        units.add(j.newAssignStmt(arr, j.newNewArrayExpr(IntType.v(), n)));
+        units.add(j.newAssignStmt(j.newArrayRef(arr, IntConstant.v(0)), i));
+        units.add(j.newAssignStmt(n, j.newLengthExpr(arr)));
+        units.add(j.newEnterMonitorStmt(self));
+        units.add(j.newExitMonitorStmt(self));
+        units.add(j.newIfStmt(j.newGtExpr(n, IntConstant.v(0)), ret));
+        units.add(j.newTableSwitchStmt(i, 0, 1, Arrays.asList(ret, first), ret));
+        units.add(ret);
+        units.add(handler);
+        units.add(j.newThrowStmt(e));
+        for (int k = 0; k < units.size(); k++) {
+            units.get(k).addTag(new LineNumberTag(k + 10));
+        }
+        b.getUnits().addAll(units);
+        b.getTraps().add(j.newTrap(throwable, first, ret, handler));
+        return b;
+    }
+
+    private File findEntry() {
+        List<File> files = new ArrayList<File>();
+        for (File dir : cacheDir.listFiles()) {
+            files.addAll(Arrays.asList(dir.listFiles()));
+        }
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        BodyCache.v().store(method, "digest", body);
+        JimpleBody loaded = BodyCache.v().load(method, "digest");
+        assertNotNull(loaded);
+        assertEquals(body.toString(), loaded.toString());
+        assertEquals(body.getUnits().size(), loaded.getUnits().size());
+        assertEquals(body.getUnits().getFirst().getTag("LineNumberTag").toString(),
+                loaded.getUnits().getFirst().getTag("LineNumberTag").toString());
+    }
+
+    @Test
+    public void testMiss() {
+        BodyCache.v().store(method, "digest", body);
+        assertNull(BodyCache.v().load(method, "other"));
+    }
+
+    @Test
+    public void testTruncatedEntryIsDiscarded() throws IOException {
+        BodyCache.v().store(method, "digest", body);
+        File f = findEntry();
+        byte[] data = readFile(f);
+        writeFile(f, Arrays.copyOf(data, data.length / 2));
+
+        assertNull(BodyCache.v().load(method, "digest"));
+        assertFalse(f.exists());
+    }
+
+    @Test
+    public void testInvalidEntryIsDiscarded() throws IOException {
+        BodyCache.v().store(method, "digest", body);
+        File f = findEntry();
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+        int magic = in.readInt();
+        int version = in.readInt();
+        int formatVersion = in.readInt();
+        String subSignature = in.readUTF();
+        in.close();
+        // Valid header followed by a local variable referring to unit 0 of
+        // a body without units. Reading it fails with a RuntimeException.
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(f));
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(formatVersion);
+        out.writeUTF(subSignature);
+        out.write(new byte[] {0, 0, 0, 1, 0, 0, 0});
+        out.close();
+
+        assertNull(BodyCache.v().load(method, "digest"));
+        assertFalse(f.exists());
+
+        // The next store replaces the discarded entry
+        BodyCache.v().store(method, "digest", body);
+        assertEquals(body.toString(), BodyCache.v().load(method, "digest").toString());
+    }
+
+    private static byte[] readFile(File f) throws IOException {
+        byte[] data = new byte[(int) f.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+        try {
+            in.readFully(data);
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    private static void writeFile(File f, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(f);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+}
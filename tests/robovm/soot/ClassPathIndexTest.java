@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link ClassPathIndex}.
+ */
+public class ClassPathIndexTest {
+
+    private File root;
+    private File dir1;
+    private File dir2;
+    private File jar;
+
+    @Before
+    public void setUp() throws IOException {
+        G.reset();
+        root = File.createTempFile(ClassPathIndexTest.class.getSimpleName(), ".tmp");
+        root.delete();
+        dir1 = new File(root, "dir1");
+        dir2 = new File(root, "dir2");
+        dir1.mkdirs();
+        dir2.mkdirs();
+        jar = new File(root, "lib.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new ZipEntry("a/A.class"));
+            out.write(new byte[] {1, 2, 3});
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("a/B.class"));
+            out.write(new byte[] {4});
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static void touch(File f) throws IOException {
+        f.getParentFile().mkdirs();
+        new FileOutputStream(f).close();
+    }
+
+    @Test
+    public void testLookupInArchive() throws IOException {
+        ClassPathIndex index = new ClassPathIndex(Arrays.asList(dir1.getPath(), jar.getPath()));
+        try {
+            assertEquals(jar.getPath(), index.lookupEntry("a/A.class"));
+            assertNull(index.lookupEntry("a/C.class"));
+            SourceLocator.FoundFile f = index.lookup("a/A.class");
+            assertArrayEquals(new byte[] {1, 2, 3}, ClassPathIndex.readFully(f.inputStream(), -1));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testFilesWrittenToDirectoriesLaterAreFound() throws IOException {
+        ClassPathIndex index = new ClassPathIndex(Arrays.asList(dir1.getPath(), jar.getPath(), dir2.getPath()));
+        try {
+            assertNull(index.lookupEntry("a/C.class"));
+            touch(new File(dir2, "a/C.class"));
+            assertEquals(dir2.getPath(), index.lookupEntry("a/C.class"));
+
+            // A file in an earlier directory shadows the archive
+            assertEquals(jar.getPath(), index.lookupEntry("a/B.class"));
+            touch(new File(dir1, "a/B.class"));
+            assertEquals(dir1.getPath(), index.lookupEntry("a/B.class"));
+            assertNotNull(index.lookup("a/B.class").path);
+
+            // A file in a later directory doesn't
+            touch(new File(dir2, "a/A.class"));
+            assertEquals(jar.getPath(), index.lookupEntry("a/A.class"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testReadFully() throws IOException {
+        byte[] data = {1, 2, 3, 4};
+        assertArrayEquals(data, ClassPathIndex.readFully(new ByteArrayInputStream(data), 4));
+        assertArrayEquals(data, ClassPathIndex.readFully(new ByteArrayInputStream(data), -1));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyShortRead() throws IOException {
+        ClassPathIndex.readFully(new ByteArrayInputStream(new byte[] {1, 2}), 4);
+    }
+}
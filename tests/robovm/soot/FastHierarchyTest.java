@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests changes made to {@link FastHierarchy} for RoboVM.
+ */
+public class FastHierarchyTest {
+
+    private SootClass object;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        object = makeClass("java.lang.Object", null);
+    }
+
+    private static SootClass makeClass(String name, SootClass superclass, SootClass... interfaces) {
+        SootClass c = new SootClass(name, Modifier.PUBLIC);
+        if (superclass != null) {
+            c.setSuperclass(superclass);
+        }
+        for (SootClass i : interfaces) {
+            c.addInterface(i);
+        }
+        c.setResolvingLevel(SootClass.HIERARCHY);
+        Scene.v().addClass(c);
+        return c;
+    }
+
+    private static SootClass makeInterface(String name) {
+        SootClass c = makeClass(name, null);
+        c.setModifiers(Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT);
+        return c;
+    }
+
+    private static SootClass makePhantomClass(String name) {
+        SootClass c = makeClass(name, null);
+        c.setPhantomClass();
+        return c;
+    }
+
+    private static boolean canStore(FastHierarchy h, SootClass child, SootClass parent) {
+        return h.canStoreType(child.getType(), parent.getType());
+    }
+
+    @Test
+    public void testPhantomSuperclass() {
+        SootClass i = makeInterface("I");
+        SootClass j = makeInterface("J");
+        SootClass a = makeClass("A", object, j);
+        SootClass b = makeClass("B", a);
+        SootClass phantom = makePhantomClass("Phantom");
+        SootClass c = makeClass("C", phantom, i);
+        SootClass d = makeClass("D", c);
+        SootClass e = makeClass("E", phantom);
+        FastHierarchy h = new FastHierarchy();
+
+        assertTrue(canStore(h, phantom, object));
+        assertTrue(canStore(h, c, object));
+        assertTrue(canStore(h, d, object));
+        assertTrue(canStore(h, i, object));
+        assertTrue(canStore(h, c, phantom));
+        assertTrue(canStore(h, d, phantom));
+        assertTrue(canStore(h, d, c));
+        assertFalse(canStore(h, c, d));
+        assertFalse(canStore(h, e, c));
+
+        assertTrue(canStore(h, c, i));
+        assertTrue(canStore(h, d, i));
+        assertFalse(canStore(h, e, i));
+        assertFalse(canStore(h, phantom, i));
+        assertTrue(canStore(h, a, j));
+        assertTrue(canStore(h, b, j));
+        // The Intervals of trees rooted at phantom classes overlap the ones
+        // in the java.lang.Object tree, as they always have, so unrelated
+        // classes in different trees are not checked here.
+    }
+
+    @Test
+    public void testConcreteDispatchSeesAddedMethods() {
+        SootClass a = makeClass("A", object);
+        SootClass b = makeClass("B", a);
+        SootMethod aFoo = new SootMethod("foo", Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC);
+        a.addMethod(aFoo);
+        FastHierarchy h = new FastHierarchy();
+
+        assertSame(aFoo, h.resolveConcreteDispatch(b, aFoo));
+        assertEquals(Collections.singleton(aFoo), h.resolveAbstractDispatch(a, aFoo));
+
+        SootMethod bFoo = new SootMethod("foo", Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC);
+        b.addMethod(bFoo);
+        assertSame(bFoo, h.resolveConcreteDispatch(b, aFoo));
+        assertTrue(h.resolveAbstractDispatch(a, aFoo).contains(bFoo));
+
+        b.removeMethod(bFoo);
+        assertSame(aFoo, h.resolveConcreteDispatch(b, aFoo));
+    }
+}
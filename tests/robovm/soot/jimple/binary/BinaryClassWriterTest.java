@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.binary;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.ArrayType;
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.StringConstant;
+import soot.options.Options;
+import soot.tagkit.SignatureTag;
+
+/**
+ * Writes a class using {@link BinaryClassWriter} and reads it back through
+ * {@link BinaryClassProvider}.
+ */
+public class BinaryClassWriterTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        G.reset();
+        dir = File.createTempFile(BinaryClassWriterTest.class.getSimpleName(), ".tmp");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+        G.reset();
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static SootClass makeClass(String name, SootClass superclass) {
+        SootClass c = new SootClass(name, Modifier.PUBLIC);
+        if (superclass != null) {
+            c.setSuperclass(superclass);
+        }
+        c.setResolvingLevel(SootClass.BODIES);
+        Scene.v().addClass(c);
+        return c;
+    }
+
+    /**
+     * Creates the class <code>foo.Foo</code> with a field, a native method
+     * and two methods with bodies.
+     */
+    private static SootClass makeFoo() {
+        SootClass object = makeClass("java.lang.Object", null);
+        makeClass("java.lang.String", object);
+        SootClass throwable = makeClass("java.lang.Throwable", object);
+        SootClass foo = makeClass("foo.Foo", object);
+
+        SootField count = new SootField("count", IntType.v(), Modifier.PRIVATE);
+        count.addTag(new SignatureTag("I"));
+        foo.addField(count);
+        SootMethod bar = new SootMethod("bar",
+                Collections.singletonList(RefType.v("java.lang.String")),
+                IntType.v(), Modifier.STATIC | Modifier.NATIVE);
+        foo.addMethod(bar);
+
+        Jimple j = Jimple.v();
+        SootMethod get = new SootMethod("get", Collections.emptyList(),
+                IntType.v(), Modifier.PUBLIC);
+        get.addExceptionIfAbsent(throwable);
+        foo.addMethod(get);
+        JimpleBody b = j.newBody(get);
+        Local self = j.newLocal("this", foo.getType());
+        Local n = j.newLocal("n", IntType.v());
+        Local e = j.newLocal("e", throwable.getType());
+        b.getLocals().addAll(Arrays.asList(self, n, e));
+        Unit ret = j.newReturnStmt(n);
+        Unit handler = j.newIdentityStmt(e, j.newCaughtExceptionRef());
+        Unit first = j.newAssignStmt(n, j.newStaticInvokeExpr(bar.makeRef(), StringConstant.v("x")));
+        b.getUnits().add(j.newIdentityStmt(self, j.newThisRef(foo.getType())));
+        b.getUnits().add(first);
+        b.getUnits().add(j.newIfStmt(j.newEqExpr(n, IntConstant.v(0)), ret));
+        b.getUnits().add(j.newAssignStmt(n, j.newInstanceFieldRef(self, count.makeRef())));
+        b.getUnits().add(ret);
+        b.getUnits().add(handler);
+        b.getUnits().add(j.newThrowStmt(e));
+        b.getTraps().add(j.newTrap(throwable, first, ret, handler));
+        get.setActiveBody(b);
+
+        SootMethod make = new SootMethod("make", Collections.singletonList(IntType.v()),
+                ArrayType.v(foo.getType(), 1), Modifier.PUBLIC | Modifier.STATIC);
+        foo.addMethod(make);
+        b = j.newBody(make);
+        Local size = j.newLocal("size", IntType.v());
+        Local arr = j.newLocal("arr", ArrayType.v(foo.getType(), 1));
+        b.getLocals().addAll(Arrays.asList(size, arr));
+        b.getUnits().add(j.newIdentityStmt(size, j.newParameterRef(IntType.v(), 0)));
+        b.getUnits().add(j.newAssignStmt(arr, j.newNewArrayExpr(foo.getType(), size)));
+        b.getUnits().add(j.newReturnStmt(arr));
+        make.setActiveBody(b);
+
+        SootMethod clinit = new SootMethod("<clinit>", Collections.emptyList(),
+                VoidType.v(), Modifier.STATIC);
+        foo.addMethod(clinit);
+        b = j.newBody(clinit);
+        b.getUnits().add(j.newReturnVoidStmt());
+        clinit.setActiveBody(b);
+        return foo;
+    }
+
+    /**
+     * Returns a description of the declarations and bodies of the
+     * specified class.
+     */
+    private static Map<String, String> describe(SootClass c) {
+        Map<String, String> r = new LinkedHashMap<String, String>();
+        r.put("class", Modifier.toString(c.getModifiers()) + " " + c.getName()
+                + " extends " + c.getSuperclass().getName());
+        for (SootField f : c.getFields()) {
+            r.put(f.getSignature(), Modifier.toString(f.getModifiers()) + " " + f.getTags());
+        }
+        for (SootMethod m : c.getMethods()) {
+            String body = m.isConcrete() ? m.retrieveActiveBody().toString() : "";
+            r.put(m.getSignature(), Modifier.toString(m.getModifiers()) + " "
+                    + m.getExceptions() + "\n" + body);
+        }
+        return r;
+    }
+
+    private void write(SootClass c) throws IOException {
+        File f = new File(dir, c.getName().replace('.', File.separatorChar)
+                + BinaryClassProvider.EXTENSION);
+        f.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(f);
+        try {
+            new BinaryClassWriter().write(c, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private SootClass load(boolean binaryJimple) {
+        G.reset();
+        Options.v().set_soot_classpath(dir.getAbsolutePath());
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_binary_jimple(binaryJimple);
+        return Scene.v().loadClassAndSupport("foo.Foo");
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SootClass foo = makeFoo();
+        Map<String, String> expected = describe(foo);
+        write(foo);
+
+        SootClass loaded = load(true);
+        assertFalse(loaded.isPhantom());
+        Map<String, String> actual = describe(loaded);
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+        for (String key : expected.keySet()) {
+            assertEquals(key, expected.get(key), actual.get(key));
+        }
+    }
+
+    @Test
+    public void testIgnoredWithoutOption() throws IOException {
+        write(makeFoo());
+        assertTrue(load(false).isPhantom());
+    }
+
+    @Test
+    public void testBodiesDecodedOnDemand() throws IOException {
+        write(makeFoo());
+        SootClass loaded = load(true);
+        List<SootMethod> concrete = new ArrayList<SootMethod>();
+        for (SootMethod m : loaded.getMethods()) {
+            if (m.isConcrete()) {
+                assertFalse(m.hasActiveBody());
+                assertTrue(m.getSource() instanceof BinaryMethodSource);
+                concrete.add(m);
+            }
+        }
+        assertEquals(3, concrete.size());
+        // Decoding one body doesn't need the others
+        SootMethod make = loaded.getMethodByName("make");
+        assertEquals(3, make.retrieveActiveBody().getUnits().size());
+        assertFalse(loaded.getMethodByName("get").hasActiveBody());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.callgraph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.Modifier;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+
+/**
+ * Tests that {@link CompactCallGraph} behaves like {@link CallGraph}.
+ */
+public class CompactCallGraphTest {
+
+    private List<SootMethod> methods;
+    private List<Unit> units;
+    private CallGraph expected;
+    private CompactCallGraph actual;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        SootClass foo = new SootClass("Foo", Modifier.PUBLIC);
+        methods = new ArrayList<SootMethod>();
+        for (int i = 0; i < 4; i++) {
+            SootMethod m = new SootMethod("m" + i, Collections.<Type>emptyList(), 
+                    VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+            foo.addMethod(m);
+            methods.add(m);
+        }
+        units = new ArrayList<Unit>();
+        for (int i = 0; i < 3; i++) {
+            units.add(Jimple.v().newNopStmt());
+        }
+        expected = new CallGraph();
+        actual = new CompactCallGraph();
+    }
+
+    private Edge edge(int src, int unit, int tgt, Kind kind) {
+        return new Edge(src < 0 ? null : methods.get(src), unit < 0 ? null : units.get(unit),
+                methods.get(tgt), kind);
+    }
+
+    private void add(Edge e) {
+        assertEquals(expected.addEdge(e), actual.addEdge(e));
+    }
+
+    private void remove(Edge e) {
+        assertEquals(expected.removeEdge(e), actual.removeEdge(e));
+    }
+
+    private static <T> List<T> toList(Iterator<? extends T> it) {
+        List<T> l = new ArrayList<T>();
+        while (it.hasNext()) {
+            l.add(it.next());
+        }
+        return l;
+    }
+
+    private static Set<MethodOrMethodContext> sourceMethods(CallGraph cg) {
+        return new HashSet<MethodOrMethodContext>(toList(cg.sourceMethods()));
+    }
+
+    private void assertSameGraph() {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(sourceMethods(expected), sourceMethods(actual));
+        assertEquals(toList(expected.listener()), toList(actual.listener()));
+        for (SootMethod m : methods) {
+            assertEquals(toList(expected.edgesOutOf(m)), toList(actual.edgesOutOf(m)));
+            assertEquals(toList(expected.edgesInto(m)), toList(actual.edgesInto(m)));
+            assertEquals(expected.isEntryMethod(m), actual.isEntryMethod(m));
+        }
+        for (Unit u : units) {
+            assertEquals(toList(expected.edgesOutOf(u)), toList(actual.edgesOutOf(u)));
+        }
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        Edge e1 = edge(0, 0, 1, Kind.VIRTUAL);
+        Edge e2 = edge(0, 0, 2, Kind.VIRTUAL);
+        Edge e3 = edge(0, 1, 2, Kind.STATIC);
+        Edge e4 = edge(-1, -1, 0, Kind.CLINIT);
+        Edge e5 = edge(1, 2, 3, Kind.SPECIAL);
+        Edge e6 = edge(-1, -1, 3, Kind.THREAD);
+        for (Edge e : Arrays.asList(e1, e2, e3, e4, e5, e6)) {
+            add(e);
+        }
+        add(edge(0, 0, 1, Kind.VIRTUAL));
+        assertSameGraph();
+        assertTrue(sourceMethods(actual).contains(null));
+        assertEquals(expected.findEdge(units.get(0), methods.get(2)), 
+                actual.findEdge(units.get(0), methods.get(2)));
+
+        remove(e2);
+        remove(e4);
+        remove(e4);
+        remove(e5);
+        assertSameGraph();
+
+        add(e2);
+        add(e4);
+        assertSameGraph();
+    }
+
+    @Test
+    public void testNullSourceOnly() {
+        add(edge(-1, -1, 0, Kind.CLINIT));
+        assertSameGraph();
+        assertEquals(Collections.singletonList(null), toList(actual.sourceMethods()));
+    }
+
+    @Test
+    public void testListeners() {
+        add(edge(0, 0, 1, Kind.VIRTUAL));
+        Iterator<Edge> expectedAll = expected.listener();
+        Iterator<Edge> actualAll = actual.listener();
+        Iterator<Edge> expectedNew = expected.newListener();
+        Iterator<Edge> actualNew = actual.newListener();
+        Edge e = edge(-1, -1, 2, Kind.CLINIT);
+        add(e);
+        add(edge(1, 1, 2, Kind.STATIC));
+        remove(e);
+        assertEquals(toList(expectedAll), toList(actualAll));
+        assertEquals(toList(expectedNew), toList(actualNew));
+        assertFalse(actual.newListener().hasNext());
+    }
+}
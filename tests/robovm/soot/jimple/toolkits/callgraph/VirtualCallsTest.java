@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.callgraph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.FastHierarchy;
+import soot.G;
+import soot.IntType;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+
+/**
+ * Tests the precomputed dispatch tables of {@link VirtualCalls}.
+ */
+public class VirtualCallsTest {
+
+    private List<SootClass> classes;
+    private SootClass object;
+    private SootClass a;
+    private SootClass b;
+    private SootClass c;
+    private SootClass d;
+    private SootClass e;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        classes = new ArrayList<SootClass>();
+        object = makeClass("java.lang.Object", null, Modifier.PUBLIC);
+        addMethod(object, "toString", RefType.v("java.lang.String"), Modifier.PUBLIC);
+        addMethod(object, "hashCode", IntType.v(), Modifier.PUBLIC);
+        a = makeClass("A", object, Modifier.PUBLIC | Modifier.ABSTRACT);
+        addMethod(a, "foo", VoidType.v(), Modifier.PUBLIC);
+        addMethod(a, "bar", VoidType.v(), Modifier.PUBLIC | Modifier.ABSTRACT);
+        b = makeClass("B", a, Modifier.PUBLIC);
+        addMethod(b, "bar", VoidType.v(), Modifier.PUBLIC);
+        addMethod(b, "toString", RefType.v("java.lang.String"), Modifier.PUBLIC);
+        c = makeClass("C", b, Modifier.PUBLIC);
+        addMethod(c, "foo", VoidType.v(), Modifier.PUBLIC);
+        d = makeClass("D", c, Modifier.PUBLIC);
+        SootClass i = makeClass("I", object, Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT);
+        addMethod(i, "baz", VoidType.v(), Modifier.PUBLIC | Modifier.ABSTRACT);
+        e = makeClass("E", object, Modifier.PUBLIC);
+        e.addInterface(i);
+        addMethod(e, "baz", VoidType.v(), Modifier.PUBLIC);
+    }
+
+    private SootClass makeClass(String name, SootClass superclass, int modifiers) {
+        SootClass cl = new SootClass(name, modifiers);
+        if (superclass != null) {
+            cl.setSuperclass(superclass);
+        }
+        cl.setResolvingLevel(SootClass.SIGNATURES);
+        Scene.v().addClass(cl);
+        classes.add(cl);
+        return cl;
+    }
+
+    private static SootMethod addMethod(SootClass cl, String name, Type returnType, int modifiers) {
+        SootMethod m = new SootMethod(name, Collections.<Type>emptyList(), returnType, modifiers);
+        cl.addMethod(m);
+        return m;
+    }
+
+    private static SootMethod resolve(SootClass cl, SootMethod m) {
+        return VirtualCalls.v().resolveNonSpecial(cl.getType(), m.getNumberedSubSignature());
+    }
+
+    private void assertSameAsFastHierarchy() {
+        FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+        int checked = 0;
+        for (SootClass cl : classes) {
+            if (cl.isInterface() || cl.isAbstract()) {
+                continue;
+            }
+            for (SootClass declaring : classes) {
+                if (!fh.canStoreType(cl.getType(), declaring.getType())) {
+                    continue;
+                }
+                for (SootMethod m : declaring.getMethods()) {
+                    assertSame(cl + " " + m, fh.resolveConcreteDispatch(cl, m), resolve(cl, m));
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void testPrecomputedMatchesFastHierarchy() {
+        VirtualCalls.v().precomputeDispatchTables();
+        assertSameAsFastHierarchy();
+        assertSame(c.getMethodByName("foo"), resolve(d, a.getMethodByName("foo")));
+        assertSame(b.getMethodByName("bar"), resolve(d, a.getMethodByName("bar")));
+        assertSame(b.getMethodByName("toString"), resolve(d, object.getMethodByName("toString")));
+        assertSame(object.getMethodByName("hashCode"), resolve(d, object.getMethodByName("hashCode")));
+    }
+
+    @Test
+    public void testTablesAreIgnoredAfterMembersChange() {
+        VirtualCalls.v().precomputeDispatchTables();
+        SootMethod aFoo = a.getMethodByName("foo");
+        assertSame(c.getMethodByName("foo"), resolve(d, aFoo));
+
+        SootMethod dFoo = addMethod(d, "foo", VoidType.v(), Modifier.PUBLIC);
+        assertSame(dFoo, resolve(d, aFoo));
+        assertSameAsFastHierarchy();
+
+        d.removeMethod(dFoo);
+        VirtualCalls.v().precomputeDispatchTables();
+        assertSame(c.getMethodByName("foo"), resolve(d, aFoo));
+        assertSameAsFastHierarchy();
+    }
+}
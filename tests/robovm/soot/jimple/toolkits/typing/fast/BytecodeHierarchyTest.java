@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.typing.fast;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.ArrayType;
+import soot.G;
+import soot.IntType;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.Type;
+
+/**
+ * Tests the {@link LcaCache} used by {@link BytecodeHierarchy} and the
+ * RoboVM version of {@link BytecodeHierarchy#lcsc(RefType, RefType)}.
+ */
+public class BytecodeHierarchyTest {
+
+    private SootClass object;
+    private SootClass serializable;
+    private SootClass i;
+    private SootClass j;
+    private SootClass a;
+    private SootClass b;
+    private SootClass c;
+    private SootClass d;
+    private SootClass e;
+    private List<Type> types;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        object = makeClass("java.lang.Object", null);
+        serializable = makeInterface("java.io.Serializable");
+        makeInterface("java.lang.Cloneable");
+        i = makeInterface("I");
+        j = makeInterface("J");
+        a = makeClass("A", object, serializable);
+        b = makeClass("B", a, i);
+        c = makeClass("C", a, i, j);
+        d = makeClass("D", b, j);
+        e = makeClass("E", object);
+
+        types = new ArrayList<Type>();
+        for (SootClass sc : Scene.v().getClasses()) {
+            types.add(sc.getType());
+            types.add(sc.getType().makeArrayType());
+        }
+        types.add(ArrayType.v(IntType.v(), 1));
+        types.add(ArrayType.v(IntType.v(), 2));
+    }
+
+    private static SootClass makeClass(String name, SootClass superclass, SootClass... interfaces) {
+        SootClass c = new SootClass(name, Modifier.PUBLIC);
+        if (superclass != null) {
+            c.setSuperclass(superclass);
+        }
+        for (SootClass i : interfaces) {
+            c.addInterface(i);
+        }
+        c.setResolvingLevel(SootClass.HIERARCHY);
+        Scene.v().addClass(c);
+        return c;
+    }
+
+    private SootClass makeInterface(String name) {
+        // Interfaces loaded from class files have Object as superclass
+        SootClass c = makeClass(name, object);
+        c.setModifiers(Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT);
+        return c;
+    }
+
+    private void assertSameAsUncached() {
+        for (Type ta : types) {
+            for (Type tb : types) {
+                if (TypeResolver.typesEqual(ta, tb)) {
+                    continue;
+                }
+                Collection<Type> expected = BytecodeHierarchy.refLcas(ta, tb);
+                assertEquals(ta + ", " + tb, new HashSet<Type>(expected),
+                        new HashSet<Type>(BytecodeHierarchy.lcas_(ta, tb)));
+            }
+        }
+    }
+
+    @Test
+    public void testCachedLcasMatchUncached() {
+        assertSameAsUncached();
+        assertTrue(LcaCache.v().size() > 0);
+        // Second round is answered from the cache
+        assertSameAsUncached();
+    }
+
+    @Test
+    public void testKnownLcas() {
+        assertEquals(set(a.getType(), i.getType()),
+                set(BytecodeHierarchy.lcas_(b.getType(), c.getType())));
+        assertEquals(set(a.getType(), i.getType(), j.getType()),
+                set(BytecodeHierarchy.lcas_(d.getType(), c.getType())));
+        assertEquals(set(object.getType()), set(BytecodeHierarchy.lcas_(a.getType(), e.getType())));
+        assertEquals(set(a.getType().makeArrayType(), i.getType().makeArrayType()),
+                set(BytecodeHierarchy.lcas_(b.getType().makeArrayType(), c.getType().makeArrayType())));
+    }
+
+    @Test
+    public void testCacheInvalidatedWhenHierarchyChanges() {
+        BytecodeHierarchy.lcas_(b.getType(), e.getType());
+        assertEquals(set(object.getType()), set(BytecodeHierarchy.lcas_(b.getType(), e.getType())));
+
+        // Make E implement I. The cached answer for (B, E) is now stale.
+        e.addInterface(i);
+        Scene.v().releaseFastHierarchy();
+        assertEquals(set(i.getType()), set(BytecodeHierarchy.lcas_(b.getType(), e.getType())));
+        assertSameAsUncached();
+    }
+
+    @Test
+    public void testLcsc() {
+        assertEquals(a.getType(), BytecodeHierarchy.lcsc(b.getType(), c.getType()));
+        assertEquals(a.getType(), BytecodeHierarchy.lcsc(d.getType(), c.getType()));
+        assertEquals(b.getType(), BytecodeHierarchy.lcsc(d.getType(), b.getType()));
+        assertEquals(object.getType(), BytecodeHierarchy.lcsc(d.getType(), e.getType()));
+        assertEquals(object.getType(), BytecodeHierarchy.lcsc(object.getType(), e.getType()));
+    }
+
+    private static HashSet<Type> set(Type... ts) {
+        HashSet<Type> r = new HashSet<Type>();
+        for (Type t : ts) {
+            r.add(t);
+        }
+        return r;
+    }
+
+    private static HashSet<Type> set(Collection<Type> ts) {
+        return new HashSet<Type>(ts);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.jimple.toolkits.typing.fast;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.BooleanType;
+import soot.FloatType;
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.ShortType;
+import soot.jimple.Jimple;
+
+/**
+ * Tests the copy-on-write behaviour of {@link Typing}.
+ */
+public class TypingTest {
+
+    private Local a;
+    private Local b;
+    private Local c;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        a = Jimple.v().newLocal("a", IntType.v());
+        b = Jimple.v().newLocal("b", IntType.v());
+        c = Jimple.v().newLocal("c", IntType.v());
+    }
+
+    @Test
+    public void testInitialTypesAreBottom() {
+        Typing tg = new Typing(Arrays.asList(a, b));
+        assertEquals(BottomType.v(), tg.get(a));
+        assertEquals(BottomType.v(), tg.get(b));
+        assertNull(tg.get(c));
+    }
+
+    @Test
+    public void testSetReturnsPreviousType() {
+        Typing tg = new Typing(Arrays.asList(a, b));
+        assertEquals(BottomType.v(), tg.set(a, IntType.v()));
+        assertEquals(IntType.v(), tg.set(a, ShortType.v()));
+        assertEquals(ShortType.v(), tg.get(a));
+    }
+
+    @Test
+    public void testCopiesDoNotShareChanges() {
+        Typing original = new Typing(Arrays.asList(a, b));
+        original.set(a, IntType.v());
+        Typing copy = new Typing(original);
+        Typing copyOfCopy = new Typing(copy);
+
+        copy.set(a, ShortType.v());
+        assertEquals(IntType.v(), original.get(a));
+        assertEquals(ShortType.v(), copy.get(a));
+        assertEquals(IntType.v(), copyOfCopy.get(a));
+
+        original.set(b, BooleanType.v());
+        assertEquals(BooleanType.v(), original.get(b));
+        assertEquals(BottomType.v(), copy.get(b));
+        assertEquals(BottomType.v(), copyOfCopy.get(b));
+
+        // Setting an unshared typing twice must not affect the others
+        copy.set(b, IntType.v());
+        copy.set(b, ShortType.v());
+        assertEquals(BooleanType.v(), original.get(b));
+        assertEquals(BottomType.v(), copyOfCopy.get(b));
+    }
+
+    @Test
+    public void testLocalsAddedToCopies() {
+        Typing original = new Typing(Arrays.asList(a));
+        Typing copy = new Typing(original);
+
+        copy.set(c, IntType.v());
+        assertEquals(IntType.v(), copy.get(c));
+        assertNull(original.get(c));
+        assertEquals(BottomType.v(), original.get(a));
+
+        // A copy made later sees the local but the earlier copy's type
+        Typing later = new Typing(copy);
+        original.set(c, ShortType.v());
+        assertEquals(ShortType.v(), original.get(c));
+        assertEquals(IntType.v(), copy.get(c));
+        assertEquals(IntType.v(), later.get(c));
+    }
+
+    @Test
+    public void testCompare() {
+        IHierarchy h = new BytecodeHierarchy();
+        Typing bottom = new Typing(Arrays.asList(a, b));
+        Typing ints = new Typing(bottom);
+        ints.set(a, IntType.v());
+        ints.set(b, IntType.v());
+        Typing mixed = new Typing(bottom);
+        mixed.set(a, IntType.v());
+        mixed.set(b, FloatType.v());
+        Typing other = new Typing(Arrays.asList(a, b));
+        other.set(a, IntType.v());
+        other.set(b, IntType.v());
+
+        assertEquals(1, Typing.compare(ints, bottom, h));
+        assertEquals(-1, Typing.compare(bottom, ints, h));
+        assertEquals(-2, Typing.compare(ints, mixed, h));
+        // Typings with different local indices are compared by local
+        assertEquals(Typing.compare(ints, bottom, h), Typing.compare(other, bottom, h));
+        assertEquals(Typing.compare(bottom, ints, h), Typing.compare(bottom, other, h));
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2014 RoboVM AB
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/gpl-2.0.html>.
+ */
+package soot.toolkits.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Unit;
+import soot.ValueBox;
+import soot.VoidType;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.Stmt;
+import soot.toolkits.exceptions.PedanticThrowAnalysis;
+import soot.toolkits.exceptions.ThrowAnalysis;
+import soot.toolkits.exceptions.UnitThrowAnalysis;
+import soot.toolkits.graph.ExceptionalUnitGraph.ExceptionDest;
+import soot.toolkits.scalar.SimpleLiveLocals;
+import soot.toolkits.scalar.SmartLocalDefs;
+
+/**
+ * Tests that {@link CompactUnitGraph} has the same nodes and edges as
+ * {@link ExceptionalUnitGraph}.
+ */
+public class CompactUnitGraphTest {
+
+    private static final String[][] THROWABLES = {
+        {"java.lang.Throwable", "java.lang.Object"},
+        {"java.lang.Exception", "java.lang.Throwable"},
+        {"java.lang.Error", "java.lang.Throwable"},
+        {"java.lang.RuntimeException", "java.lang.Exception"},
+        {"java.lang.ArithmeticException", "java.lang.RuntimeException"},
+        {"java.lang.ArrayStoreException", "java.lang.RuntimeException"},
+        {"java.lang.ClassCastException", "java.lang.RuntimeException"},
+        {"java.lang.IllegalMonitorStateException", "java.lang.RuntimeException"},
+        {"java.lang.IndexOutOfBoundsException", "java.lang.RuntimeException"},
+        {"java.lang.ArrayIndexOutOfBoundsException", "java.lang.IndexOutOfBoundsException"},
+        {"java.lang.NegativeArraySizeException", "java.lang.RuntimeException"},
+        {"java.lang.NullPointerException", "java.lang.RuntimeException"},
+        {"java.lang.ThreadDeath", "java.lang.Error"},
+        {"java.lang.VirtualMachineError", "java.lang.Error"},
+        {"java.lang.InternalError", "java.lang.VirtualMachineError"},
+        {"java.lang.OutOfMemoryError", "java.lang.VirtualMachineError"},
+        {"java.lang.StackOverflowError", "java.lang.VirtualMachineError"},
+        {"java.lang.UnknownError", "java.lang.VirtualMachineError"},
+        {"java.lang.LinkageError", "java.lang.Error"},
+        {"java.lang.ClassCircularityError", "java.lang.LinkageError"},
+        {"java.lang.ClassFormatError", "java.lang.LinkageError"},
+        {"java.lang.NoClassDefFoundError", "java.lang.LinkageError"},
+        {"java.lang.UnsatisfiedLinkError", "java.lang.LinkageError"},
+        {"java.lang.VerifyError", "java.lang.LinkageError"},
+        {"java.lang.ExceptionInInitializerError", "java.lang.LinkageError"},
+        {"java.lang.IncompatibleClassChangeError", "java.lang.LinkageError"},
+        {"java.lang.AbstractMethodError", "java.lang.IncompatibleClassChangeError"},
+        {"java.lang.IllegalAccessError", "java.lang.IncompatibleClassChangeError"},
+        {"java.lang.InstantiationError", "java.lang.IncompatibleClassChangeError"},
+        {"java.lang.NoSuchFieldError", "java.lang.IncompatibleClassChangeError"},
+        {"java.lang.NoSuchMethodError", "java.lang.IncompatibleClassChangeError"},
+    };
+
+    private Body body;
+
+    @Before
+    public void setUp() {
+        G.reset();
+        makeClass("java.lang.Object", null);
+        for (String[] t : THROWABLES) {
+            makeClass(t[0], Scene.v().getSootClass(t[1]));
+        }
+        SootClass c = makeClass("Foo", Scene.v().getSootClass("java.lang.Object"));
+        SootMethod m = new SootMethod("foo",
+                Arrays.asList(IntType.v(), ArrayType.v(IntType.v(), 1)),
+                VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        c.addMethod(m);
+        body = makeBody(m);
+        m.setActiveBody(body);
+    }
+
+    private static SootClass makeClass(String name, SootClass superclass) {
+        SootClass c = new SootClass(name, Modifier.PUBLIC);
+        if (superclass != null) {
+            c.setSuperclass(superclass);
+        }
+        c.setResolvingLevel(SootClass.HIERARCHY);
+        Scene.v().addClass(c);
+        return c;
+    }
+
+    /**
+     * Builds the body of
+     * <pre>
+     * static void foo(int i, int[] a) {
+     *     try {
+     *         while (true) {
+     *             int j = a[i / i];
+     *             if (j == 0) return;
+     *             switch (j) {
+     *             case 1: i++; break;
+     *             default: throw new RuntimeException();
+     *             }
+     *         }
+     *     } catch (RuntimeException e) {
+     *         throw e;
+     *     }
+     * }
+     * </pre>
+     */
+    private static JimpleBody makeBody(SootMethod m) {
+        Jimple j = Jimple.v();
+        JimpleBody b = j.newBody(m);
+        RefType rte = RefType.v("java.lang.RuntimeException");
+        Local i = j.newLocal("i", IntType.v());
+        Local a = j.newLocal("a", ArrayType.v(IntType.v(), 1));
+        Local k = j.newLocal("k", IntType.v());
+        Local e = j.newLocal("e", rte);
+        b.getLocals().addAll(Arrays.asList(i, a, k, e));
+
+        Unit ret = j.newReturnVoidStmt();
+        Unit handler = j.newIdentityStmt(e, j.newCaughtExceptionRef());
+        Unit rethrow = j.newThrowStmt(e);
+        Unit loop = j.newAssignStmt(k, j.newDivExpr(i, i));
+        Unit inc = j.newAssignStmt(i, j.newAddExpr(i, IntConstant.v(1)));
+        Unit newEx = j.newAssignStmt(e, j.newNewExpr(rte));
+        Unit doThrow = j.newThrowStmt(e);
+
+        List<Unit> units = new ArrayList<Unit>();
+        units.add(j.newIdentityStmt(i, j.newParameterRef(IntType.v(), 0)));
+        units.add(j.newIdentityStmt(a, j.newParameterRef(ArrayType.v(IntType.v(), 1), 1)));
+        units.add(loop);
+        units.add(j.newAssignStmt(k, j.newArrayRef(a, k)));
+        units.add(j.newIfStmt(j.newEqExpr(k, IntConstant.v(0)), ret));
+        units.add(j.newLookupSwitchStmt(k,
+                Collections.singletonList(IntConstant.v(1)),
+                Collections.singletonList(inc), newEx));
+        units.add(inc);
+        units.add(j.newGotoStmt(loop));
+        units.add(newEx);
+        units.add(doThrow);
+        units.add(ret);
+        units.add(handler);
+        units.add(rethrow);
+        b.getUnits().addAll(units);
+        b.getTraps().add(j.newTrap(rte.getSootClass(), loop, ret, handler));
+        return b;
+    }
+
+    private void assertSameGraph(ThrowAnalysis ta, boolean omit) {
+        ExceptionalUnitGraph expected = new ExceptionalUnitGraph(body, ta, omit);
+        CompactUnitGraph actual = new CompactUnitGraph(body, ta, omit);
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(toList(expected.iterator()), toList(actual.iterator()));
+        assertEquals(expected.getHeads(), actual.getHeads());
+        assertEquals(expected.getTails(), actual.getTails());
+        for (Unit u : body.getUnits()) {
+            assertEquals(expected.getSuccsOf(u), actual.getSuccsOf(u));
+            assertEquals(expected.getPredsOf(u), actual.getPredsOf(u));
+            assertEquals(expected.getUnexceptionalSuccsOf(u), actual.getUnexceptionalSuccsOf(u));
+            assertEquals(expected.getUnexceptionalPredsOf(u), actual.getUnexceptionalPredsOf(u));
+            assertEquals(expected.getExceptionalSuccsOf(u), actual.getExceptionalSuccsOf(u));
+            assertEquals(expected.getExceptionalPredsOf(u), actual.getExceptionalPredsOf(u));
+            assertEquals(toStrings(expected.getExceptionDests(u)),
+                    toStrings(actual.getExceptionDests(u)));
+
+            int idx = actual.indexOf(u);
+            assertSame(u, actual.getUnit(idx));
+            assertEquals(expected.getSuccsOf(u).size(), actual.getSuccs().count(idx));
+            assertEquals(expected.getPredsOf(u).size(), actual.getPreds().count(idx));
+        }
+    }
+
+    private static List<Unit> toList(Iterator<Unit> it) {
+        List<Unit> result = new ArrayList<Unit>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    private static List<String> toStrings(Collection<ExceptionDest> dests) {
+        List<String> result = new ArrayList<String>();
+        for (ExceptionDest d : dests) {
+            result.add(d.getTrap() + " -> " + d.getHandlerNode() + ": " + d.getThrowables());
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameEdgesAsExceptionalUnitGraph() {
+        assertSameGraph(UnitThrowAnalysis.v(), false);
+        assertSameGraph(UnitThrowAnalysis.v(), true);
+        assertSameGraph(PedanticThrowAnalysis.v(), false);
+        assertSameGraph(PedanticThrowAnalysis.v(), true);
+    }
+
+    @Test
+    public void testHasExceptionalEdges() {
+        CompactUnitGraph g = new CompactUnitGraph(body, UnitThrowAnalysis.v(), false);
+        assertTrue(g.getExceptionalSuccs().size() > 0);
+        assertTrue(g.getUnexceptionalSuccs().size() > 0);
+        assertEquals(g.getSuccs().size(), g.getPreds().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEdgeListsAreUnmodifiable() {
+        CompactUnitGraph g = new CompactUnitGraph(body, UnitThrowAnalysis.v(), false);
+        g.getSuccsOf(body.getUnits().getFirst()).clear();
+    }
+
+    @Test
+    public void testSameLocalDefsAndLiveLocals() {
+        ExceptionalUnitGraph expected = new ExceptionalUnitGraph(body, UnitThrowAnalysis.v(), false);
+        CompactUnitGraph actual = new CompactUnitGraph(body, UnitThrowAnalysis.v(), false);
+        SimpleLiveLocals expectedLive = new SimpleLiveLocals(expected);
+        SimpleLiveLocals actualLive = new SimpleLiveLocals(actual);
+        SmartLocalDefs expectedDefs = new SmartLocalDefs(expected, expectedLive);
+        SmartLocalDefs actualDefs = new SmartLocalDefs(actual, actualLive);
+        for (Unit u : body.getUnits()) {
+            assertEquals(new HashSet<Local>(expectedLive.getLiveLocalsBefore(u)),
+                    new HashSet<Local>(actualLive.getLiveLocalsBefore(u)));
+            assertEquals(new HashSet<Local>(expectedLive.getLiveLocalsAfter(u)),
+                    new HashSet<Local>(actualLive.getLiveLocalsAfter(u)));
+            for (ValueBox box : ((Stmt) u).getUseBoxes()) {
+                if (box.getValue() instanceof Local) {
+                    Local l = (Local) box.getValue();
+                    assertEquals(new HashSet<Unit>(expectedDefs.getDefsOfAt(l, u)),
+                            new HashSet<Unit>(actualDefs.getDefsOfAt(l, u)));
+                }
+            }
+        }
+    }
+}
@@ -1388,6 +1388,89 @@ public class ThrowableSetTest extends TestCase {
     }
 
 
+    // RoboVM note: The following tests exercise the subtype masks used
+    // by the bitset representation of ThrowableSet.
+
+    public void testAddAnySubTypeDropsCoveredTypes() {
+	ThrowableSet set0 = mgr.EMPTY.add(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION)
+	    .add(util.STRING_INDEX_OUT_OF_BOUNDS_EXCEPTION)
+	    .add(util.NULL_POINTER_EXCEPTION);
+	ThrowableSet set1 = set0.add(AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	assertSameMembers(set1,
+			  new RefLikeType[] {
+			      AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION),
+			      util.NULL_POINTER_EXCEPTION,
+			  },
+			  new RefLikeType[] {
+			  });
+	assertTrue(set1 == mgr.EMPTY.add(util.NULL_POINTER_EXCEPTION)
+		   .add(AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION)));
+    }
+
+    public void testAddCoveredTypes() {
+	ThrowableSet anyRuntime = mgr.EMPTY.add(AnySubType.v(util.RUNTIME_EXCEPTION));
+	assertTrue(anyRuntime == anyRuntime.add(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	assertTrue(anyRuntime == anyRuntime.add(AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION)));
+	assertTrue(anyRuntime == anyRuntime.add(util.RUNTIME_EXCEPTION));
+
+	ThrowableSet set0 = mgr.EMPTY.add(util.CLASS_CAST_EXCEPTION)
+	    .add(util.LINKAGE_ERROR);
+	ThrowableSet set1 = set0.add(anyRuntime);
+	assertSameMembers(set1,
+			  new RefLikeType[] {
+			      AnySubType.v(util.RUNTIME_EXCEPTION),
+			      util.LINKAGE_ERROR,
+			  },
+			  new RefLikeType[] {
+			  });
+	assertTrue(set1 == anyRuntime.add(set0));
+    }
+
+    public void testCatchableAsMasks() {
+	ThrowableSet anyRuntime = mgr.EMPTY.add(AnySubType.v(util.RUNTIME_EXCEPTION));
+	// Caught since catcher can be stored in the AnySubType's base.
+	assertTrue(anyRuntime.catchableAs(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	// Caught since the AnySubType's base can be stored in catcher.
+	assertTrue(anyRuntime.catchableAs(util.EXCEPTION));
+	assertTrue(! anyRuntime.catchableAs(util.ERROR));
+
+	ThrowableSet set0 = mgr.EMPTY.add(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION);
+	assertTrue(set0.catchableAs(util.INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	assertTrue(set0.catchableAs(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	assertTrue(! set0.catchableAs(util.STRING_INDEX_OUT_OF_BOUNDS_EXCEPTION));
+
+	ThrowableSet.Pair catchableAs = anyRuntime.whichCatchableAs(util.INDEX_OUT_OF_BOUNDS_EXCEPTION);
+	assertSameMembers(catchableAs,
+			  new RefLikeType[] {
+			      AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION),
+			  },
+			  new RefLikeType[] {
+			  },
+			  new RefLikeType[] {
+			      AnySubType.v(util.RUNTIME_EXCEPTION),
+			  },
+			  new RefLikeType[] {
+			      AnySubType.v(util.INDEX_OUT_OF_BOUNDS_EXCEPTION),
+			  });
+	assertTrue(! catchableAs.getUncaught().catchableAs(util.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION));
+	assertTrue(catchableAs.getUncaught().catchableAs(util.NULL_POINTER_EXCEPTION));
+	assertTrue(catchableAs == anyRuntime.whichCatchableAs(util.INDEX_OUT_OF_BOUNDS_EXCEPTION));
+    }
+
+    public void testMemoizedAddsDroppedWithHierarchy() {
+	ThrowableSet set0 = mgr.EMPTY.add(util.ARITHMETIC_EXCEPTION);
+	ThrowableSet set1 = set0.add(util.NEGATIVE_ARRAY_SIZE_EXCEPTION);
+	assertTrue(set0.getMemoizedAdds().get(util.NEGATIVE_ARRAY_SIZE_EXCEPTION) == set1);
+
+	Scene.v().releaseFastHierarchy();
+	assertTrue(set0.getMemoizedAdds().isEmpty());
+	// The memoized adds of all sets are gone now.
+	expectedMemoizations = new ExpectedMemoizations();
+	assertTrue(set1 == set0.add(util.NEGATIVE_ARRAY_SIZE_EXCEPTION));
+	assertTrue(set0.getMemoizedAdds().get(util.NEGATIVE_ARRAY_SIZE_EXCEPTION) == set1);
+    }
+
+
     // Suite that uses a prescribed order, rather than whatever
     // order reflection produces.
     public static Test cannedSuite() {